@@ -27,9 +27,11 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.jackson.ResponsePathDeserializer;
+import com.graphhopper.jackson.ResponsePathProtobuf;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.Parameters;
 import com.graphhopper.util.shapes.GHPoint;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
@@ -66,6 +68,7 @@ public class GraphHopperWeb {
     private boolean elevation = false;
     private String optimize = "false";
     private boolean postRequest = true;
+    private boolean binaryResponse = false;
     private int maxUnzippedLength = 1000;
     private final Set<String> ignoreSet;
     private final Set<String> ignoreSetForPost;
@@ -147,6 +150,15 @@ public class GraphHopperWeb {
         return this;
     }
 
+    /**
+     * Requests the binary format instead of JSON, which is smaller and faster to decode, see
+     * {@link ResponsePathProtobuf}. Errors are still returned as JSON. The default is false.
+     */
+    public GraphHopperWeb setBinaryResponse(boolean binaryResponse) {
+        this.binaryResponse = binaryResponse;
+        return this;
+    }
+
     /**
      * Enable or disable calculating points for the way. The default is true.
      */
@@ -194,7 +206,14 @@ public class GraphHopperWeb {
             ghRequest.getHints().remove("turn_description"); // do not include in request
 
             Request okRequest = postRequest ? createPostRequest(ghRequest) : createGetRequest(ghRequest);
+            if (binaryResponse)
+                // errors can only be returned as JSON
+                okRequest = okRequest.newBuilder().header("Accept", ResponsePathProtobuf.MEDIA_TYPE + ", application/json;q=0.5").build();
             rspBody = getClientForRequest(ghRequest).newCall(okRequest).execute().body();
+            MediaType contentType = rspBody.contentType();
+            if (contentType != null && ResponsePathProtobuf.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype()))
+                return ResponsePathProtobuf.read(rspBody.byteStream(), tmpTurnDescription);
+
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
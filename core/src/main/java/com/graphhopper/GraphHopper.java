@@ -41,6 +41,7 @@ import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.countryrules.CountryRuleFactory;
 import com.graphhopper.routing.util.parsers.*;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.AreaEdgeCache;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
@@ -64,6 +65,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static com.graphhopper.util.GHUtility.readCountries;
@@ -97,6 +100,10 @@ public class GraphHopper {
     private DAType dataAccessDefaultType = DAType.RAM_STORE;
     private final LinkedHashMap<String, String> dataAccessConfig = new LinkedHashMap<>();
     private boolean sortGraph = false;
+    private boolean speedProfilesEnabled = false;
+    private SpeedProfileStorage speedProfiles;
+    private boolean edgeWeightsEnabled = false;
+    private final Map<String, EdgeWeightStorage> edgeWeights = new LinkedHashMap<>();
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -104,12 +111,17 @@ public class GraphHopper {
     private final OSMReaderConfig osmReaderConfig = new OSMReaderConfig();
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private ExecutorService legExecutor;
+    private AreaEdgeCache areaEdgeCache;
+    private RoutingMetrics routingMetrics = RoutingMetrics.NONE;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
     // subnetworks
     private int minNetworkSize = 200;
+    private int subnetworksThreads = 1;
+    private int subnetworksSCCThreads = 1;
     // residential areas
     private double residentialAreaRadius = 300;
     private double residentialAreaSensitivity = 60;
@@ -409,6 +421,44 @@ public class GraphHopper {
         return this;
     }
 
+    /**
+     * Creates a {@link SpeedProfileStorage} in the graph folder, which enables time-dependent routing with the
+     * departure_time parameter.
+     */
+    public GraphHopper setSpeedProfilesEnabled(boolean speedProfilesEnabled) {
+        ensureNotLoaded();
+        this.speedProfilesEnabled = speedProfilesEnabled;
+        return this;
+    }
+
+    /**
+     * Stores the edge weights of every custom profile in the graph folder, see {@link EdgeWeightStorage}. Requests
+     * without a custom model then read the weights instead of evaluating the custom model for every edge, which costs
+     * 16 bytes per edge and profile.
+     */
+    public GraphHopper setEdgeWeightsEnabled(boolean edgeWeightsEnabled) {
+        ensureNotLoaded();
+        this.edgeWeightsEnabled = edgeWeightsEnabled;
+        return this;
+    }
+
+    /**
+     * Sets the metrics that receive the durations of the phases and the visited nodes of every route request. This
+     * can also be changed after loading the graph.
+     */
+    public GraphHopper setRoutingMetrics(RoutingMetrics routingMetrics) {
+        this.routingMetrics = routingMetrics;
+        return this;
+    }
+
+    /**
+     * @return the speed profiles of the edges or null if they are not enabled. Call {@link SpeedProfileStorage#flush()}
+     * after changing them to store them in the graph folder.
+     */
+    public SpeedProfileStorage getSpeedProfileStorage() {
+        return speedProfiles;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -509,6 +559,8 @@ public class GraphHopper {
         nonnatre(ghConfig);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        speedProfilesEnabled = ghConfig.getBool("graph.speed_profiles", speedProfilesEnabled);
+        edgeWeightsEnabled = ghConfig.getBool("graph.edge_weights", edgeWeightsEnabled);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
 
         nonnaquatttro(ghConfig);
@@ -542,6 +594,8 @@ public class GraphHopper {
 
         // optimizable prepare
         minNetworkSize = ghConfig.getInt("prepare.min_network_size", minNetworkSize);
+        subnetworksThreads = ghConfig.getInt("prepare.subnetworks.threads", subnetworksThreads);
+        subnetworksSCCThreads = ghConfig.getInt("prepare.subnetworks.scc_threads", subnetworksSCCThreads);
 
         // prepare CH&LM
         chPreparationHandler.init(ghConfig);
@@ -576,6 +630,10 @@ public class GraphHopper {
         routerConfig.setMaxRoundTripRetries(ghConfig.getInt(RoundTrip.INIT_MAX_RETRIES, routerConfig.getMaxRoundTripRetries()));
         routerConfig.setNonChMaxWaypointDistance(ghConfig.getInt(Parameters.NONCH.MAX_NON_CH_POINT_DISTANCE, routerConfig.getNonChMaxWaypointDistance()));
         routerConfig.setInstructionsEnabled(ghConfig.getBool(Routing.INIT_INSTRUCTIONS, routerConfig.isInstructionsEnabled()));
+        routerConfig.setLegThreads(ghConfig.getInt(Routing.INIT_LEG_THREADS, routerConfig.getLegThreads()));
+        routerConfig.setParallelDetailsMinEdges(ghConfig.getInt(Routing.INIT_PARALLEL_DETAILS_MIN_EDGES, routerConfig.getParallelDetailsMinEdges()));
+        routerConfig.setAreaEdgeCacheSize(ghConfig.getInt(Routing.INIT_AREA_EDGE_CACHE_SIZE, routerConfig.getAreaEdgeCacheSize()));
+        routerConfig.setCHCustomModels(ghConfig.getBool(Parameters.CH.INIT_CUSTOM_MODELS, routerConfig.isCHCustomModels()));
         int activeLandmarkCount = ghConfig.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, lmPreparationHandler.getLandmarks()));
         if (activeLandmarkCount > lmPreparationHandler.getLandmarks())
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
@@ -1003,6 +1061,8 @@ public class GraphHopper {
         baseGraph.getDirectory().create();
         baseGraph.create(100);
         properties.create(100);
+        if (speedProfilesEnabled)
+            speedProfiles = new SpeedProfileStorage(baseGraph.getDirectory()).create(100);
     }
 
     protected void writeEncodingManagerToProperties() {
@@ -1084,6 +1144,11 @@ public class GraphHopper {
                     .setSegmentSize(defaultSegmentSize)
                     .build();
             baseGraph.loadExisting();
+            if (speedProfilesEnabled) {
+                speedProfiles = new SpeedProfileStorage(directory);
+                if (!speedProfiles.loadExisting())
+                    throw new IllegalStateException("Speed profiles are enabled, but the graph has none. Change configuration to match the graph or delete " + directory.getLocation());
+            }
             checkProfilesConsistency();
             String storedProfiles = properties.get("profiles");
             String configuredProfiles = getProfilesString();
@@ -1270,6 +1335,9 @@ public class GraphHopper {
     protected void postProcessing(boolean closeEarly) throws MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMDataAccess.RamExce, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce, LMPreparationHandler.LMExce {
         initLocationIndex();
         importPublicTransit();
+        precompileCustomModels();
+        if (edgeWeightsEnabled)
+            loadOrPrepareEdgeWeights();
 
         if (closeEarly) {
             boolean includesCustomProfiles = profilesByName.values().stream().anyMatch(CustomProfile.class::isInstance);
@@ -1290,6 +1358,45 @@ public class GraphHopper {
             loadOrPrepareCH(closeEarly);
     }
 
+    /**
+     * Compiles the custom models of the profiles, so that the first requests for them do not have to wait for it.
+     */
+    private void precompileCustomModels() {
+        StopWatch sw = new StopWatch().start();
+        int profiles = 0;
+        for (Profile profile : profilesByName.values()) {
+            if (profile instanceof CustomProfile) {
+                createWeighting(profile, new PMap(), true);
+                profiles++;
+            }
+        }
+        if (profiles > 0)
+            logger.info("compiled custom models of {} profiles, took: {}ms", profiles, sw.stop().getMillis());
+    }
+
+    /**
+     * Loads the edge weights of the custom profiles or calculates them if they do not exist yet.
+     */
+    private void loadOrPrepareEdgeWeights() throws MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMDataAccess.RamExce, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        for (Profile profile : profilesByName.values()) {
+            if (!(profile instanceof CustomProfile))
+                continue;
+            EdgeWeightStorage storage = new EdgeWeightStorage(baseGraph.getDirectory(), profile.getName());
+            if (storage.loadExisting()) {
+                if (storage.getEdges() != baseGraph.getEdges())
+                    throw new IllegalStateException("The edge weights of " + profile.getName() + " do not match the graph, delete " + baseGraph.getDirectory().getLocation());
+            } else {
+                ensureWriteAccess();
+                StopWatch sw = new StopWatch().start();
+                storage.create(baseGraph.getEdges());
+                storage.calcWeights(baseGraph, createWeighting(profile, new PMap(), true));
+                storage.flush();
+                logger.info("calculated edge weights of {}, took: {}ms, {}MB", profile.getName(), sw.stop().getMillis(), storage.getCapacity() / Helper.MB);
+            }
+            edgeWeights.put(profile.getName(), storage);
+        }
+    }
+
     protected void importPublicTransit() {
         /*
         Non so perchè non ci sia l'implementazione
@@ -1332,8 +1439,33 @@ public class GraphHopper {
         if (locationIndex == null)
             throw new IllegalStateException("Location index not initialized");
 
+        WeightingFactory weightingFactory = createWeightingFactory();
+        if (weightingFactory instanceof DefaultWeightingFactory)
+            ((DefaultWeightingFactory) weightingFactory).setAreaEdgeCache(getAreaEdgeCache());
         return doCreateRouter(new InnerRouter(baseGraph, encodingManager, locationIndex, profilesByName), pathBuilderFactory,
-                trMap, routerConfig, createWeightingFactory(), chGraphs, landmarks);
+                trMap, routerConfig, weightingFactory, chGraphs, landmarks).setLegExecutor(getLegExecutor()).setSpeedProfiles(speedProfiles).setEdgeWeights(edgeWeights).
+                setRoutingMetrics(routingMetrics);
+    }
+
+    private synchronized AreaEdgeCache getAreaEdgeCache() {
+        // the weightings of the preparations are created without this cache, because the location index might be closed early
+        if (routerConfig.getAreaEdgeCacheSize() == 0)
+            return null;
+        if (areaEdgeCache == null)
+            areaEdgeCache = new AreaEdgeCache(baseGraph, locationIndex, routerConfig.getAreaEdgeCacheSize());
+        return areaEdgeCache;
+    }
+
+    private synchronized ExecutorService getLegExecutor() {
+        if (routerConfig.getLegThreads() <= 1)
+            return null;
+        if (legExecutor == null)
+            legExecutor = Executors.newFixedThreadPool(routerConfig.getLegThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "gh-leg-routing");
+                thread.setDaemon(true);
+                return thread;
+            });
+        return legExecutor;
     }
 
     public static class InnerRouter{
@@ -1441,7 +1573,7 @@ public class GraphHopper {
             else if (prepared.containsKey(profile.getProfile())) {
                 setCHProfileVersion(profile.getProfile(), profilesByName.get(profile.getProfile()).getVersion());
                 PrepareContractionHierarchies.Result res = prepared.get(profile.getProfile());
-                chGraphs.put(profile.getProfile(), RoutingCHGraphImpl.fromGraph(baseGraph.getBaseGraph(), res.getCHStorage(), res.getCHConfig()));
+                chGraphs.put(profile.getProfile(), RoutingCHGraphImpl.fromGraph(baseGraph.getBaseGraph(), res.getCHStorage(), res.getCHConfig(), res.getShortcutMetadata()));
             } else if (loaded.containsKey(profile.getProfile())) {
                 chGraphs.put(profile.getProfile(), loaded.get(profile.getProfile()));
             } else
@@ -1504,6 +1636,8 @@ public class GraphHopper {
     protected void cleanUp() {
         PrepareRoutingSubnetworks preparation = new PrepareRoutingSubnetworks(baseGraph.getBaseGraph(), buildSubnetworkRemovalJobs());
         preparation.setMinNetworkSize(minNetworkSize);
+        preparation.setThreads(subnetworksThreads);
+        preparation.setSCCThreads(subnetworksSCCThreads);
         preparation.doWork();
         properties.put("profiles", getProfilesString());
     }
@@ -1521,6 +1655,8 @@ public class GraphHopper {
     protected void flush() throws MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, StorableProperties.StorableExce {
         baseGraph.flush();
         properties.flush();
+        if (speedProfiles != null)
+            speedProfiles.flush();
 
         setFullyLoaded();
     }
@@ -1534,6 +1670,9 @@ public class GraphHopper {
             baseGraph.close();
         if (properties != null)
             properties.close();
+        if (speedProfiles != null)
+            speedProfiles.close();
+        edgeWeights.values().forEach(EdgeWeightStorage::close);
 
         chGraphs.values().forEach(RoutingCHGraph::close);
         landmarks.values().forEach(LandmarkStorage::close);
@@ -1541,6 +1680,12 @@ public class GraphHopper {
         if (locationIndex != null)
             locationIndex.close();
 
+        synchronized (this) {
+            if (legExecutor != null)
+                legExecutor.shutdown();
+            legExecutor = null;
+        }
+
         try {
             lockFactory.forceRemove(FILE_LOCK_NAME, true);
         } catch (Exception ex) {
@@ -0,0 +1,306 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.ch.ShortcutMetadata;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.DISTANCE;
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.WEIGHT;
+
+/**
+ * A one-to-all variant of {@link ShortestPathTree} for profiles with a prepared (node-based) CH graph. It uses
+ * PHAST (Delling et al., "PHAST: Hardware-Accelerated Shortest Path Trees"): a small upward search in the CH graph
+ * followed by a single linear sweep over all nodes in descending CH level order, which yields the exact shortest
+ * path weight of every node without a priority queue.
+ * <p>
+ * Both phases also sum up the time or distance of the shortest paths via the {@link ShortcutMetadata}. A node is
+ * only kept if the time or distance of its shortest path is within the limit, and only for these nodes the time or
+ * distance, the labels and the order of the next step are stored. Unlike for the Dijkstra of
+ * {@link ShortestPathTree}, a node is never reached via a path of larger weight when its shortest path exceeds the
+ * limit, which only makes a difference if the weight is not proportional to the limited time or distance.
+ * <p>
+ * The CH graph only knows weights, so in a second step the tree is re-built on the query graph: the kept nodes are
+ * visited in the order of their PHAST weight and the tree edges are relaxed just like in {@link ShortestPathTree}.
+ * This way the same {@link IsoLabel}s (including time, distance and parent) are passed to the consumer, and parents
+ * are always accepted before their children.
+ * <p>
+ * Note that the sweep still visits every node of the graph and needs one weight per node, so it only pays off for
+ * large limits. The CH graph has to be fully contracted.
+ */
+public class PhastShortestPathTree extends ShortestPathTree {
+    // paths whose weights only differ by the rounding of the shortcut weights are considered equal, and we use the
+    // smaller time or distance of them
+    private static final double WEIGHT_TOLERANCE = 0.01;
+
+    private final QueryGraph queryGraph;
+    private final RoutingCHGraph chGraph;
+    private final ShortcutMetadata shortcutMetadata;
+    private final int baseNodes;
+    // the time, distance or weight of the nodes within the limit
+    private final IntDoubleHashMap exploreValues = new IntDoubleHashMap();
+    private final GHIntObjectHashMap<IsoLabel> labels = new GHIntObjectHashMap<>();
+    private int visitedNodes;
+
+    public PhastShortestPathTree(QueryGraph queryGraph, RoutingCHGraph chGraph, boolean reverseFlow) {
+        super(queryGraph, queryGraph.wrapWeighting(chGraph.getWeighting()), reverseFlow, TraversalMode.NODE_BASED);
+        if (chGraph.isEdgeBased())
+            throw new IllegalArgumentException("PHAST is only supported for node-based CH graphs");
+        if (chGraph.getShortcutMetadata() == null)
+            throw new IllegalArgumentException("PHAST requires the shortcut metadata calculated during the CH preparation");
+        this.queryGraph = queryGraph;
+        this.chGraph = chGraph;
+        this.shortcutMetadata = chGraph.getShortcutMetadata();
+        this.baseNodes = chGraph.getNodes();
+    }
+
+    @Override
+    public void search(int[] from, final Consumer<IsoLabel> consumer) {
+        checkAlreadyRun();
+        double[] weights = new double[queryGraph.getNodes()];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+
+        PriorityQueue<SPTEntry> upwardQueue = new PriorityQueue<>();
+        for (int i = 0; i < from.length; i++) {
+            if (!labels.containsKey(from[i]))
+                seed(from[i], i, weights, upwardQueue);
+        }
+        searchUpward(weights, upwardQueue);
+        sweepDownward(weights);
+        buildTree(weights, consumer);
+    }
+
+    /**
+     * Sets the weight of the given (query graph) node to zero and adds the base graph nodes it is attached to to
+     * the queue of the upward search.
+     */
+    private void seed(int node, int origin, double[] weights, PriorityQueue<SPTEntry> upwardQueue) {
+        weights[node] = 0;
+        exploreValues.put(node, 0);
+        IsoLabel label = new IsoLabel(node, EdgeIterator.NO_EDGE, 0, 0, 0, null);
+        label.origin = origin;
+        labels.put(node, label);
+        if (node < baseNodes) {
+            upwardQueue.add(new SPTEntry(node, 0));
+            return;
+        }
+        // a virtual node is not part of the CH graph, so we start the upward search from its adjacent nodes
+        EdgeIterator iter = edgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            // other virtual nodes are either sources themselves or will be reached when the tree is built
+            if (iter.getAdjNode() >= baseNodes)
+                continue;
+            double weight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, reverseFlow, EdgeIterator.NO_EDGE);
+            if (weight < weights[iter.getAdjNode()]) {
+                double value = exploreType == WEIGHT ? weight : exploreType == DISTANCE ? iter.getDistance()
+                        : GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, EdgeIterator.NO_EDGE);
+                weights[iter.getAdjNode()] = weight;
+                putExploreValue(iter.getAdjNode(), value);
+                upwardQueue.add(new SPTEntry(iter.getAdjNode(), weight));
+            }
+        }
+    }
+
+    private void searchUpward(double[] weights, PriorityQueue<SPTEntry> upwardQueue) {
+        RoutingCHEdgeExplorer explorer = reverseFlow ? chGraph.createInEdgeExplorer() : chGraph.createOutEdgeExplorer();
+        while (!upwardQueue.isEmpty()) {
+            SPTEntry entry = upwardQueue.poll();
+            int node = entry.getAdjNode();
+            if (entry.getWeight() > weights[node])
+                continue;
+            visitedNodes++;
+            int level = chGraph.getLevel(node);
+            double value = getExploreValue(node);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                if (chGraph.getLevel(adj) <= level)
+                    continue;
+                double weight = entry.getWeight() + iter.getWeight(reverseFlow);
+                if (weight < weights[adj]) {
+                    weights[adj] = weight;
+                    putExploreValue(adj, value + calcExploreValue(iter, reverseFlow));
+                    // the weights of the upward search are not final, so even nodes beyond the limit are needed to
+                    // find the shortest paths of the nodes above them
+                    upwardQueue.add(new SPTEntry(adj, weight));
+                }
+            }
+        }
+    }
+
+    private void sweepDownward(double[] weights) {
+        RoutingCHEdgeExplorer explorer = reverseFlow ? chGraph.createOutEdgeExplorer() : chGraph.createInEdgeExplorer();
+        int[] nodesByLevel = sortNodesByLevelDescending(chGraph);
+        for (int node : nodesByLevel) {
+            int level = chGraph.getLevel(node);
+            double weight = weights[node];
+            double value = getExploreValue(node);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adj = iter.getAdjNode();
+                if (chGraph.getLevel(adj) <= level || Double.isInfinite(weights[adj]))
+                    continue;
+                double nextWeight = weights[adj] + iter.getWeight(!reverseFlow);
+                if (nextWeight > weight + WEIGHT_TOLERANCE)
+                    continue;
+                double nextValue = getExploreValue(adj) + calcExploreValue(iter, !reverseFlow);
+                value = nextWeight < weight - WEIGHT_TOLERANCE ? nextValue : Math.min(value, nextValue);
+                weight = Math.min(weight, nextWeight);
+            }
+            // we need the weight of all nodes for the nodes below them, but the time or distance only of the nodes
+            // within the limit: every shortest path via the other nodes exceeds the limit as well
+            weights[node] = weight;
+            putExploreValue(node, value);
+        }
+    }
+
+    private double getExploreValue(int node) {
+        return exploreValues.getOrDefault(node, Double.POSITIVE_INFINITY);
+    }
+
+    private void putExploreValue(int node, double value) {
+        if (value > limit)
+            exploreValues.remove(node);
+        else
+            exploreValues.put(node, value);
+    }
+
+    /**
+     * @return the time or distance of the given CH edge. The time of shortcuts that cannot be summed up is treated as
+     * zero, which means we just prune less.
+     */
+    private double calcExploreValue(RoutingCHEdgeIteratorState edge, boolean reverse) {
+        if (exploreType == WEIGHT)
+            return edge.getWeight(reverse);
+        if (edge.isShortcut()) {
+            if (exploreType == DISTANCE)
+                return shortcutMetadata.getDistance(edge.getEdge());
+            long time = shortcutMetadata.getTime(edge.getEdge(), edge.getAdjNode(), reverse);
+            return time == ShortcutMetadata.UNKNOWN_TIME ? 0 : time;
+        }
+        EdgeIteratorState origEdge = chGraph.getBaseGraph().getEdgeIteratorState(edge.getOrigEdge(), edge.getAdjNode());
+        return exploreType == DISTANCE ? origEdge.getDistance() : weighting.calcEdgeMillis(origEdge, reverse);
+    }
+
+    /**
+     * Visits the reached nodes in the order of their PHAST weight and builds the labels on the query graph. A node
+     * that would be accepted before its parent due to rounded shortcut weights is accepted right after its parent.
+     */
+    private void buildTree(double[] weights, Consumer<IsoLabel> consumer) {
+        // only the nodes within the limit, so the sort and the labels do not depend on the size of the graph
+        IntArrayList reached = new IntArrayList(exploreValues.size());
+        for (IntCursor cursor : exploreValues.keys())
+            reached.add(cursor.value);
+        exploreValues.release();
+        final int[] reachedNodes = reached.buffer;
+        int[] order = IndirectSort.mergesort(0, reached.size(), (a, b) -> Double.compare(weights[reachedNodes[a]], weights[reachedNodes[b]]));
+        GHIntHashSet passed = new GHIntHashSet(reached.size());
+        IntArrayList stack = new IntArrayList();
+        for (int index : order) {
+            int node = reachedNodes[index];
+            passed.add(node);
+            stack.add(node);
+            while (!stack.isEmpty()) {
+                settle(stack.remove(stack.size() - 1), passed, stack, consumer);
+            }
+        }
+    }
+
+    private void settle(int node, GHIntHashSet passed, IntArrayList stack, Consumer<IsoLabel> consumer) {
+        IsoLabel currentLabel = labels.get(node);
+        if (currentLabel == null || currentLabel.deleted || currentLabel.parent != null && getExploreValue(currentLabel) > limit)
+            return;
+        consumer.accept(currentLabel);
+        currentLabel.deleted = true;
+        visitedNodes++;
+
+        EdgeIterator iter = edgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            if (!accept(iter, currentLabel.edge))
+                continue;
+            int adj = iter.getAdjNode();
+            IsoLabel label = labels.get(adj);
+            if (label != null && label.deleted)
+                continue;
+            double nextWeight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, reverseFlow, currentLabel.edge) + currentLabel.weight;
+            if (Double.isInfinite(nextWeight) || label != null && label.weight <= nextWeight)
+                continue;
+            double nextDistance = iter.getDistance() + currentLabel.distance;
+            long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currentLabel.edge) + currentLabel.time;
+            labels.put(adj, new IsoLabel(adj, iter.getEdge(), nextWeight, nextTime, nextDistance, currentLabel));
+            // virtual nodes are not part of the CH graph and therefore not ordered, so we accept them right away
+            if (passed.contains(adj) || adj >= baseNodes)
+                stack.add(adj);
+        }
+    }
+
+    static int[] sortNodesByLevelDescending(RoutingCHGraph chGraph) {
+        int nodes = chGraph.getNodes();
+        int[] nodesByLevel = new int[nodes];
+        Arrays.fill(nodesByLevel, -1);
+        for (int node = 0; node < nodes; node++) {
+            int level = chGraph.getLevel(node);
+            if (level < 0 || level >= nodes || nodesByLevel[nodes - 1 - level] >= 0)
+                throw new IllegalArgumentException("PHAST requires a fully contracted CH graph, but found level " + level + " for node " + node);
+            nodesByLevel[nodes - 1 - level] = node;
+        }
+        return nodesByLevel;
+    }
+
+    @Override
+    public Collection<IsoLabel> getIsochroneEdges() {
+        ArrayList<IsoLabel> result = new ArrayList<>();
+        for (ObjectCursor<IsoLabel> cursor : labels.values()) {
+            if (getExploreValue(cursor.value) > limit)
+                result.add(cursor.value);
+        }
+        return result;
+    }
+
+    @Override
+    public String getName() {
+        return "reachability|phast";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+}
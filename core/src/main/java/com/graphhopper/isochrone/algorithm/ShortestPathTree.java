@@ -19,6 +19,7 @@ package com.graphhopper.isochrone.algorithm;
 
 import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.graphhopper.coll.GHIntHashSet;
 import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.routing.AbstractRoutingAlgorithm;
 import com.graphhopper.routing.Path;
@@ -62,6 +63,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
             this.time = time;
             this.distance = distance;
             this.parent = parent;
+            this.origin = parent == null ? 0 : parent.origin;
         }
 
         protected boolean deleted = false;
@@ -101,6 +103,15 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
 
         protected IsoLabel parent;
 
+        /**
+         * @return the index of the source node this label was reached from, see {@link #search(int[], Consumer)}
+         */
+        public int getOrigin() {
+            return origin;
+        }
+
+        protected int origin;
+
         @Override
         public String toString() {
             return "IsoLabel{" +
@@ -109,6 +120,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
                     ", weight=" + weight +
                     ", time=" + time +
                     ", distance=" + distance +
+                    ", origin=" + origin +
                     '}';
         }
     }
@@ -116,9 +128,9 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     private final IntObjectHashMap<IsoLabel> fromMap;
     private final PriorityQueue<IsoLabel> queueByWeighting;
     private int visitedNodes;
-    private double limit = -1;
-    private ExploreType exploreType = TIME;
-    private final boolean reverseFlow;
+    double limit = -1;
+    ExploreType exploreType = TIME;
+    final boolean reverseFlow;
 
     public ShortestPathTree(Graph g, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
         super(g, weighting, traversalMode);
@@ -154,11 +166,27 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
     }
 
     public void search(int from, final Consumer<IsoLabel> consumer) {
+        search(new int[]{from}, consumer);
+    }
+
+    /**
+     * Searches from all the given nodes at once, so every node is reached from its closest source (e.g. to calculate
+     * the union of the isochrones of several depots). The index of this source is available via
+     * {@link IsoLabel#getOrigin()}.
+     */
+    public void search(int[] from, final Consumer<IsoLabel> consumer) {
         checkAlreadyRun();
-        IsoLabel currentLabel = new IsoLabel(from, -1, 0, 0, 0, null);
-        queueByWeighting.add(currentLabel);
-        if (traversalMode == TraversalMode.NODE_BASED) {
-            fromMap.put(from, currentLabel);
+        IsoLabel currentLabel;
+        GHIntHashSet sources = new GHIntHashSet(from.length);
+        for (int i = 0; i < from.length; i++) {
+            if (!sources.add(from[i]))
+                continue;
+            currentLabel = new IsoLabel(from[i], -1, 0, 0, 0, null);
+            currentLabel.origin = i;
+            queueByWeighting.add(currentLabel);
+            if (traversalMode == TraversalMode.NODE_BASED) {
+                fromMap.put(from[i], currentLabel);
+            }
         }
         while (!finished()) {
             currentLabel = queueByWeighting.poll();
@@ -222,7 +250,7 @@ public class ShortestPathTree extends AbstractRoutingAlgorithm {
         return result;
     }
 
-    private double getExploreValue(IsoLabel label) {
+    double getExploreValue(IsoLabel label) {
         if (exploreType == TIME)
             return label.time;
         if (exploreType == WEIGHT)
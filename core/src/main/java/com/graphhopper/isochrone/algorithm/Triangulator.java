@@ -22,6 +22,8 @@ import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.storage.index.Snap;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.ToDoubleFunction;
 
 public interface Triangulator {
@@ -38,6 +40,13 @@ public interface Triangulator {
 
     }
 
-    Result triangulate(Snap snap, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance);
+    default Result triangulate(Snap snap, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance) {
+        return triangulate(Collections.singletonList(snap), queryGraph, shortestPathTree, fz, tolerance);
+    }
+
+    /**
+     * Triangulates the shortest path tree starting from all the given snaps, i.e. the union of their isochrones.
+     */
+    Result triangulate(List<Snap> snaps, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance);
 
 }
@@ -44,6 +44,7 @@ public class AStar extends AbstractRoutingAlgorithm {
     private int visitedNodes;
     private int to = -1;
     private WeightApproximator weightApprox;
+    private TurnRestrictionTraversal turnRestrictionTraversal;
 
     public AStar(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -75,6 +76,16 @@ public class AStar extends AbstractRoutingAlgorithm {
         return this;
     }
 
+    /**
+     * Only distinguishes the incoming edges at nodes with turn costs, see {@link TurnRestrictionTraversal}
+     */
+    public AStar setTurnRestrictionTraversal(TurnRestrictionTraversal turnRestrictionTraversal) {
+        if (!traversalMode.isEdgeBased())
+            throw new IllegalArgumentException("Turn restriction traversal requires edge-based traversal");
+        this.turnRestrictionTraversal = turnRestrictionTraversal;
+        return this;
+    }
+
     protected void initCollections(int size) {
         fromMap = new GHIntObjectHashMap<>();
         fromHeap = new PriorityQueue<>(size);
@@ -110,7 +121,9 @@ public class AStar extends AbstractRoutingAlgorithm {
                     double tmpWeight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, false, currEdge.edge) + currEdge.weightOfVisitedPath;
 
                     if (!Double.isInfinite(tmpWeight)) {
-                        int traversalId = traversalMode.createTraversalId(iter, false);
+                        int traversalId = turnRestrictionTraversal == null
+                                ? traversalMode.createTraversalId(iter, false)
+                                : turnRestrictionTraversal.createTraversalId(iter, tmpWeight, fromMap);
                         AStarEntry ase = fromMap.get(traversalId);
                         millodue(iter, tmpWeight, traversalId, ase);
                     }
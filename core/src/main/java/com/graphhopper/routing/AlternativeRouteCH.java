@@ -24,11 +24,9 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.util.*;
 
 /**
  * Minimum number-of-moving-parts implementation of alternative route search with
@@ -44,6 +42,7 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
     private final double maxShareFactor;
     private final double localOptimalityFactor;
     private final int maxPaths;
+    private final boolean singleSearch;
     private final List<AlternativeInfo> alternatives = new ArrayList<>();
     private int extraVisitedNodes = 0;
 
@@ -53,6 +52,7 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
         maxShareFactor = hints.getDouble("alternative_route.max_share_factor", 0.8);
         localOptimalityFactor = hints.getDouble("alternative_route.local_optimality_factor", 0.25);
         maxPaths = hints.getInt("alternative_route.max_paths", 3);
+        singleSearch = hints.getBool(Parameters.Algorithms.AltRoute.SINGLE_SEARCH, false);
     }
 
     @Override
@@ -91,6 +91,17 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
             if (fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath() > bestPath.getWeight() * maxWeightFactor)
                 return true;
 
+            if (singleSearch) {
+                // the paths are only unpacked for the candidates we look at, see fromSearchSpaces
+                PotentialAlternativeInfo potentialAlternativeInfo = new PotentialAlternativeInfo();
+                potentialAlternativeInfo.v = v;
+                potentialAlternativeInfo.fromEntry = fromSPTEntry;
+                potentialAlternativeInfo.toEntry = toSPTEntry;
+                potentialAlternativeInfo.weight = fromSPTEntry.getWeightOfVisitedPath() + toSPTEntry.getWeightOfVisitedPath();
+                potentialAlternativeInfos.add(potentialAlternativeInfo);
+                return true;
+            }
+
             // This gives us a path s -> v -> t, but since we are using contraction hierarchies,
             // s -> v and v -> t need not be shortest paths. In fact, they can sometimes be pretty strange.
             // We still use this preliminary path to filter for shared path length with other alternatives,
@@ -109,10 +120,33 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
 
         potentialAlternativeInfos.sort(Comparator.comparingDouble(o -> o.weight));
 
-        sisno(s, t, bestPath, potentialAlternativeInfos);
+        if (singleSearch)
+            fromSearchSpaces(bestPath, potentialAlternativeInfos);
+        else
+            sisno(s, t, bestPath, potentialAlternativeInfos);
         return alternatives;
     }
 
+    /**
+     * Uses the via paths s -> v -> t of the forward and backward search spaces as they are, so there are no extra queries
+     * apart from the local optimality test of the accepted candidates. The via paths are upper bounds for the shortest
+     * paths via v.
+     */
+    private void fromSearchSpaces(Path bestPath, List<PotentialAlternativeInfo> potentialAlternativeInfos) {
+        ViaPathFilter filter = new ViaPathFilter(bestPath, maxWeightFactor, maxShareFactor,
+                this::sharedDistanceWithShortest, this::calculateShare, this::tTest);
+        for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
+            Path path = createPathExtractor().extract(potentialAlternativeInfo.fromEntry, potentialAlternativeInfo.toEntry, potentialAlternativeInfo.weight);
+            double share = filter.getShareOfAlternative(path, potentialAlternativeInfo.v);
+            if (Double.isNaN(share))
+                continue;
+
+            alternatives.add(new AlternativeInfo(path, share));
+            if (alternatives.size() >= maxPaths)
+                break;
+        }
+    }
+
     private void sisno(int s, int t, Path bestPath, ArrayList<PotentialAlternativeInfo> potentialAlternativeInfos) {
         for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
             int v = potentialAlternativeInfo.v;
@@ -259,6 +293,8 @@ public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
     public static class PotentialAlternativeInfo {
         int v;
         double weight;
+        SPTEntry fromEntry;
+        SPTEntry toEntry;
     }
 
     public static class AlternativeInfo {
@@ -19,12 +19,15 @@
 package com.graphhopper.routing;
 
 import com.carrotsearch.hppc.IntIndexedContainer;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntObjectPredicate;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 
 import java.util.*;
 
@@ -45,6 +48,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
     private final double maxShareFactor;
     private final double localOptimalityFactor;
     private final int maxPaths;
+    private final boolean singleSearch;
     private final List<AlternativeInfo> alternatives = new ArrayList<>();
     private int extraVisitedNodes = 0;
 
@@ -54,6 +58,7 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         maxShareFactor = hints.getDouble("alternative_route.max_share_factor", 0.8);
         localOptimalityFactor = hints.getDouble("alternative_route.local_optimality_factor", 0.25);
         maxPaths = hints.getInt("alternative_route.max_paths", 3);
+        singleSearch = hints.getBool(Parameters.Algorithms.AltRoute.SINGLE_SEARCH, false);
     }
 
     @Override
@@ -83,6 +88,10 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         alternatives.add(new AlternativeInfo(bestPath, 0));
 
         final ArrayList<PotentialAlternativeInfo> potentialAlternativeInfos = new ArrayList<>();
+        if (singleSearch) {
+            fromSearchSpaces(bestPath);
+            return alternatives;
+        }
 
         final Map<Integer, SPTEntry> bestWeightMapByNode = new HashMap<>();
         bestWeightMapTo.forEach((IntObjectPredicate<SPTEntry>) (key, value) -> {
@@ -158,6 +167,62 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         return alternatives;
     }
 
+    /**
+     * Uses the via paths s -> v -> t of the forward and backward search spaces as they are, so there are no extra queries
+     * apart from the local optimality test of the accepted candidates. Unlike the node-based version we combine every
+     * forward entry with every backward entry at the via node, because the turn between them has to be allowed.
+     */
+    private void fromSearchSpaces(Path bestPath) {
+        final IntObjectMap<List<SPTEntry>> toEntriesByNode = new IntObjectHashMap<>();
+        bestWeightMapTo.forEach((IntObjectPredicate<SPTEntry>) (key, toSPTEntry) -> {
+            List<SPTEntry> entries = toEntriesByNode.get(toSPTEntry.adjNode);
+            if (entries == null) {
+                entries = new ArrayList<>(2);
+                toEntriesByNode.put(toSPTEntry.adjNode, entries);
+            }
+            entries.add(toSPTEntry);
+            return true;
+        });
+
+        final List<PotentialAlternativeInfo> potentialAlternativeInfos = new ArrayList<>();
+        bestWeightMapFrom.forEach((IntObjectPredicate<SPTEntry>) (key, fromSPTEntry) -> {
+            List<SPTEntry> toSPTEntries = toEntriesByNode.get(fromSPTEntry.adjNode);
+            if (toSPTEntries == null)
+                return true;
+            PotentialAlternativeInfo best = null;
+            for (SPTEntry toSPTEntry : toSPTEntries) {
+                // the start entries have no incoming edge and there is no turn
+                double turnWeight = fromSPTEntry.parent == null || toSPTEntry.parent == null ? 0
+                        : graph.getTurnWeight(getIncomingEdge(fromSPTEntry), fromSPTEntry.adjNode, getIncomingEdge(toSPTEntry));
+                double weight = fromSPTEntry.getWeightOfVisitedPath() + turnWeight + toSPTEntry.getWeightOfVisitedPath();
+                if (weight > bestPath.getWeight() * maxWeightFactor || (best != null && best.weight <= weight))
+                    continue;
+                best = new PotentialAlternativeInfo();
+                best.v = fromSPTEntry.adjNode;
+                best.weight = weight;
+                best.fromEntry = fromSPTEntry;
+                best.toEntry = toSPTEntry;
+            }
+            if (best != null)
+                potentialAlternativeInfos.add(best);
+            return true;
+        });
+        potentialAlternativeInfos.sort(Comparator.comparingDouble(o -> o.weight));
+
+        ViaPathFilter filter = new ViaPathFilter(bestPath, maxWeightFactor, maxShareFactor,
+                this::sharedDistanceWithShortest, this::calculateShare, this::tTest);
+        for (PotentialAlternativeInfo potentialAlternativeInfo : potentialAlternativeInfos) {
+            Path path = createPathExtractor().extract(potentialAlternativeInfo.fromEntry, potentialAlternativeInfo.toEntry, potentialAlternativeInfo.weight);
+            double share = filter.getShareOfAlternative(path, potentialAlternativeInfo.v);
+            if (Double.isNaN(share))
+                continue;
+
+            alternatives.add(new AlternativeInfo(path, share));
+            if (alternatives.size() >= maxPaths)
+                break;
+        }
+    }
+
     private boolean methodEstr34(Path bestPath, SPTEntry fromSPTEntry, SPTEntry toSPTEntry) {
         if (toSPTEntry == null)
             return true;
@@ -278,6 +343,8 @@ public class AlternativeRouteEdgeCH extends DijkstraBidirectionEdgeCHNoSOD {
         protected int v;
          int edgeIn;
         double weight;
+        SPTEntry fromEntry;
+        SPTEntry toEntry;
     }
 
     public static class AlternativeInfo {
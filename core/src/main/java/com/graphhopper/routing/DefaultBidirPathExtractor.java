@@ -38,9 +38,13 @@ public class DefaultBidirPathExtractor implements BidirPathExtractor {
     }
 
     protected DefaultBidirPathExtractor(Graph graph, Weighting weighting) {
+        this(graph, weighting, new Path(graph));
+    }
+
+    protected DefaultBidirPathExtractor(Graph graph, Weighting weighting, Path path) {
         this.graph = graph;
         this.weighting = weighting;
-        this.path = new Path(graph);
+        this.path = path;
     }
 
     @Override
@@ -65,6 +69,10 @@ public class DefaultBidirPathExtractor implements BidirPathExtractor {
     protected void extractFwdPath(SPTEntry sptEntry) {
         SPTEntry fwdRoot = followParentsUntilRoot(sptEntry, false);
         onFwdTreeRoot(fwdRoot.adjNode);
+        reverseFwdEdges();
+    }
+
+    protected void reverseFwdEdges() {
         // since we followed the fwd path in backward direction we need to reverse the edge ids
         ArrayUtil.reverse(path.getEdges());
     }
@@ -93,6 +101,7 @@ public class DefaultBidirPathExtractor implements BidirPathExtractor {
 
     protected void setExtractionTime(long nanos) {
         path.setDebugInfo("path extraction: " + nanos / 1000 + " μs");
+        path.setExtractionNanos(nanos);
     }
 
     protected int getIncEdge(SPTEntry entry) {
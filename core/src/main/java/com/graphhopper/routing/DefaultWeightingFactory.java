@@ -23,6 +23,7 @@ import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.VehicleEncodedValues;
 import com.graphhopper.routing.weighting.*;
+import com.graphhopper.routing.weighting.custom.AreaEdgeCache;
 import com.graphhopper.routing.weighting.custom.CustomModelParser;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.CustomWeighting;
@@ -40,12 +41,21 @@ public class DefaultWeightingFactory implements WeightingFactory {
 
     private final BaseGraph graph;
     private final EncodingManager encodingManager;
+    private AreaEdgeCache areaEdgeCache;
 
     public DefaultWeightingFactory(BaseGraph graph, EncodingManager encodingManager) {
         this.graph = graph;
         this.encodingManager = encodingManager;
     }
 
+    /**
+     * @param areaEdgeCache looks up the edges of the areas in custom models, can be null
+     */
+    public DefaultWeightingFactory setAreaEdgeCache(AreaEdgeCache areaEdgeCache) {
+        this.areaEdgeCache = areaEdgeCache;
+        return this;
+    }
+
     @Override
     public Weighting createWeighting(Profile profile, PMap requestHints, boolean disableTurnCosts) {
         // Merge profile hints with request hints, the request hints take precedence.
@@ -115,7 +125,7 @@ public class DefaultWeightingFactory implements WeightingFactory {
 
         queryCustomModel = CustomModel.merge(customProfile.getCustomModel(), queryCustomModel);
         weighting = CustomModelParser.createWeighting(accessEnc, speedEnc,
-                priorityEnc, encodingManager, turnCostProvider, queryCustomModel);
+                priorityEnc, encodingManager, turnCostProvider, queryCustomModel, areaEdgeCache);
         return weighting;
     }
 
@@ -42,6 +42,7 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
     protected SPTEntry currEdge;
     private int visitedNodes;
     private int to = -1;
+    private TurnRestrictionTraversal turnRestrictionTraversal;
 
     public Dijkstra(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -49,6 +50,16 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
         initCollections(size);
     }
 
+    /**
+     * Only distinguishes the incoming edges at nodes with turn costs, see {@link TurnRestrictionTraversal}
+     */
+    public Dijkstra setTurnRestrictionTraversal(TurnRestrictionTraversal turnRestrictionTraversal) {
+        if (!traversalMode.isEdgeBased())
+            throw new IllegalArgumentException("Turn restriction traversal requires edge-based traversal");
+        this.turnRestrictionTraversal = turnRestrictionTraversal;
+        return this;
+    }
+
     protected void initCollections(int size) {
         fromHeap = new PriorityQueue<>(size);
         fromMap = new GHIntObjectHashMap<>(size);
@@ -91,7 +102,9 @@ public class Dijkstra extends AbstractRoutingAlgorithm {
                 double tmpWeight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, false, currEdge.edge) + currEdge.weight;
 
                 if (!Double.isInfinite(tmpWeight)) {
-                    int traversalId = traversalMode.createTraversalId(iter, false);
+                    int traversalId = turnRestrictionTraversal == null
+                            ? traversalMode.createTraversalId(iter, false)
+                            : turnRestrictionTraversal.createTraversalId(iter, tmpWeight, fromMap);
                     SPTEntry nEdge = fromMap.get(traversalId);
                     nEdge = methodDijkstra1(iter, tmpWeight, traversalId, nEdge);
 
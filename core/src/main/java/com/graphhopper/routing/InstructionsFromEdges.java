@@ -79,6 +79,8 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
     private String prevDestinationAndRef;
     private String prevName;
     private String prevInstructionName;
+    // the geometry of the current edge, reused for every edge
+    private final PointList wayGeo;
 
     private static final int MAX_U_TURN_DISTANCE = 35;
 
@@ -91,6 +93,7 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         this.maxSpeedEnc = evLookup.getDecimalEncodedValue(MaxSpeed.KEY);
         this.nodeAccess = graph.getNodeAccess();
         this.ways = ways;
+        this.wayGeo = new PointList(10, nodeAccess.is3D());
         prevNode = -1;
         prevInRoundabout = false;
         prevName = null;
@@ -126,7 +129,8 @@ public class InstructionsFromEdges implements Path.EdgeVisitor {
         double latitude;
         double longitude;
 
-        PointList wayGeo = edge.fetchWayGeometry(FetchMode.ALL);
+        wayGeo.clear();
+        edge.fetchWayGeometry(FetchMode.ALL, wayGeo);
         boolean isRoundabout = edge.get(roundaboutEnc);
 
         if (wayGeo.size() <= 2) {
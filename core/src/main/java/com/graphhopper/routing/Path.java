@@ -51,6 +51,7 @@ public class Path {
     private List<String> description;
     private boolean found;
     private String debugInfo = "";
+    private long extractionNanos;
 
     public Path(Graph graph) {
         this.graph = graph;
@@ -85,7 +86,7 @@ public class Path {
     }
 
     public int getEdgeCount() {
-        return edgeIds.size();
+        return getEdges().size();
     }
 
     public int getEndNode() {
@@ -174,7 +175,7 @@ public class Path {
      * Yields the final edge of the path
      */
     public EdgeIteratorState getFinalEdge() {
-        return graph.getEdgeIteratorState(edgeIds.get(edgeIds.size() - 1), endNode);
+        return graph.getEdgeIteratorState(getEdges().get(getEdges().size() - 1), endNode);
     }
 
     public void setDebugInfo(String debugInfo) {
@@ -185,6 +186,17 @@ public class Path {
         return debugInfo;
     }
 
+    public void setExtractionNanos(long extractionNanos) {
+        this.extractionNanos = extractionNanos;
+    }
+
+    /**
+     * @return the time it took to extract this path from the shortest path tree in ns
+     */
+    public long getExtractionNanos() {
+        return extractionNanos;
+    }
+
     /**
      * Iterates over all edges in this path sorted from start to end and calls the visitor callback
      * for every edge.
@@ -195,13 +207,13 @@ public class Path {
      */
     public void forEveryEdge(EdgeVisitor visitor) {
         int tmpNode = getFromNode();
-        int len = edgeIds.size();
+        int len = getEdges().size();
         int prevEdgeId = EdgeIterator.NO_EDGE;
         for (int i = 0; i < len; i++) {
-            EdgeIteratorState edgeBase = graph.getEdgeIteratorState(edgeIds.get(i), tmpNode);
+            EdgeIteratorState edgeBase = graph.getEdgeIteratorState(getEdges().get(i), tmpNode);
             if (edgeBase == null)
-                throw new IllegalStateException("Edge " + edgeIds.get(i) + " was empty when requested with node " + tmpNode
-                        + ", array index:" + i + ", edges:" + edgeIds.size());
+                throw new IllegalStateException("Edge " + getEdges().get(i) + " was empty when requested with node " + tmpNode
+                        + ", array index:" + i + ", edges:" + getEdges().size());
 
             tmpNode = edgeBase.getBaseNode();
             edgeBase = graph.getEdgeIteratorState(edgeBase.getEdge(), tmpNode);
@@ -216,8 +228,8 @@ public class Path {
      * Returns the list of all edges.
      */
     public List<EdgeIteratorState> calcEdges() {
-        final List<EdgeIteratorState> edges = new ArrayList<>(edgeIds.size());
-        if (edgeIds.isEmpty())
+        final List<EdgeIteratorState> edges = new ArrayList<>(getEdges().size());
+        if (getEdges().isEmpty())
             return edges;
 
         forEveryEdge(new EdgeVisitor() {
@@ -241,8 +253,8 @@ public class Path {
      * @return the uncached node indices of the tower nodes in this path.
      */
     public IntIndexedContainer calcNodes() {
-        final IntArrayList nodes = new IntArrayList(edgeIds.size() + 1);
-        if (edgeIds.isEmpty()) {
+        final IntArrayList nodes = new IntArrayList(getEdges().size() + 1);
+        if (getEdges().isEmpty()) {
             if (isFound()) {
                 nodes.add(endNode);
             }
@@ -275,23 +287,28 @@ public class Path {
      * @return the geometry of this path
      */
     public PointList calcPoints() {
-        final PointList points = new PointList(edgeIds.size() + 1, nodeAccess.is3D());
-        if (edgeIds.isEmpty()) {
+        final PointList points = new PointList(getEdges().size() + 1, nodeAccess.is3D());
+        calcPoints(points);
+        return points;
+    }
+
+    /**
+     * Appends the geometry of this path to the given list. The points of all edges are fetched directly into this
+     * list, so e.g. the points of several paths can be collected without copying them.
+     */
+    public void calcPoints(final PointList points) {
+        if (getEdges().isEmpty()) {
             if (isFound()) {
                 points.add(nodeAccess, endNode);
             }
-            return points;
+            return;
         }
 
-        int tmpNode = getFromNode();
-        points.add(nodeAccess, tmpNode);
+        points.add(nodeAccess, getFromNode());
         forEveryEdge(new EdgeVisitor() {
             @Override
             public void next(EdgeIteratorState eb, int index, int prevEdgeId) {
-                PointList pl = eb.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ);
-                for (int j = 0; j < pl.size(); j++) {
-                    points.add(pl, j);
-                }
+                eb.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ, points);
             }
 
             @Override
@@ -302,7 +319,6 @@ public class Path {
 
             }
         });
-        return points;
     }
 
     @Override
@@ -25,6 +25,7 @@ import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.config.Profile;
+import com.graphhopper.routing.ch.CHPotentialRoutingAlgorithmFactory;
 import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.EncodedValueLookup;
@@ -34,6 +35,7 @@ import com.graphhopper.routing.lm.LandmarkStorage;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.BlockAreaWeighting;
+import com.graphhopper.routing.weighting.PrecomputedWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.routing.weighting.custom.FindMinMax;
@@ -41,6 +43,8 @@ import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
 import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.EdgeWeightStorage;
+import com.graphhopper.storage.SpeedProfileStorage;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -52,6 +56,7 @@ import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 import static com.graphhopper.routing.weighting.Weighting.INFINITE_U_TURN_COSTS;
 import static com.graphhopper.util.DistanceCalcEarth.DIST_EARTH;
@@ -70,6 +75,10 @@ public class Router {
     private final Map<String, LandmarkStorage> landmarks;
     private final boolean chEnabled;
     private final boolean lmEnabled;
+    private ExecutorService legExecutor;
+    private SpeedProfileStorage speedProfiles;
+    private Map<String, EdgeWeightStorage> edgeWeights = Collections.emptyMap();
+    private RoutingMetrics routingMetrics = RoutingMetrics.NONE;
 
     public Router(GraphHopper.InnerRouter innerrouter, PathDetailsBuilderFactory pathDetailsBuilderFactory,
                   TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
@@ -92,7 +101,41 @@ public class Router {
         }
     }
 
+    /**
+     * Sets the executor used to calculate the legs of a via-route concurrently. It is shared between requests, so its
+     * number of threads bounds the number of legs calculated at the same time. Use null to calculate them sequentially.
+     */
+    public Router setLegExecutor(ExecutorService legExecutor) {
+        this.legExecutor = legExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the speed profiles used for requests with a departure time, use null to disable time-dependent routing.
+     */
+    public Router setSpeedProfiles(SpeedProfileStorage speedProfiles) {
+        this.speedProfiles = speedProfiles;
+        return this;
+    }
+
+    /**
+     * Sets the precomputed edge weights per profile name, they are used for requests without a custom model.
+     */
+    public Router setEdgeWeights(Map<String, EdgeWeightStorage> edgeWeights) {
+        this.edgeWeights = edgeWeights;
+        return this;
+    }
+
+    /**
+     * Sets the metrics that receive the durations of the phases and the visited nodes of every successful request.
+     */
+    public Router setRoutingMetrics(RoutingMetrics routingMetrics) {
+        this.routingMetrics = routingMetrics;
+        return this;
+    }
+
     public GHResponse route(GHRequest request) {
+        StopWatch sw = new StopWatch().start();
         try {
             checkNoLegacyParameters(request);
             checkAtLeastOnePoint(request);
@@ -106,15 +149,20 @@ public class Router {
             solver.checkRequest();
             solver.init();
 
+            PhaseTimes times = new PhaseTimes();
+            GHResponse ghRsp;
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
                 if (!(solver instanceof FlexSolver))
                     throw new IllegalArgumentException("algorithm=round_trip only works with a flexible algorithm");
-                return routeRoundTrip(request, (FlexSolver) solver);
+                ghRsp = routeRoundTrip(request, (FlexSolver) solver, times);
             } else if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
-                return routeAlt(request, solver);
+                ghRsp = routeAlt(request, solver, times);
             } else {
-                return routeVia(request, solver);
+                ghRsp = routeVia(request, solver, times);
             }
+            if (!ghRsp.hasErrors())
+                recordMetrics(request.getProfile(), solver.getName(), sw.stop().getNanos(), times);
+            return ghRsp;
         } catch (MultiplePointsNotFoundException ex) {
             GHResponse ghRsp = new GHResponse();
             for (IntCursor p : ex.getPointsNotFound()) {
@@ -132,6 +180,16 @@ public class Router {
         return null;
     }
 
+    private void recordMetrics(String profile, String solver, long nanos, PhaseTimes times) {
+        routingMetrics.record(profile, solver, RoutingMetrics.LATENCY, nanos / 1000);
+        routingMetrics.record(profile, solver, RoutingMetrics.SNAP, times.snapNanos / 1000);
+        routingMetrics.record(profile, solver, RoutingMetrics.QUERY_GRAPH, times.queryGraphNanos / 1000);
+        routingMetrics.record(profile, solver, RoutingMetrics.ROUTING, times.routingNanos / 1000);
+        routingMetrics.record(profile, solver, RoutingMetrics.PATH_EXTRACTION, times.extractionNanos / 1000);
+        routingMetrics.record(profile, solver, RoutingMetrics.RESPONSE_PATH, times.responsePathNanos / 1000);
+        routingMetrics.record(profile, solver, RoutingMetrics.VISITED_NODES, times.visitedNodes);
+    }
+
     private void checkNoLegacyParameters(GHRequest request) {
         if (request.getHints().has("vehicle"))
             throw new IllegalArgumentException("GHRequest may no longer contain a vehicle, use the profile parameter instead, see docs/core/profiles.md");
@@ -186,36 +244,46 @@ public class Router {
         final boolean disableCH = getDisableCH(request.getHints());
         final boolean disableLM = getDisableLM(request.getHints());
         if (chEnabled && !disableCH) {
+            if (request.getCustomModel() != null && routerConfig.isCHCustomModels())
+                return new CHPotentialSolver(request, innerrouter.getProfilesByName(), routerConfig, innerrouter.getEncodingManager(), new InnerFlex(weightingFactory, innerrouter.getBaseGraph(), innerrouter.getLocationIndex(), speedProfiles, edgeWeights), chGraphs);
             return new CHSolver(request, innerrouter.getProfilesByName(), routerConfig, innerrouter.getEncodingManager(), chGraphs);
         } else if (lmEnabled && !disableLM) {
-            return new LMSolver(request, innerrouter.getProfilesByName(), routerConfig, innerrouter.getEncodingManager(), new InnerFlex(weightingFactory, innerrouter.getBaseGraph(), innerrouter.getLocationIndex()), landmarks);
+            return new LMSolver(request, innerrouter.getProfilesByName(), routerConfig, innerrouter.getEncodingManager(), new InnerFlex(weightingFactory, innerrouter.getBaseGraph(), innerrouter.getLocationIndex(), speedProfiles, edgeWeights), landmarks);
         } else {
-            return new FlexSolver(request, innerrouter.getProfilesByName(), routerConfig, innerrouter.getEncodingManager(), new InnerFlex(weightingFactory, innerrouter.getBaseGraph(), innerrouter.getLocationIndex()));
+            return new FlexSolver(request, innerrouter.getProfilesByName(), routerConfig, innerrouter.getEncodingManager(), new InnerFlex(weightingFactory, innerrouter.getBaseGraph(), innerrouter.getLocationIndex(), speedProfiles, edgeWeights));
         }
     }
     private static final String MOMMA ="visited_nodes.average";
     private static final String CICCIA="visited_nodes.sum";
-    protected GHResponse routeRoundTrip(GHRequest request, FlexSolver solver) {
+    protected GHResponse routeRoundTrip(GHRequest request, FlexSolver solver, PhaseTimes times) {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         double startHeading = request.getHeadings().isEmpty() ? Double.NaN : request.getHeadings().get(0);
         RoundTripRouting.Params params = new RoundTripRouting.Params(request.getHints(), startHeading, routerConfig.getMaxRoundTripRetries());
         List<Snap> snaps = RoundTripRouting.lookup(request.getPoints(), solver.createSnapFilter(), innerrouter.getLocationIndex(), params);
         ghRsp.addDebugInfo(LOOK + sw.stop().getSeconds() + "s");
+        times.snapNanos = sw.getNanos();
 
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(innerrouter.getBaseGraph(), snaps);
-        FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+        times.queryGraphNanos = sw.stop().getNanos();
 
+        sw = new StopWatch().start();
+        FlexiblePathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         RoundTripRouting.Result result = RoundTripRouting.calcPaths(snaps, pathCalculator);
+        times.setRouting(sw.stop().getNanos(), result.paths, result.visitedNodes);
+
         // we merge the different legs of the roundtrip into one response path
+        sw = new StopWatch().start();
         ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, getWaypoints(snaps));
+        times.responsePathNanos = sw.stop().getNanos();
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject(CICCIA, result.visitedNodes);
         ghRsp.getHints().putObject(MOMMA, (float) result.visitedNodes / (snaps.size() - 1));
         return ghRsp;
     }
 
-    protected GHResponse routeAlt(GHRequest request, Solver solver) throws PointPathException, RouterExce {
+    protected GHResponse routeAlt(GHRequest request, Solver solver, PhaseTimes times) throws PointPathException, RouterExce {
         if (request.getPoints().size() > 2)
             throw new IllegalArgumentException("Currently alternative routes work only with start and end point. You tried to use: " + request.getPoints().size() + " points");
         GHResponse ghRsp = new GHResponse();
@@ -224,7 +292,11 @@ public class Router {
         List<Snap> snaps = ViaRouting.lookup(new ViaRouting.Nonno(innerrouter.getEncodingManager(), request.getPoints()), solver.createSnapFilter(), innerrouter.getLocationIndex(),
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo(LOOK + sw.stop().getSeconds() + "s");
+        times.snapNanos = sw.getNanos();
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(innerrouter.getBaseGraph(), snaps);
+        times.queryGraphNanos = sw.stop().getNanos();
+        sw = new StopWatch().start();
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
@@ -234,42 +306,55 @@ public class Router {
             throw new PointPathException();
 
         ViaRouting.Result result = ViaRouting.calcPaths(new ViaRouting.Nonna(request.getPoints(), queryGraph, snaps), directedEdgeFilter, pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+        times.setRouting(sw.stop().getNanos(), result.paths, result.visitedNodes);
         if (result.paths.isEmpty())
             throw new RouterExce("Empty paths for alternative route calculation not expected");
 
         // each path represents a different alternative and we do the path merging for each of them
+        sw = new StopWatch().start();
         PathMerger pathMerger = createPathMerger(request, solver.weighting, queryGraph);
         for (Path path : result.paths) {
             PointList waypoints = getWaypoints(snaps);
             ResponsePath responsePath = pathMerger.doWork(waypoints, Collections.singletonList(path), innerrouter.getEncodingManager(), translationMap.getWithFallBack(request.getLocale()));
             ghRsp.add(responsePath);
         }
+        times.responsePathNanos = sw.stop().getNanos();
         ghRsp.getHints().putObject(CICCIA, result.visitedNodes);
         ghRsp.getHints().putObject(MOMMA, (float) result.visitedNodes / (snaps.size() - 1));
         return ghRsp;
     }
 
-    protected GHResponse routeVia(GHRequest request, Solver solver) throws PointPathException {
+    protected GHResponse routeVia(GHRequest request, Solver solver, PhaseTimes times) throws PointPathException {
         GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
         DirectedEdgeFilter directedEdgeFilter = solver.createDirectedEdgeFilter();
         List<Snap> snaps = ViaRouting.lookup(new ViaRouting.Nonno(innerrouter.getEncodingManager(), request.getPoints()), solver.createSnapFilter(), innerrouter.getLocationIndex(),
                 request.getSnapPreventions(), request.getPointHints(), directedEdgeFilter, request.getHeadings());
         ghRsp.addDebugInfo(LOOK + sw.stop().getSeconds() + "s");
+        times.snapNanos = sw.getNanos();
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
+        sw = new StopWatch().start();
         QueryGraph queryGraph = QueryGraph.create(innerrouter.getBaseGraph(), snaps);
-        PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
+        times.queryGraphNanos = sw.stop().getNanos();
         boolean passThrough = getPassThrough(request.getHints());
         boolean forceCurbsides = getForceCurbsides(request.getHints());
+        // with a leg executor every leg gets its own path calculator, because they are not thread-safe. time-dependent
+        // legs depend on the arrival time of the previous leg and are always calculated sequentially
+        boolean parallelLegs = request.getHints().getBool(PARALLEL_LEGS, true) && !request.getHints().has(DEPARTURE_TIME);
+        sw = new StopWatch().start();
         ViaRouting.Result result = ViaRouting.calcPaths(new ViaRouting.Nonna(request.getPoints(), queryGraph, snaps), directedEdgeFilter,
-                pathCalculator, request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough);
+                () -> solver.createPathCalculator(queryGraph), request.getCurbsides(), forceCurbsides, request.getHeadings(), passThrough,
+                parallelLegs ? legExecutor : null);
+        times.setRouting(sw.stop().getNanos(), result.paths, result.visitedNodes);
 
         if (request.getPoints().size() != result.paths.size() + 1)
             throw new PointPathException();
 
         // here each path represents one leg of the via-route and we merge them all together into one response path
+        sw = new StopWatch().start();
         ResponsePath responsePath = concatenatePaths(request, solver.weighting, queryGraph, result.paths, getWaypoints(snaps));
+        times.responsePathNanos = sw.stop().getNanos();
         responsePath.addDebugInfo(result.debug);
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject(CICCIA, result.visitedNodes);
@@ -295,6 +380,8 @@ public class Router {
 
         if (!request.getHeadings().isEmpty())
             pathMerger.setFavoredHeading(request.getHeadings().get(0));
+        if (legExecutor != null && routerConfig.getParallelDetailsMinEdges() > 0)
+            pathMerger.setExecutor(legExecutor, routerConfig.getParallelDetailsMinEdges());
         return pathMerger;
     }
 
@@ -327,6 +414,25 @@ public class Router {
         return hints.getBool(FORCE_CURBSIDE, true);
     }
 
+    /**
+     * The durations of the phases of one request, see {@link RoutingMetrics}.
+     */
+    protected static class PhaseTimes {
+        long snapNanos;
+        long queryGraphNanos;
+        long routingNanos;
+        long extractionNanos;
+        long responsePathNanos;
+        long visitedNodes;
+
+        void setRouting(long nanos, List<Path> paths, long visitedNodes) {
+            this.routingNanos = nanos;
+            this.visitedNodes = visitedNodes;
+            for (Path path : paths)
+                extractionNanos += path.getExtractionNanos();
+        }
+    }
+
     public abstract static class Solver {
         protected final GHRequest request;
         private final Map<String, Profile> profilesByName;
@@ -397,6 +503,11 @@ public class Router {
 
         protected abstract PathCalculator createPathCalculator(QueryGraph queryGraph);
 
+        /**
+         * @return the name under which the metrics of this solver are recorded
+         */
+        protected abstract String getName();
+
         private List<String> getTurnCostProfiles() {
             List<String> turnCostProfiles = new ArrayList<>();
             for (Profile p : profilesByName.values()) {
@@ -414,10 +525,17 @@ public class Router {
 
     private static class CHSolver extends Solver {
         private final Map<String, RoutingCHGraph> chGraphs;
+        private final RouterConfig routerConfig;
 
         CHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup, Map<String, RoutingCHGraph> chGraphs) {
             super(request, profilesByName, routerConfig, lookup);
             this.chGraphs = chGraphs;
+            this.routerConfig = routerConfig;
+        }
+
+        @Override
+        protected String getName() {
+            return "ch";
         }
 
         @Override
@@ -437,6 +555,9 @@ public class Router {
 
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
                 throw new IllegalArgumentException("algorithm=round_trip cannot be used with CH");
+
+            if (request.getHints().has(DEPARTURE_TIME))
+                throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
         }
 
         @Override
@@ -455,6 +576,11 @@ public class Router {
             PMap opts = new PMap(request.getHints());
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
+            // without points, instructions and path details only the time and distance of the path are needed
+            if (!opts.has(Parameters.CH.LAZY_PATH))
+                opts.putObject(Parameters.CH.LAZY_PATH, !opts.getBool(Parameters.Routing.CALC_POINTS, routerConfig.isCalcPoints())
+                        && !opts.getBool(Parameters.Routing.INSTRUCTIONS, routerConfig.isInstructionsEnabled())
+                        && request.getPathDetails().isEmpty());
             return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
         }
 
@@ -471,11 +597,26 @@ public class Router {
         public final WeightingFactory weightingFactory;
         public final BaseGraph baseGraph;
         public final LocationIndex locationIndex;
+        // null if time-dependent routing is disabled
+        public final SpeedProfileStorage speedProfiles;
+        // the precomputed edge weights per profile name
+        public final Map<String, EdgeWeightStorage> edgeWeights;
 
         public InnerFlex(WeightingFactory weightingFactory, BaseGraph baseGraph, LocationIndex locationIndex) {
+            this(weightingFactory, baseGraph, locationIndex, null);
+        }
+
+        public InnerFlex(WeightingFactory weightingFactory, BaseGraph baseGraph, LocationIndex locationIndex, SpeedProfileStorage speedProfiles) {
+            this(weightingFactory, baseGraph, locationIndex, speedProfiles, Collections.emptyMap());
+        }
+
+        public InnerFlex(WeightingFactory weightingFactory, BaseGraph baseGraph, LocationIndex locationIndex, SpeedProfileStorage speedProfiles,
+                         Map<String, EdgeWeightStorage> edgeWeights) {
             this.weightingFactory = weightingFactory;
             this.baseGraph = baseGraph;
             this.locationIndex = locationIndex;
+            this.speedProfiles = speedProfiles;
+            this.edgeWeights = edgeWeights;
         }
     }
 
@@ -491,10 +632,31 @@ public class Router {
 
         }
 
+        @Override
+        protected String getName() {
+            return "flex";
+        }
+
         @Override
         protected void checkRequest() {
             super.checkRequest();
             checkNonChMaxWaypointDistance(request.getPoints());
+            if (request.getHints().has(DEPARTURE_TIME)) {
+                if (innerflex.speedProfiles == null)
+                    throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter requires speed profiles, enable them with graph.speed_profiles: true");
+                if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()) || ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm()))
+                    throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter cannot be used with algorithm=" + request.getAlgorithm());
+            }
+        }
+
+        /**
+         * @return the factory for time-dependent algorithms if the request has a departure time, otherwise null
+         */
+        TimeDependentAlgorithmFactory createTimeDependentAlgorithmFactory() {
+            if (!request.getHints().has(DEPARTURE_TIME))
+                return null;
+            return new TimeDependentAlgorithmFactory(innerflex.speedProfiles,
+                    TimeDependentAlgorithmFactory.parseDepartureTime(request.getHints().getString(DEPARTURE_TIME, "")));
         }
 
         @Override
@@ -502,6 +664,10 @@ public class Router {
             PMap requestHints = new PMap(request.getHints());
             requestHints.putObject(CustomModel.KEY, request.getCustomModel());
             Weighting weighting = innerflex.weightingFactory.createWeighting(profile, requestHints, false);
+            // the stored weights are only valid for the custom model of the profile
+            EdgeWeightStorage edgeWeights = innerflex.edgeWeights.get(profile.getName());
+            if (edgeWeights != null && request.getCustomModel() == null && profile instanceof CustomProfile)
+                weighting = new PrecomputedWeighting(weighting, edgeWeights);
             if (requestHints.has(Parameters.Routing.BLOCK_AREA)) {
                 GraphEdgeIdFinder.BlockArea blockArea = GraphEdgeIdFinder.createBlockArea(innerflex.baseGraph, innerflex.locationIndex,
                         request.getPoints(), requestHints, new FiniteWeightFilter(weighting));
@@ -512,7 +678,9 @@ public class Router {
 
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
-            RoutingAlgorithmFactory algorithmFactory = new RoutingAlgorithmFactorySimple();
+            RoutingAlgorithmFactory algorithmFactory = createTimeDependentAlgorithmFactory();
+            if (algorithmFactory == null)
+                algorithmFactory = new RoutingAlgorithmFactorySimple();
             return new FlexiblePathCalculator(queryGraph, algorithmFactory, weighting, getAlgoOpts());
         }
 
@@ -522,6 +690,9 @@ public class Router {
                     setTraversalMode(profile.isTurnCosts() ? TraversalMode.EDGE_BASED : TraversalMode.NODE_BASED).
                     setMaxVisitedNodes(getMaxVisitedNodes(request.getHints())).
                     setHints(request.getHints());
+            // profiles can enable the turn restriction traversal, requests can still disable it
+            if (profile.isTurnCosts() && !algoOpts.getHints().has(Parameters.Routing.TURN_COST_NODES_ONLY))
+                algoOpts.getHints().putObject(Parameters.Routing.TURN_COST_NODES_ONLY, profile.getHints().getBool(Parameters.Routing.TURN_COST_NODES_ONLY, false));
 
             // use A* for round trips
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm())) {
@@ -561,6 +732,11 @@ public class Router {
             this.landmarks = landmarks;
         }
 
+        @Override
+        protected String getName() {
+            return "lm";
+        }
+
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
             // for now do not allow mixing CH&LM #1082,#1889
@@ -572,11 +748,55 @@ public class Router {
             if (profile instanceof CustomProfile && request.getCustomModel() != null
                     && !request.getHints().getBool("lm.disable", false))
                 FindMinMax.checkLMConstraints(((CustomProfile) profile).getCustomModel(), request.getCustomModel(), lookup);
-            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
+            TimeDependentAlgorithmFactory tdAlgorithmFactory = createTimeDependentAlgorithmFactory();
+            RoutingAlgorithmFactory routingAlgorithmFactory = tdAlgorithmFactory != null
+                    ? tdAlgorithmFactory.setLandmarks(landmarkStorage, routerConfig.getActiveLandmarkCount())
+                    : new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
             return new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
         }
     }
 
+    /**
+     * Calculates requests with a custom model for CH profiles: the custom model of the request must only make the
+     * profile slower, so the weights of the CH graph are a lower bound for A*.
+     */
+    private static class CHPotentialSolver extends FlexSolver {
+        private final Map<String, RoutingCHGraph> chGraphs;
+
+        CHPotentialSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
+                          InnerFlex innerflex, Map<String, RoutingCHGraph> chGraphs) {
+            super(request, profilesByName, routerConfig, lookup, innerflex);
+            this.chGraphs = chGraphs;
+        }
+
+        @Override
+        protected String getName() {
+            return "ch_potential";
+        }
+
+        @Override
+        protected void checkRequest() {
+            super.checkRequest();
+            if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()) || ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm()))
+                throw new IllegalArgumentException("algorithm=" + request.getAlgorithm() + " cannot be used with the 'custom_model' parameter in speed mode, you need to disable speed mode with `ch.disable=true`.");
+            if (request.getHints().has(DEPARTURE_TIME))
+                throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
+        }
+
+        @Override
+        protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
+            RoutingCHGraph chGraph = chGraphs.get(profile.getName());
+            if (chGraph == null)
+                throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profile.getName() + "'" +
+                        "\nYou can try disabling CH using " + Parameters.CH.DISABLE + "=true" +
+                        "\navailable CH profiles: " + chGraphs.keySet());
+            if (!(profile instanceof CustomProfile) || chGraph.isEdgeBased())
+                throw new IllegalArgumentException("The 'custom_model' parameter is only supported for speed mode with a custom profile without turn costs, you need to disable speed mode with `ch.disable=true`.");
+            FindMinMax.checkLMConstraints(((CustomProfile) profile).getCustomModel(), request.getCustomModel(), lookup);
+            return new FlexiblePathCalculator(queryGraph, new CHPotentialRoutingAlgorithmFactory(chGraph), weighting, getAlgoOpts());
+        }
+    }
+
     private class RouterExce extends Exception {
         public RouterExce(String s) {
         }
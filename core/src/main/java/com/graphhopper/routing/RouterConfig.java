@@ -30,6 +30,10 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private int legThreads = 1;
+    private int parallelDetailsMinEdges = 0;
+    private int areaEdgeCacheSize = 100;
+    private boolean chCustomModels = false;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -105,4 +109,59 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public int getLegThreads() {
+        return legThreads;
+    }
+
+    /**
+     * The number of threads that calculate the legs of via-routes concurrently. With one thread the legs are calculated
+     * sequentially on the request thread.
+     */
+    public void setLegThreads(int legThreads) {
+        if (legThreads < 1)
+            throw new IllegalArgumentException("leg threads must be positive, but was: " + legThreads);
+        this.legThreads = legThreads;
+    }
+
+    public int getParallelDetailsMinEdges() {
+        return parallelDetailsMinEdges;
+    }
+
+    /**
+     * The instructions and every path detail of paths with at least this many edges are calculated concurrently on the
+     * threads for the legs, see {@link #setLegThreads(int)}. 0 disables it.
+     */
+    public void setParallelDetailsMinEdges(int parallelDetailsMinEdges) {
+        if (parallelDetailsMinEdges < 0)
+            throw new IllegalArgumentException("parallel details min edges must not be negative, but was: " + parallelDetailsMinEdges);
+        this.parallelDetailsMinEdges = parallelDetailsMinEdges;
+    }
+
+    public int getAreaEdgeCacheSize() {
+        return areaEdgeCacheSize;
+    }
+
+    /**
+     * The number of custom model areas for which the intersecting edges are kept. With 0 the geometry of every edge
+     * is checked against the polygons of the areas while routing.
+     */
+    public void setAreaEdgeCacheSize(int areaEdgeCacheSize) {
+        if (areaEdgeCacheSize < 0)
+            throw new IllegalArgumentException("area edge cache size must not be negative, but was: " + areaEdgeCacheSize);
+        this.areaEdgeCacheSize = areaEdgeCacheSize;
+    }
+
+    public boolean isCHCustomModels() {
+        return chCustomModels;
+    }
+
+    /**
+     * If true, requests with a custom model are not rejected for speed mode. Instead they are calculated with A* and
+     * the CH graph of the profile is used for the approximation. This only works for node-based CH profiles and if the
+     * custom model of the request only makes the profile slower.
+     */
+    public void setCHCustomModels(boolean chCustomModels) {
+        this.chCustomModels = chCustomModels;
+    }
 }
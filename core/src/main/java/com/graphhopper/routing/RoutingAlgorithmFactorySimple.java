@@ -26,6 +26,7 @@ import com.graphhopper.util.DistanceCalcEarth;
 import com.graphhopper.util.DistancePlaneProjection;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 
@@ -40,11 +41,18 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
+        // the turn restriction traversal only exists for the unidirectional algorithms, so it is only used if one of
+        // them was picked explicitly. all other algorithms ignore it and use the full edge-based traversal, which yields
+        // the same routes. in particular the default algorithm does not change, because it is needed for curbsides
+        boolean turnCostNodesOnly = opts.getTraversalMode().isEdgeBased() && opts.getHints().getBool(Parameters.Routing.TURN_COST_NODES_ONLY, false);
         Weighting weighting = g.wrapWeighting(w);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
             ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
-            ra = new Dijkstra(g, weighting, opts.getTraversalMode());
+            Dijkstra dijkstra = new Dijkstra(g, weighting, opts.getTraversalMode());
+            if (turnCostNodesOnly)
+                dijkstra.setTurnRestrictionTraversal(new TurnRestrictionTraversal(g));
+            ra = dijkstra;
 
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
@@ -58,6 +66,8 @@ public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
         } else if (ASTAR.equalsIgnoreCase(algoStr)) {
             AStar aStar = new AStar(g, weighting, opts.getTraversalMode());
             aStar.setApproximation(getApproximation(ASTAR, opts.getHints(), w, g.getNodeAccess()));
+            if (turnCostNodesOnly)
+                aStar.setTurnRestrictionTraversal(new TurnRestrictionTraversal(g));
             ra = aStar;
 
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
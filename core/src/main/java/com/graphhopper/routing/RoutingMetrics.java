@@ -0,0 +1,59 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+/**
+ * Receives the durations of the phases and the search space of every successful route request, e.g. to export them
+ * as histograms. The values are recorded per profile and solver (ch, ch_potential, lm or flex). Implementations are
+ * called concurrently from all request threads and must be thread-safe.
+ */
+public interface RoutingMetrics {
+    /**
+     * The duration of the whole request in μs.
+     */
+    String LATENCY = "latency";
+    /**
+     * The duration of snapping the points to the graph in μs.
+     */
+    String SNAP = "snap";
+    /**
+     * The duration of creating the query graph for the snapped points in μs.
+     */
+    String QUERY_GRAPH = "query_graph";
+    /**
+     * The duration of the path calculation of all legs in μs, including the path extraction.
+     */
+    String ROUTING = "routing";
+    /**
+     * The duration of the path extraction of all legs in μs. For parallel legs this is the sum over all legs.
+     */
+    String PATH_EXTRACTION = "path_extraction";
+    /**
+     * The duration of creating the response paths in μs, i.e. the points, instructions and path details.
+     */
+    String RESPONSE_PATH = "response_path";
+    /**
+     * The number of nodes visited by the routing algorithms of all legs.
+     */
+    String VISITED_NODES = "visited_nodes";
+
+    RoutingMetrics NONE = (profile, solver, name, value) -> {
+    };
+
+    void record(String profile, String solver, String name, long value);
+}
@@ -0,0 +1,186 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+
+import java.util.PriorityQueue;
+
+/**
+ * A* (or Dijkstra without approximation) for time-dependent edge weights. Every entry knows the time it is reached,
+ * and the weight and time of the next edge depend on this time via the {@link SpeedProfileStorage}: an edge that is
+ * travelled with a speed factor f has the time of the weighting divided by f. Only the time part of its weight, see
+ * {@link Weighting#calcEdgeTimeWeight}, is divided by f, so e.g. the distance costs of a custom model stay the same.
+ * Because the speed profiles cannot speed an edge up, the static weights are a lower bound and every approximation
+ * for them stays admissible.
+ * <p>
+ * Only the total time of the path is time-dependent, the times of the single edges in e.g. the instructions are
+ * the ones of the weighting.
+ */
+public class TimeDependentAStar extends AbstractRoutingAlgorithm {
+    private final SpeedProfileStorage speedProfiles;
+    private final long departureTime;
+    private final int baseEdges;
+    private final GHIntObjectHashMap<TDEntry> fromMap;
+    private final PriorityQueue<TDEntry> fromHeap;
+    private TDEntry currEdge;
+    private int visitedNodes;
+    private int to = -1;
+    private WeightApproximator weightApprox;
+
+    /**
+     * @param departureTime the departure time in milliseconds since midnight
+     */
+    public TimeDependentAStar(Graph graph, Weighting weighting, TraversalMode tMode, SpeedProfileStorage speedProfiles, long departureTime) {
+        super(graph, weighting, tMode);
+        this.speedProfiles = speedProfiles;
+        this.departureTime = departureTime;
+        this.baseEdges = graph.getBaseGraph().getEdges();
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        fromMap = new GHIntObjectHashMap<>();
+        fromHeap = new PriorityQueue<>(size);
+    }
+
+    /**
+     * @param approx a lower bound for the static weight to the goal node, or null for Dijkstra
+     */
+    public TimeDependentAStar setApproximation(WeightApproximator approx) {
+        weightApprox = approx;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        this.to = to;
+        if (weightApprox != null)
+            weightApprox.setTo(to);
+        TDEntry startEntry = new TDEntry(EdgeIterator.NO_EDGE, from, approximate(from), 0, 0, null);
+        fromHeap.add(startEntry);
+        runAlgo();
+        return extractPath();
+    }
+
+    private double approximate(int node) {
+        return weightApprox == null ? 0 : weightApprox.approximate(node);
+    }
+
+    private void runAlgo() {
+        while (!fromHeap.isEmpty()) {
+            currEdge = fromHeap.poll();
+            if (currEdge.isDeleted())
+                continue;
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished())
+                break;
+
+            EdgeIterator iter = edgeExplorer.setBaseNode(currEdge.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, currEdge.edge))
+                    continue;
+                double weight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, false, currEdge.edge);
+                if (Double.isInfinite(weight))
+                    continue;
+                long millis = GHUtility.calcMillisWithTurnMillis(weighting, iter, false, currEdge.edge);
+                int profile = getProfile(iter);
+                if (profile != SpeedProfileStorage.NO_PROFILE) {
+                    // the turn is not affected by the speed profile
+                    long edgeMillis = weighting.calcEdgeMillis(iter, false);
+                    long tdMillis = speedProfiles.calcMillis(profile, edgeMillis, departureTime + currEdge.time);
+                    if (edgeMillis > 0) {
+                        // only the time part of the weight grows, not e.g. the costs for the distance
+                        double timeWeight = weighting.calcEdgeTimeWeight(iter, false);
+                        weight += timeWeight * tdMillis / edgeMillis - timeWeight;
+                    }
+                    millis += tdMillis - edgeMillis;
+                }
+                double tmpWeight = weight + currEdge.weightOfVisitedPath;
+                int traversalId = traversalMode.createTraversalId(iter, false);
+                TDEntry entry = fromMap.get(traversalId);
+                if (entry == null || entry.weightOfVisitedPath > tmpWeight) {
+                    if (entry != null)
+                        entry.setDeleted();
+                    entry = new TDEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight + approximate(iter.getAdjNode()),
+                            tmpWeight, currEdge.time + millis, currEdge);
+                    fromMap.put(traversalId, entry);
+                    fromHeap.add(entry);
+                }
+            }
+        }
+    }
+
+    private int getProfile(EdgeIteratorState edgeState) {
+        if (edgeState.getEdge() < baseEdges)
+            return speedProfiles.getProfile(edgeState.getEdge());
+        // virtual edges use the profile of their original edge
+        return speedProfiles.getProfile(graph.getEdgeIteratorState(edgeState.getEdge(), edgeState.getAdjNode()));
+    }
+
+    @Override
+    protected boolean finished() {
+        return currEdge.adjNode == to;
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (currEdge == null || !finished())
+            return createEmptyPath();
+        Path path = PathExtractor.extractPath(graph, weighting, currEdge);
+        path.setWeight(currEdge.weightOfVisitedPath);
+        path.setTime(currEdge.time);
+        return path;
+    }
+
+    /**
+     * @return the arrival time in milliseconds since midnight of the departure day
+     */
+    public long getArrivalTime() {
+        if (currEdge == null || !finished())
+            throw new IllegalStateException("No path found");
+        return departureTime + currEdge.time;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return weightApprox == null ? "td_" + Parameters.Algorithms.DIJKSTRA : "td_" + Parameters.Algorithms.ASTAR + "|" + weightApprox;
+    }
+
+    static class TDEntry extends AStar.AStarEntry {
+        // the time since the departure in milliseconds
+        final long time;
+
+        TDEntry(int edgeId, int adjNode, double weightForHeap, double weightOfVisitedPath, long time, TDEntry parent) {
+            super(edgeId, adjNode, weightForHeap, weightOfVisitedPath, parent);
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.lm.LMApproximator;
+import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA;
+
+/**
+ * Creates {@link TimeDependentAStar} instances. The legs of a via-route are calculated one after another with the
+ * algorithms of the same factory, so every leg departs at the arrival time of the previous one.
+ */
+public class TimeDependentAlgorithmFactory implements RoutingAlgorithmFactory {
+    private final SpeedProfileStorage speedProfiles;
+    private long departureTime;
+    private LandmarkStorage landmarks;
+    private int activeLandmarks;
+
+    /**
+     * @param departureTime the departure time of the first leg in milliseconds since midnight
+     */
+    public TimeDependentAlgorithmFactory(SpeedProfileStorage speedProfiles, long departureTime) {
+        this.speedProfiles = speedProfiles;
+        this.departureTime = departureTime;
+    }
+
+    /**
+     * Uses the landmarks as approximation for A* instead of the beeline. They stay admissible, because the speed
+     * profiles only slow the edges down.
+     */
+    public TimeDependentAlgorithmFactory setLandmarks(LandmarkStorage landmarks, int activeLandmarks) {
+        this.landmarks = landmarks;
+        this.activeLandmarks = activeLandmarks;
+        return this;
+    }
+
+    @Override
+    public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
+        String algoStr = Helper.isEmpty(opts.getAlgorithm()) ? ASTAR : opts.getAlgorithm();
+        Weighting weighting = g.wrapWeighting(w);
+        TimeDependentAStar algo = new TimeDependentAStar(g, weighting, opts.getTraversalMode(), speedProfiles, departureTime) {
+            @Override
+            public Path calcPath(int from, int to) {
+                Path path = super.calcPath(from, to);
+                if (path.isFound())
+                    departureTime = getArrivalTime();
+                return path;
+            }
+        };
+        if (ASTAR.equalsIgnoreCase(algoStr)) {
+            if (landmarks != null) {
+                int activeLM = Math.max(1, opts.getHints().getInt(Parameters.Landmark.ACTIVE_COUNT, activeLandmarks));
+                algo.setApproximation(LMApproximator.forLandmarks(g, landmarks, activeLM)
+                        .setEpsilon(opts.getHints().getDouble(Parameters.Algorithms.AStar.EPSILON, 1)));
+            } else {
+                algo.setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR, opts.getHints(), weighting, g.getNodeAccess()));
+            }
+        } else if (!DIJKSTRA.equalsIgnoreCase(algoStr)) {
+            throw new IllegalArgumentException("Time-dependent routing only supports algorithm=" + ASTAR + " or " + DIJKSTRA + ", but got: " + algoStr);
+        }
+        algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+        return algo;
+    }
+
+    /**
+     * @param departureTime an ISO-8601 date and time like 2022-03-01T08:30:00 or 2022-03-01T08:30:00+01:00. The speed
+     *                      profiles refer to the local time, so an offset is only used to validate the string.
+     * @return the milliseconds since midnight
+     */
+    public static long parseDepartureTime(String departureTime) {
+        try {
+            return OffsetDateTime.parse(departureTime).toLocalTime().toNanoOfDay() / 1_000_000;
+        } catch (DateTimeParseException ex) {
+            try {
+                return LocalDateTime.parse(departureTime).toLocalTime().toNanoOfDay() / 1_000_000;
+            } catch (DateTimeParseException ex2) {
+                throw new IllegalArgumentException("Cannot parse " + Parameters.Routing.DEPARTURE_TIME + " '" + departureTime
+                        + "', use ISO-8601 like 2022-03-01T08:30:00+01:00");
+            }
+        }
+    }
+}
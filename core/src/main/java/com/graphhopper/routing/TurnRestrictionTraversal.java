@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.BitSet;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.TurnCostStorage;
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * Creates the traversal ids for an edge-based search that only distinguishes the incoming edges at the nodes with turn
+ * cost entries, see {@link TurnCostStorage#getTurnCostNodes()}. For profiles that only use turn restrictions these are
+ * very few nodes, so the shortest path tree is not much bigger than for node-based traversal.
+ * <p>
+ * At all other nodes the only turn cost is the one for u-turns. Therefore there are just two entries for such a node:
+ * the best entry and the best entry with another incoming edge. Every outgoing edge can follow the best entry, or the
+ * second one if leaving via the edge of the best entry would be a u-turn. This way the result is the same as for
+ * {@link com.graphhopper.routing.util.TraversalMode#EDGE_BASED}.
+ * <p>
+ * Only {@link Dijkstra} and {@link AStar} support this traversal, with or without landmarks, and the routing
+ * algorithm factories only use it if one of them is picked explicitly. The bidirectional
+ * algorithms would need the same ids for the backward search, and a CH preparation would need to split the nodes
+ * with turn costs already, so these keep using the full edge-based traversal when
+ * {@link com.graphhopper.util.Parameters.Routing#TURN_COST_NODES_ONLY} is set.
+ */
+public class TurnRestrictionTraversal {
+    private final BitSet turnCostNodes;
+    private final int baseNodes;
+    private final int nodes;
+    private final int nodeIdOffset;
+
+    public TurnRestrictionTraversal(Graph graph) {
+        if (graph.getTurnCostStorage() == null)
+            throw new IllegalArgumentException("Graph without turn costs");
+        this.turnCostNodes = graph.getTurnCostStorage().getTurnCostNodes();
+        this.baseNodes = graph.getBaseGraph().getNodes();
+        this.nodes = graph.getNodes();
+        // the ids of the edge keys come first, then the best and second best entries of the nodes
+        this.nodeIdOffset = 2 * graph.getEdges();
+        if ((long) nodeIdOffset + 2L * nodes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Graph is too big for " + getClass().getSimpleName() + ", nodes: " + nodes + ", edges: " + graph.getEdges());
+    }
+
+    /**
+     * Returns the traversal id for the entry that is reached via the given edge state with the given weight. If the new
+     * entry will replace the best entry of a node, the best entry becomes the second best and is removed from the
+     * given entries for the returned id.
+     */
+    public <E extends SPTEntry> int createTraversalId(EdgeIteratorState edgeState, double weight, IntObjectMap<E> entries) {
+        int node = edgeState.getAdjNode();
+        // virtual nodes never have turn costs apart from u-turns
+        if (node < baseNodes && turnCostNodes.get(node))
+            return edgeState.getEdgeKey();
+        int bestId = nodeIdOffset + node;
+        E best = entries.get(bestId);
+        if (best == null || best.edge == edgeState.getEdge())
+            return bestId;
+        int secondId = nodeIdOffset + nodes + node;
+        if (weight < best.getWeightOfVisitedPath()) {
+            E second = entries.put(secondId, best);
+            if (second != null)
+                second.setDeleted();
+            entries.remove(bestId);
+            return bestId;
+        }
+        return secondId;
+    }
+}
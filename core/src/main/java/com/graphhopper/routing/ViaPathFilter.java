@@ -0,0 +1,81 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Decides which via paths s -> v -> t taken from the forward and backward search spaces are accepted as alternatives
+ * by {@link AlternativeRouteCH} and {@link AlternativeRouteEdgeCH}. The via nodes on the same path all lead to the
+ * same alternative, so the duplicates are skipped.
+ */
+final class ViaPathFilter {
+    private final Path bestPath;
+    private final double maxWeightFactor;
+    private final double maxShareFactor;
+    private final ToDoubleFunction<Path> sharedDistanceWithShortest;
+    private final ToDoubleFunction<Path> share;
+    private final BiPredicate<Path, Integer> localOptimality;
+    private final Set<IntArrayList> seenPaths = new HashSet<>();
+
+    /**
+     * @param sharedDistanceWithShortest the distance a path shares with the best path
+     * @param share                      the share of a path with the best path and the alternatives found so far
+     * @param localOptimality            the T-test of a path around the node with the given index
+     */
+    ViaPathFilter(Path bestPath, double maxWeightFactor, double maxShareFactor, ToDoubleFunction<Path> sharedDistanceWithShortest,
+                  ToDoubleFunction<Path> share, BiPredicate<Path, Integer> localOptimality) {
+        this.bestPath = bestPath;
+        this.maxWeightFactor = maxWeightFactor;
+        this.maxShareFactor = maxShareFactor;
+        this.sharedDistanceWithShortest = sharedDistanceWithShortest;
+        this.share = share;
+        this.localOptimality = localOptimality;
+        seenPaths.add(bestPath.getEdges());
+    }
+
+    /**
+     * @return the share of the given path via the node v if it is an alternative, or NaN if it is not
+     */
+    double getShareOfAlternative(Path path, int v) {
+        if (!seenPaths.add(path.getEdges()))
+            return Double.NaN;
+
+        double sharedDistanceWithShortest = this.sharedDistanceWithShortest.applyAsDouble(path);
+        double detourLength = path.getDistance() - sharedDistanceWithShortest;
+        double directLength = bestPath.getDistance() - sharedDistanceWithShortest;
+        if (detourLength > directLength * maxWeightFactor)
+            return Double.NaN;
+
+        double share = this.share.applyAsDouble(path);
+        if (share > maxShareFactor)
+            return Double.NaN;
+
+        // via nodes at the start or the end are no detours
+        int vIndex = path.calcNodes().indexOf(v);
+        if (vIndex <= 0 || vIndex >= path.getEdgeCount() || !localOptimality.test(path, vIndex))
+            return Double.NaN;
+        return share;
+    }
+}
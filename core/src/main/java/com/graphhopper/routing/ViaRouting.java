@@ -33,6 +33,10 @@ import com.graphhopper.util.shapes.GHPoint;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
 import static com.graphhopper.util.EdgeIterator.NO_EDGE;
@@ -128,63 +132,132 @@ public class ViaRouting {
     }
 
     public static Result calcPaths(Nonna oggetto, DirectedEdgeFilter directedEdgeFilter, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) throws PointPathException {
+        return calcPaths(oggetto, directedEdgeFilter, () -> pathCalculator, curbsides, forceCurbsides, headings, passThrough, null);
+    }
+
+    /**
+     * Calculates the paths of all legs. If an executor is given the legs are calculated concurrently, each with its own
+     * {@link PathCalculator}. This is not possible with headings or pass_through, because the unfavored edges are
+     * marked on the shared query graph and pass_through needs the last edge of the previous leg.
+     */
+    public static Result calcPaths(Nonna oggetto, DirectedEdgeFilter directedEdgeFilter, Supplier<PathCalculator> pathCalculators, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough, ExecutorService executor) throws PointPathException {
         methodVR3(oggetto.points, curbsides, headings);
 
         final int legs = oggetto.snaps.size() - 1;
         Result result = new Result(legs);
-        for (int leg = 0; leg < legs; ++leg) {
-            Snap[] snap=new Snap[2];
-            snap[0] = oggetto.snaps.get(leg);
-            snap[1] = oggetto.snaps.get(leg + 1);
-
-            // enforce headings
-            // at via-nodes and the target node the heading parameter is interpreted as the direction we want
-            // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
-            // all for these points (unless using pass through). see this forum discussion:
-            // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
-            double[] heading=new double[2];
-            heading[0] = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
-            heading[1] = (oggetto.snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
+        if (executor != null && legs > 1 && !passThrough && headings.isEmpty()) {
+            List<Future<LegResult>> futures = new ArrayList<>(legs);
+            try {
+                for (int leg = 0; leg < legs; ++leg) {
+                    EdgeRestrictions edgeRestrictions = buildLegRestrictions(oggetto, directedEdgeFilter, curbsides, forceCurbsides, headings, NO_EDGE, false, leg);
+                    Snap from = oggetto.snaps.get(leg);
+                    Snap to = oggetto.snaps.get(leg + 1);
+                    PathCalculator pathCalculator = pathCalculators.get();
+                    futures.add(executor.submit(() -> {
+                        List<Path> paths = pathCalculator.calcPaths(from.getClosestNode(), to.getClosestNode(), edgeRestrictions);
+                        return new LegResult(paths, pathCalculator.getDebugString(), pathCalculator.getVisitedNodes());
+                    }));
+                }
+                for (Future<LegResult> future : futures)
+                    addLeg(result, getLegResult(future));
+            } catch (Throwable t) {
+                // the request fails anyway, so do not keep the executor busy with the remaining legs
+                for (Future<LegResult> future : futures)
+                    future.cancel(true);
+                throw t;
+            }
+            return result;
+        }
 
+        PathCalculator pathCalculator = pathCalculators.get();
+        for (int leg = 0; leg < legs; ++leg) {
             // enforce pass-through
             int incomingEdge = NO_EDGE;
-            incomingEdge = methodVR2(result, leg, incomingEdge);
+            // the final edge is only needed for pass-through and would force lazy CH paths to be unpacked
+            if (passThrough)
+                incomingEdge = methodVR2(result, leg, incomingEdge);
+            EdgeRestrictions edgeRestrictions = buildLegRestrictions(oggetto, directedEdgeFilter, curbsides, forceCurbsides, headings, incomingEdge, passThrough, leg);
 
-            // enforce curbsides
-            final String[] curbside=new String[2];
-            curbside[0] = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
-            curbside[1] = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+            // calculate paths
+            List<Path> paths = pathCalculator.calcPaths(oggetto.snaps.get(leg).getClosestNode(), oggetto.snaps.get(leg + 1).getClosestNode(), edgeRestrictions);
+            addLeg(result, new LegResult(paths, pathCalculator.getDebugString(), pathCalculator.getVisitedNodes()));
+        }
+        return result;
+    }
 
-            EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(oggetto.queryGraph,snap,
-                    heading, incomingEdge, passThrough,
-                    curbside, directedEdgeFilter);
+    private static EdgeRestrictions buildLegRestrictions(Nonna oggetto, DirectedEdgeFilter directedEdgeFilter, List<String> curbsides, boolean forceCurbsides, List<Double> headings, int incomingEdge, boolean passThrough, int leg) {
+        Snap[] snap=new Snap[2];
+        snap[0] = oggetto.snaps.get(leg);
+        snap[1] = oggetto.snaps.get(leg + 1);
+
+        // enforce headings
+        // at via-nodes and the target node the heading parameter is interpreted as the direction we want
+        // to enforce for arriving (not starting) at this node. the starting direction is not enforced at
+        // all for these points (unless using pass through). see this forum discussion:
+        // https://discuss.graphhopper.com/t/meaning-of-heading-parameter-for-via-routing/5643/6
+        double[] heading=new double[2];
+        heading[0] = (leg == 0 && !headings.isEmpty()) ? headings.get(0) : Double.NaN;
+        heading[1] = (oggetto.snaps.size() == headings.size() && !Double.isNaN(headings.get(leg + 1))) ? headings.get(leg + 1) : Double.NaN;
+
+        // enforce curbsides
+        final String[] curbside=new String[2];
+        curbside[0] = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg);
+        curbside[1] = curbsides.isEmpty() ? CURBSIDE_ANY : curbsides.get(leg + 1);
+
+        EdgeRestrictions edgeRestrictions = buildEdgeRestrictions(oggetto.queryGraph,snap,
+                heading, incomingEdge, passThrough,
+                curbside, directedEdgeFilter);
+
+        edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, forceCurbsides));
+        edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, forceCurbsides));
+        return edgeRestrictions;
+    }
 
-            edgeRestrictions.setSourceOutEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getSourceOutEdge(), leg, forceCurbsides));
-            edgeRestrictions.setTargetInEdge(ignoreThrowOrAcceptImpossibleCurbsides(curbsides, edgeRestrictions.getTargetInEdge(), leg + 1, forceCurbsides));
+    private static LegResult getLegResult(Future<LegResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calculating the legs", e);
+        } catch (ExecutionException e) {
+            // rethrow what the path calculator threw, so the errors are the same as for the sequential calculation
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
-            // calculate paths
-            List<Path> paths = pathCalculator.calcPaths(snap[0].getClosestNode(), snap[1].getClosestNode(), edgeRestrictions);
-            StringBuilder stringBuilder = new StringBuilder();
-            stringBuilder.append(result.debug);
-            stringBuilder.append(pathCalculator.getDebugString());
-            result.debug = stringBuilder.toString();
+    private static void addLeg(Result result, LegResult legResult) throws PointPathException {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(result.debug);
+        stringBuilder.append(legResult.debug);
+        result.debug = stringBuilder.toString();
+
+        // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
+        // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
+        // a good method to decide how to combine the different legs
+        methodVR1(result, legResult.paths);
+
+        result.visitedNodes += legResult.visitedNodes;
+        stringBuilder = new StringBuilder();
+        stringBuilder.append(result.debug);
+        stringBuilder.append(", visited nodes sum: ");
+        stringBuilder.append(result.visitedNodes);
+        result.debug = stringBuilder.toString();
+    }
 
-            // for alternative routing we get multiple paths and add all of them (which is ok, because we do not allow
-            // via-points for alternatives at the moment). otherwise we would have to return a list<list<path>> and find
-            // a good method to decide how to combine the different legs
-            methodVR1(result, paths);
+    private static class LegResult {
+        final List<Path> paths;
+        final String debug;
+        final int visitedNodes;
 
-            result.visitedNodes += pathCalculator.getVisitedNodes();
-            stringBuilder = new StringBuilder();
-            stringBuilder.append(result.debug);
-            stringBuilder.append(", visited nodes sum: ");
-            stringBuilder.append(result.visitedNodes);
-            result.debug = stringBuilder.toString();
+        LegResult(List<Path> paths, String debug, int visitedNodes) {
+            this.paths = paths;
+            this.debug = debug;
+            this.visitedNodes = visitedNodes;
         }
-        return result;
     }
 
-
     private static void methodVR3(List<GHPoint> points, List<String> curbsides, List<Double> headings) {
         if (!curbsides.isEmpty() && curbsides.size() != points.size())
             throw new IllegalArgumentException("if1 you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
@@ -0,0 +1,264 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.IntHashSet;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHStorage;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.PriorityQueue;
+
+/**
+ * Uses the exact shortest path weights of a node-based CH graph as approximation for A*. This is admissible for every
+ * weighting whose edge weights are never smaller than the ones of the CH graph, e.g. for a custom model that only
+ * decreases the speed or priority of the profile the CH graph was prepared for.
+ * <p>
+ * When the target is set the upward search space of the target is explored once. The weight from a node to the
+ * target is then calculated on demand as the minimum over the upward search space of the node, which is only
+ * explored until it meets nodes whose weight is already known.
+ * <p>
+ * The shortcut weights of the CH graph are rounded and can therefore be slightly larger than the weight of the
+ * skipped edges. To stay admissible {@link CHStorage#MIN_WEIGHT} is subtracted from the weight of every shortcut.
+ * <p>
+ * For the virtual nodes of a QueryGraph the approximation is the minimum over the nodes of the CH graph (or the
+ * target) that can be reached via virtual edges, plus the weight of these edges. This way the approximation stays
+ * consistent, no matter how many virtual nodes there are.
+ */
+public class CHPotentialApproximator implements WeightApproximator {
+    private final RoutingCHGraph chGraph;
+    private final Graph graph;
+    private final Weighting weighting;
+    private final boolean reverse;
+    private final int baseNodes;
+    private final RoutingCHEdgeExplorer searchExplorer;
+    private final RoutingCHEdgeExplorer upExplorer;
+    private final EdgeExplorer explorer;
+    private final IntDoubleHashMap targetSearch = new IntDoubleHashMap();
+    private final IntDoubleHashMap potentials = new IntDoubleHashMap();
+    private final IntDoubleHashMap virtualPotentials = new IntDoubleHashMap();
+    private final IntArrayList stack = new IntArrayList();
+    private int to = -1;
+
+    /**
+     * @param chGraph the node-based CH graph without virtual nodes
+     * @param graph   the graph that is searched, i.e. the QueryGraph or the base graph
+     */
+    public CHPotentialApproximator(RoutingCHGraph chGraph, Graph graph) {
+        this(chGraph, graph, false);
+    }
+
+    private CHPotentialApproximator(RoutingCHGraph chGraph, Graph graph, boolean reverse) {
+        if (chGraph.isEdgeBased())
+            throw new IllegalArgumentException("CH potentials require a node-based CH graph");
+        this.chGraph = chGraph;
+        this.graph = graph;
+        this.weighting = chGraph.getWeighting();
+        this.reverse = reverse;
+        this.baseNodes = chGraph.getNodes();
+        this.searchExplorer = reverse ? chGraph.createOutEdgeExplorer() : chGraph.createInEdgeExplorer();
+        this.upExplorer = reverse ? chGraph.createInEdgeExplorer() : chGraph.createOutEdgeExplorer();
+        this.explorer = graph.createEdgeExplorer();
+    }
+
+    @Override
+    public void setTo(int to) {
+        this.to = to;
+        targetSearch.clear();
+        potentials.clear();
+        virtualPotentials.clear();
+        PriorityQueue<Entry> heap = new PriorityQueue<>();
+        for (Entry entry : findTargetNodes(to))
+            heap.add(entry);
+        while (!heap.isEmpty()) {
+            Entry curr = heap.poll();
+            if (targetSearch.containsKey(curr.node))
+                continue;
+            targetSearch.put(curr.node, curr.weight);
+            RoutingCHEdgeIterator iter = searchExplorer.setBaseNode(curr.node);
+            while (iter.next()) {
+                if (!isUpward(iter) || targetSearch.containsKey(iter.getAdjNode()))
+                    continue;
+                double weight = curr.weight + getLowerWeight(iter, !reverse);
+                if (!Double.isInfinite(weight))
+                    heap.add(new Entry(iter.getAdjNode(), weight));
+            }
+        }
+    }
+
+    /**
+     * @return the nodes of the CH graph next to the target with their weight to the target. For a virtual target
+     * these are the nodes reachable via virtual edges.
+     */
+    private PriorityQueue<Entry> findTargetNodes(int to) {
+        PriorityQueue<Entry> result = new PriorityQueue<>();
+        if (to < baseNodes) {
+            result.add(new Entry(to, 0));
+            return result;
+        }
+        IntDoubleHashMap visited = new IntDoubleHashMap();
+        PriorityQueue<Entry> heap = new PriorityQueue<>();
+        heap.add(new Entry(to, 0));
+        while (!heap.isEmpty()) {
+            Entry curr = heap.poll();
+            if (visited.containsKey(curr.node))
+                continue;
+            visited.put(curr.node, curr.weight);
+            if (curr.node < baseNodes) {
+                result.add(curr);
+                continue;
+            }
+            EdgeIterator iter = explorer.setBaseNode(curr.node);
+            while (iter.next()) {
+                double weight = curr.weight + weighting.calcEdgeWeightWithAccess(iter, !reverse);
+                if (!Double.isInfinite(weight) && !visited.containsKey(iter.getAdjNode()))
+                    heap.add(new Entry(iter.getAdjNode(), weight));
+            }
+        }
+        return result;
+    }
+
+    private boolean isUpward(RoutingCHEdgeIteratorState edge) {
+        if (edge.getBaseNode() == edge.getAdjNode())
+            return false;
+        // shortcuts in the wrong direction are disconnected, see CHLevelEdgeFilter
+        return edge.isShortcut() || chGraph.getLevel(edge.getBaseNode()) < chGraph.getLevel(edge.getAdjNode());
+    }
+
+    /**
+     * @return the weight of the given edge, or a lower bound of the weight of the skipped edges for a shortcut
+     */
+    private static double getLowerWeight(RoutingCHEdgeIteratorState edge, boolean reverse) {
+        double weight = edge.getWeight(reverse);
+        return edge.isShortcut() ? Math.max(0, weight - CHStorage.MIN_WEIGHT) : weight;
+    }
+
+    @Override
+    public double approximate(int node) {
+        if (node >= baseNodes)
+            return approximateVirtual(node);
+        double potential = potentials.getOrDefault(node, Double.NaN);
+        if (!Double.isNaN(potential))
+            return potential;
+        // the upward edges form a DAG, so we can calculate the potentials of the upper nodes first (without recursion)
+        stack.clear();
+        stack.add(node);
+        while (!stack.isEmpty()) {
+            int curr = stack.get(stack.size() - 1);
+            if (!potentials.containsKey(curr)) {
+                // mark as expanded
+                potentials.put(curr, Double.NaN);
+                RoutingCHEdgeIterator iter = upExplorer.setBaseNode(curr);
+                while (iter.next()) {
+                    if (isUpward(iter) && !potentials.containsKey(iter.getAdjNode()))
+                        stack.add(iter.getAdjNode());
+                }
+                continue;
+            }
+            stack.remove(stack.size() - 1);
+            if (!Double.isNaN(potentials.get(curr)))
+                continue;
+            double min = targetSearch.getOrDefault(curr, Double.POSITIVE_INFINITY);
+            RoutingCHEdgeIterator iter = upExplorer.setBaseNode(curr);
+            while (iter.next()) {
+                if (isUpward(iter))
+                    min = Math.min(min, getLowerWeight(iter, reverse) + potentials.get(iter.getAdjNode()));
+            }
+            potentials.put(curr, min);
+        }
+        return potentials.get(node);
+    }
+
+    /**
+     * Searches the virtual edges from the given virtual node until it meets nodes of the CH graph or the target.
+     */
+    private double approximateVirtual(int node) {
+        if (node == to)
+            return 0;
+        double potential = virtualPotentials.getOrDefault(node, Double.NaN);
+        if (!Double.isNaN(potential))
+            return potential;
+        double min = Double.POSITIVE_INFINITY;
+        IntHashSet visited = new IntHashSet();
+        PriorityQueue<Entry> heap = new PriorityQueue<>();
+        heap.add(new Entry(node, 0));
+        while (!heap.isEmpty()) {
+            Entry curr = heap.poll();
+            // the approximation is never negative, so no other entry can lead to a smaller one
+            if (curr.weight >= min)
+                break;
+            if (!visited.add(curr.node))
+                continue;
+            if (curr.node == to) {
+                min = curr.weight;
+                break;
+            }
+            if (curr.node < baseNodes) {
+                min = Math.min(min, curr.weight + approximate(curr.node));
+                continue;
+            }
+            EdgeIterator iter = explorer.setBaseNode(curr.node);
+            while (iter.next()) {
+                double weight = curr.weight + weighting.calcEdgeWeightWithAccess(iter, reverse);
+                if (!Double.isInfinite(weight) && !visited.contains(iter.getAdjNode()))
+                    heap.add(new Entry(iter.getAdjNode(), weight));
+            }
+        }
+        virtualPotentials.put(node, min);
+        return min;
+    }
+
+    @Override
+    public WeightApproximator reverse() {
+        return new CHPotentialApproximator(chGraph, graph, !reverse);
+    }
+
+    @Override
+    public double getSlack() {
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ch_potential";
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        final int node;
+        final double weight;
+
+        Entry(int node, double weight) {
+            this.node = node;
+            this.weight = weight;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            return Double.compare(weight, o.weight);
+        }
+    }
+}
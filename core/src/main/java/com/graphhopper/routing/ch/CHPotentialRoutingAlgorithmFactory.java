@@ -0,0 +1,57 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.*;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.Helper;
+
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+
+/**
+ * Creates A* algorithms for a weighting that differs from the one of the CH graph, but is never smaller. The CH graph
+ * provides the approximation, see {@link CHPotentialApproximator}.
+ */
+public class CHPotentialRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
+    private final RoutingCHGraph chGraph;
+
+    public CHPotentialRoutingAlgorithmFactory(RoutingCHGraph chGraph) {
+        this.chGraph = chGraph;
+    }
+
+    @Override
+    public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
+        if (opts.getTraversalMode().isEdgeBased())
+            throw new IllegalArgumentException("CH potentials only support node-based traversal");
+        String algoStr = Helper.isEmpty(opts.getAlgorithm()) ? ASTAR_BI : opts.getAlgorithm();
+        Weighting weighting = g.wrapWeighting(w);
+        RoutingAlgorithm algo;
+        if (ASTAR.equalsIgnoreCase(algoStr)) {
+            algo = new AStar(g, weighting, opts.getTraversalMode()).setApproximation(new CHPotentialApproximator(chGraph, g));
+        } else if (ASTAR_BI.equalsIgnoreCase(algoStr)) {
+            algo = new AStarBidirection(g, weighting, opts.getTraversalMode()).setApproximation(new CHPotentialApproximator(chGraph, g));
+        } else {
+            throw new IllegalArgumentException("Custom models with CH only support algorithm=" + ASTAR + " or " + ASTAR_BI + ", but got: " + algoStr);
+        }
+        algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+        return algo;
+    }
+}
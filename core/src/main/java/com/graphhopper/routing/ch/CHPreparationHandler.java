@@ -103,7 +103,7 @@ public class CHPreparationHandler {
                 .map(c -> () -> {
                     CHStorage chStorage = new CHStorage(graph.getDirectory(), c.getName(), graph.getSegmentSize(), c.isEdgeBased());
                     if (chStorage.loadExisting())
-                        loaded.put(c.getName(), RoutingCHGraphImpl.fromGraph(graph, chStorage, c));
+                        loaded.put(c.getName(), RoutingCHGraphImpl.fromGraph(graph, chStorage, c, loadShortcutMetadata(graph, chStorage, c)));
                     else {
                         // : this is ugly, see comments in LMPreparationHandler
                         graph.getDirectory().remove("nodes_ch_" + c.getName());
@@ -115,6 +115,26 @@ public class CHPreparationHandler {
         return loaded;
     }
 
+    /**
+     * Loads the shortcut metadata of a node-based CH graph. CH graphs that were prepared without it get it calculated
+     * and stored here, so this does not need to happen at request time.
+     */
+    private static ShortcutMetadata loadShortcutMetadata(BaseGraph graph, CHStorage chStorage, CHConfig chConfig) throws Exception {
+        if (chConfig.isEdgeBased())
+            return null;
+        ShortcutMetadata shortcutMetadata = new ShortcutMetadata(graph.getDirectory(), chConfig.getName(), graph.getSegmentSize());
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, chStorage, chConfig);
+        if (!shortcutMetadata.loadExisting(chGraph)) {
+            LOGGER.info("Calculating shortcut metadata for CH profile '{}'", chConfig.getName());
+            shortcutMetadata.close();
+            graph.getDirectory().remove("shortcut_metadata_" + chConfig.getName());
+            shortcutMetadata = new ShortcutMetadata(graph.getDirectory(), chConfig.getName(), graph.getSegmentSize());
+            shortcutMetadata.calc(chGraph);
+            shortcutMetadata.flush();
+        }
+        return shortcutMetadata;
+    }
+
     @SuppressWarnings("java:S112")
     public Map<String, PrepareContractionHierarchies.Result> prepare(BaseGraph baseGraph, StorableProperties properties, List<CHConfig> chConfigs, final boolean closeEarly) {
         if (chConfigs.isEmpty()) {
@@ -27,6 +27,7 @@ import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
+import static com.graphhopper.util.Parameters.CH.LAZY_PATH;
 import static com.graphhopper.util.Parameters.Routing.ALGORITHM;
 import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
 
@@ -78,13 +79,13 @@ public class CHRoutingAlgorithmFactory {
         if (Helper.isEmpty(algo))
             algo = defaultAlgo;
         if (ASTAR_BI.equals(algo)) {
-            return new AStarBidirectionCH(g)
-                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
+            return setPathExtractor(new AStarBidirectionCH(g)
+                    .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess())), g, opts);
         } else if (DIJKSTRA_BI.equals(algo) || Helper.isEmpty(algo)) {
             if (opts.getBool("stall_on_demand", true)) {
-                return new DijkstraBidirectionCH(g);
+                return setPathExtractor(new DijkstraBidirectionCH(g), g, opts);
             } else {
-                return new DijkstraBidirectionCHNoSOD(g);
+                return setPathExtractor(new DijkstraBidirectionCHNoSOD(g), g, opts);
             }
         } else if (ALT_ROUTE.equalsIgnoreCase(algo)) {
             return new AlternativeRouteCH(g, opts);
@@ -93,6 +94,14 @@ public class CHRoutingAlgorithmFactory {
         }
     }
 
+    private static <T extends AbstractBidirCHAlgo> T setPathExtractor(T algo, RoutingCHGraph g, PMap opts) {
+        // without shortcut metadata (e.g. for a CH graph that was not prepared via PrepareContractionHierarchies) the
+        // shortcuts have to be unpacked to sum up the time and distance anyway
+        if (opts.getBool(LAZY_PATH, false) && g.getShortcutMetadata() != null)
+            algo.setPathExtractorSupplier(() -> new NodeBasedCHBidirPathExtractor(g, true));
+        return algo;
+    }
+
     private Weighting getWeighting() {
         return routingCHGraph.getWeighting();
     }
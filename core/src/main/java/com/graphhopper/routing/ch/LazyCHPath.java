@@ -0,0 +1,70 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.Path;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * A {@link Path} for node-based CH that keeps the shortcuts of the shortest path trees and only unpacks them into
+ * original edges when the edges are requested for the first time, e.g. to calculate the points or the instructions.
+ */
+class LazyCHPath extends Path {
+    private final RoutingCHGraph routingGraph;
+    // pairs of edge and adjacent node, in the order the shortest path trees were followed
+    private final IntArrayList fwdEdges = new IntArrayList();
+    private final IntArrayList bwdEdges = new IntArrayList();
+    private boolean unpacked;
+
+    LazyCHPath(RoutingCHGraph routingGraph) {
+        super(routingGraph.getBaseGraph());
+        this.routingGraph = routingGraph;
+    }
+
+    void addPackedEdge(int edge, int adjNode, boolean reverse) {
+        IntArrayList edges = reverse ? bwdEdges : fwdEdges;
+        edges.add(edge, adjNode);
+    }
+
+    @Override
+    public IntArrayList getEdges() {
+        if (!unpacked) {
+            unpacked = true;
+            unpack(super.getEdges());
+        }
+        return super.getEdges();
+    }
+
+    @Override
+    public void setEdges(IntArrayList edgeIds) {
+        unpacked = true;
+        super.setEdges(edgeIds);
+    }
+
+    private void unpack(IntArrayList edges) {
+        ShortcutUnpacker unpacker = new ShortcutUnpacker(routingGraph, (edge, reverse, prevOrNextEdgeId) -> edges.add(edge.getEdge()), false);
+        // the fwd tree was followed from the meeting point to the start, the bwd tree from the meeting point to the end
+        for (int i = fwdEdges.size() - 2; i >= 0; i -= 2)
+            unpacker.visitOriginalEdgesFwd(fwdEdges.get(i), fwdEdges.get(i + 1), false, NO_EDGE);
+        for (int i = 0; i < bwdEdges.size(); i += 2)
+            unpacker.visitOriginalEdgesBwd(bwdEdges.get(i), bwdEdges.get(i + 1), true, NO_EDGE);
+    }
+}
@@ -19,20 +19,53 @@
 package com.graphhopper.routing.ch;
 
 import com.graphhopper.routing.DefaultBidirPathExtractor;
+import com.graphhopper.routing.Path;
 import com.graphhopper.storage.RoutingCHGraph;
 
 public class NodeBasedCHBidirPathExtractor extends DefaultBidirPathExtractor {
     private final ShortcutUnpacker shortcutUnpacker;
     private final RoutingCHGraph routingGraph;
+    private final ShortcutMetadata shortcutMetadata;
 
     public NodeBasedCHBidirPathExtractor(RoutingCHGraph routingGraph) {
-        super(routingGraph.getBaseGraph(), routingGraph.getWeighting());
+        this(routingGraph, false);
+    }
+
+    /**
+     * @param lazy if true the time and distance of the shortcuts are taken from the {@link ShortcutMetadata} and the
+     *             shortcuts are only unpacked when the edges of the extracted path are requested
+     */
+    public NodeBasedCHBidirPathExtractor(RoutingCHGraph routingGraph, boolean lazy) {
+        super(routingGraph.getBaseGraph(), routingGraph.getWeighting(),
+                lazy ? new LazyCHPath(routingGraph) : new Path(routingGraph.getBaseGraph()));
         this.routingGraph = routingGraph;
+        shortcutMetadata = lazy ? routingGraph.getShortcutMetadata() : null;
+        if (lazy && shortcutMetadata == null)
+            throw new IllegalArgumentException("Lazy paths are only supported for node-based CH");
         shortcutUnpacker = createShortcutUnpacker();
     }
 
+    @Override
+    protected void reverseFwdEdges() {
+        // the lazy path unpacks the fwd edges in the right order, so there is nothing to reverse here
+        if (shortcutMetadata == null)
+            super.reverseFwdEdges();
+    }
+
     @Override
     public void onEdge(int edge, int adjNode, boolean reverse, int prevOrNextEdge) {
+        if (shortcutMetadata != null) {
+            ((LazyCHPath) path).addPackedEdge(edge, adjNode, reverse);
+            if (shortcutMetadata.isShortcut(edge)) {
+                long time = shortcutMetadata.getTime(edge, adjNode, reverse);
+                if (time != ShortcutMetadata.UNKNOWN_TIME) {
+                    path.addDistance(shortcutMetadata.getDistance(edge));
+                    path.addTime(time);
+                    return;
+                }
+            }
+        }
+        // original and virtual edges or shortcuts without a known time are unpacked to sum up the time and distance
         if (reverse) {
             shortcutUnpacker.visitOriginalEdgesBwd(edge, adjNode, true, prevOrNextEdge);
         } else {
@@ -44,7 +77,8 @@ public class NodeBasedCHBidirPathExtractor extends DefaultBidirPathExtractor {
         return new ShortcutUnpacker(routingGraph, (edge, reverse, prevOrNextEdgeId) -> {
             path.addDistance(edge.getDistance());
             path.addTime(routingGraph.getWeighting().calcEdgeMillis(edge, reverse));
-            path.addEdge(edge.getEdge());
+            if (shortcutMetadata == null)
+                path.addEdge(edge.getEdge());
         }, false);
     }
 }
@@ -52,6 +52,7 @@ public class PrepareContractionHierarchies {
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final CHConfig chConfig;
     private final CHStorage chStore;
+    private ShortcutMetadata shortcutMetadata;
     private final CHStorageBuilder chBuilder;
     private final Random rand = new Random(123);
     private final StopWatch allSW = new StopWatch();
@@ -131,10 +132,11 @@ public class PrepareContractionHierarchies {
         allSW.start();
         initFromGraph();
         runGraphContraction();
+        calcShortcutMetadata();
         allSW.stop();
         logFinalGraphStats();
         return new Result(
-                chConfig, chStore,
+                chConfig, chStore, shortcutMetadata,
                 nodeContractor.getAddedShortcutsCount(),
                 lazyUpdateSW.getCurrentSeconds(),
                 periodicUpdateSW.getCurrentSeconds(),
@@ -462,25 +464,43 @@ public class PrepareContractionHierarchies {
         sortedNodes = null;
     }
 
+    private void calcShortcutMetadata() throws PrepareExce {
+        if (chConfig.isEdgeBased())
+            return;
+        // this way the path extraction and isochrones do not have to calculate the metadata at request time
+        shortcutMetadata = new ShortcutMetadata(graph.getDirectory(), chConfig.getName(), graph.getSegmentSize());
+        try {
+            shortcutMetadata.calc(new RoutingCHGraphImpl(graph, chStore, chConfig.getWeighting()));
+        } catch (MMapDataAccess.MappaExce e) {
+            throw new PrepareExce("Could not create the shortcut metadata", e);
+        }
+    }
+
     void flush() throws MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce {
         chStore.flush();
+        if (shortcutMetadata != null)
+            shortcutMetadata.flush();
     }
 
     void close() {
         chStore.close();
+        if (shortcutMetadata != null)
+            shortcutMetadata.close();
     }
 
     public static class Result {
         private final CHConfig chConfig;
         private final CHStorage chStorage;
+        private final ShortcutMetadata shortcutMetadata;
         private final long shortcuts;
         private final double lazyTime;
         private final double periodTime;
         private final double neighborTime;
         private final long totalPrepareTime;
 
-        private Result(CHConfig chConfig, CHStorage chStorage, long shortcuts, double lazyTime, double periodTime, double neighborTime, long totalPrepareTime) {
+        private Result(CHConfig chConfig, CHStorage chStorage, ShortcutMetadata shortcutMetadata, long shortcuts, double lazyTime, double periodTime, double neighborTime, long totalPrepareTime) {
             this.chStorage = chStorage;
+            this.shortcutMetadata = shortcutMetadata;
             this.shortcuts = shortcuts;
             this.lazyTime = lazyTime;
             this.periodTime = periodTime;
@@ -497,6 +517,13 @@ public class PrepareContractionHierarchies {
             return chStorage;
         }
 
+        /**
+         * @return the metadata of the shortcuts or null for edge-based CH
+         */
+        public ShortcutMetadata getShortcutMetadata() {
+            return shortcutMetadata;
+        }
+
         public long getShortcuts() {
             return shortcuts;
         }
@@ -642,5 +669,9 @@ public class PrepareContractionHierarchies {
     public class PrepareExce extends Throwable {
         public PrepareExce(String threadWasInterrupted) {
         }
+
+        public PrepareExce(String message, Throwable cause) {
+            super(message, cause);
+        }
     }
 }
@@ -0,0 +1,200 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+import java.util.BitSet;
+
+/**
+ * The distance and the time of every shortcut of a node-based CH graph in both directions, so the time and distance of a
+ * path can be summed up without unpacking the shortcuts. It is calculated from the shortcuts right after the CH
+ * preparation (or when loading a CH graph that was prepared without it) and stored in a DataAccess next to the
+ * {@link CHStorage}. Every shortcut takes 20 bytes using this layout:
+ * NODEA (4) | DISTANCE (8) | TIME_AB (4) | TIME_BA (4)
+ *
+ * @see NodeBasedCHBidirPathExtractor
+ */
+public class ShortcutMetadata {
+    /**
+     * the time of a direction that cannot be travelled or that does not fit into an int, the shortcut has to be
+     * unpacked in this case
+     */
+    public static final int UNKNOWN_TIME = -1;
+    private static final int S_NODEA = 0;
+    private static final int S_DISTANCE = S_NODEA + 4;
+    private static final int S_TIME_AB = S_DISTANCE + 8;
+    private static final int S_TIME_BA = S_TIME_AB + 4;
+    private static final int ENTRY_BYTES = S_TIME_BA + 4;
+    private final DataAccess metadata;
+    private int baseEdges;
+    private int shortcuts;
+
+    public ShortcutMetadata(Directory dir, String name, int segmentSize) {
+        metadata = dir.create("shortcut_metadata_" + name, dir.getDefaultType("shortcut_metadata_" + name, true), segmentSize);
+    }
+
+    /**
+     * Calculates the metadata of all shortcuts of the given graph and stores it in a newly created DataAccess
+     */
+    public void calc(RoutingCHGraph graph) throws MMapDataAccess.MappaExce {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("Shortcut metadata is only supported for node-based CH");
+        baseEdges = graph.getBaseGraph().getEdges();
+        shortcuts = graph.getShortcuts();
+        metadata.create((long) shortcuts * ENTRY_BYTES);
+        new Calculator(graph).calcAll();
+    }
+
+    public void flush() throws MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce {
+        metadata.setHeader(0, Constants.VERSION_SHORTCUT_METADATA);
+        metadata.setHeader(4, baseEdges);
+        metadata.setHeader(8, shortcuts);
+        metadata.setHeader(12, ENTRY_BYTES);
+        metadata.flush();
+    }
+
+    /**
+     * @return false if there is no stored metadata or it does not fit the given CH graph, it has to be calculated then
+     */
+    public boolean loadExisting(RoutingCHGraph graph) throws RAMDataAccess.RamExce, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        if (!metadata.loadExisting())
+            return false;
+        GHUtility.checkDAVersion(metadata.getName(), Constants.VERSION_SHORTCUT_METADATA, metadata.getHeader(0));
+        baseEdges = metadata.getHeader(4);
+        shortcuts = metadata.getHeader(8);
+        return baseEdges == graph.getBaseGraph().getEdges() && shortcuts == graph.getShortcuts()
+                && metadata.getHeader(12) == ENTRY_BYTES;
+    }
+
+    public void close() {
+        metadata.close();
+    }
+
+    public boolean isClosed() {
+        return metadata.isClosed();
+    }
+
+    public long getCapacity() {
+        return metadata.getCapacity();
+    }
+
+    public boolean isShortcut(int chEdge) {
+        return chEdge >= baseEdges && chEdge < baseEdges + shortcuts;
+    }
+
+    public double getDistance(int chEdge) {
+        return getDouble(toPointer(chEdge) + S_DISTANCE);
+    }
+
+    /**
+     * @param adjNode the adjacent node the shortcut was found with, just like for {@link RoutingCHGraph#getEdgeIteratorState}
+     * @param reverse true if the shortcut is travelled from the adjacent node to the base node
+     * @return the time in milliseconds or {@link #UNKNOWN_TIME}
+     */
+    public long getTime(int chEdge, int adjNode, boolean reverse) {
+        long pointer = toPointer(chEdge);
+        boolean fromNodeA = (adjNode == metadata.getInt(pointer + S_NODEA)) == reverse;
+        return metadata.getInt(pointer + (fromNodeA ? S_TIME_AB : S_TIME_BA));
+    }
+
+    private long toPointer(int chEdge) {
+        return (long) (chEdge - baseEdges) * ENTRY_BYTES;
+    }
+
+    private double getDouble(long bytePos) {
+        long bits = ((long) metadata.getInt(bytePos) << 32) | (metadata.getInt(bytePos + 4) & 0xFFFFFFFFL);
+        return Double.longBitsToDouble(bits);
+    }
+
+    private void setDouble(long bytePos, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        metadata.setInt(bytePos, (int) (bits >>> 32));
+        metadata.setInt(bytePos + 4, (int) bits);
+    }
+
+    private class Calculator {
+        private final RoutingCHGraph graph;
+        private final Weighting weighting;
+        // the shortcuts are calculated recursively, so we need to remember which ones are already done
+        private final BitSet calculated;
+
+        Calculator(RoutingCHGraph graph) {
+            this.graph = graph;
+            this.weighting = graph.getWeighting();
+            this.calculated = new BitSet(shortcuts);
+        }
+
+        void calcAll() {
+            for (int shortcut = 0; shortcut < shortcuts; shortcut++)
+                calcShortcut(shortcut);
+        }
+
+        private void calcShortcut(int shortcut) {
+            if (calculated.get(shortcut))
+                return;
+            RoutingCHEdgeIteratorState edge = graph.getEdgeIteratorState(baseEdges + shortcut, Integer.MIN_VALUE);
+            // the same as ShortcutUnpacker does for node-based shortcuts
+            RoutingCHEdgeIteratorState sk2 = graph.getEdgeIteratorState(edge.getSkippedEdge2(), edge.getAdjNode());
+            RoutingCHEdgeIteratorState sk1;
+            if (sk2 == null) {
+                sk2 = graph.getEdgeIteratorState(edge.getSkippedEdge1(), edge.getAdjNode());
+                sk1 = graph.getEdgeIteratorState(edge.getSkippedEdge2(), sk2.getBaseNode());
+            } else {
+                sk1 = graph.getEdgeIteratorState(edge.getSkippedEdge1(), sk2.getBaseNode());
+            }
+            long pointer = (long) shortcut * ENTRY_BYTES;
+            metadata.setInt(pointer + S_NODEA, edge.getBaseNode());
+            metadata.setInt(pointer + S_TIME_AB, sum(calcTime(sk1, false), calcTime(sk2, false)));
+            metadata.setInt(pointer + S_TIME_BA, sum(calcTime(sk1, true), calcTime(sk2, true)));
+            setDouble(pointer + S_DISTANCE, calcDistance(sk1) + calcDistance(sk2));
+            calculated.set(shortcut);
+        }
+
+        private long calcTime(RoutingCHEdgeIteratorState edge, boolean reverse) {
+            if (edge.isShortcut()) {
+                calcShortcut(edge.getEdge() - baseEdges);
+                return getTime(edge.getEdge(), edge.getAdjNode(), reverse);
+            }
+            EdgeIteratorState origEdge = graph.getBaseGraph().getEdgeIteratorState(edge.getOrigEdge(), edge.getAdjNode());
+            // the time of a direction that cannot be travelled (e.g. due to a zero speed) is not needed, and it
+            // might not even be possible to calculate it
+            if (weighting.edgeHasNoAccess(origEdge, reverse) || Double.isInfinite(weighting.calcEdgeWeight(origEdge, reverse)))
+                return UNKNOWN_TIME;
+            return weighting.calcEdgeMillis(origEdge, reverse);
+        }
+
+        private double calcDistance(RoutingCHEdgeIteratorState edge) {
+            if (edge.isShortcut()) {
+                calcShortcut(edge.getEdge() - baseEdges);
+                return getDistance(edge.getEdge());
+            }
+            return graph.getBaseGraph().getEdgeIteratorState(edge.getOrigEdge(), edge.getAdjNode()).getDistance();
+        }
+    }
+
+    private static int sum(long time1, long time2) {
+        if (time1 == UNKNOWN_TIME || time2 == UNKNOWN_TIME || time1 + time2 > Integer.MAX_VALUE)
+            return UNKNOWN_TIME;
+        return (int) (time1 + time2);
+    }
+}
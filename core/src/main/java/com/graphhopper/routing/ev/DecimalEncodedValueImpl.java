@@ -114,6 +114,17 @@ public final class DecimalEncodedValueImpl extends IntEncodedValueImpl implement
         return value * factor;
     }
 
+    /**
+     * Like {@link #getDecimal(boolean, IntsRef)} in forward direction, but reads the value from the given int, which
+     * avoids the IntsRef for encoded values that are stored in the first int, like the turn costs.
+     */
+    public double getDecimal(int flags) {
+        int value = getInt(flags);
+        if (useMaximumAsInfinity && value == maxStorableValue)
+            return Double.POSITIVE_INFINITY;
+        return value * factor;
+    }
+
     @Override
     public double getNextStorableValue(double value) {
         if (!useMaximumAsInfinity && value > getMaxStorableDecimal())
@@ -202,6 +202,15 @@ public class IntEncodedValueImpl implements IntEncodedValue {
         }
     }
 
+    /**
+     * Reads the forward value from the given int, see {@link DecimalEncodedValueImpl#getDecimal(int)}.
+     */
+    final int getInt(int flags) {
+        if (fwdDataIndex != 0)
+            throw new IllegalStateException(getName() + " is not stored in the first int");
+        return minStorableValue + ((flags & fwdMask) >>> fwdShift);
+    }
+
     @Override
     public int getMaxStorableInt() {
         return maxStorableValue;
@@ -46,12 +46,18 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         if (!lms.isInitialized())
             throw new IllegalStateException("Initialize landmark storage before creating algorithms");
         int activeLM = Math.max(1, opts.getHints().getInt(Parameters.Landmark.ACTIVE_COUNT, defaultActiveLandmarks));
+        final boolean turnCostNodesOnly = opts.getTraversalMode().isEdgeBased() && opts.getHints().getBool(Parameters.Routing.TURN_COST_NODES_ONLY, false);
+        // the landmarks ignore turn costs, so they are a lower bound for the turn restriction traversal as well. it only
+        // exists for the unidirectional A*, which has to be picked explicitly. the other algorithms ignore it and use
+        // the full edge-based traversal
         final String algoStr = opts.getAlgorithm();
         final Weighting weighting = g.wrapWeighting(w);
         if (ASTAR.equalsIgnoreCase(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStar.EPSILON, 1);
             AStar algo = new AStar(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
+            if (turnCostNodesOnly)
+                algo.setTurnRestrictionTraversal(new TurnRestrictionTraversal(g));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
             return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
@@ -21,6 +21,7 @@ package com.graphhopper.routing.querygraph;
 import com.carrotsearch.hppc.IntObjectHashMap;
 import com.carrotsearch.hppc.IntObjectMap;
 import com.carrotsearch.hppc.procedures.IntObjectProcedure;
+import com.graphhopper.routing.ch.ShortcutMetadata;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.EdgeIteratorState;
@@ -151,6 +152,11 @@ public class QueryRoutingCHGraph implements RoutingCHGraph {
         return weighting;
     }
 
+    @Override
+    public ShortcutMetadata getShortcutMetadata() {
+        return routingCHGraph.getShortcutMetadata();
+    }
+
     @Override
     public void close() {
         routingCHGraph.close();
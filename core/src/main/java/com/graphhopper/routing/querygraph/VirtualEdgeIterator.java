@@ -94,6 +94,11 @@ class VirtualEdgeIterator implements EdgeIterator {
         return getCurrentEdge().fetchWayGeometry(mode);
     }
 
+    @Override
+    public void fetchWayGeometry(FetchMode mode, PointList target) {
+        getCurrentEdge().fetchWayGeometry(mode, target);
+    }
+
     @Override
     public EdgeIteratorState setWayGeometry(PointList list) {
         return getCurrentEdge().setWayGeometry(list);
@@ -128,6 +128,23 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState {
         throw new UnsupportedOperationException("Illegal mode:" + mode);
     }
 
+    @Override
+    public void fetchWayGeometry(FetchMode mode, PointList target) {
+        int size = pointList.size();
+        if (size == 0)
+            return;
+        if (mode == FetchMode.TOWER_ONLY) {
+            target.add(pointList, 0);
+            if (size > 1)
+                target.add(pointList, size - 1);
+            return;
+        }
+        int from = mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR ? 0 : 1;
+        int to = mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ ? size : size - 1;
+        for (int i = from; i < to; i++)
+            target.add(pointList, i);
+    }
+
     @Override
     public EdgeIteratorState setWayGeometry(PointList list) {
         throw new UnsupportedOperationException("Not supported for virtual edge. Set when creating it.");
@@ -0,0 +1,311 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.IntArrayDeque;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.EdgeTransitionFilter;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.createEdgeKey;
+import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
+
+/**
+ * Finds the same strongly connected components as {@link EdgeBasedTarjanSCC}, but uses multiple threads. The edge keys
+ * are split into partitions that are searched independently of each other:
+ * <ul>
+ * <li>edge keys without an incoming or outgoing transition inside their partition are single edge components
+ * ('trimming')</li>
+ * <li>the remaining edge keys are split into weakly connected parts</li>
+ * <li>the component of a pivot edge key is the intersection of the edge keys reachable from the pivot and the edge keys
+ * the pivot can be reached from. The edge keys that are only in one of these sets and the others form three new
+ * partitions ('forward-backward' algorithm by Fleischer, Hendrickson and Pinar).</li>
+ * </ul>
+ * This only pays off for big graphs with lots of threads, usually {@link EdgeBasedTarjanSCC} should be preferred.
+ */
+public class EdgeBasedParallelSCC {
+    private static final int COMPONENT = -1;
+    private static final int SINGLE_EDGE_COMPONENT = -2;
+    private final Graph graph;
+    private final EdgeTransitionFilter edgeTransitionFilter;
+    private final boolean excludeSingleEdgeComponents;
+    private final int minForkSize;
+    // the partition of every edge key, or COMPONENT/SINGLE_EDGE_COMPONENT once its component was found
+    private final int[] partitions;
+    private final AtomicInteger nextPartition = new AtomicInteger(1);
+    private final Queue<IntArrayList> components = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<EdgeExplorer> explorers;
+
+    /**
+     * @param threads the number of threads used for the search
+     * @see EdgeBasedTarjanSCC#findComponents(Graph, EdgeTransitionFilter, boolean)
+     */
+    public static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents, int threads) {
+        return findComponents(graph, edgeTransitionFilter, excludeSingleEdgeComponents, threads, 10_000);
+    }
+
+    /**
+     * @param minForkSize partitions with fewer edge keys are searched by the thread that created them
+     */
+    static ConnectedComponents findComponents(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents, int threads, int minForkSize) {
+        return new EdgeBasedParallelSCC(graph, edgeTransitionFilter, excludeSingleEdgeComponents, minForkSize).findComponents(threads);
+    }
+
+    private EdgeBasedParallelSCC(Graph graph, EdgeTransitionFilter edgeTransitionFilter, boolean excludeSingleEdgeComponents, int minForkSize) {
+        this.graph = graph;
+        this.edgeTransitionFilter = edgeTransitionFilter;
+        this.excludeSingleEdgeComponents = excludeSingleEdgeComponents;
+        this.minForkSize = minForkSize;
+        this.partitions = new int[2 * graph.getEdges()];
+        this.explorers = ThreadLocal.withInitial(graph::createEdgeExplorer);
+    }
+
+    private ConnectedComponents findComponents(int threads) {
+        IntArrayList edgeKeys = new IntArrayList(partitions.length);
+        for (int edgeKey = 0; edgeKey < partitions.length; edgeKey++)
+            edgeKeys.add(edgeKey);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new PartitionSearch(edgeKeys, 0, false));
+        } finally {
+            pool.shutdown();
+        }
+
+        ConnectedComponents result = new ConnectedComponents(excludeSingleEdgeComponents ? -1 : partitions.length);
+        for (int edgeKey = 0; edgeKey < partitions.length; edgeKey++) {
+            assert partitions[edgeKey] == COMPONENT || partitions[edgeKey] == SINGLE_EDGE_COMPONENT : "edge key without component: " + edgeKey;
+            if (partitions[edgeKey] == SINGLE_EDGE_COMPONENT)
+                result.addSingleEdgeComponent(edgeKey, excludeSingleEdgeComponents);
+        }
+        for (IntArrayList component : components)
+            result.addComponent(component);
+        return result;
+    }
+
+    private class PartitionSearch extends RecursiveAction {
+        private final IntArrayList edgeKeys;
+        private final int partition;
+        private final boolean weaklyConnected;
+
+        PartitionSearch(IntArrayList edgeKeys, int partition, boolean weaklyConnected) {
+            this.edgeKeys = edgeKeys;
+            this.partition = partition;
+            this.weaklyConnected = weaklyConnected;
+        }
+
+        @Override
+        protected void compute() {
+            // small partitions are searched right here, using a stack instead of recursion because there can be many
+            // nested partitions
+            EdgeExplorer explorer = explorers.get();
+            ArrayDeque<PartitionSearch> stack = new ArrayDeque<>();
+            List<PartitionSearch> forked = new ArrayList<>();
+            stack.push(this);
+            while (!stack.isEmpty()) {
+                for (PartitionSearch search : stack.pop().split(explorer)) {
+                    if (search.edgeKeys.size() >= minForkSize) {
+                        search.fork();
+                        forked.add(search);
+                    } else {
+                        stack.push(search);
+                    }
+                }
+            }
+            for (PartitionSearch search : forked)
+                search.join();
+        }
+
+        private List<PartitionSearch> split(EdgeExplorer explorer) {
+            if (weaklyConnected)
+                return splitAtPivot(explorer);
+            trim(explorer);
+            return splitWeaklyConnected(explorer);
+        }
+
+        private void trim(EdgeExplorer explorer) {
+            IntArrayDeque queue = new IntArrayDeque(edgeKeys.size());
+            for (IntCursor c : edgeKeys)
+                queue.addLast(c.value);
+            IntPredicate notInPartition = k -> partitions[k] != partition;
+            IntPredicate enqueue = k -> {
+                if (partitions[k] == partition)
+                    queue.addLast(k);
+                return true;
+            };
+            while (!queue.isEmpty()) {
+                int edgeKey = queue.removeFirst();
+                if (partitions[edgeKey] != partition)
+                    continue;
+                if (!forEachSuccessor(explorer, edgeKey, notInPartition) && !forEachPredecessor(explorer, edgeKey, notInPartition))
+                    continue;
+                partitions[edgeKey] = SINGLE_EDGE_COMPONENT;
+                forEachSuccessor(explorer, edgeKey, enqueue);
+                forEachPredecessor(explorer, edgeKey, enqueue);
+            }
+        }
+
+        private List<PartitionSearch> splitWeaklyConnected(EdgeExplorer explorer) {
+            List<PartitionSearch> result = new ArrayList<>();
+            IntArrayDeque queue = new IntArrayDeque();
+            for (IntCursor c : edgeKeys) {
+                if (partitions[c.value] != partition)
+                    continue;
+                int part = nextPartition.getAndIncrement();
+                IntArrayList partEdgeKeys = new IntArrayList();
+                IntPredicate visit = k -> {
+                    if (partitions[k] == partition) {
+                        partitions[k] = part;
+                        partEdgeKeys.add(k);
+                        queue.addLast(k);
+                    }
+                    return true;
+                };
+                visit.test(c.value);
+                while (!queue.isEmpty()) {
+                    int edgeKey = queue.removeFirst();
+                    forEachSuccessor(explorer, edgeKey, visit);
+                    forEachPredecessor(explorer, edgeKey, visit);
+                }
+                result.add(new PartitionSearch(partEdgeKeys, part, true));
+            }
+            return result;
+        }
+
+        private List<PartitionSearch> splitAtPivot(EdgeExplorer explorer) {
+            int pivot = edgeKeys.get(0);
+            int fwdPartition = nextPartition.getAndIncrement();
+            int bwdPartition = nextPartition.getAndIncrement();
+            IntArrayDeque queue = new IntArrayDeque();
+            partitions[pivot] = fwdPartition;
+            queue.addLast(pivot);
+            IntPredicate visitFwd = k -> {
+                if (partitions[k] == partition) {
+                    partitions[k] = fwdPartition;
+                    queue.addLast(k);
+                }
+                return true;
+            };
+            while (!queue.isEmpty())
+                forEachSuccessor(explorer, queue.removeFirst(), visitFwd);
+
+            // all edge keys that were found in both directions belong to the component of the pivot
+            IntArrayList component = new IntArrayList();
+            partitions[pivot] = COMPONENT;
+            component.add(pivot);
+            queue.addLast(pivot);
+            IntPredicate visitBwd = k -> {
+                if (partitions[k] == fwdPartition) {
+                    partitions[k] = COMPONENT;
+                    component.add(k);
+                    queue.addLast(k);
+                } else if (partitions[k] == partition) {
+                    partitions[k] = bwdPartition;
+                    queue.addLast(k);
+                }
+                return true;
+            };
+            while (!queue.isEmpty())
+                forEachPredecessor(explorer, queue.removeFirst(), visitBwd);
+            if (component.size() == 1) {
+                partitions[pivot] = SINGLE_EDGE_COMPONENT;
+            } else {
+                component.trimToSize();
+                components.add(component);
+            }
+
+            IntArrayList fwdEdgeKeys = new IntArrayList();
+            IntArrayList bwdEdgeKeys = new IntArrayList();
+            IntArrayList otherEdgeKeys = new IntArrayList();
+            for (IntCursor c : edgeKeys) {
+                int p = partitions[c.value];
+                if (p == fwdPartition)
+                    fwdEdgeKeys.add(c.value);
+                else if (p == bwdPartition)
+                    bwdEdgeKeys.add(c.value);
+                else if (p == partition)
+                    otherEdgeKeys.add(c.value);
+            }
+            List<PartitionSearch> result = new ArrayList<>(3);
+            if (!fwdEdgeKeys.isEmpty())
+                result.add(new PartitionSearch(fwdEdgeKeys, fwdPartition, false));
+            if (!bwdEdgeKeys.isEmpty())
+                result.add(new PartitionSearch(bwdEdgeKeys, bwdPartition, false));
+            if (!otherEdgeKeys.isEmpty())
+                result.add(new PartitionSearch(otherEdgeKeys, partition, false));
+            return result;
+        }
+    }
+
+    /**
+     * Passes all edge keys that can follow the given edge key to the consumer, until it returns false.
+     *
+     * @return false if the consumer returned false
+     */
+    private boolean forEachSuccessor(EdgeExplorer explorer, int edgeKey, IntPredicate consumer) {
+        int edge = getEdgeFromEdgeKey(edgeKey);
+        EdgeIterator iter = explorer.setBaseNode(graph.getEdgeIteratorStateForKey(edgeKey).getAdjNode());
+        while (iter.next()) {
+            if (!edgeTransitionFilter.accept(edge, iter))
+                continue;
+            int next = createEdgeKey(iter, false);
+            if (!consumer.test(next))
+                return false;
+            // loops can be travelled both ways, see EdgeBasedTarjanSCC
+            if (iter.getBaseNode() == iter.getAdjNode() && !consumer.test(next ^ 1))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Passes all edge keys the given edge key can follow to the consumer, until it returns false.
+     *
+     * @return false if the consumer returned false
+     */
+    private boolean forEachPredecessor(EdgeExplorer explorer, int edgeKey, IntPredicate consumer) {
+        EdgeIteratorState edgeState = graph.getEdgeIteratorStateForKey(edgeKey);
+        EdgeIterator iter = explorer.setBaseNode(edgeState.getBaseNode());
+        while (iter.next()) {
+            if (!edgeTransitionFilter.accept(iter.getEdge(), edgeState))
+                continue;
+            // the edge key that ends at the base node
+            int prev = createEdgeKey(iter, true);
+            if (!consumer.test(prev))
+                return false;
+            if (iter.getBaseNode() == iter.getAdjNode() && !consumer.test(prev ^ 1))
+                return false;
+        }
+        return true;
+    }
+}
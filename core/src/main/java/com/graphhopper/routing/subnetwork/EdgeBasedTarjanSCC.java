@@ -185,20 +185,13 @@ public class EdgeBasedTarjanSCC {
             if (tarjanStack.getLast() == p) {
                 tarjanStack.removeLast();
                 edgeKeyOnStack.remove(p);
-                components.numComponents++;
-                components.numEdgeKeys++;
-                if (!excludeSingleEdgeComponents)
-                    components.singleEdgeComponents.set(p);
+                components.addSingleEdgeComponent(p, excludeSingleEdgeComponents);
             } else {
                 IntArrayList component = new IntArrayList();
                 methodMetodo1(p, component);
                 component.trimToSize();
                 assert component.size() > 1;
-                components.numComponents++;
-                components.numEdgeKeys += component.size();
-                components.components.add(component);
-                if (component.size() > components.biggestComponent.size())
-                    components.biggestComponent = component;
+                components.addComponent(component);
             }
         }
     }
@@ -370,6 +363,21 @@ public class EdgeBasedTarjanSCC {
             biggestComponent = new IntArrayList();
         }
 
+        void addComponent(IntArrayList component) {
+            numComponents++;
+            numEdgeKeys += component.size();
+            components.add(component);
+            if (component.size() > biggestComponent.size())
+                biggestComponent = component;
+        }
+
+        void addSingleEdgeComponent(int edgeKey, boolean excludeSingleEdgeComponents) {
+            numComponents++;
+            numEdgeKeys++;
+            if (!excludeSingleEdgeComponents)
+                singleEdgeComponents.set(edgeKey);
+        }
+
         /**
          * A list of arrays each containing the edge keys of a strongly connected component. Components with only a single
          * edge key are not included here, but need to be obtained using {@link #getSingleEdgeComponents()}.
@@ -32,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static com.graphhopper.util.GHUtility.getEdgeFromEdgeKey;
 
@@ -63,6 +64,8 @@ public class PrepareRoutingSubnetworks {
     private final BaseGraph graph;
     private final List<PrepareJob> prepareJobs;
     private int minNetworkSize = 200;
+    private int threads = 1;
+    private int sccThreads = 1;
 
     public PrepareRoutingSubnetworks(BaseGraph graph, List<PrepareJob> prepareJobs) {
         this.graph = graph;
@@ -78,6 +81,23 @@ public class PrepareRoutingSubnetworks {
         return this;
     }
 
+    /**
+     * Sets the number of prepare jobs that are searched at the same time.
+     */
+    public PrepareRoutingSubnetworks setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads that search the components for a single prepare job. With more than one thread
+     * {@link EdgeBasedParallelSCC} is used instead of {@link EdgeBasedTarjanSCC}, which only pays off for big graphs.
+     */
+    public PrepareRoutingSubnetworks setSCCThreads(int sccThreads) {
+        this.sccThreads = sccThreads;
+        return this;
+    }
+
     /**
      * Finds and marks all subnetworks according to {@link #setMinNetworkSize(int)}
      *
@@ -89,23 +109,36 @@ public class PrepareRoutingSubnetworks {
             return 0;
         }
         StopWatch sw = new StopWatch().start();
-        logger.info("Start marking subnetworks, prepare.min_network_size: {}, nodes: {}, edges: {}, jobs: {}, {}",
-                minNetworkSize,(0<1 ? Helper.nf(graph.getNodes()): 0),(0<1 ? Helper.nf(graph.getEdges()):0), prepareJobs, Helper.getMemInfo());
+        logger.info("Start marking subnetworks, prepare.min_network_size: {}, nodes: {}, edges: {}, jobs: {}, threads: {}, {}",
+                minNetworkSize,(0<1 ? Helper.nf(graph.getNodes()): 0),(0<1 ? Helper.nf(graph.getEdges()):0), prepareJobs, threads, Helper.getMemInfo());
+
+        // the searches only read the graph, so they can run concurrently. the edges are marked afterwards, because the
+        // subnetwork flags of different jobs can share the same bits of the edge flags
+        BitSet[] subnetworkEdges = new BitSet[prepareJobs.size()];
+        GHUtility.runConcurrently(IntStream.range(0, prepareJobs.size()).mapToObj(i -> () -> {
+            PrepareJob job = prepareJobs.get(i);
+            subnetworkEdges[i] = findSubnetworks(job.weighting, job.subnetworkEnc);
+            return job.toString();
+        }), threads);
 
         int total = 0;
-        for (PrepareJob job : prepareJobs)
-            total += setSubnetworks(job.weighting, job.subnetworkEnc);
+        for (int i = 0; i < prepareJobs.size(); i++) {
+            if (subnetworkEdges[i] == null)
+                throw new IllegalStateException("Subnetwork search failed for " + prepareJobs.get(i));
+            total += setSubnetworks(subnetworkEdges[i], prepareJobs.get(i).subnetworkEnc);
+        }
         logger.info("Finished finding and marking subnetworks for {} jobs, took: {}s, {}", prepareJobs.size(), sw.stop().getSeconds(), Helper.getMemInfo());
 
         return total;
     }
 
-    private int setSubnetworks(Weighting weighting, BooleanEncodedValue subnetworkEnc) {
+    private BitSet findSubnetworks(Weighting weighting, BooleanEncodedValue subnetworkEnc) {
         // partition graph into strongly connected components using Tarjan's algorithm
         StopWatch sw = new StopWatch().start();
-        EdgeBasedTarjanSCC.ConnectedComponents ccs = EdgeBasedTarjanSCC.findComponents(graph,
-                (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeightWithAccess(weighting, edge, false, prev)),
-                false);
+        EdgeBasedTarjanSCC.EdgeTransitionFilter edgeTransitionFilter = (prev, edge) -> Double.isFinite(GHUtility.calcWeightWithTurnWeightWithAccess(weighting, edge, false, prev));
+        EdgeBasedTarjanSCC.ConnectedComponents ccs = sccThreads > 1
+                ? EdgeBasedParallelSCC.findComponents(graph, edgeTransitionFilter, false, sccThreads)
+                : EdgeBasedTarjanSCC.findComponents(graph, edgeTransitionFilter, false);
         List<IntArrayList> components = ccs.getComponents();
         BitSet singleEdgeComponents = ccs.getSingleEdgeComponents();
         long numSingleEdgeComponents = singleEdgeComponents.cardinality();
@@ -121,8 +154,8 @@ public class PrepareRoutingSubnetworks {
 
         // make all small components subnetworks, but keep the biggest (even when its smaller than the given min_network_size)
         sw = new StopWatch().start();
+        BitSet subnetworkEdges = new BitSet(graph.getEdges());
         int subnetworks = 0;
-        int markedEdges = 0;
         int smallestNonSubnetwork = ccs.getBiggestComponent().size();
         int biggestSubnetwork = 0;
 
@@ -131,7 +164,7 @@ public class PrepareRoutingSubnetworks {
                 continue;
 
             if (component.size() < minNetworkSizeEdgeKeys) {
-                markedEdges = left(weighting, subnetworkEnc, markedEdges, component);
+                left(weighting, subnetworkEdges, component);
                 subnetworks++;
                 biggestSubnetwork = Math.max(biggestSubnetwork, component.size());
             } else {
@@ -142,7 +175,7 @@ public class PrepareRoutingSubnetworks {
         if (minNetworkSizeEdgeKeys > 0) {
             BitSetIterator iter = singleEdgeComponents.iterator();
             for (int edgeKey = iter.nextSetBit(); edgeKey >= 0; edgeKey = iter.nextSetBit()) {
-                markedEdges += setSubnetworkEdge(edgeKey, weighting, subnetworkEnc);
+                addSubnetworkEdge(edgeKey, weighting, subnetworkEdges);
                 subnetworks++;
                 biggestSubnetwork = Math.max(biggestSubnetwork, 1);
             }
@@ -150,40 +183,49 @@ public class PrepareRoutingSubnetworks {
             smallestNonSubnetwork = Math.min(smallestNonSubnetwork, 1);
         }
 
-        int allowedMarked = graph.getEdges() / 2;
-        if (markedEdges / 2 > allowedMarked)
-            throw new IllegalStateException(String.format(
-                    "Too many total (directed) edges were marked as subnetwork edges: %d out of %d\n" +
-                            "The maximum number of subnetwork edges is: %d",
-                    markedEdges, (2 * graph.getEdges()), (2 * allowedMarked)));
-
-        logger.info("%s - Marked %d subnetworks (biggest: %d edges) -> %d components(s) remain (smallest: %d, biggest: %d edges)" +
-                        ", total marked edges: %d, took: %ds",
+        logger.info("%s - Found %d subnetworks (biggest: %d edges) -> %d components(s) remain (smallest: %d, biggest: %d edges)" +
+                        ", total subnetwork edges: %d, took: %ds",
                 (0<1 ? subnetworkEnc.getName().replace("_subnetwork", ""):null),
                 subnetworks,
                 biggestSubnetwork,
                 (ccs.getTotalComponents() - subnetworks),
                 smallestNonSubnetwork,
                 ccs.getBiggestComponent().size(),
-                markedEdges,
+                subnetworkEdges.cardinality(),
                 sw.stop().getSeconds());
 
+        return subnetworkEdges;
+    }
+
+    private int setSubnetworks(BitSet subnetworkEdges, BooleanEncodedValue subnetworkEnc) {
+        int allowedMarked = graph.getEdges() / 2;
+        if (subnetworkEdges.cardinality() / 2 > allowedMarked)
+            throw new IllegalStateException(String.format(
+                    "Too many total (directed) edges were marked as subnetwork edges: %d out of %d\n" +
+                            "The maximum number of subnetwork edges is: %d",
+                    subnetworkEdges.cardinality(), (2 * graph.getEdges()), (2 * allowedMarked)));
+
+        int markedEdges = 0;
+        BitSetIterator iter = subnetworkEdges.iterator();
+        for (int edge = iter.nextSetBit(); edge >= 0; edge = iter.nextSetBit())
+            markedEdges += setSubnetworkEdge(edge, subnetworkEnc);
         return markedEdges;
     }
 
-    private int left(Weighting weighting, BooleanEncodedValue subnetworkEnc, int markedEdges, IntArrayList component) {
+    private void left(Weighting weighting, BitSet subnetworkEdges, IntArrayList component) {
         for (IntCursor cursor : component)
-            markedEdges += setSubnetworkEdge(cursor.value, weighting, subnetworkEnc);
-        return markedEdges;
+            addSubnetworkEdge(cursor.value, weighting, subnetworkEdges);
     }
 
-    private int setSubnetworkEdge(int edgeKey, Weighting weighting, BooleanEncodedValue subnetworkEnc) {
+    private void addSubnetworkEdge(int edgeKey, Weighting weighting, BitSet subnetworkEdges) {
         // edges that are not accessible anyway are not marked as subnetworks additionally
-        if (!Double.isFinite(weighting.calcEdgeWeightWithAccess(graph.getEdgeIteratorStateForKey(edgeKey), false)))
-            return 0;
+        if (Double.isFinite(weighting.calcEdgeWeightWithAccess(graph.getEdgeIteratorStateForKey(edgeKey), false)))
+            subnetworkEdges.set(getEdgeFromEdgeKey(edgeKey));
+    }
 
-        // now get edge again but in stored direction so that subnetwork EV is not overwritten (as it is unidirectional)
-        EdgeIteratorState edgeState = graph.getEdgeIteratorState(getEdgeFromEdgeKey(edgeKey), Integer.MIN_VALUE);
+    private int setSubnetworkEdge(int edge, BooleanEncodedValue subnetworkEnc) {
+        // get edge in stored direction so that subnetwork EV is not overwritten (as it is unidirectional)
+        EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
         if (!edgeState.get(subnetworkEnc)) {
             edgeState.set(subnetworkEnc, true);
             return 1;
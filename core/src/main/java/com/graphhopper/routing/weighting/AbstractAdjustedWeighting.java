@@ -48,6 +48,11 @@ public abstract class AbstractAdjustedWeighting implements Weighting {
         return superWeighting.calcEdgeWeight(edgeState, reverse);
     }
 
+    @Override
+    public double calcEdgeTimeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        return superWeighting.calcEdgeTimeWeight(edgeState, reverse);
+    }
+
     @Override
     public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse) {
         return superWeighting.calcEdgeMillis(edgeState, reverse);
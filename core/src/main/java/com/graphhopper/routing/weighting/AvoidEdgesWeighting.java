@@ -55,6 +55,15 @@ public class AvoidEdgesWeighting extends AbstractAdjustedWeighting {
         return weight;
     }
 
+    @Override
+    public double calcEdgeTimeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        double weight = superWeighting.calcEdgeTimeWeight(edgeState, reverse);
+        if (avoidedEdges.contains(edgeState.getEdge()))
+            return weight * edgePenaltyFactor;
+
+        return weight;
+    }
+
     @Override
     public String getName() {
         return "avoid_edges";
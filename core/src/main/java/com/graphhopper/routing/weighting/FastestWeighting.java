@@ -113,6 +113,12 @@ public class FastestWeighting extends AbstractWeighting {
         return time;
     }
 
+    @Override
+    public double calcEdgeTimeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        // the weight is the time, or the time divided by the priority for PriorityWeighting
+        return calcEdgeWeight(edgeState, reverse);
+    }
+
     @Override
     public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse) {
         long time = 0;
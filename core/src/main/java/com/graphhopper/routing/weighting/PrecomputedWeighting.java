@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting;
+
+import com.graphhopper.storage.EdgeWeightStorage;
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * Reads the edge weights and times from an {@link EdgeWeightStorage} that was filled with the wrapped weighting.
+ * Edges that are not stored, like the virtual edges of a QueryGraph, are calculated by the wrapped weighting.
+ */
+public class PrecomputedWeighting extends AbstractAdjustedWeighting {
+    private final EdgeWeightStorage storage;
+    private final int edges;
+
+    public PrecomputedWeighting(Weighting superWeighting, EdgeWeightStorage storage) {
+        super(superWeighting);
+        this.storage = storage;
+        this.edges = storage.getEdges();
+    }
+
+    @Override
+    public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        int edge = edgeState.getEdge();
+        if (edge >= edges)
+            return superWeighting.calcEdgeWeight(edgeState, reverse);
+        return storage.getWeight(edge, reverse != isAgainstStorageDirection(edgeState));
+    }
+
+    @Override
+    public long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse) {
+        int edge = edgeState.getEdge();
+        if (edge < edges) {
+            long millis = storage.getMillis(edge, reverse != isAgainstStorageDirection(edgeState));
+            if (millis >= 0)
+                return millis;
+        }
+        return superWeighting.calcEdgeMillis(edgeState, reverse);
+    }
+
+    @Override
+    public double calcEdgeWeightWithAccess(EdgeIteratorState edgeState, boolean reverse) {
+        int edge = edgeState.getEdge();
+        if (edge >= edges || edgeState.getBaseNode() == edgeState.getAdjNode())
+            return superWeighting.calcEdgeWeightWithAccess(edgeState, reverse);
+        // the stored weights are already infinite for inaccessible edges
+        return storage.getWeight(edge, reverse != isAgainstStorageDirection(edgeState));
+    }
+
+    private static boolean isAgainstStorageDirection(EdgeIteratorState edgeState) {
+        // cheaper than reading the reverse state, which loads the flags of the edge
+        return (edgeState.getEdgeKey() & 1) == 1;
+    }
+
+    @Override
+    public String getName() {
+        return superWeighting.getName();
+    }
+
+    @Override
+    public String toString() {
+        return "precomputed|" + superWeighting.toString();
+    }
+}
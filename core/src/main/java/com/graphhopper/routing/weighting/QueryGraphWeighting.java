@@ -56,6 +56,16 @@ public class QueryGraphWeighting implements Weighting {
         return weighting.calcEdgeWeight(edgeState, reverse);
     }
 
+    @Override
+    public double calcEdgeTimeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        return weighting.calcEdgeTimeWeight(edgeState, reverse);
+    }
+
+    @Override
+    public double calcEdgeWeightWithAccess(EdgeIteratorState edgeState, boolean reverse) {
+        return weighting.calcEdgeWeightWithAccess(edgeState, reverse);
+    }
+
     @Override
     public double calcTurnWeight(int inEdge, int viaNode, int outEdge) {
         if (!EdgeIterator.Edge.isValid(inEdge) || !EdgeIterator.Edge.isValid(outEdge)) {
@@ -59,6 +59,11 @@ public class ShortFastestWeighting extends FastestWeighting {
         return time * timeFactor + edgeState.getDistance() * distanceFactor;
     }
 
+    @Override
+    public double calcEdgeTimeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        return super.calcEdgeWeight(edgeState, reverse) * timeFactor;
+    }
+
     @Override
     public String getName() {
         return NAME;
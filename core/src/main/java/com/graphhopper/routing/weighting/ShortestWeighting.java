@@ -49,6 +49,11 @@ public class ShortestWeighting extends AbstractWeighting {
         return edgeState.getDistance();
     }
 
+    @Override
+    public double calcEdgeTimeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        return 0;
+    }
+
     @Override
     public String getName() {
         return "shortest";
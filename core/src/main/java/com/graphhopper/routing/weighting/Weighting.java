@@ -61,6 +61,17 @@ public interface Weighting {
      */
     long calcEdgeMillis(EdgeIteratorState edgeState, boolean reverse);
 
+    /**
+     * Returns the part of {@link #calcEdgeWeight} that is proportional to the time of the edge, e.g. without the costs
+     * for its distance. Time-dependent routing uses it to weight the time an edge takes longer than
+     * {@link #calcEdgeMillis}. Only called for edges with a finite weight.
+     *
+     * @throws IllegalArgumentException if the weight of this weighting does not depend on the time
+     */
+    default double calcEdgeTimeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        throw new IllegalArgumentException("The weighting " + getName() + " does not support time-dependent routing");
+    }
+
     double calcTurnWeight(int inEdge, int viaNode, int outEdge);
 
     long calcTurnMillis(int inEdge, int viaNode, int outEdge);
@@ -74,6 +85,10 @@ public interface Weighting {
 
     String getName();
 
+    /**
+     * Like {@link #calcEdgeWeight}, but infinite if the edge is not accessible in the given direction. Weightings whose
+     * edge weights are already infinite for inaccessible edges can override this to read the access flags only once.
+     */
     default double calcEdgeWeightWithAccess(EdgeIteratorState edgeState, boolean reverse) {
         if (edgeHasNoAccess(edgeState, reverse))
             return Double.POSITIVE_INFINITY;
@@ -0,0 +1,88 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.shapes.Polygon;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.prep.PreparedPolygon;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finds the edges that intersect the area of a custom model. Only the edges that the LocationIndex returns for the
+ * bounding box of the area are checked against the polygon, and this is done once per area: the result is cached
+ * for the geometry, so further requests with the same area only need to test a bit per edge.
+ * <p>
+ * This class is thread-safe. It must only be used as long as the graph and the LocationIndex are open.
+ */
+public class AreaEdgeCache {
+    private final BaseGraph graph;
+    private final LocationIndex locationIndex;
+    private final Map<Geometry, AreaEdgeSet.Bits> cache;
+
+    public AreaEdgeCache(BaseGraph graph, LocationIndex locationIndex, int cacheSize) {
+        this.graph = graph;
+        this.locationIndex = locationIndex;
+        // Use accessOrder==true to remove oldest accessed entry, not oldest inserted.
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<Geometry, AreaEdgeSet.Bits>(Math.max(16, cacheSize), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * @param geometry must be {@link Polygonal}
+     */
+    public AreaEdgeSet get(Geometry geometry) {
+        Polygon polygon = new Polygon(new PreparedPolygon((Polygonal) geometry));
+        AreaEdgeSet.Bits bits = cache.get(geometry);
+        if (bits == null) {
+            // we do not lock while searching the edges, so concurrent requests might do this twice for a new area
+            bits = calcEdges(polygon);
+            cache.put(geometry, bits);
+        }
+        return AreaEdgeSet.of(polygon, bits, graph.getEdges());
+    }
+
+    private AreaEdgeSet.Bits calcEdges(Polygon polygon) {
+        IntArrayList edges = new IntArrayList();
+        GHBitSetImpl checked = new GHBitSetImpl();
+        locationIndex.query(polygon.getBounds(), edge -> {
+            // the same edge can be returned for multiple tiles
+            if (checked.contains(edge))
+                return;
+            checked.add(edge);
+            if (CustomWeightingHelper.in(polygon, graph.getEdgeIteratorState(edge, Integer.MIN_VALUE)))
+                edges.add(edge);
+        });
+        return new AreaEdgeSet.Bits(edges);
+    }
+
+    public int getSize() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.Polygon;
+
+/**
+ * The edges of the graph that intersect an area of a custom model. For the edges of the graph the membership is
+ * precomputed and only a bit is tested, virtual edges and areas without precomputed edges fall back to the polygon.
+ *
+ * @see AreaEdgeCache
+ */
+public class AreaEdgeSet {
+    private final Polygon polygon;
+    private final Bits bits;
+    private final int baseEdges;
+
+    private AreaEdgeSet(Polygon polygon, Bits bits, int baseEdges) {
+        this.polygon = polygon;
+        this.bits = bits;
+        this.baseEdges = baseEdges;
+    }
+
+    /**
+     * @return an area that checks the geometry of every edge against the polygon
+     */
+    public static AreaEdgeSet of(Polygon polygon) {
+        return new AreaEdgeSet(polygon, null, 0);
+    }
+
+    static AreaEdgeSet of(Polygon polygon, Bits bits, int baseEdges) {
+        return new AreaEdgeSet(polygon, bits, baseEdges);
+    }
+
+    public Polygon getPolygon() {
+        return polygon;
+    }
+
+    public boolean isPrecomputed() {
+        return bits != null;
+    }
+
+    public boolean contains(EdgeIteratorState edge) {
+        int edgeId = edge.getEdge();
+        if (bits != null && edgeId < baseEdges)
+            return bits.contains(edgeId);
+        // a virtual edge is only a part of its original edge, so we have to check its geometry
+        return CustomWeightingHelper.in(polygon, edge);
+    }
+
+    /**
+     * An immutable bit set that only covers the range between the smallest and the largest edge, which is small
+     * compared to the whole graph for most areas.
+     */
+    static final class Bits {
+        private final int offset;
+        private final long[] words;
+        private final int cardinality;
+
+        Bits(IntArrayList edges) {
+            int min = Integer.MAX_VALUE, max = -1;
+            for (int i = 0; i < edges.size(); i++) {
+                min = Math.min(min, edges.get(i));
+                max = Math.max(max, edges.get(i));
+            }
+            offset = max < 0 ? 0 : min;
+            words = new long[max < 0 ? 0 : ((max - min) >>> 6) + 1];
+            for (int i = 0; i < edges.size(); i++) {
+                int bit = edges.get(i) - offset;
+                words[bit >>> 6] |= 1L << bit;
+            }
+            cardinality = edges.size();
+        }
+
+        boolean contains(int edge) {
+            int bit = edge - offset;
+            if (bit < 0 || (bit >>> 6) >= words.length)
+                return false;
+            return (words[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        int getCardinality() {
+            return cardinality;
+        }
+
+        long getBytes() {
+            return 8L * words.length;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.json.Statement;
+import com.graphhopper.util.CustomModel;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The cache for the classes that are compiled from custom models. The key only contains what the compiled class
+ * depends on: the speed and priority statements and the encoded values of the profile. So e.g. the same custom model
+ * with a different distance influence or area geometry uses the same class.
+ * <p>
+ * Lookups do not lock. If the same custom model is requested concurrently it is compiled only once and the other
+ * requests wait for the result. The entries of server-side custom models are never removed, the other entries are
+ * removed in the order of their last access when the cache gets too big.
+ */
+public final class CustomModelCache {
+    private final int cacheSize;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder compileNanos = new LongAdder();
+
+    CustomModelCache(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @param compiler is called if the key is not yet in the cache
+     */
+    CompiledModel get(Key key, boolean internal, Supplier<CompiledModel> compiler) {
+        if (cacheSize <= 0 && !internal) {
+            misses.increment();
+            return compile(compiler);
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            Entry newEntry = new Entry();
+            entry = entries.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                misses.increment();
+                newEntry.touch(clock.incrementAndGet(), internal);
+                try {
+                    newEntry.model.complete(compile(compiler));
+                } catch (Throwable ex) {
+                    // do not cache invalid custom models and let the waiting requests fail too, also for errors like
+                    // an OutOfMemoryError, as they would wait forever otherwise
+                    entries.remove(key, newEntry);
+                    newEntry.model.completeExceptionally(ex);
+                    throw ex;
+                }
+                evictIfNecessary();
+                return newEntry.model.join();
+            }
+        }
+        hits.increment();
+        entry.touch(clock.incrementAndGet(), internal);
+        try {
+            return entry.model.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            if (ex.getCause() instanceof Error)
+                throw (Error) ex.getCause();
+            throw ex;
+        }
+    }
+
+    private CompiledModel compile(Supplier<CompiledModel> compiler) {
+        long start = System.nanoTime();
+        try {
+            return compiler.get();
+        } finally {
+            compileNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void evictIfNecessary() {
+        if (entries.size() <= cacheSize || !evicting.compareAndSet(false, true))
+            return;
+        try {
+            List<Map.Entry<Key, Entry>> candidates = new ArrayList<>();
+            for (Map.Entry<Key, Entry> e : entries.entrySet())
+                if (!e.getValue().internal && e.getValue().model.isDone())
+                    candidates.add(e);
+            candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            // remove a bit more than necessary so that we do not have to do this for every new entry
+            int toRemove = entries.size() - cacheSize + cacheSize / 10;
+            for (int i = 0; i < Math.min(toRemove, candidates.size()); i++)
+                entries.remove(candidates.get(i).getKey(), candidates.get(i).getValue());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that compiled a custom model
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the total time spent compiling custom models in milliseconds
+     */
+    public long getCompileMillis() {
+        return compileNanos.sum() / 1_000_000;
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * The compiled class and the areas that it uses, which have to be checked for every custom model, because the
+     * areas are not part of the key.
+     */
+    static final class CompiledModel {
+        final Class<?> clazz;
+        final Set<String> areas;
+
+        CompiledModel(Class<?> clazz, Set<String> areas) {
+            this.clazz = clazz;
+            this.areas = areas;
+        }
+    }
+
+    private static final class Entry {
+        final CompletableFuture<CompiledModel> model = new CompletableFuture<>();
+        volatile long lastAccess;
+        volatile boolean internal;
+
+        void touch(long time, boolean internal) {
+            lastAccess = time;
+            if (internal)
+                this.internal = true;
+        }
+    }
+
+    static final class Key {
+        private final String[] parts;
+        private final int hash;
+        private final int length;
+
+        Key(CustomModel customModel, String speedEnc, double globalMaxSpeed, String priorityEnc, double globalMaxPriority) {
+            List<String> list = new ArrayList<>(customModel.getSpeed().size() + customModel.getPriority().size() + 2);
+            list.add("speed:" + speedEnc + "," + globalMaxSpeed + ",prio:" + priorityEnc + "," + globalMaxPriority);
+            for (Statement statement : customModel.getSpeed())
+                list.add(canonical(statement));
+            // separates the speed from the priority statements
+            list.add("|");
+            for (Statement statement : customModel.getPriority())
+                list.add(canonical(statement));
+            parts = list.toArray(new String[0]);
+            hash = Arrays.hashCode(parts);
+            // about the size of the statements in JSON
+            int len = 0;
+            for (String part : parts)
+                len += part.length() + 11;
+            length = len;
+        }
+
+        private static String canonical(Statement statement) {
+            // the condition is only trimmed as other whitespace could be part of a string
+            String condition = statement.getCondition() == null ? "" : statement.getCondition().trim();
+            return statement.getKeyword().getName() + ":" + condition + ":" + statement.getOperation().getName() + ":"
+                    + (statement.getValue() == null ? "" : statement.getValue().trim());
+        }
+
+        /**
+         * @return roughly the number of characters of the statements in JSON
+         */
+        int getLength() {
+            return length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && Arrays.equals(parts, key.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
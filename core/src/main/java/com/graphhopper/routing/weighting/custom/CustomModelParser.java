@@ -24,8 +24,6 @@ import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.weighting.TurnCostProvider;
 import com.graphhopper.util.*;
-import com.graphhopper.util.shapes.BBox;
-import com.graphhopper.util.shapes.Polygon;
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.compiler.io.Readers;
@@ -33,7 +31,6 @@ import org.codehaus.janino.Scanner;
 import org.codehaus.janino.*;
 import org.codehaus.janino.util.DeepCopier;
 import org.locationtech.jts.geom.Polygonal;
-import org.locationtech.jts.geom.prep.PreparedPolygon;
 
 import java.io.*;
 import java.util.*;
@@ -50,27 +47,37 @@ public class CustomModelParser {
     // Without a cache the class creation takes 10-40ms which makes routingLM8 requests 20% slower on average.
     // CH requests and preparation is unaffected as cached weighting from preparation is used.
     // Use accessOrder==true to remove oldest accessed entry, not oldest inserted.
+    // The server-side custom models are always cached.
     private static final int CACHE_SIZE = Integer.getInteger("graphhopper.custom_weighting.cache_size", 1000);
-    private static final Map<String, Class<?>> CACHE = Collections.synchronizedMap(
-            new LinkedHashMap<String, Class<?>>(CACHE_SIZE, 0.75f, true) {
-                @Override
-                protected boolean removeEldestEntry(Map.Entry eldest) {
-                    return size() > CACHE_SIZE;
-                }
-            });
-
-    private static final Map<String, Class<?>> INTERNAL_CACHE = Collections.synchronizedMap(new HashMap<>());
+    private static final CustomModelCache CACHE = new CustomModelCache(CACHE_SIZE);
 
     private CustomModelParser() {
         // utility class
     }
 
+    /**
+     * @return the cache of the compiled custom models, e.g. for its statistics
+     */
+    public static CustomModelCache getCache() {
+        return CACHE;
+    }
+
     public static CustomWeighting createWeighting(BooleanEncodedValue accessEnc, DecimalEncodedValue speedEnc, DecimalEncodedValue priorityEnc,
                                                   EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel) {
+        return createWeighting(accessEnc, speedEnc, priorityEnc, lookup, turnCostProvider, customModel, null);
+    }
+
+    /**
+     * @param areaEdgeCache if not null the edges of the areas are looked up once instead of checking the geometry of
+     *                      every edge while routing
+     */
+    public static CustomWeighting createWeighting(BooleanEncodedValue accessEnc, DecimalEncodedValue speedEnc, DecimalEncodedValue priorityEnc,
+                                                  EncodedValueLookup lookup, TurnCostProvider turnCostProvider, CustomModel customModel,
+                                                  AreaEdgeCache areaEdgeCache) {
         if (customModel == null)
             throw new IllegalStateException("CustomModel cannot be null");
         double maxSpeed = speedEnc.getMaxOrMaxStorableDecimal();
-        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup, speedEnc, maxSpeed, priorityEnc);
+        CustomWeighting.Parameters parameters = createWeightingParameters(customModel, lookup, speedEnc, maxSpeed, priorityEnc, areaEdgeCache);
         return new CustomWeighting(accessEnc, speedEnc, turnCostProvider, parameters);
     }
 
@@ -83,32 +90,29 @@ public class CustomModelParser {
     static CustomWeighting.Parameters createWeightingParameters(CustomModel customModel, EncodedValueLookup lookup,
                                                                 DecimalEncodedValue avgSpeedEnc, double globalMaxSpeed,
                                                                 DecimalEncodedValue priorityEnc) {
+        return createWeightingParameters(customModel, lookup, avgSpeedEnc, globalMaxSpeed, priorityEnc, null);
+    }
+
+    static CustomWeighting.Parameters createWeightingParameters(CustomModel customModel, EncodedValueLookup lookup,
+                                                                DecimalEncodedValue avgSpeedEnc, double globalMaxSpeed,
+                                                                DecimalEncodedValue priorityEnc, AreaEdgeCache areaEdgeCache) {
 
         double globalMaxPriority = priorityEnc == null ? 1 : priorityEnc.getMaxStorableDecimal();
         // if the same custom model is used with a different base profile we cannot use the cached version
-        String key = customModel + ",speed:" + avgSpeedEnc.getName() + ",global_max_speed:" + globalMaxSpeed
-                + (priorityEnc == null ? "" : "prio:" + priorityEnc.getName() + ",global_max_priority:" + globalMaxPriority);
-        if (key.length() > 100_000) throw new IllegalArgumentException("Custom Model too big: " + key.length());
-
-        Class<?> clazz = customModel.isInternal() ? INTERNAL_CACHE.get(key) : null;
-        if (CACHE_SIZE > 0 && clazz == null)
-            clazz = CACHE.get(key);
-        if (clazz == null) {
-            clazz = createClazz(customModel, lookup, globalMaxSpeed, globalMaxPriority);
-            if (customModel.isInternal()) {
-                INTERNAL_CACHE.put(key, clazz);
-                if (INTERNAL_CACHE.size() > 100) {
-                    CACHE.putAll(INTERNAL_CACHE);
-                    INTERNAL_CACHE.clear();
-                }
-            } else if (CACHE_SIZE > 0) {
-                CACHE.put(key, clazz);
-            }
-        }
+        CustomModelCache.Key key = new CustomModelCache.Key(customModel, avgSpeedEnc.getName(), globalMaxSpeed,
+                priorityEnc == null ? "" : priorityEnc.getName(), globalMaxPriority);
+        if (key.getLength() > 100_000) throw new IllegalArgumentException("Custom Model too big: " + key.getLength());
+
+        CustomModelCache.CompiledModel compiledModel = CACHE.get(key, customModel.isInternal(),
+                () -> createClazz(customModel, lookup, globalMaxSpeed, globalMaxPriority));
+        // the areas are not part of the key
+        for (String id : compiledModel.areas)
+            cicciodue(customModel.getAreas(), IN_AREA_PREFIX + id, id);
 
         try {
             // The class does not need to be thread-safe as we create an instance per request
-            CustomWeightingHelper prio = (CustomWeightingHelper) clazz.getDeclaredConstructor().newInstance();
+            CustomWeightingHelper prio = (CustomWeightingHelper) compiledModel.clazz.getDeclaredConstructor().newInstance();
+            prio.setAreaEdgeCache(areaEdgeCache);
             prio.init(lookup, avgSpeedEnc, priorityEnc, customModel.getAreas());
             return new CustomWeighting.Parameters(prio::getSpeed, prio::getPriority, prio.getMaxSpeed(), prio.getMaxPriority(),
                     customModel.getDistanceInfluence(), customModel.getHeadingPenalty());
@@ -134,7 +138,7 @@ public class CustomModelParser {
      * </li>
      * </ul>
      */
-    private static Class<?> createClazz(CustomModel customModel, EncodedValueLookup lookup,
+    private static CustomModelCache.CompiledModel createClazz(CustomModel customModel, EncodedValueLookup lookup,
                                         double globalMaxSpeed, double globalMaxPriority) {
         try {
             HashSet<String> priorityVariables = new LinkedHashSet<>();
@@ -164,7 +168,13 @@ public class CustomModelParser {
                     parseAbstractCompilationUnit();
             cu = injectStatements(priorityStatements, speedStatements, cu);
             SimpleCompiler sc = createCompiler(counter, cu);
-            return sc.getClassLoader().loadClass("com.graphhopper.routing.weighting.custom.JaninoCustomWeightingHelperSubclass" + counter);
+            Set<String> areas = new HashSet<>();
+            for (String arg : priorityVariables)
+                if (arg.startsWith(IN_AREA_PREFIX) && !lookup.hasEncodedValue(arg)) areas.add(arg.substring(IN_AREA_PREFIX.length()));
+            for (String arg : speedVariables)
+                if (arg.startsWith(IN_AREA_PREFIX) && !lookup.hasEncodedValue(arg)) areas.add(arg.substring(IN_AREA_PREFIX.length()));
+            return new CustomModelCache.CompiledModel(sc.getClassLoader().loadClass(
+                    "com.graphhopper.routing.weighting.custom.JaninoCustomWeightingHelperSubclass" + counter), areas);
         } catch (Exception ex) {
             String errString = "Cannot compile expression";
             throw new IllegalArgumentException(errString + ": " + ex.getMessage(), ex);
@@ -329,9 +339,8 @@ public class CustomModelParser {
 
                 String id = arg.substring(IN_AREA_PREFIX.length());
                 cicciodue(areas, arg, id);
-                classSourceCode.append("protected " + Polygon.class.getSimpleName() + " " + arg + ";\n");
-                initSourceCode.append("JsonFeature feature_" + id + " = (JsonFeature) areas.get(\"" + id + "\");\n");
-                initSourceCode.append("this." + arg + " = new Polygon(new PreparedPolygon((Polygonal) feature_" + id + ".getGeometry()));\n");
+                classSourceCode.append("protected " + AreaEdgeSet.class.getSimpleName() + " " + arg + ";\n");
+                initSourceCode.append("this." + arg + " = createArea((JsonFeature) areas.get(\"" + id + "\"));\n");
             } else {
                 if (!isValidVariableName(arg))
                     throw new IllegalArgumentException("Variable not supported: " + arg);
@@ -355,12 +364,8 @@ public class CustomModelParser {
 
     private static boolean ciccio(StringBuilder importSourceCode, boolean includedAreaImports) {
         if (!includedAreaImports) {
-            importSourceCode.append(MACCASORD + BBox.class.getName() + ";\n");
-            importSourceCode.append(MACCASORD + GHUtility.class.getName() + ";\n");
-            importSourceCode.append(MACCASORD + PreparedPolygon.class.getName() + ";\n");
-            importSourceCode.append(MACCASORD + Polygonal.class.getName() + ";\n");
             importSourceCode.append(MACCASORD + JsonFeature.class.getName() + ";\n");
-            importSourceCode.append(MACCASORD + Polygon.class.getName() + ";\n");
+            importSourceCode.append(MACCASORD + AreaEdgeSet.class.getName() + ";\n");
             includedAreaImports = true;
         }
         return includedAreaImports;
@@ -118,6 +118,20 @@ public final class CustomWeighting extends AbstractWeighting {
     return seconds / priority + distanceCosts;
 }
 
+    @Override
+    public double calcEdgeTimeWeight(EdgeIteratorState edgeState, boolean reverse) {
+        return calcSeconds(edgeState.getDistance(), edgeState, reverse) / edgeToPriorityMapping.get(edgeState, reverse);
+    }
+
+    @Override
+    public double calcEdgeWeightWithAccess(EdgeIteratorState edgeState, boolean reverse) {
+        // loop edges are always read in forward direction by calcSeconds, so we keep the default access check for them
+        if (edgeState.getBaseNode() == edgeState.getAdjNode())
+            return super.calcEdgeWeightWithAccess(edgeState, reverse);
+        // calcSeconds already returns infinity for inaccessible edges, so we do not read the access flags a second time
+        return calcEdgeWeight(edgeState, reverse);
+    }
+
     double calcSeconds(double distance, EdgeIteratorState edgeState, boolean reverse) {
         // special case for loop edges: since they do not have a meaningful direction we always need to read them in forward direction
         if (edgeState.getBaseNode() == edgeState.getAdjNode())
@@ -25,6 +25,8 @@ import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.JsonFeature;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.Polygon;
+import org.locationtech.jts.geom.Polygonal;
+import org.locationtech.jts.geom.prep.PreparedPolygon;
 
 import java.util.Map;
 
@@ -35,10 +37,25 @@ import java.util.Map;
 public class CustomWeightingHelper {
     protected DecimalEncodedValue avg_speed_enc;
     protected DecimalEncodedValue priority_enc;
+    private AreaEdgeCache areaEdgeCache;
 
     protected CustomWeightingHelper() {
     }
 
+    void setAreaEdgeCache(AreaEdgeCache areaEdgeCache) {
+        this.areaEdgeCache = areaEdgeCache;
+    }
+
+    /**
+     * Called from init for every area used in the conditions. Without AreaEdgeCache the edges are checked against
+     * the polygon while routing.
+     */
+    protected final AreaEdgeSet createArea(JsonFeature feature) {
+        if (areaEdgeCache != null)
+            return areaEdgeCache.get(feature.getGeometry());
+        return AreaEdgeSet.of(new Polygon(new PreparedPolygon((Polygonal) feature.getGeometry())));
+    }
+
     public void init(EncodedValueLookup lookup, DecimalEncodedValue avgSpeedEnc, DecimalEncodedValue priorityEnc, Map<String, JsonFeature> areas) {
         this.avg_speed_enc = avgSpeedEnc;
         this.priority_enc = priorityEnc;
@@ -75,6 +92,10 @@ public class CustomWeightingHelper {
         return 1;
     }
 
+    public static boolean in(AreaEdgeSet area, EdgeIteratorState edge) {
+        return area.contains(edge);
+    }
+
     public static boolean in(Polygon p, EdgeIteratorState edge) {
         BBox edgeBBox = GHUtility.createBBox(edge);
         BBox polyBBOX = p.getBounds();
@@ -82,6 +103,6 @@ public class CustomWeightingHelper {
             return false;
         if (p.isRectangle() && polyBBOX.contains(edgeBBox))
             return true;
-        return p.intersects(edge.fetchWayGeometry(FetchMode.ALL).makeImmutable()); // PERF: cache bbox and edge wayGeometry for multiple area
+        return p.intersects(edge.fetchWayGeometry(FetchMode.ALL).makeImmutable());
     }
 }
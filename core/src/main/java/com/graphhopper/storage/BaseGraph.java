@@ -151,6 +151,8 @@ public class BaseGraph implements Graph, Closeable {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
         store.setFrozen(true);
+        if (supportsTurnCosts())
+            turnCostStorage.freeze();
     }
 
     public synchronized boolean isFrozen() {
@@ -402,60 +404,53 @@ public class BaseGraph implements Graph, Closeable {
     }
 
     private PointList fetchWayGeometry(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode) {
+        int count = getPillarCount(edgePointer);
+        if (count == 0 && mode == FetchMode.PILLAR_ONLY)
+            return PointList.EMPTY;
+        PointList pillarNodes = new PointList(getPointListLength(count, mode), nodeAccess.is3D());
+        fetchWayGeometry(edgePointer, reverse, mode, baseNode, adjNode, pillarNodes);
+        return pillarNodes;
+    }
+
+    private int getPillarCount(long edgePointer) {
+        long geoRef = Helper.toUnsignedLong(store.getGeoRef(edgePointer));
+        return geoRef > 0 ? wayGeometry.getInt(geoRef * 4L) : 0;
+    }
+
+    /**
+     * Appends the points to the given list and reads the pillar nodes directly from the storage, so no temporary
+     * arrays or lists are created.
+     */
+    private void fetchWayGeometry(long edgePointer, boolean reverse, FetchMode mode, int baseNode, int adjNode, PointList target) {
+        // no reverse handling required for the tower nodes as adjNode and baseNode is already properly switched
         if (mode == FetchMode.TOWER_ONLY) {
-            // no reverse handling required as adjNode and baseNode is already properly switched
-            PointList pillarNodes = new PointList(2, nodeAccess.is3D());
-            pillarNodes.add(nodeAccess, baseNode);
-            pillarNodes.add(nodeAccess, adjNode);
-            return pillarNodes;
+            target.add(nodeAccess, baseNode);
+            target.add(nodeAccess, adjNode);
+            return;
         }
+        if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
+            target.add(nodeAccess, baseNode);
+
         long geoRef = Helper.toUnsignedLong(store.getGeoRef(edgePointer));
-        int count = 0;
-        byte[] bytes = null;
         if (geoRef > 0) {
             geoRef *= 4L;
-            count = wayGeometry.getInt(geoRef);
-
-            geoRef += 4L;
-            bytes = new byte[count * nodeAccess.getDimension() * 4];
-            wayGeometry.getBytes(geoRef, bytes, bytes.length);
-        } else if (mode == FetchMode.PILLAR_ONLY)
-            return PointList.EMPTY;
-
-        PointList pillarNodes = new PointList(getPointListLength(count, mode), nodeAccess.is3D());
-        methodBase1(reverse, mode, baseNode, adjNode, pillarNodes);
-
-        int index = 0;
-        for (int i = 0; i < count; i++) {
-            double lat = Helper.intToDegree(bitUtil.toInt(bytes, index));
-            index += 4;
-            double lon = Helper.intToDegree(bitUtil.toInt(bytes, index));
-            index += 4;
-            if (nodeAccess.is3D()) {
-                pillarNodes.add(lat, lon, Helper.intToEle(bitUtil.toInt(bytes, index)));
-                index += 4;
-            } else {
-                pillarNodes.add(lat, lon);
+            int count = wayGeometry.getInt(geoRef);
+            int bytesPerPoint = nodeAccess.getDimension() * 4;
+            long start = geoRef + 4L;
+            for (int i = 0; i < count; i++) {
+                // the pillar nodes are stored in the direction of the edge
+                long pointer = start + (long) (reverse ? count - 1 - i : i) * bytesPerPoint;
+                double lat = Helper.intToDegree(wayGeometry.getInt(pointer));
+                double lon = Helper.intToDegree(wayGeometry.getInt(pointer + 4));
+                if (nodeAccess.is3D())
+                    target.add(lat, lon, Helper.intToEle(wayGeometry.getInt(pointer + 8)));
+                else
+                    target.add(lat, lon);
             }
         }
 
-        if (reverse) {
-            if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
-                pillarNodes.add(nodeAccess, baseNode);
-
-            pillarNodes.reverse();
-        } else if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
-            pillarNodes.add(nodeAccess, adjNode);
-
-        return pillarNodes;
-    }
-
-    private void methodBase1(boolean reverse, FetchMode mode, int baseNode, int adjNode, PointList pillarNodes) {
-        if (reverse) {
-            if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
-                pillarNodes.add(nodeAccess, adjNode);
-        } else if (mode == FetchMode.ALL || mode == FetchMode.BASE_AND_PILLAR)
-            pillarNodes.add(nodeAccess, baseNode);
+        if (mode == FetchMode.ALL || mode == FetchMode.PILLAR_AND_ADJ)
+            target.add(nodeAccess, adjNode);
     }
 
     static int getPointListLength(int pillarNodes, FetchMode mode) {
@@ -942,6 +937,11 @@ public class BaseGraph implements Graph, Closeable {
             return baseGraph.fetchWayGeometry(edgePointer, reverse, mode, getBaseNode(), getAdjNode());
         }
 
+        @Override
+        public void fetchWayGeometry(FetchMode mode, PointList target) {
+            baseGraph.fetchWayGeometry(edgePointer, reverse, mode, getBaseNode(), getAdjNode(), target);
+        }
+
         @Override
         public int getEdge() {
             return edgeId;
@@ -48,7 +48,8 @@ public class CHStorage {
     private static final long MAX_STORED_INTEGER_WEIGHT = ((long) Integer.MAX_VALUE) << 1;
     // the maximum double weight we can store. if this is exceeded the shortcut will gain infinite weight, potentially yielding connection-not-found errors
     private static final double MAX_WEIGHT = MAX_STORED_INTEGER_WEIGHT / WEIGHT_FACTOR;
-    private static final double MIN_WEIGHT = 1 / WEIGHT_FACTOR;
+    // the minimum weight of a shortcut. this is also the maximum amount by which a stored weight can exceed the real one
+    public static final double MIN_WEIGHT = 1 / WEIGHT_FACTOR;
 
     // shortcuts
     private final DataAccess shortcuts;
@@ -0,0 +1,116 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+/**
+ * Stores the weight and time of every edge and direction for one profile, so that routing does not have to evaluate
+ * the weighting for every edge again. The weights are stored as float and rounded up, so they are never smaller
+ * than the weights of the weighting and the landmark approximation stays admissible.
+ * <p>
+ * Every edge takes 16 bytes: the forward and backward weight and the forward and backward time in milliseconds.
+ */
+public class EdgeWeightStorage {
+    private static final int VERSION = 1;
+    private static final int BYTES_PER_EDGE = 16;
+    // marks a time that is too large for an int or belongs to an inaccessible edge, it has to be calculated again
+    private static final int NO_MILLIS = -1;
+    private final DataAccess da;
+    private int edges;
+
+    public EdgeWeightStorage(Directory dir, String profileName) {
+        this.da = dir.create("edge_weights_" + profileName);
+    }
+
+    public EdgeWeightStorage create(int edges) throws MMapDataAccess.MappaExce {
+        da.create((long) edges * BYTES_PER_EDGE);
+        this.edges = edges;
+        return this;
+    }
+
+    /**
+     * Calculates the weights and times of all edges of the graph with the given weighting.
+     */
+    public void calcWeights(BaseGraph graph, Weighting weighting) {
+        if (graph.getEdges() != edges)
+            throw new IllegalArgumentException("The storage was created for " + edges + " edges, but the graph has " + graph.getEdges());
+        for (int edge = 0; edge < edges; edge++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            long pointer = (long) edge * BYTES_PER_EDGE;
+            for (int dir = 0; dir < 2; dir++) {
+                boolean reverse = dir == 1;
+                double weight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, edgeState, reverse, EdgeIterator.NO_EDGE);
+                da.setInt(pointer + 4 * dir, Float.floatToRawIntBits(roundUp(weight)));
+                long millis = Double.isInfinite(weight) ? NO_MILLIS : weighting.calcEdgeMillis(edgeState, reverse);
+                da.setInt(pointer + 8 + 4 * dir, millis >= 0 && millis <= Integer.MAX_VALUE ? (int) millis : NO_MILLIS);
+            }
+        }
+    }
+
+    private static float roundUp(double weight) {
+        float result = (float) weight;
+        return result < weight ? Math.nextUp(result) : result;
+    }
+
+    public void flush() throws MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce {
+        da.setHeader(0, VERSION);
+        da.setHeader(4, edges);
+        da.flush();
+    }
+
+    public boolean loadExisting() throws RAMDataAccess.RamExce, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        if (!da.loadExisting())
+            return false;
+        GHUtility.checkDAVersion(da.getName(), VERSION, da.getHeader(0));
+        edges = da.getHeader(4);
+        return true;
+    }
+
+    public void close() {
+        da.close();
+    }
+
+    public long getCapacity() {
+        return da.getCapacity();
+    }
+
+    /**
+     * @return the number of edges, edges with a larger id (like virtual edges) are not stored
+     */
+    public int getEdges() {
+        return edges;
+    }
+
+    /**
+     * @param reverse true for the direction from the adjacent to the base node of the edge as it is stored
+     */
+    public double getWeight(int edge, boolean reverse) {
+        return Float.intBitsToFloat(da.getInt((long) edge * BYTES_PER_EDGE + (reverse ? 4 : 0)));
+    }
+
+    /**
+     * @return the time in milliseconds or a negative value if it is not stored
+     */
+    public long getMillis(int edge, boolean reverse) {
+        return da.getInt((long) edge * BYTES_PER_EDGE + (reverse ? 12 : 8));
+    }
+}
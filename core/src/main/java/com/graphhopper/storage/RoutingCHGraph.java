@@ -18,6 +18,7 @@
 
 package com.graphhopper.storage;
 
+import com.graphhopper.routing.ch.ShortcutMetadata;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.weighting.Weighting;
 
@@ -59,6 +60,12 @@ public interface RoutingCHGraph {
 
     Weighting getWeighting();
 
+    /**
+     * @return the distance and time of all shortcuts as calculated during the CH preparation or load, or null if there
+     * is none (e.g. for edge-based CH)
+     */
+    ShortcutMetadata getShortcutMetadata();
+
     // : would like to get rid of this
     void close();
 }
@@ -18,23 +18,39 @@
 
 package com.graphhopper.storage;
 
+import com.graphhopper.routing.ch.ShortcutMetadata;
 import com.graphhopper.routing.weighting.Weighting;
 
 public class RoutingCHGraphImpl implements RoutingCHGraph {
     private final BaseGraph baseGraph;
     private final CHStorage chStorage;
     private final Weighting weighting;
+    private final ShortcutMetadata shortcutMetadata;
 
     public static RoutingCHGraph fromGraph(BaseGraph baseGraph, CHStorage chStorage, CHConfig chConfig) {
         return new RoutingCHGraphImpl(baseGraph, chStorage, chConfig.getWeighting());
     }
 
+    public static RoutingCHGraph fromGraph(BaseGraph baseGraph, CHStorage chStorage, CHConfig chConfig, ShortcutMetadata shortcutMetadata) {
+        return new RoutingCHGraphImpl(baseGraph, chStorage, chConfig.getWeighting(), shortcutMetadata);
+    }
+
     public RoutingCHGraphImpl(BaseGraph baseGraph, CHStorage chStorage, Weighting weighting) {
+        this(baseGraph, chStorage, weighting, null);
+    }
+
+    /**
+     * @param shortcutMetadata the metadata calculated for the given node-based CH storage, or null if there is none
+     */
+    public RoutingCHGraphImpl(BaseGraph baseGraph, CHStorage chStorage, Weighting weighting, ShortcutMetadata shortcutMetadata) {
         if (weighting.hasTurnCosts() && !chStorage.isEdgeBased())
             throw new IllegalArgumentException("Weighting has turn costs, but CHStorage is node-based");
+        if (shortcutMetadata != null && chStorage.isEdgeBased())
+            throw new IllegalArgumentException("Shortcut metadata is only supported for node-based CH");
         this.baseGraph = baseGraph;
         this.chStorage = chStorage;
         this.weighting = weighting;
+        this.shortcutMetadata = shortcutMetadata;
     }
 
     @Override
@@ -87,6 +103,11 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
         return weighting;
     }
 
+    @Override
+    public ShortcutMetadata getShortcutMetadata() {
+        return shortcutMetadata;
+    }
+
     @Override
     public boolean hasTurnCosts() {
         return weighting.hasTurnCosts();
@@ -106,5 +127,6 @@ public class RoutingCHGraphImpl implements RoutingCHGraph {
     public void close() {
         if (!baseGraph.isClosed()) baseGraph.close();
         chStorage.close();
+        if (shortcutMetadata != null) shortcutMetadata.close();
     }
 }
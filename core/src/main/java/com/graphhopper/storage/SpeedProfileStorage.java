@@ -0,0 +1,174 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+
+/**
+ * Stores piecewise-linear speed profiles for the time of the day and assigns them to edges. A profile consists of
+ * {@link #SLOTS} speed factors, one every 15 minutes starting at midnight, and the factor in between is interpolated
+ * linearly. The factors are relative to the speed of the weighting and must be in ]0, 1], so a speed profile can only
+ * slow an edge down. This way the static weights stay a lower bound for the time-dependent weights, which keeps the
+ * beeline and landmark approximations admissible.
+ * <p>
+ * Profiles are shared between edges: every profile takes {@link #SLOTS} bytes and every edge 4 bytes.
+ */
+public class SpeedProfileStorage {
+    public static final int NO_PROFILE = -1;
+    public static final int SLOTS = 96;
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long SLOT_MILLIS = DAY_MILLIS / SLOTS;
+    private static final int VERSION = 1;
+    // the profile index + 1 per edge, so 0 means no profile
+    private final DataAccess edgeProfiles;
+    // the factors of every profile in percent
+    private final DataAccess profiles;
+    private int profileCount;
+
+    public SpeedProfileStorage(Directory dir) {
+        this.edgeProfiles = dir.create("speed_profile_edges");
+        this.profiles = dir.create("speed_profiles");
+    }
+
+    public SpeedProfileStorage create(long initBytes) throws MMapDataAccess.MappaExce {
+        edgeProfiles.create(initBytes);
+        profiles.create(initBytes);
+        return this;
+    }
+
+    public void flush() throws MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce {
+        profiles.setHeader(0, VERSION);
+        profiles.setHeader(4, profileCount);
+        profiles.flush();
+        edgeProfiles.flush();
+    }
+
+    public boolean loadExisting() throws RAMDataAccess.RamExce, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        if (!profiles.loadExisting() || !edgeProfiles.loadExisting())
+            return false;
+        GHUtility.checkDAVersion(profiles.getName(), VERSION, profiles.getHeader(0));
+        profileCount = profiles.getHeader(4);
+        return true;
+    }
+
+    public void close() {
+        profiles.close();
+        edgeProfiles.close();
+    }
+
+    public long getCapacity() {
+        return profiles.getCapacity() + edgeProfiles.getCapacity();
+    }
+
+    public int getProfileCount() {
+        return profileCount;
+    }
+
+    /**
+     * @param factors the speed factors for every 15 minutes of the day starting at midnight, they are rounded to
+     *                percent
+     * @return the index of the new profile
+     */
+    public int addProfile(double[] factors) {
+        if (factors.length != SLOTS)
+            throw new IllegalArgumentException("A speed profile needs " + SLOTS + " factors, one every 15 minutes, but got: " + factors.length);
+        byte[] bytes = new byte[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            if (!(factors[i] > 0 && factors[i] <= 1))
+                throw new IllegalArgumentException("Speed factors must be in ]0, 1] to keep the static weights a lower bound, but got " + factors[i] + " at index " + i);
+            bytes[i] = (byte) Math.max(1, Math.round(factors[i] * 100));
+        }
+        long pointer = (long) profileCount * SLOTS;
+        profiles.ensureCapacity(pointer + SLOTS);
+        profiles.setBytes(pointer, bytes, SLOTS);
+        return profileCount++;
+    }
+
+    public void setProfile(int edge, int profile) {
+        if (profile != NO_PROFILE && (profile < 0 || profile >= profileCount))
+            throw new IllegalArgumentException("Speed profile " + profile + " does not exist, profiles: " + profileCount);
+        long pointer = (long) edge * 4;
+        edgeProfiles.ensureCapacity(pointer + 4);
+        edgeProfiles.setInt(pointer, profile + 1);
+    }
+
+    public int getProfile(int edge) {
+        long pointer = (long) edge * 4;
+        if (pointer + 4 > edgeProfiles.getCapacity())
+            return NO_PROFILE;
+        return edgeProfiles.getInt(pointer) - 1;
+    }
+
+    /**
+     * @return the profile of the given edge, virtual edges use the profile of their original edge
+     */
+    public int getProfile(EdgeIteratorState edgeState) {
+        if (edgeState instanceof VirtualEdgeIteratorState)
+            return getProfile(GHUtility.getEdgeFromEdgeKey(((VirtualEdgeIteratorState) edgeState).getOriginalEdgeKey()));
+        return getProfile(edgeState.getEdge());
+    }
+
+    public double getFactor(int profile, long timeOfDay) {
+        long time = Math.floorMod(timeOfDay, DAY_MILLIS);
+        int slot = (int) (time / SLOT_MILLIS);
+        double f0 = getSlotFactor(profile, slot);
+        double f1 = getSlotFactor(profile, (slot + 1) % SLOTS);
+        return f0 + (f1 - f0) * (time - slot * SLOT_MILLIS) / SLOT_MILLIS;
+    }
+
+    /**
+     * Calculates the travel time of an edge with the given profile. The speed changes while travelling along the
+     * edge, so an edge entered later is never left earlier (FIFO property).
+     *
+     * @param millis    the travel time of the edge without speed profile
+     * @param timeOfDay the time the edge is entered in milliseconds since midnight
+     */
+    public long calcMillis(int profile, long millis, long timeOfDay) {
+        if (profile == NO_PROFILE || millis <= 0)
+            return millis;
+        // the distance still to travel, measured in milliseconds at full speed
+        double remaining = millis;
+        double elapsed = 0;
+        long time = Math.floorMod(timeOfDay, DAY_MILLIS);
+        int slot = (int) (time / SLOT_MILLIS);
+        double x = time - slot * SLOT_MILLIS;
+        while (true) {
+            double f0 = getSlotFactor(profile, slot);
+            double slope = (getSlotFactor(profile, (slot + 1) % SLOTS) - f0) / SLOT_MILLIS;
+            double fx = f0 + slope * x;
+            double rest = SLOT_MILLIS - x;
+            double restDistance = rest * (fx + slope * rest / 2);
+            if (restDistance >= remaining) {
+                // solve fx * t + slope / 2 * t^2 = remaining for t
+                elapsed += 2 * remaining / (fx + Math.sqrt(fx * fx + 2 * slope * remaining));
+                break;
+            }
+            remaining -= restDistance;
+            elapsed += rest;
+            slot = (slot + 1) % SLOTS;
+            x = 0;
+        }
+        return Math.max(millis, Math.round(elapsed));
+    }
+
+    private double getSlotFactor(int profile, int slot) {
+        return (profiles.getByte((long) profile * SLOTS + slot) & 0xFF) / 100.0;
+    }
+}
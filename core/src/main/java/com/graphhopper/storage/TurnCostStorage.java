@@ -17,12 +17,18 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.BitSet;
 import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
 import com.graphhopper.routing.ev.TurnCost;
 import com.graphhopper.util.EdgeIterator;
 
 /**
  * A key/value store, where the unique keys are turn cost relations, and the values are IntRefs.
+ * The entries of each via node form a linked list. When the graph is frozen the entries are re-written so that the
+ * entries of each node are contiguous and sorted by fromEdge and toEdge. The turn cost index of the node then is the
+ * offset of its entries (like in a compressed sparse row layout) and a lookup only reads consecutive entries until
+ * it passes the searched relation.
  * A turn cost relation is a triple (fromEdge, viaNode, toEdge),
  * and refers to one of the possible ways of crossing an intersection.
  * <p>
@@ -48,6 +54,9 @@ public class TurnCostStorage {
     private final BaseGraph baseGraph;
     private final DataAccess turnCosts;
     private int turnCostsCount;
+    // true if the entries are sorted, see freeze
+    private boolean sorted;
+    private volatile BitSet turnCostNodes;
 
     public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
         this.baseGraph = baseGraph;
@@ -62,6 +71,7 @@ public class TurnCostStorage {
     public void flush() throws MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce {
         turnCosts.setHeader(0, BYTES_PER_ENTRY);
         turnCosts.setHeader(1 * 4, turnCostsCount);
+        turnCosts.setHeader(2 * 4, sorted ? 1 : 0);
         turnCosts.flush();
     }
 
@@ -81,6 +91,7 @@ public class TurnCostStorage {
             throw new IllegalStateException("Number of bytes per turn cost entry does not match the current configuration: " + turnCosts.getHeader(0) + " vs. " + BYTES_PER_ENTRY);
         }
         turnCostsCount = turnCosts.getHeader(4);
+        sorted = turnCosts.getHeader(2 * 4) == 1;
         return true;
     }
 
@@ -97,6 +108,9 @@ public class TurnCostStorage {
     }
 
     private void merge(IntsRef tcFlags, int fromEdge, int viaNode, int toEdge) {
+        // a new entry is appended to the list of the node and would not be at its sorted position
+        sorted = false;
+        turnCostNodes = null;
         int newEntryIndex = turnCostsCount;
         ensureTurnCostIndex(newEntryIndex);
         boolean oldEntryFound = false;
@@ -167,12 +181,100 @@ public class TurnCostStorage {
         return newFlags;
     }
 
+    /**
+     * Re-writes the entries so that the entries of every node are contiguous and sorted by from and to edge. This is
+     * called when the graph is frozen, after the turn costs were imported.
+     */
+    public void freeze() {
+        if (sorted)
+            return;
+        int[] entries = new int[3 * turnCostsCount];
+        // the old entry for every new position, and whether it is the last entry of its node
+        int[] order = new int[turnCostsCount];
+        boolean[] last = new boolean[turnCostsCount];
+        int count = 0;
+        for (int node = 0; node < baseGraph.getNodes(); node++) {
+            int turnCostIndex = baseGraph.getNodeAccess().getTurnCostIndex(node);
+            if (turnCostIndex == NO_TURN_ENTRY)
+                continue;
+            int first = count;
+            for (int i = 0; turnCostIndex != NO_TURN_ENTRY; i = eccezioneTime(i)) {
+                long turnCostPtr = (long) turnCostIndex * BYTES_PER_ENTRY;
+                entries[3 * count] = turnCosts.getInt(turnCostPtr + TC_FROM);
+                entries[3 * count + 1] = turnCosts.getInt(turnCostPtr + TC_TO);
+                entries[3 * count + 2] = turnCosts.getInt(turnCostPtr + TC_FLAGS);
+                // insertion sort, there are only a few entries per node
+                int pos = count;
+                while (pos > first && compareEntries(entries, order[pos - 1], count) > 0) {
+                    order[pos] = order[pos - 1];
+                    pos--;
+                }
+                order[pos] = count;
+                count++;
+                turnCostIndex = turnCosts.getInt(turnCostPtr + TC_NEXT);
+            }
+            last[count - 1] = true;
+            baseGraph.getNodeAccess().setTurnCostIndex(node, first);
+        }
+        if (count != turnCostsCount)
+            throw new IllegalStateException("Not all turn cost entries belong to a node: " + count + " vs. " + turnCostsCount);
+
+        for (int i = 0; i < count; i++) {
+            int e = order[i];
+            long turnCostPtr = (long) i * BYTES_PER_ENTRY;
+            turnCosts.setInt(turnCostPtr + TC_FROM, entries[3 * e]);
+            turnCosts.setInt(turnCostPtr + TC_TO, entries[3 * e + 1]);
+            turnCosts.setInt(turnCostPtr + TC_FLAGS, entries[3 * e + 2]);
+            // we keep the next pointers, so the sorted entries can still be read and extended like a linked list
+            turnCosts.setInt(turnCostPtr + TC_NEXT, last[i] ? NO_TURN_ENTRY : i + 1);
+        }
+        sorted = true;
+    }
+
+    private static int compareEntries(int[] entries, int a, int b) {
+        int cmp = Integer.compare(entries[3 * a], entries[3 * b]);
+        return cmp != 0 ? cmp : Integer.compare(entries[3 * a + 1], entries[3 * b + 1]);
+    }
+
     /**
      * @return the turn cost of the viaNode when going from "fromEdge" to "toEdge"
      */
     public double get(DecimalEncodedValue turnCostEnc, int fromEdge, int viaNode, int toEdge) {
-        IntsRef flags = readFlags(fromEdge, viaNode, toEdge);
-        return turnCostEnc.getDecimal(false, flags);
+        int flags = getFlags(fromEdge, viaNode, toEdge);
+        if (turnCostEnc instanceof DecimalEncodedValueImpl)
+            return ((DecimalEncodedValueImpl) turnCostEnc).getDecimal(flags);
+        IntsRef tcFlags = TurnCost.createFlags();
+        tcFlags.ints[0] = flags;
+        return turnCostEnc.getDecimal(false, tcFlags);
+    }
+
+    /**
+     * @return the turn cost flags of the viaNode when going from "fromEdge" to "toEdge", or 0 if there is no entry
+     */
+    public int getFlags(int fromEdge, int viaNode, int toEdge) {
+        if (!EdgeIterator.Edge.isValid(fromEdge) || !EdgeIterator.Edge.isValid(toEdge))
+            throw new IllegalArgumentException("from and to edge cannot be NO_EDGE");
+        if (viaNode < 0)
+            throw new IllegalArgumentException("via node cannot be negative");
+        if (!sorted)
+            return readFlags(fromEdge, viaNode, toEdge).ints[0];
+
+        int turnCostIndex = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
+        while (turnCostIndex != NO_TURN_ENTRY) {
+            long turnCostPtr = (long) turnCostIndex * BYTES_PER_ENTRY;
+            int from = turnCosts.getInt(turnCostPtr + TC_FROM);
+            if (from > fromEdge)
+                break;
+            if (from == fromEdge) {
+                int to = turnCosts.getInt(turnCostPtr + TC_TO);
+                if (to == toEdge)
+                    return turnCosts.getInt(turnCostPtr + TC_FLAGS);
+                if (to > toEdge)
+                    break;
+            }
+            turnCostIndex = turnCosts.getInt(turnCostPtr + TC_NEXT);
+        }
+        return EMPTY_FLAGS;
     }
 
     /**
@@ -217,6 +319,21 @@ public class TurnCostStorage {
         turnCosts.ensureCapacity(((long) nodeIndex + 4) * BYTES_PER_ENTRY);
     }
 
+    /**
+     * @return the nodes that have at least one turn cost entry
+     */
+    public BitSet getTurnCostNodes() {
+        BitSet nodes = turnCostNodes;
+        if (nodes == null) {
+            nodes = new BitSet(baseGraph.getNodes());
+            for (int node = 0; node < baseGraph.getNodes(); node++)
+                if (baseGraph.getNodeAccess().getTurnCostIndex(node) != NO_TURN_ENTRY)
+                    nodes.set(node);
+            turnCostNodes = nodes;
+        }
+        return nodes;
+    }
+
     public boolean isClosed() {
         return turnCosts.isClosed();
     }
@@ -81,6 +81,7 @@ public class Constants {
     public static final int VERSION_EM = 1;
     public static final int VERSION_SHORTCUT = 9;
     public static final int VERSION_NODE_CH = 0;
+    public static final int VERSION_SHORTCUT_METADATA = 0;
     public static final int VERSION_GEOMETRY = 6;
     public static final int VERSION_LOCATION_IDX = 5;
     public static final int VERSION_EDGEKV_STORAGE = 2;
@@ -119,6 +119,15 @@ public interface EdgeIteratorState {
      */
     PointList fetchWayGeometry(FetchMode mode);
 
+    /**
+     * Appends the same points as {@link #fetchWayGeometry(FetchMode)} to the given list instead of creating a new
+     * list. This avoids the temporary lists when the geometry of many edges is collected, e.g. for the points of a
+     * path. The list must have the same dimension as the graph.
+     */
+    default void fetchWayGeometry(FetchMode mode, PointList target) {
+        target.add(fetchWayGeometry(mode));
+    }
+
     /**
      * @param list is a sorted collection of coordinates between the base node and the current adjacent node. Specify
      *             the list without the adjacent and base node. This method can be called multiple times, but if the
@@ -45,9 +45,11 @@ import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -685,10 +687,12 @@ public class GHUtility {
         if (edgeState.getBaseNode() == edgeState.getAdjNode()) {
             if (weighting.edgeHasNoAccess(edgeState, false) && weighting.edgeHasNoAccess(edgeState, true))
                 return Double.POSITIVE_INFINITY;
-        } else if (weighting.edgeHasNoAccess(edgeState, reverse)) {
-            return Double.POSITIVE_INFINITY;
+            return calcWeightWithTurnWeight(weighting, edgeState, reverse, prevOrNextEdgeId);
         }
-        return calcWeightWithTurnWeight(weighting, edgeState, reverse, prevOrNextEdgeId);
+        final double edgeWeight = weighting.calcEdgeWeightWithAccess(edgeState, reverse);
+        if (Double.isInfinite(edgeWeight))
+            return Double.POSITIVE_INFINITY;
+        return addTurnWeight(weighting, edgeState, reverse, prevOrNextEdgeId, edgeWeight);
     }
 
     /**
@@ -700,6 +704,10 @@ public class GHUtility {
      */
     public static double calcWeightWithTurnWeight(Weighting weighting, EdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId) {
         final double edgeWeight = weighting.calcEdgeWeight(edgeState, reverse);
+        return addTurnWeight(weighting, edgeState, reverse, prevOrNextEdgeId, edgeWeight);
+    }
+
+    private static double addTurnWeight(Weighting weighting, EdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId, double edgeWeight) {
         if (!EdgeIterator.Edge.isValid(prevOrNextEdgeId)) {
             return edgeWeight;
         }
@@ -765,6 +773,23 @@ public class GHUtility {
         return null;
     }
 
+    /**
+     * Waits for the result of a task and rethrows the RuntimeException it threw, so the errors are the same as if the
+     * task was run on the calling thread.
+     */
+    public static <T> T getFutureResult(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a concurrent task", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
     public static void runConcurrently(Stream<Callable<String>> callables, int threads) {
         ExecutorService executorService = Executors.newFixedThreadPool(threads);
         ExecutorCompletionService<String> completionService = new ExecutorCompletionService<>(executorService);
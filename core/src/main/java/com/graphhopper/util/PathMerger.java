@@ -30,6 +30,8 @@ import com.graphhopper.util.exceptions.ConnectionNotFoundException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * This class merges multiple {@link Path} objects into one continuous object that
@@ -57,6 +59,8 @@ public class PathMerger {
     private PathDetailsBuilderFactory pathBuilderFactory;
     private List<String> requestedPathDetails = Collections.emptyList();
     private double favoredHeading = Double.NaN;
+    private ExecutorService executor;
+    private int parallelMinEdges = Integer.MAX_VALUE;
 
     public PathMerger(Graph graph, Weighting weighting) {
         this.graph = graph;
@@ -89,6 +93,16 @@ public class PathMerger {
         return this;
     }
 
+    /**
+     * The instructions and every path detail of a path with at least the given number of edges are calculated in their
+     * own tasks of the executor. They only read the graph, so the result is the same as for the sequential calculation.
+     */
+    public PathMerger setExecutor(ExecutorService executor, int parallelMinEdges) {
+        this.executor = executor;
+        this.parallelMinEdges = parallelMinEdges;
+        return this;
+    }
+
     public ResponsePath doWork(PointList waypoints, List<Path> paths, EncodedValueLookup evLookup, Translation tr) {
         ResponsePath responsePath = new ResponsePath();
         int origPoints = 0;
@@ -110,15 +124,28 @@ public class PathMerger {
             fullTimeInMillis += path.getTime();
             fullDistance += path.getDistance();
             fullWeight += path.getWeight();
-            lello(paths, evLookup, tr, fullInstructions, pathIndex, path);
+            ExecutorService pathExecutor = executor != null && path.getEdgeCount() >= parallelMinEdges ? executor : null;
+            Future<InstructionList> instructions = null;
+            if (enableInstructions) {
+                if (pathExecutor != null)
+                    instructions = pathExecutor.submit(() -> InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr));
+                else
+                    lello(paths, fullInstructions, pathIndex, InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr));
+            }
             if (calcPoints || enableInstructions) {
-                PointList tmpPoints = path.calcPoints();
-                fullPoints = lellouno(paths, fullPoints, pathIndex, tmpPoints);
-
-                fullPoints.add(tmpPoints);
-                responsePath.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints, graph));
+                if (fullPoints == PointList.EMPTY)
+                    fullPoints = new PointList(estimatePoints(paths), graph.getNodeAccess().is3D());
+                // the points of all paths are fetched directly into one list, which is then simplified in place
+                path.calcPoints(fullPoints);
+                // Remove duplicated points, see #1138
+                if (pathIndex + 1 < paths.size())
+                    fullPoints.removeLastPoint();
+
+                responsePath.addPathDetails(PathDetailsFromEdges.calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, origPoints, graph, pathExecutor));
                 origPoints = fullPoints.size();
             }
+            if (instructions != null)
+                lello(paths, fullInstructions, pathIndex, GHUtility.getFutureResult(instructions));
 
             allFound = allFound && path.isFound();
         }
@@ -151,32 +178,24 @@ public class PathMerger {
         return responsePath;
     }
 
-    private static PointList lellouno(List<Path> paths, PointList fullPoints, int pathIndex, PointList tmpPoints) {
-        if (fullPoints.isEmpty())
-            fullPoints = new PointList(tmpPoints.size(), tmpPoints.is3D());
-
-        // Remove duplicated points, see #1138
-        if (pathIndex + 1 < paths.size()) {
-            tmpPoints.removeLastPoint();
-        }
-        return fullPoints;
+    private static int estimatePoints(List<Path> paths) {
+        // every edge has at least one point, pillar nodes are added when the list grows
+        int points = 1;
+        for (Path path : paths)
+            points += path.getEdgeCount();
+        return points;
     }
 
-    private void lello(List<Path> paths, EncodedValueLookup evLookup, Translation tr, InstructionList fullInstructions, int pathIndex, Path path) {
-        if (enableInstructions) {
-            InstructionList il = InstructionsFromEdges.calcInstructions(path, graph, weighting, evLookup, tr);
-
-            if (!il.isEmpty()) {
-                fullInstructions.addAll(il);
+    private static void lello(List<Path> paths, InstructionList fullInstructions, int pathIndex, InstructionList il) {
+        if (!il.isEmpty()) {
+            fullInstructions.addAll(il);
 
-                // for all paths except the last replace the FinishInstruction with a ViaInstruction
-                if (pathIndex + 1 < paths.size()) {
-                    ViaInstruction newInstr = new ViaInstruction(fullInstructions.get(fullInstructions.size() - 1));
-                    newInstr.setViaCount(pathIndex + 1);
-                    fullInstructions.set(fullInstructions.size() - 1, newInstr);
-                }
+            // for all paths except the last replace the FinishInstruction with a ViaInstruction
+            if (pathIndex + 1 < paths.size()) {
+                ViaInstruction newInstr = new ViaInstruction(fullInstructions.get(fullInstructions.size() - 1));
+                newInstr.setViaCount(pathIndex + 1);
+                fullInstructions.set(fullInstructions.size() - 1, newInstr);
             }
-
         }
     }
 
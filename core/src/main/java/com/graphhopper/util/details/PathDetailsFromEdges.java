@@ -23,11 +23,16 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.FetchMode;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PointList;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * This class calculates a PathDetail list in a similar fashion to the instruction calculation,
@@ -42,11 +47,14 @@ import java.util.Map;
 public class PathDetailsFromEdges implements Path.EdgeVisitor {
 
     private final List<PathDetailsBuilder> calculators;
+    // reused for every edge, only the number of points is needed
+    private final PointList tmpPoints;
     private int lastIndex = 0;
 
-    public PathDetailsFromEdges(List<PathDetailsBuilder> calculators, int previousIndex) {
+    public PathDetailsFromEdges(List<PathDetailsBuilder> calculators, int previousIndex, boolean is3D) {
         this.calculators = calculators;
         this.lastIndex = previousIndex;
+        this.tmpPoints = new PointList(10, is3D);
     }
 
     /**
@@ -60,13 +68,33 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
     public static Map<String, List<PathDetail>> calcDetails(Path path, EncodedValueLookup evLookup, Weighting weighting,
                                                             List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory,
                                                             int previousIndex, Graph graph) {
+        return calcDetails(path, evLookup, weighting, requestedPathDetails, pathBuilderFactory, previousIndex, graph, null);
+    }
+
+    /**
+     * Like {@link #calcDetails(Path, EncodedValueLookup, Weighting, List, PathDetailsBuilderFactory, int, Graph)}, but
+     * every builder traverses the path in its own task of the executor if one is given. The builders do not share any
+     * state, so the details are the same as for a single traversal.
+     */
+    public static Map<String, List<PathDetail>> calcDetails(Path path, EncodedValueLookup evLookup, Weighting weighting,
+                                                            List<String> requestedPathDetails, PathDetailsBuilderFactory pathBuilderFactory,
+                                                            int previousIndex, Graph graph, ExecutorService executor) {
         if (!path.isFound() || requestedPathDetails.isEmpty())
             return Collections.emptyMap();
         List<PathDetailsBuilder> pathBuilders = pathBuilderFactory.createPathDetailsBuilders(requestedPathDetails, evLookup, weighting, graph);
         if (pathBuilders.isEmpty())
             return Collections.emptyMap();
 
-        path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex));
+        boolean is3D = graph.getNodeAccess().is3D();
+        if (executor == null || pathBuilders.size() == 1) {
+            path.forEveryEdge(new PathDetailsFromEdges(pathBuilders, previousIndex, is3D));
+        } else {
+            List<Future<?>> futures = new ArrayList<>(pathBuilders.size());
+            for (PathDetailsBuilder builder : pathBuilders)
+                futures.add(executor.submit(() -> path.forEveryEdge(new PathDetailsFromEdges(Collections.singletonList(builder), previousIndex, is3D))));
+            for (Future<?> future : futures)
+                GHUtility.getFutureResult(future);
+        }
 
         Map<String, List<PathDetail>> pathDetails = new HashMap<>(pathBuilders.size());
         for (PathDetailsBuilder builder : pathBuilders) {
@@ -87,7 +115,9 @@ public class PathDetailsFromEdges implements Path.EdgeVisitor {
                 calc.startInterval(lastIndex);
             }
         }
-        lastIndex += edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ).size();
+        tmpPoints.clear();
+        edge.fetchWayGeometry(FetchMode.PILLAR_AND_ADJ, tmpPoints);
+        lastIndex += tmpPoints.size();
     }
 
     @Override
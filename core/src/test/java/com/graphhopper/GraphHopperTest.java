@@ -27,6 +27,7 @@ import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
 import com.graphhopper.reader.dem.TileBasedElevationProvider;
+import com.graphhopper.routing.RoutingMetrics;
 import com.graphhopper.routing.ev.EncodedValueLookup;
 import com.graphhopper.routing.ev.RoadEnvironment;
 import com.graphhopper.routing.ev.Subnetwork;
@@ -66,6 +67,7 @@ import org.locationtech.jts.geom.GeometryFactory;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
@@ -482,6 +484,36 @@ public class GraphHopperTest {
         assertEquals(958, rsp.getAll().get(2).getTime() / 1000);
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+     void testAlternativeRoutesCHSingleSearch(boolean turnCosts) throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(BAYREUTH).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest").setTurnCosts(turnCosts));
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(50.023513, 11.548862, 49.969441, 11.537876).
+                setAlgorithm(ALT_ROUTE).setProfile(profile);
+        req.putHint("alternative_route.max_paths", 3);
+        req.putHint("alternative_route.max_weight_factor", 1.6);
+        GHResponse expected = hopper.route(req);
+        assertFalse(expected.hasErrors(), expected.getErrors().toString());
+
+        req.putHint(Parameters.Algorithms.AltRoute.SINGLE_SEARCH, true);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(3, rsp.getAll().size());
+        assertEquals(expected.getBest().getTime(), rsp.getBest().getTime());
+        assertEquals(expected.getBest().getPoints(), rsp.getBest().getPoints());
+        for (ResponsePath path : rsp.getAll())
+            assertTrue(path.getRouteWeight() <= 1.6 * rsp.getBest().getRouteWeight());
+        // only a single CH query and the local optimality tests
+        assertTrue(rsp.getHints().getLong("visited_nodes.sum", 0) < expected.getHints().getLong("visited_nodes.sum", 0) / 2);
+    }
+
     @Test
      void testPointHint() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
         final String profile = "profile";
@@ -702,6 +734,95 @@ public class GraphHopperTest {
         assertEquals(expectedDistance, rsp.getBest().getDistance(), 1);
     }
 
+    @Test
+     void testMonacoViaConcurrentLegs() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest").setTurnCosts(true)).
+                setStoreOnFlush(true);
+        hopper.getRouterConfig().setLegThreads(3);
+        hopper.importOrLoad();
+
+        List<GHPoint> points = Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.730729, 7.42135), new GHPoint(43.741069, 7.426854), new GHPoint(43.727687, 7.418737));
+        for (String curbside : Arrays.asList(Parameters.Curbsides.CURBSIDE_ANY, Parameters.Curbsides.CURBSIDE_RIGHT)) {
+            GHRequest req = new GHRequest(points).setProfile(profile).setCurbsides(Collections.nCopies(points.size(), curbside));
+            req.putHint(Parameters.Routing.PARALLEL_LEGS, false);
+            ResponsePath expected = hopper.route(req).getBest();
+            req.putHint(Parameters.Routing.PARALLEL_LEGS, true);
+            GHResponse rsp = hopper.route(req);
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(expected.getDistance(), rsp.getBest().getDistance(), 1.e-6);
+            assertEquals(expected.getTime(), rsp.getBest().getTime());
+            assertEquals(expected.getPoints(), rsp.getBest().getPoints());
+            assertEquals(expected.getInstructions().size(), rsp.getBest().getInstructions().size());
+        }
+        hopper.close();
+    }
+
+    @Test
+     void testMonacoParallelDetails() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest").setTurnCosts(true)).
+                setStoreOnFlush(true);
+        hopper.getRouterConfig().setLegThreads(3);
+        hopper.importOrLoad();
+
+        List<GHPoint> points = Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.730729, 7.42135));
+        GHRequest req = new GHRequest(points).setProfile(profile).
+                setPathDetails(Arrays.asList(Parameters.Details.STREET_NAME, Parameters.Details.TIME, Parameters.Details.DISTANCE,
+                        Parameters.Details.AVERAGE_SPEED, Parameters.Details.INTERSECTION, "road_class", "max_speed"));
+        ResponsePath expected = hopper.route(req).getBest();
+        // every path has more edges than this
+        hopper.getRouterConfig().setParallelDetailsMinEdges(2);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        ResponsePath path = rsp.getBest();
+        assertEquals(expected.getPoints(), path.getPoints());
+        assertEquals(expected.getPathDetails().keySet(), path.getPathDetails().keySet());
+        for (String detail : expected.getPathDetails().keySet())
+            assertEquals(expected.getPathDetails().get(detail).toString(), path.getPathDetails().get(detail).toString(), detail);
+        assertEquals(expected.getInstructions().size(), path.getInstructions().size());
+        for (int i = 0; i < expected.getInstructions().size(); i++) {
+            assertEquals(expected.getInstructions().get(i).getSign(), path.getInstructions().get(i).getSign());
+            assertEquals(expected.getInstructions().get(i).getPoints(), path.getInstructions().get(i).getPoints());
+        }
+        hopper.close();
+    }
+
+    @Test
+     void testMonacoCHLazyPath() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
+        final String profile = "profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        List<GHPoint> points = Arrays.asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566),
+                new GHPoint(43.730729, 7.42135));
+        GHRequest req = new GHRequest(points).setProfile(profile);
+        ResponsePath expected = hopper.route(req).getBest();
+        // without points and instructions the shortcuts are not unpacked
+        req.putHint(Parameters.Routing.CALC_POINTS, false);
+        req.putHint(Parameters.Routing.INSTRUCTIONS, false);
+        GHResponse rsp = hopper.route(req);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(expected.getDistance(), rsp.getBest().getDistance(), 1.e-6);
+        assertEquals(expected.getTime(), rsp.getBest().getTime());
+        assertEquals(expected.getRouteWeight(), rsp.getBest().getRouteWeight(), 1.e-6);
+        assertEquals(0, rsp.getBest().getPoints().size());
+        hopper.close();
+    }
+
     @Test
      void testMonacoVia() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
         final String profile = "profile";
@@ -1679,6 +1800,106 @@ public class GraphHopperTest {
         assErt(response, 3587, 1);
     }
 
+    @Test
+     void testCustomModelsWithCH() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile("p1").setCustomModel(new CustomModel().setDistanceInfluence(100)).setVehicle("car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("p1"));
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+
+        CustomModel customModel = new CustomModel().setDistanceInfluence(100);
+        customModel.addToPriority(Statement.if1("road_class == PRIMARY", Statement.Op.MULTIPLY, "0.1"));
+        GHResponse flexResponse = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setCustomModel(customModel).setProfile("p1").putHint(CH.DISABLE, true));
+        assertFalse(flexResponse.hasErrors(), flexResponse.getErrors().toString());
+
+        // custom models are rejected for CH unless they are enabled in the configuration
+        GHResponse response = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setCustomModel(customModel).setProfile("p1"));
+        assertTrue(response.hasErrors());
+
+        hopper.getRouterConfig().setCHCustomModels(true);
+        response = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setCustomModel(customModel).setProfile("p1"));
+        assertFalse(response.hasErrors(), response.getErrors().toString());
+        assertEquals(flexResponse.getBest().getRouteWeight(), response.getBest().getRouteWeight(), 1.e-3);
+        assertEquals(flexResponse.getBest().getDistance(), response.getBest().getDistance(), 1);
+        assertTrue(response.getHints().getInt("visited_nodes.sum", 0) < flexResponse.getHints().getInt("visited_nodes.sum", 0));
+
+        // the custom model must not make the profile faster
+        response = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).
+                setCustomModel(new CustomModel().setDistanceInfluence(0)).setProfile("p1"));
+        assertTrue(response.hasErrors());
+        assertTrue(response.getErrors().get(0).getMessage().contains("distance_influence"), response.getErrors().toString());
+    }
+
+    @Test
+     void testEdgeWeights() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
+        CustomModel customModel = new CustomModel().setDistanceInfluence(70);
+        customModel.addToPriority(Statement.if1("road_class == PRIMARY", Statement.Op.MULTIPLY, "0.5"));
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile("p1").setCustomModel(customModel).setVehicle("car")).
+                setStoreOnFlush(true);
+        hopper.setMinNetworkSize(0);
+        hopper.importOrLoad();
+        GHRequest request = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("p1");
+        GHResponse expected = hopper.route(request);
+        assertFalse(expected.hasErrors(), expected.getErrors().toString());
+        hopper.close();
+
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(new CustomProfile("p1").setCustomModel(customModel).setVehicle("car")).
+                setEdgeWeightsEnabled(true).
+                setStoreOnFlush(true);
+        hopper.importOrLoad();
+        GHResponse response = hopper.route(request);
+        assertFalse(response.hasErrors(), response.getErrors().toString());
+        assertEquals(expected.getBest().getRouteWeight(), response.getBest().getRouteWeight(), 1.e-3);
+        assertEquals(expected.getBest().getDistance(), response.getBest().getDistance(), 1.e-3);
+        assertEquals(expected.getBest().getTime(), response.getBest().getTime());
+        hopper.close();
+    }
+
+    @Test
+     void testRoutingMetrics() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new CustomProfile("car").setCustomModel(new CustomModel()).setVehicle("car")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile("car"));
+        hopper.importOrLoad();
+        Map<String, Long> metrics = new ConcurrentHashMap<>();
+        hopper.setRoutingMetrics((profile, solver, name, value) -> metrics.merge(profile + "." + solver + "." + name, value, Long::sum));
+
+        GHRequest request = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("car");
+        GHResponse response = hopper.route(request);
+        assertFalse(response.hasErrors(), response.getErrors().toString());
+        response = hopper.route(request.putHint(CH.DISABLE, true));
+        assertFalse(response.hasErrors(), response.getErrors().toString());
+        for (String solver : Arrays.asList("ch", "flex")) {
+            for (String name : Arrays.asList(RoutingMetrics.LATENCY, RoutingMetrics.SNAP, RoutingMetrics.QUERY_GRAPH,
+                    RoutingMetrics.ROUTING, RoutingMetrics.PATH_EXTRACTION, RoutingMetrics.RESPONSE_PATH, RoutingMetrics.VISITED_NODES))
+                assertTrue(metrics.containsKey("car." + solver + "." + name), solver + "." + name + " is missing: " + metrics);
+            assertTrue(metrics.get("car." + solver + ".latency") >= metrics.get("car." + solver + ".routing"));
+        }
+        assertEquals(response.getHints().getLong("visited_nodes.sum", 0), metrics.get("car.flex.visited_nodes"));
+
+        // requests with errors are not recorded
+        metrics.clear();
+        response = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile("unknown"));
+        assertTrue(response.hasErrors());
+        assertTrue(metrics.isEmpty());
+        hopper.close();
+    }
+
     @Test
      void testCreateWeightingHintsMerging() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
         final String profile = "profile";
@@ -2122,6 +2343,39 @@ public class GraphHopperTest {
         assertCurbsidesPath(h, p, p, asList(CURBSIDE_LEFT, CURBSIDE_RIGHT), 855, asList(itz, bayreuth, adamSeiler, adamSeiler, friedhof, kulmbach, itz));
     }
 
+    @Test
+    void testCurbsidesWithTurnCostNodesOnly() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
+        GraphHopper h = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(BAYREUTH).
+                setProfiles(new Profile("my_profile").setVehicle("car").setWeighting("fastest").setTurnCosts(true).
+                        putHint(Routing.TURN_COST_NODES_ONLY, true));
+        h.importOrLoad();
+
+        // the profile does not change the default algorithm, so curbsides still work with flexible routing
+        GHPoint p = new GHPoint(50.015072, 11.499145);
+        GHPoint q = new GHPoint(50.014141, 11.497552);
+        final String itz = "Itzgrund";
+        final String rotmain = "An den Rotmainauen";
+        final String bayreuth = "Bayreuther Straße";
+        final String kulmbach = "Kulmbacher Straße";
+        final String adamSeiler = "Adam-Seiler-Straße";
+        final String friedhof = "Friedhofsweg";
+        assertCurbsidesPath(h, p, q, asList(CURBSIDE_RIGHT, CURBSIDE_RIGHT), 344, asList(itz, rotmain, rotmain));
+        // there are two routes with the same distance here, see testCurbsides for the one CH finds
+        assertCurbsidesPath(h, p, q, asList(CURBSIDE_RIGHT, CURBSIDE_LEFT), 1564, asList(itz, rotmain, rotmain, bayreuth, friedhof, adamSeiler, adamSeiler, kulmbach, rotmain));
+        assertCurbsidesPath(h, p, q, asList(CURBSIDE_LEFT, CURBSIDE_RIGHT), 1199, asList(itz, bayreuth, adamSeiler, adamSeiler, friedhof, kulmbach, itz, rotmain, rotmain));
+        assertCurbsidesPath(h, p, q, asList(CURBSIDE_LEFT, CURBSIDE_LEFT), 266, asList(itz, bayreuth, rotmain));
+
+        // the turn restriction traversal is used when astar is picked explicitly and yields the same route
+        for (String algo : asList(ASTAR_BI, ASTAR)) {
+            GHResponse rsp = h.route(new GHRequest(p, q).setProfile("my_profile").setAlgorithm(algo));
+            assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+            assertEquals(266, rsp.getBest().getDistance(), 1);
+        }
+        h.close();
+    }
+
     @Test
      void testForceCurbsides() throws lockexception, closefile, MMapDataAccess.MapExce, TranslationMap.TransExce {
         final String profile = "my_profile";
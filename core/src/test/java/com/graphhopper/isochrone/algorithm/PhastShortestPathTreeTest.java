@@ -0,0 +1,172 @@
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.SimpleBooleanEncodedValue;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhastShortestPathTreeTest {
+
+    private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+    private final EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+
+    @Test
+    void sameTreeAsDijkstra() throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        //   0-1-2
+        //   |   |
+        //   3-4-5
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(60, true, false, accessEnc, speedEnc, graph.edge(0, 3).setDistance(50));
+        GHUtility.setSpeed(30, true, true, accessEnc, speedEnc, graph.edge(3, 4).setDistance(100));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(4, 5).setDistance(100));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(2, 5).setDistance(40));
+        graph.freeze();
+        RoutingCHGraph chGraph = prepareCH(graph);
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+
+        ShortestPathTree phast = new PhastShortestPathTree(queryGraph, chGraph, false);
+        phast.setTimeLimit(Double.MAX_VALUE);
+        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        phast.search(0, result::add);
+        assertEquals(Arrays.asList(0, 3, 1, 2, 5, 4), getNodes(result));
+        assertEquals(0, result.get(0).time);
+        assertNull(result.get(0).parent);
+        assertEquals(1, result.get(3).parent.node);
+        assertEquals(2, result.get(4).parent.node);
+        assertEquals(15_000, result.get(5).time);
+    }
+
+    @Test
+    void timeLimit() throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        // 0-1-2-3
+        GHUtility.setSpeed(36, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(36, true, true, accessEnc, speedEnc, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(36, true, true, accessEnc, speedEnc, graph.edge(2, 3).setDistance(100));
+        graph.freeze();
+        RoutingCHGraph chGraph = prepareCH(graph);
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+
+        PhastShortestPathTree phast = new PhastShortestPathTree(queryGraph, chGraph, false);
+        phast.setTimeLimit(15_000);
+        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        phast.search(0, result::add);
+        assertEquals(Arrays.asList(0, 1), getNodes(result));
+        assertArrayEquals(new int[]{2}, phast.getIsochroneEdges().stream().mapToInt(l -> l.node).toArray());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void random(boolean reverseFlow) throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        GHUtility.buildRandomGraph(new GHUtility.Salmo(graph, rnd, 100, 2.5, true, true),
+                accessEnc, speedEnc, null, 0.7, 0.8, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, graph.getDirectory());
+        locationIndex.prepareIndex();
+        graph.freeze();
+        RoutingCHGraph chGraph = prepareCH(graph);
+        FastestWeighting weighting = new FastestWeighting(accessEnc, speedEnc);
+
+        for (int i = 0; i < 20; i++) {
+            // some of the searches start from several nodes at once
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 1 + rnd.nextInt(3), true, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int[] from = snaps.stream().mapToInt(Snap::getClosestNode).toArray();
+            // the time or distance are summed up along the shortcuts to prune the search
+            boolean useDistance = rnd.nextBoolean();
+            double limit = useDistance ? rnd.nextDouble() * 10_000 : rnd.nextDouble() * 600_000;
+
+            // PHAST keeps the nodes whose shortest path is within the limit, for the time and the fastest weighting
+            // these are the same nodes the Dijkstra explores
+            ShortestPathTree dijkstra = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, TraversalMode.NODE_BASED);
+            setLimit(dijkstra, useDistance, useDistance ? Double.MAX_VALUE : limit);
+            Map<Integer, ShortestPathTree.IsoLabel> expected = new HashMap<>();
+            dijkstra.search(from, l -> expected.put(l.node, l));
+
+            ShortestPathTree phast = new PhastShortestPathTree(queryGraph, chGraph, reverseFlow);
+            setLimit(phast, useDistance, limit);
+            Map<Integer, ShortestPathTree.IsoLabel> given = new HashMap<>();
+            phast.search(from, l -> {
+                assertTrue(l.parent == null || given.containsKey(l.parent.node), "parent must be accepted first, seed: " + seed);
+                assertNull(given.put(l.node, l), "node accepted twice, seed: " + seed);
+            });
+
+            for (ShortestPathTree.IsoLabel label : expected.values()) {
+                ShortestPathTree.IsoLabel other = given.get(label.node);
+                double value = useDistance ? label.distance : label.time;
+                // nodes right at the limit might be missing or added due to rounding of the shortcut weights
+                double tolerance = useDistance ? 50 : 100;
+                if (value > limit + tolerance)
+                    assertNull(other, "node " + label.node + " is beyond the limit, seed: " + seed);
+                if (other == null && value > limit - tolerance)
+                    continue;
+                assertNotNull(other, "missing node " + label.node + ", seed: " + seed);
+                assertEquals(label.weight, other.weight, 1.e-2, "wrong weight for node " + label.node + ", seed: " + seed);
+            }
+        }
+    }
+
+    @Test
+    void pruneBeyondLimit() throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager).create();
+        // 0-1-2-...-99, 10s per edge
+        for (int node = 0; node < 99; node++)
+            GHUtility.setSpeed(36, true, true, accessEnc, speedEnc, graph.edge(node, node + 1).setDistance(100));
+        graph.freeze();
+        RoutingCHGraph chGraph = prepareCH(graph);
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+
+        PhastShortestPathTree phast = new PhastShortestPathTree(queryGraph, chGraph, false);
+        phast.setDistanceLimit(250);
+        List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
+        phast.search(50, result::add);
+        assertEquals(Arrays.asList(48, 49, 50, 51, 52), getNodes(result).stream().sorted().collect(Collectors.toList()));
+        assertEquals(Arrays.asList(47, 53), phast.getIsochroneEdges().stream().map(l -> l.node).sorted().collect(Collectors.toList()));
+        // the upward search stops at the shortcuts that exceed the limit and only the nodes within the limit are settled
+        assertTrue(phast.getVisitedNodes() < 20, "visited nodes: " + phast.getVisitedNodes());
+    }
+
+    private static void setLimit(ShortestPathTree tree, boolean useDistance, double limit) {
+        if (useDistance)
+            tree.setDistanceLimit(limit);
+        else
+            tree.setTimeLimit(limit);
+    }
+
+    private RoutingCHGraph prepareCH(BaseGraph graph) throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        CHConfig chConfig = CHConfig.nodeBased("p", new FastestWeighting(accessEnc, speedEnc));
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, chConfig).doWork();
+        return RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig(), res.getShortcutMetadata());
+    }
+
+    private static List<Integer> getNodes(List<ShortestPathTree.IsoLabel> labels) {
+        List<Integer> result = new ArrayList<>();
+        for (ShortestPathTree.IsoLabel label : labels)
+            result.add(label.node);
+        return result;
+    }
+}
@@ -17,9 +17,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -168,6 +166,23 @@ public class ShortestPathTreeTest {
         );
     }
 
+    @Test
+    void testMultipleSources() {
+        Map<Integer, ShortestPathTree.IsoLabel> result = new HashMap<>();
+        ShortestPathTree instance = new ShortestPathTree(graph, new FastestWeighting(accessEnc, speedEnc), false, TraversalMode.NODE_BASED);
+        instance.setTimeLimit(10_000);
+        // duplicate sources are ignored
+        instance.search(new int[]{0, 7, 0}, l -> assertNull(result.put(l.node, l)));
+        assertEquals(new HashSet<>(Arrays.asList(0, 4, 5, 6, 7)), result.keySet());
+        assertAll(
+                () -> assertEquals(0, result.get(0).getOrigin()), () -> assertEquals(0, result.get(0).time),
+                () -> assertEquals(1, result.get(7).getOrigin()), () -> assertEquals(0, result.get(7).time),
+                () -> assertEquals(0, result.get(4).getOrigin()), () -> assertEquals(9000, result.get(4).time),
+                () -> assertEquals(1, result.get(5).getOrigin()), () -> assertEquals(9000, result.get(5).time),
+                () -> assertEquals(1, result.get(6).getOrigin()), () -> assertEquals(9000, result.get(6).time)
+        );
+    }
+
     @Test
      void testEdgeBasedWithFreeUTurns() {
         List<ShortestPathTree.IsoLabel> result = new ArrayList<>();
@@ -28,11 +28,13 @@ import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
  class AlternativeRouteCHTest {
     private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
@@ -118,4 +120,28 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
         // 4 -> 11 -> 12 -> 10 is not too long compared to 4 -> 10
     }
 
+    @Test
+     void testCalcAlternativesSingleSearch() throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MappaExce {
+        BaseGraph g = createTestGraph(em);
+        PMap hints = new PMap();
+        hints.putObject("alternative_route.max_weight_factor", 2.3);
+        hints.putObject("alternative_route.local_optimality_factor", 0.5);
+        hints.putObject("alternative_route.max_paths", 4);
+        RoutingCHGraph routingCHGraph = prepareCH(g);
+        AlternativeRouteCH altDijkstra = new AlternativeRouteCH(routingCHGraph, hints);
+        List<AlternativeRouteCH.AlternativeInfo> expected = altDijkstra.calcAlternatives(5, 10);
+        int expectedVisitedNodes = altDijkstra.getVisitedNodes();
+
+        // the same alternatives, but without the extra queries for every via node
+        hints.putObject(Parameters.Algorithms.AltRoute.SINGLE_SEARCH, true);
+        altDijkstra = new AlternativeRouteCH(routingCHGraph, hints);
+        List<AlternativeRouteCH.AlternativeInfo> pathInfos = altDijkstra.calcAlternatives(5, 10);
+        assertEquals(3, pathInfos.size());
+        for (int i = 0; i < pathInfos.size(); i++) {
+            assertEquals(expected.get(i).nodes, pathInfos.get(i).nodes);
+            assertEquals(expected.get(i).path.getWeight(), pathInfos.get(i).path.getWeight(), 1.e-6);
+        }
+        assertTrue(altDijkstra.getVisitedNodes() < expectedVisitedNodes / 2, altDijkstra.getVisitedNodes() + " vs. " + expectedVisitedNodes);
+    }
+
 }
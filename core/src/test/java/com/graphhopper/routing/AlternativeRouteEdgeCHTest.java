@@ -28,6 +28,7 @@ import com.graphhopper.storage.*;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -150,4 +151,27 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
         // The shortest path works (no restrictions on the way back
     }
 
+    @Test
+     void testCalcAlternativesSingleSearch() throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MappaExce {
+        BaseGraph g = createTestGraph(em);
+        PMap hints = new PMap();
+        hints.putObject("alternative_route.max_weight_factor", 4);
+        hints.putObject("alternative_route.local_optimality_factor", 0.5);
+        hints.putObject("alternative_route.max_paths", 4);
+        hints.putObject(Parameters.Algorithms.AltRoute.SINGLE_SEARCH, true);
+        RoutingCHGraph routingCHGraph = prepareCH(g);
+        AlternativeRouteEdgeCH altDijkstra = new AlternativeRouteEdgeCH(routingCHGraph, hints);
+        List<AlternativeRouteEdgeCH.AlternativeInfo> pathInfos = altDijkstra.calcAlternatives(5, 10);
+        assertEquals(2, pathInfos.size());
+        assertEquals(IntArrayList.from(5, 6, 7, 8, 4, 10), pathInfos.get(0).path.calcNodes());
+        // 6 -> 3 -> 4 is forbidden, so the via paths through 3 must not turn there
+        assertEquals(IntArrayList.from(5, 1, 9, 2, 3, 4, 10), pathInfos.get(1).path.calcNodes());
+
+        altDijkstra = new AlternativeRouteEdgeCH(routingCHGraph, hints);
+        pathInfos = altDijkstra.calcAlternatives(10, 5);
+        assertEquals(2, pathInfos.size());
+        assertEquals(IntArrayList.from(10, 4, 3, 6, 5), pathInfos.get(0).path.calcNodes());
+        assertEquals(IntArrayList.from(10, 12, 11, 4, 3, 6, 5), pathInfos.get(1).path.calcNodes());
+    }
+
 }
@@ -18,6 +18,7 @@ import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -168,7 +169,7 @@ import static org.junit.jupiter.api.Assumptions.assumeTrue;
         f.freeze();
         PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(f.graph, f.chConfig);
         PrepareContractionHierarchies.Result res = pch.doWork();
-        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(f.graph, res.getCHStorage(), res.getCHConfig());
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(f.graph, res.getCHStorage(), res.getCHConfig(), res.getShortcutMetadata());
 
         int numQueryGraph = 25;
         for (int j = 0; j < numQueryGraph; j++) {
@@ -207,6 +208,15 @@ import static org.junit.jupiter.api.Assumptions.assumeTrue;
                     LOGGER.warn("given:    " + path.calcNodes());
                     fail("wrong weight: " + from + "->" + to + ", dijkstra: " + refWeight + " vs. ch: " + path.getWeight());
                 }
+                if (!f.traversalMode.isEdgeBased()) {
+                    // the time and distance summed up from the shortcuts must be the same as for the unpacked path
+                    Path lazyPath = new CHRoutingAlgorithmFactory(routingCHGraph).createAlgo(new PMap()
+                            .putObject("stall_on_demand", true).putObject(Parameters.CH.LAZY_PATH, true)).calcPath(from, to);
+                    assertEquals(path.getWeight(), lazyPath.getWeight(), 1.e-6);
+                    assertEquals(path.getTime(), lazyPath.getTime(), from + "->" + to);
+                    assertEquals(path.getDistance(), lazyPath.getDistance(), 1.e-6, from + "->" + to);
+                    assertEquals(path.getEdges(), lazyPath.getEdges(), from + "->" + to);
+                }
                 if (Math.abs(path.getDistance() - refPath.getDistance()) > 1.e-1) {
                     strictViolations.add("wrong distance " + from + "->" + to + ", expected: " + refPath.getDistance() + ", given: " + path.getDistance());
                 }
@@ -0,0 +1,161 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.SimpleBooleanEncodedValue;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.TurnCostProvider;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.MMapDataAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
+import static com.graphhopper.storage.SpeedProfileStorage.SLOTS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeDependentAStarTest {
+    private static final long HOUR = 60 * 60 * 1000;
+    private final BooleanEncodedValue accessEnc;
+    private final DecimalEncodedValue speedEnc;
+    private final EncodingManager em;
+    private final BaseGraph graph;
+    private final Weighting weighting;
+    private final SpeedProfileStorage speedProfiles;
+
+    public TimeDependentAStarTest() throws MMapDataAccess.MappaExce {
+        accessEnc = new SimpleBooleanEncodedValue("access", true);
+        speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+        em = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+        graph = new BaseGraph.Builder(em).create();
+        weighting = new FastestWeighting(accessEnc, speedEnc);
+        speedProfiles = new SpeedProfileStorage(new RAMDirectory()).create(100);
+    }
+
+    private int addRushHourProfile(double factor) {
+        double[] factors = new double[SLOTS];
+        Arrays.fill(factors, 1);
+        Arrays.fill(factors, 7 * 4, 9 * 4, factor);
+        return speedProfiles.addProfile(factors);
+    }
+
+    @Test
+    void avoidRushHour() {
+        // the direct road 0-1-2 is jammed during the rush hour, the detour 0-3-2 is not
+        //   1
+        //  / \
+        // 0   2
+        //  \ /
+        //   3
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(1000));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(1, 2).setDistance(1000));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 3).setDistance(1500));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(3, 2).setDistance(1500));
+        int profile = addRushHourProfile(0.25);
+        speedProfiles.setProfile(0, profile);
+        speedProfiles.setProfile(1, profile);
+
+        Path path = new TimeDependentAStar(graph, weighting, NODE_BASED, speedProfiles, 12 * HOUR).calcPath(0, 2);
+        assertEquals(IntArrayList.from(0, 1, 2), path.calcNodes());
+        assertEquals(new Dijkstra(graph, weighting, NODE_BASED).calcPath(0, 2).getTime(), path.getTime());
+
+        path = new TimeDependentAStar(graph, weighting, NODE_BASED, speedProfiles, 8 * HOUR).calcPath(0, 2);
+        assertEquals(IntArrayList.from(0, 3, 2), path.calcNodes());
+        assertEquals(180_000, path.getTime());
+
+        // departing shortly before the rush hour the direct road is still faster, even though its speed starts to decrease
+        TimeDependentAStar algo = new TimeDependentAStar(graph, weighting, NODE_BASED, speedProfiles, 7 * HOUR - 16 * 60_000);
+        path = algo.calcPath(0, 2);
+        assertEquals(IntArrayList.from(0, 1, 2), path.calcNodes());
+        assertTrue(path.getTime() > 120_000 && path.getTime() < 180_000, "time: " + path.getTime());
+        assertEquals(7 * HOUR - 16 * 60_000 + path.getTime(), algo.getArrivalTime());
+    }
+
+    @Test
+    void onlyTimePartOfWeightIsSlowedDown() {
+        //   1
+        //  / \
+        // 0   2
+        //  \ /
+        //   3
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(1000));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(1, 2).setDistance(1000));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 3).setDistance(1500));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(3, 2).setDistance(1500));
+        int profile = addRushHourProfile(0.5);
+        speedProfiles.setProfile(0, profile);
+        speedProfiles.setProfile(1, profile);
+        Weighting customWeighting = CustomModelParser.createWeighting(accessEnc, speedEnc, null, em,
+                TurnCostProvider.NO_TURN_COST_PROVIDER, new CustomModel().setDistanceInfluence(100d));
+
+        // during the rush hour the direct road takes 240s instead of 120s, but its distance costs of 200 stay the
+        // same. so it is still better than the detour with 180s and distance costs of 300
+        Path path = new TimeDependentAStar(graph, customWeighting, NODE_BASED, speedProfiles, 8 * HOUR).calcPath(0, 2);
+        assertEquals(IntArrayList.from(0, 1, 2), path.calcNodes());
+        assertEquals(240_000, path.getTime());
+        assertEquals(240 + 200, path.getWeight(), 1.e-6);
+
+        // the shortest weighting does not depend on the time at all
+        path = new TimeDependentAStar(graph, new ShortestWeighting(accessEnc, speedEnc), NODE_BASED, speedProfiles, 8 * HOUR).calcPath(0, 2);
+        assertEquals(2000, path.getWeight(), 1.e-6);
+        assertEquals(240_000, path.getTime());
+    }
+
+    @RepeatedTest(10)
+    void compareAStarWithDijkstra() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(new GHUtility.Salmo(graph, rnd, 100, 2.2, true, true),
+                accessEnc, speedEnc, null, 0.7, 0.8, 0);
+        int[] profiles = {addRushHourProfile(0.3), addRushHourProfile(0.6), addRushHourProfile(0.9)};
+        for (int edge = 0; edge < graph.getEdges(); edge++)
+            if (rnd.nextBoolean())
+                speedProfiles.setProfile(edge, profiles[rnd.nextInt(profiles.length)]);
+
+        for (int i = 0; i < 50; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            long departure = rnd.nextInt((int) (24 * HOUR));
+            Path expected = new TimeDependentAStar(graph, weighting, NODE_BASED, speedProfiles, departure).calcPath(from, to);
+            Path path = new TimeDependentAStar(graph, weighting, NODE_BASED, speedProfiles, departure)
+                    .setApproximation(new BeelineWeightApproximator(graph.getNodeAccess(), weighting))
+                    .calcPath(from, to);
+            assertEquals(expected.isFound(), path.isFound(), "seed: " + seed);
+            assertEquals(expected.getWeight(), path.getWeight(), 1.e-3, "seed: " + seed);
+            // the time-dependent weight is never smaller than the static one
+            Path staticPath = new Dijkstra(graph, weighting, NODE_BASED).calcPath(from, to);
+            assertTrue(staticPath.getWeight() <= path.getWeight() + 1.e-6, "seed: " + seed);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.MMapDataAccess;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.graphhopper.routing.util.TraversalMode.EDGE_BASED;
+import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
+import static com.graphhopper.util.GHUtility.getEdge;
+import static com.graphhopper.util.Parameters.Algorithms.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TurnRestrictionTraversalTest {
+    private final BooleanEncodedValue accessEnc;
+    private final DecimalEncodedValue speedEnc;
+    private final DecimalEncodedValue turnCostEnc;
+    private final BaseGraph graph;
+
+    public TurnRestrictionTraversalTest() throws MMapDataAccess.MappaExce {
+        accessEnc = new SimpleBooleanEncodedValue("access", true);
+        speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+        turnCostEnc = TurnCost.create("car", 3);
+        EncodingManager em = EncodingManager.start().add(accessEnc).add(speedEnc).addTurnCostEncodedValue(turnCostEnc).build();
+        graph = new BaseGraph.Builder(em).withTurnCosts(true).create();
+    }
+
+    private Weighting createWeighting(int uTurnCosts) {
+        return new FastestWeighting(accessEnc, speedEnc, new DefaultTurnCostProvider(turnCostEnc, graph.getTurnCostStorage(), uTurnCosts));
+    }
+
+    @Test
+    void uTurnAtNodeWithoutTurnCosts() {
+        // 0-1-2-3
+        //   |
+        //   4
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(2, 3).setDistance(100));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(1, 4).setDistance(100));
+        // going left at node 1 is forbidden, so we need to turn around at node 2 or 3
+        graph.getTurnCostStorage().set(turnCostEnc, getEdge(graph, 4, 1).getEdge(), 1, getEdge(graph, 1, 0).getEdge(), Double.POSITIVE_INFINITY);
+        graph.freeze();
+        assertEquals(1, graph.getTurnCostStorage().getTurnCostNodes().cardinality());
+
+        Dijkstra dijkstra = new Dijkstra(graph, createWeighting(10), EDGE_BASED);
+        dijkstra.setTurnRestrictionTraversal(new TurnRestrictionTraversal(graph));
+        Path path = dijkstra.calcPath(4, 0);
+        assertEquals(new Dijkstra(graph, createWeighting(10), EDGE_BASED).calcPath(4, 0).getWeight(), path.getWeight(), 1.e-6);
+        assertEquals(IntArrayList.from(4, 1, 2, 1, 0), path.calcNodes());
+
+        // without u-turns there is no route
+        dijkstra = new Dijkstra(graph, createWeighting(Weighting.INFINITE_U_TURN_COSTS), EDGE_BASED);
+        dijkstra.setTurnRestrictionTraversal(new TurnRestrictionTraversal(graph));
+        assertFalse(dijkstra.calcPath(4, 0).isFound());
+    }
+
+    @Test
+    void requiresEdgeBased() {
+        graph.freeze();
+        assertThrows(IllegalArgumentException.class, () -> new Dijkstra(graph, new FastestWeighting(accessEnc, speedEnc), NODE_BASED).setTurnRestrictionTraversal(new TurnRestrictionTraversal(graph)));
+    }
+
+    @Test
+    void ignoredByOtherAlgorithms() {
+        graph.freeze();
+        AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm("").setTraversalMode(EDGE_BASED);
+        opts.getHints().putObject(Parameters.Routing.TURN_COST_NODES_ONLY, true);
+        RoutingAlgorithmFactorySimple factory = new RoutingAlgorithmFactorySimple();
+        // the default algorithm does not change, it is needed for curbsides
+        assertTrue(factory.createAlgo(graph, createWeighting(10), opts) instanceof AStarBidirection);
+        opts.setAlgorithm(DIJKSTRA_BI);
+        assertTrue(factory.createAlgo(graph, createWeighting(10), opts) instanceof DijkstraBidirectionRef);
+        opts.setAlgorithm(ASTAR_BI);
+        assertTrue(factory.createAlgo(graph, createWeighting(10), opts) instanceof AStarBidirection);
+    }
+
+    @RepeatedTest(10)
+    void compareWithEdgeBased() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(new GHUtility.Salmo(graph, rnd, 100, 2.2, true, true),
+                accessEnc, speedEnc, null, 0.8, 0.8, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, accessEnc, turnCostEnc, 3, graph.getTurnCostStorage());
+        graph.freeze();
+        for (int uTurnCosts : new int[]{Weighting.INFINITE_U_TURN_COSTS, 0, 40}) {
+            Weighting weighting = createWeighting(uTurnCosts);
+            for (String algo : new String[]{DIJKSTRA, ASTAR, DIJKSTRA_BI}) {
+                AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(EDGE_BASED);
+                opts.getHints().putObject(Parameters.Routing.TURN_COST_NODES_ONLY, true);
+                for (int i = 0; i < 50; i++) {
+                    int from = rnd.nextInt(graph.getNodes());
+                    int to = rnd.nextInt(graph.getNodes());
+                    Path expected = new Dijkstra(graph, weighting, EDGE_BASED).calcPath(from, to);
+                    Path given = new RoutingAlgorithmFactorySimple().createAlgo(graph, weighting, opts).calcPath(from, to);
+                    String msg = "seed: " + seed + ", " + algo + ", u-turn costs: " + uTurnCosts + ", " + from + "->" + to;
+                    assertEquals(expected.isFound(), given.isFound(), msg);
+                    assertEquals(expected.getWeight(), given.getWeight(), 1.e-6, msg);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.*;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.AbstractAdjustedWeighting;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.RepeatedTest;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.routing.util.TraversalMode.NODE_BASED;
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR;
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CHPotentialApproximatorTest {
+
+    @RepeatedTest(10)
+    void randomGraph() throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        final long seed = System.nanoTime();
+        BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+        DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+        EncodingManager em = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+        Directory dir = new RAMDirectory();
+        BaseGraph graph = new BaseGraph.Builder(em).setDir(dir).create();
+        Random rnd = new Random(seed);
+        // no offset, otherwise traveling via virtual edges is not the same as taking the direct edge
+        GHUtility.buildRandomGraph(new GHUtility.Salmo(graph, rnd, 50, 2.2, true, true), accessEnc, speedEnc, null, 0.7, 0.8, 0);
+        graph.freeze();
+        Weighting weighting = new FastestWeighting(accessEnc, speedEnc);
+        PrepareContractionHierarchies.Result res = PrepareContractionHierarchies.fromGraph(graph, CHConfig.nodeBased("p", weighting)).doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), res.getCHConfig());
+        Weighting slowerWeighting = new SlowerWeighting(weighting);
+
+        // without virtual nodes and the weighting of the CH graph the approximation is exact, apart from the rounding
+        // slack that is subtracted for every shortcut to keep it admissible
+        for (int i = 0; i < 20; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path path = new Dijkstra(graph, weighting, NODE_BASED).calcPath(from, to);
+            CHPotentialApproximator approximator = new CHPotentialApproximator(chGraph, graph);
+            approximator.setTo(to);
+            if (!path.isFound()) {
+                assertEquals(Double.POSITIVE_INFINITY, approximator.approximate(from), "seed: " + seed);
+                continue;
+            }
+            // every shortcut skips at least two edges, so the subtracted slack is at most one MIN_WEIGHT per edge
+            assertTrue(approximator.approximate(from) <= path.getWeight() + 1.e-3, "seed: " + seed);
+            assertTrue(approximator.approximate(from) >= path.getWeight() - path.getEdgeCount() * CHStorage.MIN_WEIGHT - 1.e-3, "seed: " + seed);
+        }
+
+        LocationIndexTree index = new LocationIndexTree(graph, dir);
+        index.prepareIndex();
+        CHPotentialRoutingAlgorithmFactory factory = new CHPotentialRoutingAlgorithmFactory(chGraph);
+        for (int i = 0; i < 50; i++) {
+            // with more than two snaps there are virtual nodes that are neither the start nor the target
+            List<Snap> snaps = GHUtility.createRandomSnaps(graph.getBounds(), index, rnd, 2 + rnd.nextInt(5), true, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            int from = snaps.get(rnd.nextInt(snaps.size())).getClosestNode();
+            int to = snaps.get(rnd.nextInt(snaps.size())).getClosestNode();
+            Path refPath = new Dijkstra(queryGraph, queryGraph.wrapWeighting(slowerWeighting), NODE_BASED).calcPath(from, to);
+            for (String algo : new String[]{ASTAR, ASTAR_BI}) {
+                RoutingAlgorithm algorithm = factory.createAlgo(queryGraph, slowerWeighting, new AlgorithmOptions().setAlgorithm(algo).setTraversalMode(NODE_BASED));
+                Path path = algorithm.calcPath(from, to);
+                assertEquals(refPath.isFound(), path.isFound(), algo + ", seed: " + seed);
+                assertEquals(refPath.getWeight(), path.getWeight(), 1.e-3, algo + ", seed: " + seed);
+            }
+            CHPotentialApproximator approximator = new CHPotentialApproximator(chGraph, queryGraph);
+            approximator.setTo(to);
+            for (int node = 0; node < queryGraph.getNodes(); node++) {
+                Path path = new Dijkstra(queryGraph, queryGraph.wrapWeighting(slowerWeighting), NODE_BASED).calcPath(node, to);
+                if (path.isFound())
+                    assertTrue(approximator.approximate(node) <= path.getWeight() + 1.e-3, "seed: " + seed);
+            }
+            // the approximation has to be consistent for every edge, including the virtual ones. because of the rounding
+            // slack that is subtracted for the shortcuts this only holds up to a few MIN_WEIGHT
+            Weighting queryWeighting = queryGraph.wrapWeighting(slowerWeighting);
+            EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+            for (int node = 0; node < queryGraph.getNodes(); node++) {
+                EdgeIterator iter = explorer.setBaseNode(node);
+                while (iter.next()) {
+                    double weight = queryWeighting.calcEdgeWeightWithAccess(iter, false);
+                    if (!Double.isInfinite(weight))
+                        assertTrue(approximator.approximate(node) <= weight + approximator.approximate(iter.getAdjNode()) + 10 * CHStorage.MIN_WEIGHT,
+                                "seed: " + seed + ", " + node + "->" + iter.getAdjNode());
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes every third edge slower, like a custom model that only decreases the speed of some roads.
+     */
+    private static class SlowerWeighting extends AbstractAdjustedWeighting {
+        SlowerWeighting(Weighting superWeighting) {
+            super(superWeighting);
+        }
+
+        @Override
+        public double calcEdgeWeight(EdgeIteratorState edgeState, boolean reverse) {
+            double weight = superWeighting.calcEdgeWeight(edgeState, reverse);
+            return edgeState.getEdge() % 3 == 0 ? 2.5 * weight : weight;
+        }
+
+        @Override
+        public String getName() {
+            return "slower";
+        }
+    }
+}
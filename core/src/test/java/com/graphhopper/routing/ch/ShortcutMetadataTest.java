@@ -0,0 +1,90 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValueImpl;
+import com.graphhopper.routing.ev.SimpleBooleanEncodedValue;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortcutMetadataTest {
+
+    private final BooleanEncodedValue accessEnc = new SimpleBooleanEncodedValue("access", true);
+    private final DecimalEncodedValue speedEnc = new DecimalEncodedValueImpl("speed", 5, 5, false);
+    private final EncodingManager encodingManager = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+
+    @Test
+    void calcDuringPreparationAndLoad(@TempDir Path path) throws PrepareContractionHierarchies.PrepareExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMDataAccess.RamExce, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        BaseGraph graph = new BaseGraph.Builder(encodingManager)
+                .setDir(new GHDirectory(path.toAbsolutePath().toString(), DAType.RAM_INT_STORE)).create();
+        // 0-1-2-3-4, the middle nodes are contracted first so there are nested shortcuts
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(30, true, true, accessEnc, speedEnc, graph.edge(1, 2).setDistance(200));
+        GHUtility.setSpeed(60, true, false, accessEnc, speedEnc, graph.edge(2, 3).setDistance(300));
+        GHUtility.setSpeed(60, true, true, accessEnc, speedEnc, graph.edge(3, 4).setDistance(400));
+        graph.freeze();
+        CHConfig chConfig = CHConfig.nodeBased("p", new FastestWeighting(accessEnc, speedEnc));
+        PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(graph, chConfig)
+                .useFixedNodeOrdering(NodeOrderingProvider.fromArray(1, 3, 2, 0, 4));
+        PrepareContractionHierarchies.Result res = pch.doWork();
+        RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, res.getCHStorage(), chConfig, res.getShortcutMetadata());
+        assertTrue(chGraph.getShortcuts() > 1);
+        assertMetadata(chGraph, res.getShortcutMetadata());
+        pch.flush();
+
+        ShortcutMetadata loaded = new ShortcutMetadata(new GHDirectory(path.toAbsolutePath().toString(), DAType.RAM_INT_STORE), "p", -1);
+        assertTrue(loaded.loadExisting(chGraph));
+        assertMetadata(chGraph, loaded);
+        assertTrue(loaded.getCapacity() >= chGraph.getShortcuts() * 20L);
+    }
+
+    private void assertMetadata(RoutingCHGraph chGraph, ShortcutMetadata metadata) {
+        int baseEdges = chGraph.getBaseGraph().getEdges();
+        assertFalse(metadata.isShortcut(baseEdges - 1));
+        assertFalse(metadata.isShortcut(baseEdges + chGraph.getShortcuts()));
+        for (int shortcut = baseEdges; shortcut < baseEdges + chGraph.getShortcuts(); shortcut++) {
+            assertTrue(metadata.isShortcut(shortcut));
+            RoutingCHEdgeIteratorState edge = chGraph.getEdgeIteratorState(shortcut, Integer.MIN_VALUE);
+            for (boolean reverse : new boolean[]{false, true}) {
+                double[] distance = {0};
+                long[] time = {0};
+                boolean[] access = {true};
+                new ShortcutUnpacker(chGraph, (e, r, prev) -> {
+                    distance[0] += e.getDistance();
+                    if (chGraph.getWeighting().edgeHasNoAccess(e, r))
+                        access[0] = false;
+                    else
+                        time[0] += chGraph.getWeighting().calcEdgeMillis(e, r);
+                }, false).visitOriginalEdgesFwd(shortcut, reverse ? edge.getBaseNode() : edge.getAdjNode(), false, -1);
+                assertEquals(distance[0], metadata.getDistance(shortcut), 1.e-6);
+                long expectedTime = access[0] ? time[0] : ShortcutMetadata.UNKNOWN_TIME;
+                assertEquals(expectedTime, metadata.getTime(shortcut, reverse ? edge.getBaseNode() : edge.getAdjNode(), false));
+            }
+        }
+    }
+}
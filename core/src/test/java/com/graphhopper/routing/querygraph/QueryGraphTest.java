@@ -416,6 +416,28 @@ import static org.junit.jupiter.api.Assertions.*;
         assertEquals(e1.getEdge(), e2.getEdge());
     }
 
+    @Test
+     void testFetchWayGeometryIntoList() {
+        initGraph(g);
+        EdgeIterator iter = g.createEdgeExplorer().setBaseNode(1);
+        iter.next();
+        QueryGraph queryGraph = lookup(createLocationResult(1.5, 2, iter, 0, EDGE));
+        EdgeIterator virtualIter = queryGraph.createEdgeExplorer().setBaseNode(3);
+        int count = 0;
+        while (virtualIter.next()) {
+            for (FetchMode mode : FetchMode.values()) {
+                PointList target = new PointList(1, false);
+                target.add(0, 0);
+                virtualIter.fetchWayGeometry(mode, target);
+                PointList expected = Helper.createPointList(0, 0);
+                expected.add(virtualIter.fetchWayGeometry(mode));
+                assertEquals(expected, target, "edge: " + virtualIter + ", mode: " + mode);
+            }
+            count++;
+        }
+        assertEquals(2, count);
+    }
+
     PointList getPoints(Graph g, int base, int adj) {
         EdgeIteratorState edge = GHUtility.getEdge(g, base, adj);
         if (edge == null)
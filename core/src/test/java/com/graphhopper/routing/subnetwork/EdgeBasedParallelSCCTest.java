@@ -0,0 +1,107 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.routing.subnetwork;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.EncodedValue;
+import com.graphhopper.routing.ev.SimpleBooleanEncodedValue;
+import com.graphhopper.routing.subnetwork.EdgeBasedTarjanSCC.ConnectedComponents;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.MMapDataAccess;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.graphhopper.routing.subnetwork.TarjanSCCTest.buildComponentSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EdgeBasedParallelSCCTest {
+
+    private final BooleanEncodedValue accessEnc;
+    private final BaseGraph g;
+    private final EdgeBasedTarjanSCC.EdgeTransitionFilter fwdAccessFilter;
+
+    public EdgeBasedParallelSCCTest() throws MMapDataAccess.MappaExce {
+        accessEnc = new SimpleBooleanEncodedValue("access", true);
+        EncodedValue.InitializerConfig evConf = new EncodedValue.InitializerConfig();
+        accessEnc.init(evConf);
+        g = new BaseGraph.Builder(evConf.getRequiredInts()).create();
+        fwdAccessFilter = (prev, edge) -> edge.get(accessEnc);
+    }
+
+    @Test
+     void withTurnRestriction() {
+        // 0->1
+        // |  |
+        // 3<-2->4
+        g.edge(0, 1).setDistance(1).set(accessEnc, true, false);
+        g.edge(1, 2).setDistance(1).set(accessEnc, true, false);
+        g.edge(2, 3).setDistance(1).set(accessEnc, true, false);
+        g.edge(3, 0).setDistance(1).set(accessEnc, true, false);
+        g.edge(2, 4).setDistance(1).set(accessEnc, true, false);
+
+        ConnectedComponents result = EdgeBasedParallelSCC.findComponents(g, fwdAccessFilter, false, 2);
+        assertEquals(7, result.getTotalComponents());
+        assertEquals(1, result.getComponents().size());
+        assertEquals(4, result.getBiggestComponent().size());
+        assertEquals(6, result.getSingleEdgeComponents().cardinality());
+
+        // with a restricted turn at node 2 none of the edges are strongly connected anymore
+        result = EdgeBasedParallelSCC.findComponents(g,
+                (prev, edge) -> fwdAccessFilter.accept(prev, edge) && !(prev == 1 && edge.getBaseNode() == 2 && edge.getEdge() == 2), false, 2);
+        assertEquals(10, result.getTotalComponents());
+        assertEquals(0, result.getComponents().size());
+        assertEquals(10, result.getSingleEdgeComponents().cardinality());
+    }
+
+    @Test
+     void loop() {
+        // 0-1-1 where 1-1 is a loop
+        g.edge(0, 1).setDistance(1).set(accessEnc, true, true);
+        g.edge(1, 1).setDistance(1).set(accessEnc, true, true);
+        ConnectedComponents result = EdgeBasedParallelSCC.findComponents(g, fwdAccessFilter, false, 2);
+        ConnectedComponents expected = EdgeBasedTarjanSCC.findComponents(g, fwdAccessFilter, false);
+        assertEquals(expected.getTotalComponents(), result.getTotalComponents());
+        assertEquals(buildComponentSet(expected.getComponents()), buildComponentSet(result.getComponents()));
+    }
+
+    @RepeatedTest(20)
+     void compareWithTarjan() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(new GHUtility.Salmo(g, rnd, 500, 2, true, true),
+                accessEnc, null, 60d, 0.8, 0.7, 0);
+        for (boolean excludeSingle : new boolean[]{true, false}) {
+            ConnectedComponents expected = EdgeBasedTarjanSCC.findComponents(g, fwdAccessFilter, excludeSingle);
+            // a small fork size, so the partitions are searched by different threads even for this small graph
+            ConnectedComponents given = EdgeBasedParallelSCC.findComponents(g, fwdAccessFilter, excludeSingle, 4, 10);
+            assertEquals(expected.getEdgeKeys(), given.getEdgeKeys(), "seed: " + seed);
+            assertEquals(expected.getTotalComponents(), given.getTotalComponents(), "seed: " + seed);
+            assertEquals(buildComponentSet(expected.getComponents()), buildComponentSet(given.getComponents()), "seed: " + seed);
+            assertEquals(expected.getSingleEdgeComponents(), given.getSingleEdgeComponents(), "seed: " + seed);
+            assertEquals(expected.getBiggestComponent().size(), given.getBiggestComponent().size(), "seed: " + seed);
+            for (IntArrayList component : given.getComponents())
+                assertTrue(component.size() > 1, "seed: " + seed);
+        }
+    }
+}
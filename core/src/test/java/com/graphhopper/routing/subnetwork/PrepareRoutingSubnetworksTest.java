@@ -133,7 +133,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
         GHUtility.setSpeed(10, false, false, carAccessEnc, carSpeedEnc, edge);
         GHUtility.setSpeed(5, false, false, bikeAccessEnc, bikeSpeedEnc, edge);
         instance = new PrepareRoutingSubnetworks(g, prepareJobs);
-        instance.setMinNetworkSize(5);
+        // both jobs at the same time, each searching with two threads
+        instance.setMinNetworkSize(5).setThreads(2).setSCCThreads(2);
         assertEquals(6, instance.doWork());
         assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, carSubnetworkEnc));
         assertEquals(IntArrayList.from(7, 8, 9), getSubnetworkEdges(g, bikeSubnetworkEnc));
@@ -0,0 +1,80 @@
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.shapes.Polygon;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AreaEdgeCacheTest {
+
+    @Test
+    void sameEdgesAsPolygon() throws MMapDataAccess.MappaExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce {
+        BaseGraph graph = new BaseGraph.Builder(1).create();
+        int size = 10;
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++)
+                graph.getNodeAccess().setNode(row * size + col, 0.001 * row, 0.001 * col);
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++) {
+                if (col + 1 < size)
+                    graph.edge(row * size + col, row * size + col + 1);
+                if (row + 1 < size)
+                    graph.edge(row * size + col, (row + 1) * size + col);
+            }
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+
+        org.locationtech.jts.geom.Polygon triangle = new GeometryFactory().createPolygon(new Coordinate[]{
+                new Coordinate(0.0015, 0.0015), new Coordinate(0.0075, 0.0025), new Coordinate(0.0035, 0.0065),
+                new Coordinate(0.0015, 0.0015)});
+        AreaEdgeCache cache = new AreaEdgeCache(graph, locationIndex, 10);
+        AreaEdgeSet area = cache.get(triangle);
+        assertTrue(area.isPrecomputed());
+        assertEquals(1, cache.getSize());
+        Polygon polygon = area.getPolygon();
+        int inside = 0;
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            boolean expected = CustomWeightingHelper.in(polygon, edgeState);
+            assertEquals(expected, area.contains(edgeState), "edge " + edge);
+            if (expected)
+                inside++;
+        }
+        assertTrue(inside > 10, "inside: " + inside);
+
+        // the same area is only looked up once
+        AreaEdgeSet sameArea = cache.get(triangle.copy());
+        assertEquals(1, cache.getSize());
+        assertTrue(sameArea.contains(graph.getEdgeIteratorState(findInside(graph, area), Integer.MIN_VALUE)));
+
+        // virtual edges are checked against the polygon: the edge from 42 to 43 crosses the border of the area
+        Snap snap = locationIndex.findClosest(0.004, 0.0022, EdgeFilter.ALL_EDGES);
+        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(graph.getNodes());
+        int virtualEdges = 0, virtualEdgesInside = 0;
+        while (iter.next()) {
+            assertEquals(CustomWeightingHelper.in(polygon, iter), area.contains(iter));
+            virtualEdges++;
+            if (area.contains(iter))
+                virtualEdgesInside++;
+        }
+        assertEquals(2, virtualEdges);
+        assertEquals(1, virtualEdgesInside);
+    }
+
+    private static int findInside(BaseGraph graph, AreaEdgeSet area) {
+        for (int edge = 0; edge < graph.getEdges(); edge++)
+            if (area.contains(graph.getEdgeIteratorState(edge, Integer.MIN_VALUE)))
+                return edge;
+        throw new IllegalStateException("no edge inside");
+    }
+}
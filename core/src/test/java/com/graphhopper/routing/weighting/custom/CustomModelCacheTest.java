@@ -0,0 +1,151 @@
+package com.graphhopper.routing.weighting.custom;
+
+import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.JsonFeature;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.graphhopper.json.Statement.if1;
+import static com.graphhopper.json.Statement.Op.LIMIT;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomModelCacheTest {
+
+    private static CustomModelCache.Key key(CustomModel customModel) {
+        return new CustomModelCache.Key(customModel, "car_average_speed", 140, "", 1);
+    }
+
+    private static CustomModelCache.CompiledModel compiled() {
+        return new CustomModelCache.CompiledModel(Object.class, Collections.emptySet());
+    }
+
+    @Test
+    void structuralKey() {
+        CustomModel model1 = new CustomModel();
+        model1.addToPriority(if1("road_class == PRIMARY", MULTIPLY, "0.5"));
+        model1.addToSpeed(if1("true", LIMIT, "100"));
+        CustomModel model2 = new CustomModel();
+        model2.addToPriority(if1(" road_class == PRIMARY ", MULTIPLY, "0.5"));
+        model2.addToSpeed(if1("true", LIMIT, "100"));
+        model2.setDistanceInfluence(100);
+        model2.getAreas().put("area1", new JsonFeature("area1", "Feature", null,
+                new GeometryFactory().createPoint(new Coordinate(1, 1)), Collections.emptyMap()));
+        assertEquals(key(model1), key(model2));
+        assertEquals(key(model1).hashCode(), key(model2).hashCode());
+
+        // the same statement for the speed instead of the priority
+        CustomModel model3 = new CustomModel();
+        model3.addToSpeed(if1("road_class == PRIMARY", MULTIPLY, "0.5"));
+        model3.addToSpeed(if1("true", LIMIT, "100"));
+        assertNotEquals(key(model1), key(model3));
+        assertNotEquals(key(model1), new CustomModelCache.Key(model1, "bike_average_speed", 140, "", 1));
+    }
+
+    @Test
+    void compileOnlyOnce() throws Exception {
+        CustomModelCache cache = new CustomModelCache(10);
+        CustomModel customModel = new CustomModel();
+        customModel.addToPriority(if1("road_class == PRIMARY", MULTIPLY, "0.5"));
+        AtomicInteger compilations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CustomModelCache.CompiledModel>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(key(customModel), false, () -> {
+                        compilations.incrementAndGet();
+                        try {
+                            Thread.sleep(100);
+                        } catch (InterruptedException ex) {
+                            throw new RuntimeException(ex);
+                        }
+                        return compiled();
+                    });
+                }));
+            }
+            start.countDown();
+            CustomModelCache.CompiledModel first = futures.get(0).get();
+            for (Future<CustomModelCache.CompiledModel> future : futures)
+                assertSame(first, future.get());
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, compilations.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(7, cache.getHits());
+        assertTrue(cache.getCompileMillis() >= 100);
+    }
+
+    @Test
+    void doNotCacheErrors() {
+        CustomModelCache cache = new CustomModelCache(10);
+        CustomModel customModel = new CustomModel();
+        customModel.addToPriority(if1("road_class == PRIMARY", MULTIPLY, "0.5"));
+        assertThrows(IllegalArgumentException.class, () -> cache.get(key(customModel), false, () -> {
+            throw new IllegalArgumentException("invalid");
+        }));
+        assertEquals(0, cache.getSize());
+        assertNotNull(cache.get(key(customModel), false, CustomModelCacheTest::compiled));
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    void waitingRequestsFailOnError() throws Exception {
+        CustomModelCache cache = new CustomModelCache(10);
+        CustomModel customModel = new CustomModel();
+        customModel.addToPriority(if1("road_class == PRIMARY", MULTIPLY, "0.5"));
+        CountDownLatch compiling = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<CustomModelCache.CompiledModel> first = executor.submit(() -> cache.get(key(customModel), false, () -> {
+                compiling.countDown();
+                try {
+                    fail.await();
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                throw new StackOverflowError();
+            }));
+            compiling.await();
+            Future<CustomModelCache.CompiledModel> second = executor.submit(() -> cache.get(key(customModel), false, CustomModelCacheTest::compiled));
+            // wait until the second request found the entry that is still compiling
+            while (cache.getHits() == 0)
+                Thread.sleep(1);
+            fail.countDown();
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof StackOverflowError);
+            ex = assertThrows(ExecutionException.class, () -> second.get(10, TimeUnit.SECONDS));
+            assertTrue(ex.getCause() instanceof StackOverflowError);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void keepInternalModels() {
+        CustomModelCache cache = new CustomModelCache(10);
+        CustomModel internal = new CustomModel();
+        internal.addToPriority(if1("road_class == PRIMARY", MULTIPLY, "0.5"));
+        CustomModelCache.CompiledModel internalModel = cache.get(key(internal), true, CustomModelCacheTest::compiled);
+        for (int i = 0; i < 30; i++) {
+            CustomModel customModel = new CustomModel();
+            customModel.addToPriority(if1("road_class == PRIMARY", MULTIPLY, "0.0" + i));
+            cache.get(key(customModel), false, CustomModelCacheTest::compiled);
+            assertTrue(cache.getSize() <= 11, "size: " + cache.getSize());
+        }
+        assertSame(internalModel, cache.get(key(internal), false, () -> fail("internal model was removed")));
+        assertEquals(31, cache.getMisses());
+    }
+}
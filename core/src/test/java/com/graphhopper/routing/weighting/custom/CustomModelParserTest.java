@@ -234,6 +234,40 @@ class CustomModelParserTest {
                         avgSpeedEnc, maxSpeed, null));
     }
 
+    @Test
+    void areasAreCheckedForCachedModels() {
+        Coordinate[] coordinates = new Coordinate[]{
+                new Coordinate(48.0, 11.0), new Coordinate(48.0, 11.5), new Coordinate(48.5, 11.5),
+                new Coordinate(48.5, 11.0), new Coordinate(48.0, 11.0)};
+        CustomModel customModel = new CustomModel();
+        customModel.getAreas().put("area_1", new JsonFeature("area_1", "Feature", null,
+                new GeometryFactory().createPolygon(coordinates), new HashMap<>()));
+        customModel.addToSpeed(if1("in_area_1", LIMIT, "55"));
+        CustomModelParser.createWeightingParameters(customModel, encodingManager, avgSpeedEnc, maxSpeed, null);
+
+        // the compiled class is reused for a different area with the same name, but the area is still validated
+        long misses = CustomModelParser.getCache().getMisses();
+        CustomModel otherArea = new CustomModel();
+        otherArea.getAreas().put("area_1", new JsonFeature("area_1", "Feature", null,
+                new GeometryFactory().createPolygon(new Coordinate[]{
+                        new Coordinate(47.0, 11.0), new Coordinate(47.0, 11.5), new Coordinate(47.5, 11.5),
+                        new Coordinate(47.0, 11.0)}), new HashMap<>()));
+        otherArea.addToSpeed(if1("in_area_1", LIMIT, "55"));
+        CustomModelParser.createWeightingParameters(otherArea, encodingManager, avgSpeedEnc, maxSpeed, null);
+        assertEquals(misses, CustomModelParser.getCache().getMisses());
+
+        CustomModel point = new CustomModel();
+        point.getAreas().put("area_1", new JsonFeature("area_1", "Feature", null,
+                new GeometryFactory().createPoint(new Coordinate(48.0, 11.0)), new HashMap<>()));
+        point.addToSpeed(if1("in_area_1", LIMIT, "55"));
+        assertThrows(IllegalArgumentException.class, () ->
+                CustomModelParser.createWeightingParameters(point, encodingManager, avgSpeedEnc, maxSpeed, null));
+        CustomModel missing = new CustomModel();
+        missing.addToSpeed(if1("in_area_1", LIMIT, "55"));
+        assertThrows(IllegalArgumentException.class, () ->
+                CustomModelParser.createWeightingParameters(missing, encodingManager, avgSpeedEnc, maxSpeed, null));
+    }
+
     @Test
      void parseValue() {
         DecimalEncodedValue maxSpeedEnc = encodingManager.getDecimalEncodedValue(MaxSpeed.KEY);
@@ -10,6 +10,7 @@ import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.MMapDataAccess;
 import com.graphhopper.util.CustomModel;
+import com.graphhopper.util.EdgeIterator;
 import com.graphhopper.util.EdgeIteratorState;
 import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.JsonFeature;
@@ -85,6 +86,26 @@ class CustomWeightingTest {
         assertEquals(2 * 36, createWeighting(model).calcEdgeWeight(fast, false), .1);
     }
 
+    @Test
+     void calcEdgeWeightWithAccess() {
+        GHUtility.setSpeed(50, 100, accessEnc, avSpeedEnc, graph.edge(0, 1).setDistance(1000).set(roadClassEnc, PRIMARY));
+        GHUtility.setSpeed(60, true, false, accessEnc, avSpeedEnc, graph.edge(0, 2).setDistance(500));
+        GHUtility.setSpeed(60, false, true, accessEnc, avSpeedEnc, graph.edge(3, 0).setDistance(500));
+        // loops are only accessible in forward direction
+        GHUtility.setSpeed(60, false, true, accessEnc, avSpeedEnc, graph.edge(0, 0).setDistance(100));
+        GHUtility.setSpeed(60, true, false, accessEnc, avSpeedEnc, graph.edge(0, 0).setDistance(200));
+        CustomModel model = new CustomModel().setDistanceInfluence(70);
+        model.addToPriority(if1("road_class == PRIMARY", MULTIPLY, "0.5"));
+        Weighting weighting = createWeighting(model);
+        for (boolean reverse : new boolean[]{false, true}) {
+            EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(0);
+            while (iter.next()) {
+                double expected = weighting.edgeHasNoAccess(iter, reverse) ? Double.POSITIVE_INFINITY : weighting.calcEdgeWeight(iter, reverse);
+                assertEquals(expected, weighting.calcEdgeWeightWithAccess(iter, reverse), 1.e-6, iter.toString());
+            }
+        }
+    }
+
     @Test
      void withDistanceInfluence() {
         EdgeIteratorState edge = graph.edge(0, 1).setDistance(10_000).set(avSpeedEnc, 50).set(accessEnc, true, true);
@@ -304,4 +304,67 @@ import static org.junit.jupiter.api.Assertions.*;
         edge.set(rcEnc, RoadClass.CORRIDOR);
         assertEquals(RoadClass.CORRIDOR, edge.get(rcEnc));
     }
+
+    @Test
+     void fetchWayGeometryIntoList() throws MMapDataAccess.MappaExce {
+        for (boolean is3D : new boolean[]{false, true}) {
+            BaseGraph graph = createGHStorage(defaultGraphLoc, is3D);
+            NodeAccess na = graph.getNodeAccess();
+            na.setNode(0, 1, 0, 10);
+            na.setNode(1, 1, 2.5, 20);
+            na.setNode(2, 0, 0, 30);
+            graph.edge(0, 1).setWayGeometry(is3D
+                    ? Helper.createPointList3D(1.5, 1, 11, 1.5, 1.5, 12, 1.2, 2, 13)
+                    : Helper.createPointList(1.5, 1, 1.5, 1.5, 1.2, 2));
+            graph.edge(0, 2);
+            graph.edge(2, 2).setWayGeometry(is3D ? Helper.createPointList3D(0.5, 0.5, 31) : Helper.createPointList(0.5, 0.5));
+            // the tower nodes are 0=(1,0,10), 1=(1,2.5,20) and 2=(0,0,30)
+            for (boolean reverse : new boolean[]{false, true}) {
+                assertWayGeometry(graph, 1, reverse, PILLAR_ONLY);
+                assertWayGeometry(graph, 2, reverse, PILLAR_ONLY, 0.5, 0.5, 31);
+                assertWayGeometry(graph, 2, reverse, TOWER_ONLY, 0, 0, 30, 0, 0, 30);
+                assertWayGeometry(graph, 2, reverse, BASE_AND_PILLAR, 0, 0, 30, 0.5, 0.5, 31);
+                assertWayGeometry(graph, 2, reverse, PILLAR_AND_ADJ, 0.5, 0.5, 31, 0, 0, 30);
+                assertWayGeometry(graph, 2, reverse, ALL, 0, 0, 30, 0.5, 0.5, 31, 0, 0, 30);
+            }
+            assertWayGeometry(graph, 0, false, TOWER_ONLY, 1, 0, 10, 1, 2.5, 20);
+            assertWayGeometry(graph, 0, false, PILLAR_ONLY, 1.5, 1, 11, 1.5, 1.5, 12, 1.2, 2, 13);
+            assertWayGeometry(graph, 0, false, BASE_AND_PILLAR, 1, 0, 10, 1.5, 1, 11, 1.5, 1.5, 12, 1.2, 2, 13);
+            assertWayGeometry(graph, 0, false, PILLAR_AND_ADJ, 1.5, 1, 11, 1.5, 1.5, 12, 1.2, 2, 13, 1, 2.5, 20);
+            assertWayGeometry(graph, 0, false, ALL, 1, 0, 10, 1.5, 1, 11, 1.5, 1.5, 12, 1.2, 2, 13, 1, 2.5, 20);
+            assertWayGeometry(graph, 0, true, TOWER_ONLY, 1, 2.5, 20, 1, 0, 10);
+            assertWayGeometry(graph, 0, true, PILLAR_ONLY, 1.2, 2, 13, 1.5, 1.5, 12, 1.5, 1, 11);
+            assertWayGeometry(graph, 0, true, BASE_AND_PILLAR, 1, 2.5, 20, 1.2, 2, 13, 1.5, 1.5, 12, 1.5, 1, 11);
+            assertWayGeometry(graph, 0, true, PILLAR_AND_ADJ, 1.2, 2, 13, 1.5, 1.5, 12, 1.5, 1, 11, 1, 0, 10);
+            assertWayGeometry(graph, 0, true, ALL, 1, 2.5, 20, 1.2, 2, 13, 1.5, 1.5, 12, 1.5, 1, 11, 1, 0, 10);
+            assertWayGeometry(graph, 1, false, TOWER_ONLY, 1, 0, 10, 0, 0, 30);
+            assertWayGeometry(graph, 1, false, BASE_AND_PILLAR, 1, 0, 10);
+            assertWayGeometry(graph, 1, false, PILLAR_AND_ADJ, 0, 0, 30);
+            assertWayGeometry(graph, 1, false, ALL, 1, 0, 10, 0, 0, 30);
+            assertWayGeometry(graph, 1, true, TOWER_ONLY, 0, 0, 30, 1, 0, 10);
+            assertWayGeometry(graph, 1, true, BASE_AND_PILLAR, 0, 0, 30);
+            assertWayGeometry(graph, 1, true, PILLAR_AND_ADJ, 1, 0, 10);
+            assertWayGeometry(graph, 1, true, ALL, 0, 0, 30, 1, 0, 10);
+            graph.close();
+        }
+    }
+
+    /**
+     * Fetches the way geometry of the given edge into a list that already contains a point and checks that the given
+     * points were appended. The elevations are ignored for 2D graphs.
+     */
+    private static void assertWayGeometry(BaseGraph graph, int edge, boolean reverse, FetchMode mode, double... expectedLatLonEle) {
+        boolean is3D = graph.getNodeAccess().is3D();
+        EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+        if (reverse)
+            edgeState = edgeState.detach(true);
+        PointList expected = new PointList(10, is3D);
+        expected.add(-1, -1, is3D ? -1 : Double.NaN);
+        for (int i = 0; i < expectedLatLonEle.length; i += 3)
+            expected.add(expectedLatLonEle[i], expectedLatLonEle[i + 1], is3D ? expectedLatLonEle[i + 2] : Double.NaN);
+        PointList target = new PointList(1, is3D);
+        target.add(-1, -1, is3D ? -1 : Double.NaN);
+        edgeState.fetchWayGeometry(mode, target);
+        assertEquals(expected, target, "edge: " + edgeState + ", mode: " + mode + ", 3D: " + is3D);
+    }
 }
@@ -0,0 +1,83 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.PrecomputedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static com.graphhopper.json.Statement.if1;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+import static com.graphhopper.routing.weighting.TurnCostProvider.NO_TURN_COST_PROVIDER;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeWeightStorageTest {
+
+    @Test
+    void sameWeightsAsWeighting() throws MMapDataAccess.MappaExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, RAMDataAccess.RamExce {
+        BooleanEncodedValue accessEnc = VehicleAccess.create("car");
+        DecimalEncodedValue speedEnc = VehicleSpeed.create("car", 5, 5, true);
+        EncodingManager em = new EncodingManager.Builder().add(accessEnc).add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(new GHUtility.Salmo(graph, new Random(seed), 50, 2.2, true, true), accessEnc, speedEnc, null, 0.7, 0.8, 0.8);
+        // loops are only accessible in forward direction
+        GHUtility.setSpeed(60, false, true, accessEnc, speedEnc, graph.edge(3, 3).setDistance(100));
+        GHUtility.setSpeed(60, true, false, accessEnc, speedEnc, graph.edge(4, 4).setDistance(100));
+        CustomModel customModel = new CustomModel().setDistanceInfluence(70);
+        customModel.addToPriority(if1("true", MULTIPLY, "0.9"));
+        Weighting weighting = CustomModelParser.createWeighting(accessEnc, speedEnc, null, em, NO_TURN_COST_PROVIDER, customModel);
+
+        String dir = "./target/edge-weights-test";
+        Helper.removeDir(new File(dir));
+        EdgeWeightStorage storage = new EdgeWeightStorage(new RAMDirectory(dir, true).create(), "car").create(graph.getEdges());
+        storage.calcWeights(graph, weighting);
+        storage.flush();
+        storage.close();
+        storage = new EdgeWeightStorage(new RAMDirectory(dir, true), "car");
+        assertTrue(storage.loadExisting());
+        assertEquals(graph.getEdges(), storage.getEdges());
+
+        PrecomputedWeighting precomputed = new PrecomputedWeighting(weighting, storage);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (boolean reverse : new boolean[]{false, true}) {
+                EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(node);
+                while (iter.next()) {
+                    double expected = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, reverse, EdgeIterator.NO_EDGE);
+                    double weight = precomputed.calcEdgeWeight(iter, reverse);
+                    String msg = "edge " + iter + ", reverse: " + reverse + ", seed: " + seed;
+                    // the stored weights are rounded up
+                    assertTrue(weight >= expected, msg);
+                    assertEquals(expected, weight, 1.e-5 * expected, msg);
+                    assertEquals(weighting.calcEdgeWeightWithAccess(iter, reverse), precomputed.calcEdgeWeightWithAccess(iter, reverse), 1.e-5 * expected, msg);
+                    if (!Double.isInfinite(expected))
+                        assertEquals(weighting.calcEdgeMillis(iter, reverse), precomputed.calcEdgeMillis(iter, reverse), msg);
+                }
+            }
+        }
+        storage.close();
+        Helper.removeDir(new File(dir));
+    }
+}
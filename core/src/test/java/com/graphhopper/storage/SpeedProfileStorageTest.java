@@ -0,0 +1,111 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.graphhopper.storage.SpeedProfileStorage.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpeedProfileStorageTest {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private static double[] rushHour() {
+        // half the speed from 7:00 to 9:00, with 15 minutes to slow down and to speed up again
+        double[] factors = new double[SLOTS];
+        Arrays.fill(factors, 1);
+        for (int slot = 7 * 4 + 1; slot < 9 * 4; slot++)
+            factors[slot] = 0.5;
+        return factors;
+    }
+
+    @Test
+    void factors() throws MMapDataAccess.MappaExce {
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory()).create(100);
+        int profile = storage.addProfile(rushHour());
+        assertEquals(1, storage.getFactor(profile, 6 * HOUR), 1.e-6);
+        assertEquals(1, storage.getFactor(profile, 7 * HOUR), 1.e-6);
+        assertEquals(0.75, storage.getFactor(profile, 7 * HOUR + HOUR / 8), 1.e-6);
+        assertEquals(0.5, storage.getFactor(profile, 8 * HOUR), 1.e-6);
+        // the next day
+        assertEquals(0.5, storage.getFactor(profile, 32 * HOUR), 1.e-6);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.addProfile(new double[10]));
+        double[] faster = rushHour();
+        faster[3] = 1.2;
+        assertThrows(IllegalArgumentException.class, () -> storage.addProfile(faster));
+    }
+
+    @Test
+    void edges() throws MMapDataAccess.MappaExce {
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory()).create(100);
+        int profile = storage.addProfile(rushHour());
+        assertEquals(NO_PROFILE, storage.getProfile(1000));
+        storage.setProfile(1000, profile);
+        assertEquals(profile, storage.getProfile(1000));
+        assertEquals(NO_PROFILE, storage.getProfile(999));
+        storage.setProfile(1000, NO_PROFILE);
+        assertEquals(NO_PROFILE, storage.getProfile(1000));
+        assertThrows(IllegalArgumentException.class, () -> storage.setProfile(3, 1));
+    }
+
+    @Test
+    void calcMillis() throws MMapDataAccess.MappaExce {
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory()).create(100);
+        int profile = storage.addProfile(rushHour());
+        assertEquals(HOUR, storage.calcMillis(NO_PROFILE, HOUR, 8 * HOUR));
+        assertEquals(HOUR / 4, storage.calcMillis(profile, HOUR / 4, 6 * HOUR));
+        // half the speed takes twice as long
+        assertEquals(HOUR / 2, storage.calcMillis(profile, HOUR / 4, 8 * HOUR));
+        // 10 minutes at full speed, then the rush hour starts and the speed decreases linearly
+        long millis = storage.calcMillis(profile, HOUR / 4, 7 * HOUR - HOUR / 6);
+        assertTrue(millis > HOUR / 4 && millis < HOUR / 2, "millis: " + millis);
+        // an edge entered later is never left earlier
+        Random rnd = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long edgeMillis = rnd.nextInt((int) HOUR);
+            long time = rnd.nextInt((int) (24 * HOUR));
+            long later = time + rnd.nextInt((int) HOUR);
+            assertTrue(time + storage.calcMillis(profile, edgeMillis, time) <= later + storage.calcMillis(profile, edgeMillis, later) + 1);
+        }
+    }
+
+    @Test
+    void store() throws MMapDataAccess.MappaExce, MMapDataAccess.MapExce, RAMDataAccess.RamExce2, RAMIntDataAccess.RamIntExce, RAMDataAccess.RamExce {
+        String dir = "./target/speed-profiles-test";
+        Helper.removeDir(new File(dir));
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory(dir, true).create()).create(100);
+        int profile = storage.addProfile(rushHour());
+        storage.setProfile(5, profile);
+        storage.flush();
+        storage.close();
+
+        storage = new SpeedProfileStorage(new RAMDirectory(dir, true));
+        assertTrue(storage.loadExisting());
+        assertEquals(1, storage.getProfileCount());
+        assertEquals(profile, storage.getProfile(5));
+        assertEquals(0.5, storage.getFactor(profile, 8 * HOUR), 1.e-6);
+        storage.close();
+        Helper.removeDir(new File(dir));
+    }
+}
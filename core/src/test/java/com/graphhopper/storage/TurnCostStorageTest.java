@@ -19,15 +19,13 @@
 package com.graphhopper.storage;
 
 import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 import static com.graphhopper.util.GHUtility.getEdge;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -155,6 +153,46 @@ public class TurnCostStorageTest {
         assertEquals(expectedTurnCosts, turnCosts);
     }
 
+    @Test
+     void testFreeze() throws MMapDataAccess.MappaExce {
+        BaseGraph g = new BaseGraph.Builder(manager).withTurnCosts(true).create();
+        initGraph(g, accessEnc, speedEnc);
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+        // add the entries of the nodes interleaved and not in sorted order
+        Random rnd = new Random(123);
+        List<int[]> relations = new ArrayList<>();
+        AllEdgesIterator from = g.getAllEdges();
+        while (from.next()) {
+            AllEdgesIterator to = g.getAllEdges();
+            while (to.next())
+                if (from.getEdge() != to.getEdge())
+                    for (int node : new int[]{from.getBaseNode(), from.getAdjNode()})
+                        if (node == to.getBaseNode() || node == to.getAdjNode())
+                            relations.add(new int[]{from.getEdge(), node, to.getEdge(), rnd.nextInt(4)});
+        }
+        Collections.shuffle(relations, rnd);
+        for (int[] r : relations)
+            turnCostStorage.set(carTurnCostEnc, r[0], r[1], r[2], r[3] == 3 ? Double.POSITIVE_INFINITY : r[3]);
+
+        g.freeze();
+        for (int[] r : relations)
+            assertEquals(r[3] == 3 ? Double.POSITIVE_INFINITY : r[3], turnCostStorage.get(carTurnCostEnc, r[0], r[1], r[2]));
+        int edge01 = getEdge(g, 0, 1).getEdge();
+        int edge24 = getEdge(g, 2, 4).getEdge();
+        assertEquals(0, turnCostStorage.get(carTurnCostEnc, edge01, 2, edge24));
+        int count = 0;
+        TurnCostStorage.Iterator iterator = turnCostStorage.getAllTurnCosts();
+        while (iterator.next())
+            count++;
+        assertEquals(relations.size(), count);
+
+        // entries can still be added after sorting
+        turnCostStorage.set(bikeTurnCostEnc, edge01, 0, getEdge(g, 0, 2).getEdge(), 2);
+        assertEquals(2, turnCostStorage.get(bikeTurnCostEnc, edge01, 0, getEdge(g, 0, 2).getEdge()));
+        for (int[] r : relations)
+            assertEquals(r[3] == 3 ? Double.POSITIVE_INFINITY : r[3], turnCostStorage.get(carTurnCostEnc, r[0], r[1], r[2]));
+    }
+
     @Test
      void testIterateEmptyStore() throws MMapDataAccess.MappaExce {
         BaseGraph g = new BaseGraph.Builder(manager).withTurnCosts(true).create();
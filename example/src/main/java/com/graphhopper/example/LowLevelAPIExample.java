@@ -112,7 +112,7 @@ public class LowLevelAPIExample {
             graph.freeze();
             PrepareContractionHierarchies pch = PrepareContractionHierarchies.fromGraph(graph, chConfig);
             PrepareContractionHierarchies.Result pchRes = pch.doWork();
-            RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, pchRes.getCHStorage(), pchRes.getCHConfig());
+            RoutingCHGraph chGraph = RoutingCHGraphImpl.fromGraph(graph, pchRes.getCHStorage(), pchRes.getCHConfig(), pchRes.getShortcutMetadata());
 
             // create location index
             LocationIndexTree index = new LocationIndexTree(graph, graph.getDirectory());
@@ -0,0 +1,184 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PathExtractor;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * An edge-based Dijkstra that calculates the paths from one map matching candidate to all candidates of the next
+ * observation in a single search. The search stops as soon as all targets are settled, or when there are no paths
+ * left that are shorter than the given maximum distance. Targets that were not settled get a path that is not found.
+ * <p>
+ * Every target gets the path with the smallest weight among the paths that are not longer than the maximum distance.
+ * Therefore a label only dominates another label of the same edge if it is neither heavier nor longer, and every edge
+ * keeps a list of the labels that are not dominated.
+ * <p>
+ * The collections are kept between the searches, so one instance should be re-used for all transitions of a trace.
+ * An instance must not be used by several threads at the same time.
+ */
+public class BoundedOneToManyDijkstra {
+    private final Weighting weighting;
+    private final IntObjectMap<Label> bestLabels = new GHIntObjectHashMap<>(200);
+    private final PriorityQueue<Label> heap = new PriorityQueue<>(200);
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private int visitedNodes;
+
+    public BoundedOneToManyDijkstra(Weighting weighting) {
+        this.weighting = weighting;
+    }
+
+    public BoundedOneToManyDijkstra setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+        return this;
+    }
+
+    /**
+     * @param fromOutEdge the first edge of all paths or {@link EdgeIterator#ANY_EDGE}
+     * @param toInEdges   the last edge of the path to the target with the same index or {@link EdgeIterator#ANY_EDGE}
+     * @param maxDistance paths longer than this distance [m] are not considered, even if they have a smaller weight
+     * @return one path per target, in the order of the targets
+     */
+    public List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges, double maxDistance) {
+        if (toNodes.length != toInEdges.length)
+            throw new IllegalArgumentException("The lengths of toNodes and toInEdges arrays are not equal.");
+        Weighting queryGraphWeighting = queryGraph.wrapWeighting(weighting);
+        EdgeExplorer explorer = queryGraph.createEdgeExplorer();
+        SPTEntry[] targetEntries = new SPTEntry[toNodes.length];
+        int remaining = toNodes.length;
+        bestLabels.clear();
+        heap.clear();
+        visitedNodes = 0;
+        heap.add(new Label(EdgeIterator.NO_EDGE, fromNode, 0, 0, null));
+
+        while (!heap.isEmpty() && remaining > 0) {
+            Label curr = heap.poll();
+            if (curr.isDeleted())
+                continue;
+            remaining -= settleTargets(curr, fromOutEdge, toNodes, toInEdges, targetEntries);
+            if (remaining == 0 || ++visitedNodes > maxVisitedNodes)
+                break;
+
+            EdgeIterator iter = explorer.setBaseNode(curr.getAdjNode());
+            while (iter.next()) {
+                if (curr.getEdge() == EdgeIterator.NO_EDGE && fromOutEdge != ANY_EDGE && iter.getEdge() != fromOutEdge)
+                    continue;
+                double distance = curr.distance + iter.getDistance();
+                if (distance > maxDistance)
+                    continue;
+                double weight = GHUtility.calcWeightWithTurnWeightWithAccess(queryGraphWeighting, iter, false, curr.getEdge()) + curr.getWeight();
+                if (Double.isInfinite(weight))
+                    continue;
+                int traversalId = TraversalMode.EDGE_BASED.createTraversalId(iter, false);
+                Label first = bestLabels.get(traversalId);
+                if (isDominated(first, weight, distance))
+                    continue;
+                Label label = new Label(iter.getEdge(), iter.getAdjNode(), weight, distance, curr);
+                label.next = removeDominated(first, weight, distance);
+                bestLabels.put(traversalId, label);
+                heap.add(label);
+            }
+        }
+
+        List<Path> result = new ArrayList<>(toNodes.length);
+        for (SPTEntry entry : targetEntries) {
+            result.add(PathExtractor.extractPath(queryGraph, queryGraphWeighting, entry));
+        }
+        return result;
+    }
+
+    private static boolean isDominated(Label label, double weight, double distance) {
+        for (; label != null; label = label.next) {
+            if (label.getWeight() <= weight && label.distance <= distance)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Marks the labels of the given list that are dominated by a new label as deleted and returns the remaining list.
+     */
+    private static Label removeDominated(Label first, double weight, double distance) {
+        Label head = null, tail = null;
+        for (Label label = first; label != null; label = label.next) {
+            if (label.getWeight() >= weight && label.distance >= distance) {
+                label.setDeleted();
+                continue;
+            }
+            if (tail == null)
+                head = label;
+            else
+                tail.next = label;
+            tail = label;
+        }
+        if (tail != null)
+            tail.next = null;
+        return head;
+    }
+
+    /**
+     * Stores the given label for all targets it reaches for the first time and returns the number of these targets.
+     */
+    private static int settleTargets(Label label, int fromOutEdge, int[] toNodes, int[] toInEdges, SPTEntry[] targetEntries) {
+        int settled = 0;
+        for (int i = 0; i < toNodes.length; i++) {
+            if (targetEntries[i] != null || toNodes[i] != label.getAdjNode())
+                continue;
+            if (label.getEdge() == EdgeIterator.NO_EDGE) {
+                // the empty path is only allowed when the directions are not restricted, see AbstractBidirAlgo
+                if (fromOutEdge != ANY_EDGE || toInEdges[i] != ANY_EDGE)
+                    continue;
+            } else if (toInEdges[i] != ANY_EDGE && toInEdges[i] != label.getEdge()) {
+                continue;
+            }
+            targetEntries[i] = label;
+            settled++;
+        }
+        return settled;
+    }
+
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    private static class Label extends SPTEntry {
+        final double distance;
+        // the next label that is not dominated for the same edge
+        Label next;
+
+        Label(int edge, int adjNode, double weight, double distance, Label parent) {
+            super(edge, adjNode, weight, parent);
+            this.distance = distance;
+        }
+    }
+}
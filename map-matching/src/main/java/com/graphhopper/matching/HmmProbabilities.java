@@ -62,4 +62,16 @@ public class HmmProbabilities {
         return Distributions.logExponentialDistribution(beta, transitionMetric);
     }
 
+    /**
+     * Returns the maximum length [m] of a route between two consecutive map matching candidates for which the
+     * logarithmic transition probability is still at least minTransitionLogProbability.
+     *
+     * @param linearDistance Linear distance [m] between two consecutive GPS
+     *                       measurements.
+     */
+    public double maxRouteLength(double linearDistance, double minTransitionLogProbability) {
+        // solves log(1/beta) - (routeLength - linearDistance) / beta >= minTransitionLogProbability
+        return linearDistance + Math.max(0, beta * (Math.log(1.0 / beta) - minTransitionLogProbability));
+    }
+
 }
@@ -21,7 +21,6 @@ import com.carrotsearch.hppc.IntHashSet;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.routing.AStarBidirection;
-import com.graphhopper.routing.DijkstraBidirectionRef;
 import com.graphhopper.routing.Path;
 import com.graphhopper.routing.ev.BooleanEncodedValue;
 import com.graphhopper.routing.ev.Subnetwork;
@@ -42,6 +41,8 @@ import com.graphhopper.util.shapes.BBox;
 import org.locationtech.jts.geom.Envelope;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 
@@ -69,6 +70,7 @@ public class MapMatching {
     private final LocationIndexTree locationIndex;
     private double measurementErrorSigma = 50.0;
     private double transitionProbabilityBeta = 2.0;
+    private double minTransitionLogProbability = -1000;
     private final DistanceCalc distanceCalc = new DistancePlaneProjection();
     private QueryGraph queryGraph;
 
@@ -110,6 +112,8 @@ public class MapMatching {
         BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileStr));
         DefaultSnapFilter snapFilter = new DefaultSnapFilter(weighting, inSubnetworkEnc);
         int maxVisitedNodes = hints.getInt(Parameters.Routing.MAX_VISITED_NODES, Integer.MAX_VALUE);
+        // the one-to-many search keeps its collections, so we use one per thread
+        ThreadLocal<BoundedOneToManyDijkstra> oneToManyDijkstra = ThreadLocal.withInitial(() -> new BoundedOneToManyDijkstra(weighting).setMaxVisitedNodes(maxVisitedNodes));
 
         return new Router() {
             @Override
@@ -119,9 +123,17 @@ public class MapMatching {
 
             @Override
             public List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges) throws MapExc {
+                return calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges, Double.POSITIVE_INFINITY);
+            }
+
+            @Override
+            public List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges, double maxDistance) throws MapExc {
                 if (toNodes.length != toInEdges.length) {
                     throw new MapExc("The lengths of toNodes and toInEdges arrays are not equal.");
                 }
+                if (landmarks == null)
+                    // without landmarks a single Dijkstra for all targets is much faster than one search per target
+                    return oneToManyDijkstra.get().calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges, maxDistance);
 
                 List<Path> result = new ArrayList<>();
                 for (int i = 0; i < toNodes.length; i++) {
@@ -131,28 +143,17 @@ public class MapMatching {
             }
 
             private Path calcOnePath(QueryGraph queryGraph, int fromNode, int toNode, int fromOutEdge, int toInEdge) {
-                if (landmarks != null) {
-                    AStarBidirection aStarBidirection = new AStarBidirection(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.EDGE_BASED) {
-                        @Override
-                        protected void initCollections(int size) {
-                            super.initCollections(50);
-                        }
-                    };
-                    int activeLM = Math.min(8, landmarks.getLandmarkCount());
-                    LMApproximator lmApproximator = LMApproximator.forLandmarks(queryGraph, landmarks, activeLM);
-                    aStarBidirection.setApproximation(lmApproximator);
-                    aStarBidirection.setMaxVisitedNodes(maxVisitedNodes);
-                    return aStarBidirection.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
-                } else {
-                    DijkstraBidirectionRef dijkstraBidirectionRef = new DijkstraBidirectionRef(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.EDGE_BASED) {
-                        @Override
-                        protected void initCollections(int size) {
-                            super.initCollections(50);
-                        }
-                    };
-                    dijkstraBidirectionRef.setMaxVisitedNodes(maxVisitedNodes);
-                    return dijkstraBidirectionRef.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
-                }
+                AStarBidirection aStarBidirection = new AStarBidirection(queryGraph, queryGraph.wrapWeighting(weighting), TraversalMode.EDGE_BASED) {
+                    @Override
+                    protected void initCollections(int size) {
+                        super.initCollections(50);
+                    }
+                };
+                int activeLM = Math.min(8, landmarks.getLandmarkCount());
+                LMApproximator lmApproximator = LMApproximator.forLandmarks(queryGraph, landmarks, activeLM);
+                aStarBidirection.setApproximation(lmApproximator);
+                aStarBidirection.setMaxVisitedNodes(maxVisitedNodes);
+                return aStarBidirection.calcPath(fromNode, toNode, fromOutEdge, toInEdge);
             }
 
             @Override
@@ -198,6 +199,43 @@ public class MapMatching {
         this.measurementErrorSigma = measurementErrorSigma;
     }
 
+    /**
+     * Transitions with a smaller log probability are ignored, which limits the distance of the path searches between
+     * the candidates of consecutive observations. Use Double.NEGATIVE_INFINITY to search without a limit.
+     */
+    public void setMinTransitionLogProbability(double minTransitionLogProbability) {
+        this.minTransitionLogProbability = minTransitionLogProbability;
+    }
+
+    double getMinTransitionLogProbability() {
+        return minTransitionLogProbability;
+    }
+
+    double getMeasurementErrorSigma() {
+        return measurementErrorSigma;
+    }
+
+    double getTransitionProbabilityBeta() {
+        return transitionProbabilityBeta;
+    }
+
+    Router getRouter() {
+        return router;
+    }
+
+    BaseGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Creates a matcher that consumes the observations of a (possibly very long) trace one by one and passes the
+     * matched edges to the given consumer as soon as they are final, see {@link StreamingMapMatching}. The path
+     * searches between the candidates of consecutive observations are run on the given executor.
+     */
+    public StreamingMapMatching createStreamingMatcher(ExecutorService executor, Consumer<EdgeMatch> edgeMatchConsumer) {
+        return new StreamingMapMatching(this, executor, edgeMatchConsumer);
+    }
+
     public MatchResult match(List<Observation> observations) throws MapExc {
         List<Observation> filteredObservations = filterObservations(observations);
         statistics.put("filteredObservations", filteredObservations.size());
@@ -214,7 +252,7 @@ public class MapMatching {
 
         // Creates candidates from the Snaps of all observations (a candidate is basically a
         // Snap + direction).
-        List<ObservationWithCandidateStates> timeSteps = createTimeSteps(filteredObservations, snapsPerObservation);
+        List<ObservationWithCandidateStates> timeSteps = createTimeSteps(queryGraph, filteredObservations, snapsPerObservation);
 
         // Compute the most likely sequence of map matching candidates:
         List<SequenceState<State, Observation, Path>> seq = computeViterbiSequence(timeSteps);
@@ -326,7 +364,7 @@ public class MapMatching {
      * transition probabilities. Creates directed candidates for virtual nodes and undirected
      * candidates for real nodes.
      */
-    private List<ObservationWithCandidateStates> createTimeSteps(List<Observation> filteredObservations, List<Collection<Snap>> splitsPerObservation) {
+    List<ObservationWithCandidateStates> createTimeSteps(QueryGraph queryGraph, List<Observation> filteredObservations, List<? extends Collection<Snap>> splitsPerObservation) {
         if (splitsPerObservation.size() != filteredObservations.size()) {
             throw new IllegalArgumentException(
                     "filteredGPXEntries and queriesPerEntry must have same size.");
@@ -341,7 +379,7 @@ public class MapMatching {
                 if (queryGraph.isVirtualNode(split.getClosestNode())) {
                     List<VirtualEdgeIteratorState> virtualEdges = new ArrayList<>();
                     EdgeIterator iter = queryGraph.createEdgeExplorer().setBaseNode(split.getClosestNode());
-                    fallo(virtualEdges, iter);
+                    fallo(queryGraph, virtualEdges, iter);
                     aForz(virtualEdges.size() != 2, "Each virtual node must have exactly 2 "
                             + "virtual edges (reverse virtual edges are not returned by the "
                             + "EdgeIterator");
@@ -373,7 +411,7 @@ public class MapMatching {
         }
     }
 
-    private void fallo(List<VirtualEdgeIteratorState> virtualEdges, EdgeIterator iter) {
+    private void fallo(QueryGraph queryGraph, List<VirtualEdgeIteratorState> virtualEdges, EdgeIterator iter) {
         while (iter.next()) {
             aForz(!queryGraph.isVirtualEdge(iter.getEdge()), "Virtual nodes must only have virtual edges "
                     + "to adjacent nodes.");
@@ -412,7 +450,8 @@ public class MapMatching {
             int fromOutEdge = from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
             int[] toNodes = nextTimeStep.candidates.stream().mapToInt(c -> c.getSnap().getClosestNode()).toArray();
             int[] toInEdges = nextTimeStep.candidates.stream().mapToInt(to -> to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE).toArray();
-            List<Path> paths = router.calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges);
+            double maxDistance = probabilities.maxRouteLength(linearDistance, minTransitionLogProbability);
+            List<Path> paths = router.calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges, maxDistance);
             for (int i = 0; i < nextTimeStep.candidates.size(); i++) {
                 State to = nextTimeStep.candidates.get(i);
                 Path path = paths.get(i);
@@ -512,14 +551,14 @@ public class MapMatching {
             // transition (except before the first state)
             if (transitionAndState.transitionDescriptor != null) {
                 for (EdgeIteratorState edge : transitionAndState.transitionDescriptor.calcEdges()) {
-                    EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(edge);
+                    EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(queryGraph, edge);
                     states = mero(edgeMatches, states, currentDirectedRealEdge, newDirectedRealEdge);
                     currentDirectedRealEdge = newDirectedRealEdge;
                 }
             }
             // state
             if (transitionAndState.state.isOnDirectedEdge()) { // as opposed to on a node
-                EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(transitionAndState.state.getOutgoingVirtualEdge());
+                EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(queryGraph, transitionAndState.state.getOutgoingVirtualEdge());
                 states = mero(edgeMatches, states, currentDirectedRealEdge, newDirectedRealEdge);
                 currentDirectedRealEdge = newDirectedRealEdge;
             }
@@ -578,13 +617,13 @@ public class MapMatching {
         }
     }
 
-    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
+    static boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
         return edge1.getEdge() == edge2.getEdge()
                 && edge1.getBaseNode() == edge2.getBaseNode()
                 && edge1.getAdjNode() == edge2.getAdjNode();
     }
 
-    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
+    EdgeIteratorState resolveToRealEdge(QueryGraph queryGraph, EdgeIteratorState edgeIteratorState) {
         if (queryGraph.isVirtualNode(edgeIteratorState.getBaseNode()) || queryGraph.isVirtualNode(edgeIteratorState.getAdjNode())) {
             return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
         } else {
@@ -620,6 +659,14 @@ public class MapMatching {
 
         List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges) throws MapExc;
 
+        /**
+         * Like {@link #calcPaths(QueryGraph, int, int, int[], int[])}, but paths that are longer than maxDistance
+         * are not needed and implementations may stop searching for them.
+         */
+        default List<Path> calcPaths(QueryGraph queryGraph, int fromNode, int fromOutEdge, int[] toNodes, int[] toInEdges, double maxDistance) throws MapExc {
+            return calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges);
+        }
+
         Weighting getWeighting();
     }
 
@@ -0,0 +1,400 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.DistancePlaneProjection;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * An online variant of {@link MapMatching#match(List)} for long traces. The observations are passed in one by one
+ * and are matched in a sliding window: every {@link #setWindowSize(int) windowSize} new observations the Viterbi
+ * algorithm is run over all observations that are not final yet. The most likely sequences of all candidates of
+ * the newest observation usually share a common prefix. This prefix cannot change anymore, so its edges are passed
+ * to the consumer right away and the window is moved to the end of the prefix. This way the memory usage and the
+ * latency only depend on the window and not on the length of the trace.
+ * <p>
+ * If the sequences do not converge within {@link #setMaxWindowSize(int) maxWindowSize} observations the first half of
+ * the currently most likely sequence is emitted, i.e. in this (rare) case the result can differ from the one of
+ * {@link MapMatching#match(List)}.
+ * <p>
+ * The path searches from the different candidates of one observation to the candidates of the next one are
+ * independent and run in parallel on the given executor, so the {@link MapMatching.Router} must be thread-safe.
+ * Instances of this class are not thread-safe and can only be used for a single trace.
+ */
+public class StreamingMapMatching {
+    private final MapMatching mapMatching;
+    private final MapMatching.Router router;
+    private final ExecutorService executor;
+    private final Consumer<EdgeMatch> edgeMatchConsumer;
+    private final HmmProbabilities probabilities;
+    private final double minObservationDistance;
+    private final DistanceCalc distanceCalc = new DistancePlaneProjection();
+    private int windowSize = 20;
+    private int maxWindowSize = 200;
+
+    // incremental version of MapMatching#filterObservations
+    private Observation prevObservation;
+    private Observation prevEntry;
+    private Observation skippedObservation;
+    private double accumulatedDistance;
+
+    // the observations that are not final yet. if there is an anchor it is the first one and its state is fixed.
+    private final List<Observation> window = new ArrayList<>();
+    private int newObservations;
+    private boolean hasAnchor;
+    private int anchorSnapIndex;
+    private int anchorOutgoingEdgeKey;
+    private int committedObservations;
+
+    // the last matched edge which might still be continued by the next transition
+    private EdgeIteratorState currentDirectedRealEdge;
+    private List<State> currentStates = new ArrayList<>();
+    private double gpxEntriesLength;
+    private double matchLength;
+    private long matchMillis;
+    private boolean finished;
+
+    StreamingMapMatching(MapMatching mapMatching, ExecutorService executor, Consumer<EdgeMatch> edgeMatchConsumer) {
+        this.mapMatching = mapMatching;
+        this.router = mapMatching.getRouter();
+        this.executor = executor;
+        this.edgeMatchConsumer = edgeMatchConsumer;
+        this.probabilities = new HmmProbabilities(mapMatching.getMeasurementErrorSigma(), mapMatching.getTransitionProbabilityBeta());
+        this.minObservationDistance = 2 * mapMatching.getMeasurementErrorSigma();
+    }
+
+    /**
+     * The number of new (filtered) observations after which the window is matched again.
+     */
+    public StreamingMapMatching setWindowSize(int windowSize) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("windowSize must be positive but was " + windowSize);
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    /**
+     * The maximum number of observations that are kept when the most likely sequences do not converge.
+     */
+    public StreamingMapMatching setMaxWindowSize(int maxWindowSize) {
+        if (maxWindowSize < 2)
+            throw new IllegalArgumentException("maxWindowSize must be at least 2 but was " + maxWindowSize);
+        this.maxWindowSize = maxWindowSize;
+        return this;
+    }
+
+    public void add(Observation observation) throws MapExc {
+        if (finished)
+            throw new IllegalStateException("The trace was already finished");
+        if (prevObservation != null)
+            gpxEntriesLength += calcDist(prevObservation, observation);
+        if (prevEntry == null || calcDist(prevEntry, observation) > minObservationDistance) {
+            if (prevObservation != null)
+                accumulatedDistance += calcDist(prevObservation, observation);
+            addFiltered(observation);
+        } else {
+            accumulatedDistance += calcDist(prevObservation, observation);
+            skippedObservation = observation;
+        }
+        prevObservation = observation;
+        if (newObservations >= windowSize)
+            matchWindow(false);
+    }
+
+    /**
+     * Matches the remaining observations and emits all edges that were not emitted yet. Must be called once after
+     * the last observation was added.
+     */
+    public void finish() throws MapExc {
+        if (finished)
+            throw new IllegalStateException("The trace was already finished");
+        finished = true;
+        // just like in the batch case the last observation is always used
+        if (skippedObservation != null)
+            addFiltered(skippedObservation);
+        if (!window.isEmpty())
+            matchWindow(true);
+        if (currentDirectedRealEdge != null)
+            edgeMatchConsumer.accept(new EdgeMatch(currentDirectedRealEdge, currentStates));
+        currentDirectedRealEdge = null;
+        currentStates = new ArrayList<>();
+    }
+
+    private void addFiltered(Observation observation) {
+        if (prevEntry != null)
+            accumulatedDistance -= calcDist(prevEntry, observation);
+        observation.setAccumulatedLinearDistanceToPrevious(accumulatedDistance);
+        window.add(observation);
+        newObservations++;
+        prevEntry = observation;
+        skippedObservation = null;
+        accumulatedDistance = 0;
+    }
+
+    private void matchWindow(boolean last) throws MapExc {
+        newObservations = 0;
+        List<List<Snap>> snapsPerObservation = window.stream()
+                .map(o -> mapMatching.findCandidateSnaps(o.getPoint().getLat(), o.getPoint().getLon()))
+                .collect(Collectors.toList());
+        QueryGraph queryGraph = QueryGraph.create(mapMatching.getGraph(), snapsPerObservation.stream().flatMap(Collection::stream).collect(Collectors.toList()));
+        List<ObservationWithCandidateStates> timeSteps = mapMatching.createTimeSteps(queryGraph, window, snapsPerObservation);
+
+        int steps = timeSteps.size();
+        double[][] minusLogProbabilities = new double[steps][];
+        int[][] parents = new int[steps][];
+        Path[][] paths = new Path[steps][];
+        minusLogProbabilities[0] = initFirstStep(timeSteps.get(0), snapsPerObservation.get(0));
+        if (minusLogProbabilities[0].length == 0)
+            throw new IllegalArgumentException("Sequence is broken for submitted track at initial time step.");
+        for (int t = 1; t < steps; t++) {
+            ObservationWithCandidateStates timeStep = timeSteps.get(t - 1);
+            ObservationWithCandidateStates nextTimeStep = timeSteps.get(t);
+            int candidates = nextTimeStep.candidates.size();
+            minusLogProbabilities[t] = new double[candidates];
+            Arrays.fill(minusLogProbabilities[t], Double.POSITIVE_INFINITY);
+            parents[t] = new int[candidates];
+            paths[t] = new Path[candidates];
+
+            final double linearDistance = calcDist(timeStep.observation, nextTimeStep.observation)
+                    + nextTimeStep.observation.getAccumulatedLinearDistanceToPrevious();
+            double maxDistance = probabilities.maxRouteLength(linearDistance, mapMatching.getMinTransitionLogProbability());
+            List<List<Path>> pathsPerCandidate = calcTransitionPaths(queryGraph, timeStep, minusLogProbabilities[t - 1], nextTimeStep, maxDistance);
+            for (int i = 0; i < pathsPerCandidate.size(); i++) {
+                List<Path> candidatePaths = pathsPerCandidate.get(i);
+                if (candidatePaths == null)
+                    continue;
+                for (int j = 0; j < candidates; j++) {
+                    Path path = candidatePaths.get(j);
+                    if (!path.isFound())
+                        continue;
+                    double minusLogProbability = minusLogProbabilities[t - 1][i]
+                            - probabilities.emissionLogProbability(nextTimeStep.candidates.get(j).getSnap().getQueryDistance())
+                            - probabilities.transitionLogProbability(path.getDistance(), linearDistance);
+                    if (minusLogProbability < minusLogProbabilities[t][j]) {
+                        minusLogProbabilities[t][j] = minusLogProbability;
+                        parents[t][j] = i;
+                        paths[t][j] = path;
+                    }
+                }
+            }
+            if (Arrays.stream(minusLogProbabilities[t]).allMatch(Double::isInfinite))
+                throw new IllegalArgumentException("Sequence is broken for submitted track at time step "
+                        + (committedObservations + t - 1) + ". observation:" + timeStep.observation);
+        }
+
+        int commitStep;
+        if (last) {
+            commitStep = steps - 1;
+        } else {
+            commitStep = findConvergedStep(minusLogProbabilities[steps - 1], parents);
+            if (commitStep <= 0 && steps >= maxWindowSize)
+                commitStep = steps / 2;
+            // the candidates of the first observation are still ambiguous, so we wait for more observations
+            if (commitStep < 0)
+                return;
+        }
+
+        // follow the most likely sequence back to the step we commit
+        int[] sequence = new int[steps];
+        sequence[steps - 1] = argMin(minusLogProbabilities[steps - 1]);
+        for (int t = steps - 1; t > 0; t--) {
+            sequence[t - 1] = parents[t][sequence[t]];
+        }
+        for (int t = 0; t <= commitStep; t++) {
+            if (t > 0) {
+                Path path = paths[t][sequence[t]];
+                matchLength += path.getDistance();
+                matchMillis += path.getTime();
+                for (EdgeIteratorState edge : path.calcEdges()) {
+                    advance(mapMatching.resolveToRealEdge(queryGraph, edge));
+                }
+            } else if (hasAnchor) {
+                // the anchor state was already emitted when it was committed
+                continue;
+            }
+            State state = timeSteps.get(t).candidates.get(sequence[t]);
+            if (state.isOnDirectedEdge())
+                advance(mapMatching.resolveToRealEdge(queryGraph, state.getOutgoingVirtualEdge()));
+            currentStates.add(state);
+        }
+
+        // the last committed state is fixed for the next window
+        State anchor = timeSteps.get(commitStep).candidates.get(sequence[commitStep]);
+        hasAnchor = true;
+        anchorSnapIndex = snapsPerObservation.get(commitStep).indexOf(anchor.getSnap());
+        anchorOutgoingEdgeKey = getOutgoingEdgeKey(anchor);
+        committedObservations += commitStep;
+        window.subList(0, commitStep).clear();
+    }
+
+    private double[] initFirstStep(ObservationWithCandidateStates timeStep, List<Snap> snaps) {
+        double[] result = new double[timeStep.candidates.size()];
+        if (hasAnchor) {
+            Arrays.fill(result, Double.POSITIVE_INFINITY);
+            for (int i = 0; i < result.length; i++) {
+                State candidate = timeStep.candidates.get(i);
+                if (snaps.indexOf(candidate.getSnap()) == anchorSnapIndex && getOutgoingEdgeKey(candidate) == anchorOutgoingEdgeKey) {
+                    result[i] = 0;
+                    return result;
+                }
+            }
+            // the candidates are created deterministically, but in case we do not find the anchor again we
+            // simply continue with all candidates of its observation
+        }
+        for (int i = 0; i < result.length; i++) {
+            result[i] = -probabilities.emissionLogProbability(timeStep.candidates.get(i).getSnap().getQueryDistance());
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the paths from every reachable candidate of the given time step to all candidates of the next one.
+     * The entries for unreachable candidates are null.
+     */
+    private List<List<Path>> calcTransitionPaths(QueryGraph queryGraph, ObservationWithCandidateStates timeStep,
+                                                 double[] minusLogProbabilities, ObservationWithCandidateStates nextTimeStep,
+                                                 double maxDistance) throws MapExc {
+        int[] toNodes = nextTimeStep.candidates.stream().mapToInt(c -> c.getSnap().getClosestNode()).toArray();
+        int[] toInEdges = nextTimeStep.candidates.stream().mapToInt(to -> to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE).toArray();
+        List<Future<List<Path>>> futures = new ArrayList<>(timeStep.candidates.size());
+        for (int i = 0; i < timeStep.candidates.size(); i++) {
+            if (Double.isInfinite(minusLogProbabilities[i])) {
+                futures.add(null);
+                continue;
+            }
+            State from = timeStep.candidates.get(i);
+            int fromNode = from.getSnap().getClosestNode();
+            int fromOutEdge = from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
+            futures.add(executor.submit(() -> {
+                try {
+                    return router.calcPaths(queryGraph, fromNode, fromOutEdge, toNodes, toInEdges, maxDistance);
+                } catch (MapExc e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+
+        List<List<Path>> result = new ArrayList<>(futures.size());
+        try {
+            for (Future<List<Path>> future : futures) {
+                result.add(future == null ? null : future.get());
+            }
+        } catch (InterruptedException e) {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Map matching was interrupted", e);
+        } catch (ExecutionException e) {
+            cancel(futures);
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof MapExc)
+                throw (MapExc) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+        return result;
+    }
+
+    private static void cancel(List<Future<List<Path>>> futures) {
+        for (Future<List<Path>> future : futures) {
+            if (future != null)
+                future.cancel(true);
+        }
+    }
+
+    /**
+     * Returns the latest time step all most likely sequences that end in a reachable candidate of the last time step
+     * have in common, or -1 if they do not even share the candidate of the first time step.
+     */
+    private static int findConvergedStep(double[] lastMinusLogProbabilities, int[][] parents) {
+        IntHashSet candidates = new IntHashSet();
+        for (int i = 0; i < lastMinusLogProbabilities.length; i++) {
+            if (!Double.isInfinite(lastMinusLogProbabilities[i]))
+                candidates.add(i);
+        }
+        for (int t = parents.length - 1; t > 0; t--) {
+            if (candidates.size() == 1)
+                return t;
+            IntHashSet previous = new IntHashSet();
+            for (IntCursor c : candidates) {
+                previous.add(parents[t][c.value]);
+            }
+            candidates = previous;
+        }
+        return candidates.size() == 1 ? 0 : -1;
+    }
+
+    private void advance(EdgeIteratorState newDirectedRealEdge) {
+        if (currentDirectedRealEdge != null && !MapMatching.equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
+            edgeMatchConsumer.accept(new EdgeMatch(currentDirectedRealEdge, currentStates));
+            currentStates = new ArrayList<>();
+        }
+        currentDirectedRealEdge = newDirectedRealEdge;
+    }
+
+    private static int getOutgoingEdgeKey(State state) {
+        return state.isOnDirectedEdge() ? ((VirtualEdgeIteratorState) state.getOutgoingVirtualEdge()).getOriginalEdgeKey() : -1;
+    }
+
+    private static int argMin(double[] values) {
+        int result = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] < values[result])
+                result = i;
+        }
+        return result;
+    }
+
+    private double calcDist(Observation a, Observation b) {
+        return distanceCalc.calcDist(a.getPoint().getLat(), a.getPoint().getLon(), b.getPoint().getLat(), b.getPoint().getLon());
+    }
+
+    /**
+     * The length of the (unfiltered) observations added so far
+     */
+    public double getGpxEntriesLength() {
+        return gpxEntriesLength;
+    }
+
+    /**
+     * The length of the edges that were emitted so far
+     */
+    public double getMatchLength() {
+        return matchLength;
+    }
+
+    public long getMatchMillis() {
+        return matchMillis;
+    }
+}
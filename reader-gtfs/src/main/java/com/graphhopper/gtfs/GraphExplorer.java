@@ -82,12 +82,11 @@ public final class GraphExplorer {
     }
 
     private Iterable<PtGraph.PtEdge> realtimeEdgesAround(int node) {
-        return () -> innerGraph.realtimeFeed.getAdditionalEdges().stream().filter(e -> e.getBaseNode() == node).iterator();
+        return innerGraph.realtimeFeed.getAdditionalEdgesFrom(node);
     }
 
     private Iterable<PtGraph.PtEdge> backRealtimeEdgesAround(int node) {
-        return () -> innerGraph.realtimeFeed.getAdditionalEdges().stream()
-                .filter(e -> e.getAdjNode() == node)
+        return () -> innerGraph.realtimeFeed.getAdditionalEdgesTo(node).stream()
                 .map(e -> new PtGraph.PtEdge(e.getId(), e.getAdjNode(), e.getBaseNode(), e.getAttrs()))
                 .iterator();
     }
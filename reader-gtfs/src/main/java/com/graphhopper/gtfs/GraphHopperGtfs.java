@@ -32,6 +32,7 @@ import com.graphhopper.storage.index.InMemConstructionIndex;
 import com.graphhopper.storage.index.IndexStructureInfo;
 import com.graphhopper.storage.index.LineIntIndex;
 import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.TranslationMap;
 import com.graphhopper.util.shapes.BBox;
@@ -42,6 +43,9 @@ import java.io.File;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class GraphHopperGtfs extends GraphHopper {
@@ -88,6 +92,7 @@ public class GraphHopperGtfs extends GraphHopper {
                         new BBox(-180.0, 180.0, -90.0, 90.0), 300));
                 polotre(indexBuilder);
                 ptGraph.flush();
+                getGtfsStorage().flush();
                 stopIndex.store(indexBuilder);
                 polo(stopIndex);
             }
@@ -96,9 +101,13 @@ public class GraphHopperGtfs extends GraphHopper {
         }
         gtfsStorage.setStopIndex(stopIndex);
         gtfsStorage.setPtGraph(ptGraph);
+        if (ghConfig.getBool("gtfs.raptor", true))
+            gtfsStorage.buildRaptorTimetable();
     }
 
     private void polotre(InMemConstructionIndex indexBuilder) {
+        Map<String, Transfers> allTransfers = new HashMap<>();
+        HashMap<String, GtfsReader> allReaders = new HashMap<>();
         try {
             int idx = 0;
             List<String> gtfsFiles = ghConfig.has("gtfs.file") ? Arrays.asList(ghConfig.getString("gtfs.file", "").split(",")) : Collections.emptyList();
@@ -106,8 +115,6 @@ public class GraphHopperGtfs extends GraphHopper {
                 getGtfsStorage().loadGtfsFromZipFileOrDirectory("gtfs_" + idx++, new File(gtfsFile));
             }
             getGtfsStorage().postInit();
-            Map<String, Transfers> allTransfers = new HashMap<>();
-            HashMap<String, GtfsReader> allReaders = new HashMap<>();
             getGtfsStorage().getGtfsFeeds().forEach((id, gtfsFeed) -> {
                 Transfers transfers = new Transfers(gtfsFeed);
                 allTransfers.put(id, transfers);
@@ -117,10 +124,12 @@ public class GraphHopperGtfs extends GraphHopper {
                 gtfsReader.buildPtNetwork();
                 allReaders.put(id, gtfsReader);
             });
-            interpolateTransfers(allReaders, allTransfers);
         } catch (Exception e) {
             polodue();
+            return;
         }
+        // not within the try block, because a failed transfer search has to fail the import
+        interpolateTransfers(allReaders, allTransfers);
     }
 
     private static void polodue() {
@@ -142,60 +151,107 @@ public class GraphHopperGtfs extends GraphHopper {
     private void interpolateTransfers(HashMap<String, GtfsReader> readers, Map<String, Transfers> allTransfers) {
         loggeroni.info("Looking for transfers");
         final int maxTransferWalkTimeSeconds = ghConfig.getInt("gtfs.max_transfer_interpolation_walk_time_seconds", 120);
+        final int threads = ghConfig.getInt("gtfs.transfer_interpolation_threads", Runtime.getRuntime().availableProcessors());
         QueryGraph queryGraph = QueryGraph.create(getBaseGraph(), Collections.emptyList());
         Weighting transferWeighting = createWeighting(getProfile("foot"), new PMap());
-        final GraphExplorer graphExplorer = new GraphExplorer(new GraphExplorer.InnerGraph(queryGraph, ptGraph, transferWeighting, getGtfsStorage(), RealtimeFeed.empty()), true, true, false, 5.0, false, 0);
-        getGtfsStorage().getStationNodes().values().stream().distinct().map(n -> {
+        // the searches only read the street and pt graphs, so every worker gets its own explorer and the transfer
+        // edges are inserted afterwards, in station order, so that the resulting graph does not depend on the threads
+        ThreadLocal<GraphExplorer> graphExplorer = ThreadLocal.withInitial(() -> new GraphExplorer(new GraphExplorer.InnerGraph(queryGraph, ptGraph, transferWeighting, getGtfsStorage(), RealtimeFeed.empty()), true, true, false, 5.0, false, 0));
+        List<Label.NodeId> stationNodes = getGtfsStorage().getStationNodes().values().stream().distinct().sorted().map(n -> {
             int streetNode = Optional.ofNullable(gtfsStorage.getPtToStreet().get(n)).orElse(-1);
             return new Label.NodeId(streetNode, n);
-        }).forEach(stationNode -> {
-            MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(graphExplorer, true, false, false, 0, new ArrayList<>());
-            router.setLimitStreetTime(Duration.ofSeconds(maxTransferWalkTimeSeconds).toMillis());
-            for (Label label : router.calcLabels(stationNode, Instant.ofEpochMilli(0))) {
-                    if (label.parent != null && label.innerlabel.edge.getType() == GtfsStorage.EdgeType.EXIT_PT) {
-                        GtfsStorage.PlatformDescriptor fromPlatformDescriptor = label.innerlabel.edge.getPlatformDescriptor();
-                        Transfers transfers = allTransfers.get(fromPlatformDescriptor.feedId);
-                        miomartinez(readers, stationNode, label, fromPlatformDescriptor, transfers);
-                    }
-                }
-        });
-    }
-
-    private void miomartinez(HashMap<String, GtfsReader> readers, Label.NodeId stationNode, Label label, GtfsStorage.PlatformDescriptor fromPlatformDescriptor, Transfers transfers) {
+        }).collect(Collectors.toList());
+        List<List<InterpolatedTransfer>> foundTransfers = new ArrayList<>(stationNodes.size());
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<InterpolatedTransfer>>> futures = stationNodes.stream()
+                    .map(stationNode -> executorService.submit(() -> findTransfers(graphExplorer.get(), stationNode, maxTransferWalkTimeSeconds)))
+                    .collect(Collectors.toList());
+            // this also rethrows the exception of a failed search, we must not end up with a partial set of transfers.
+            // all searches need to be finished before we insert edges into the pt graph they are reading.
+            for (Future<List<InterpolatedTransfer>> future : futures)
+                foundTransfers.add(GHUtility.getFutureResult(future));
+        } finally {
+            executorService.shutdownNow();
+        }
+        for (int i = 0; i < stationNodes.size(); i++) {
+            for (InterpolatedTransfer transfer : foundTransfers.get(i)) {
+                Transfers transfers = allTransfers.get(transfer.fromPlatformDescriptor.feedId);
+                miomartinez(readers, stationNodes.get(i), transfer, transfers);
+            }
+            foundTransfers.set(i, null);
+        }
+    }
+
+    /**
+     * Searches the platforms that can be reached from the given station within the maximum walk time. Only what is
+     * needed to insert the transfer edges is kept, not the label chains of the search.
+     */
+    private List<InterpolatedTransfer> findTransfers(GraphExplorer graphExplorer, Label.NodeId stationNode, int maxTransferWalkTimeSeconds) {
+        MultiCriteriaLabelSetting router = new MultiCriteriaLabelSetting(graphExplorer, true, false, false, 0, new ArrayList<>());
+        router.setLimitStreetTime(Duration.ofSeconds(maxTransferWalkTimeSeconds).toMillis());
+        List<InterpolatedTransfer> result = new ArrayList<>();
+        for (Label label : router.calcLabels(stationNode, Instant.ofEpochMilli(0))) {
+            if (label.parent != null && label.innerlabel.edge.getType() == GtfsStorage.EdgeType.EXIT_PT)
+                result.add(new InterpolatedTransfer(label.innerlabel.edge.getPlatformDescriptor(), label.innerlabel.node.ptNode,
+                        (int) (label.streetTime / 1000L), calcSkippedEdges(label)));
+        }
+        return result;
+    }
+
+    private int[] calcSkippedEdges(Label label) {
+        List<Label.Transition> transitions = Label.getTransitions(label.parent, true);
+        return transitions.stream().filter(t -> t.edge != null).mapToInt(t -> {
+            Label.NodeId adjNode = t.label.innerlabel.node;
+            EdgeIteratorState edgeIteratorState = getBaseGraph().getEdgeIteratorState(t.edge.getId(), adjNode.streetNode);
+            return edgeIteratorState.getEdgeKey();
+        }).toArray();
+    }
+
+    private static class InterpolatedTransfer {
+        final GtfsStorage.PlatformDescriptor fromPlatformDescriptor;
+        final int fromPtNode;
+        final int streetTimeSeconds;
+        final int[] skippedEdges;
+
+        InterpolatedTransfer(GtfsStorage.PlatformDescriptor fromPlatformDescriptor, int fromPtNode, int streetTimeSeconds, int[] skippedEdges) {
+            this.fromPlatformDescriptor = fromPlatformDescriptor;
+            this.fromPtNode = fromPtNode;
+            this.streetTimeSeconds = streetTimeSeconds;
+            this.skippedEdges = skippedEdges;
+        }
+    }
+
+    private void miomartinez(HashMap<String, GtfsReader> readers, Label.NodeId stationNode, InterpolatedTransfer transfer, Transfers transfers) {
         for (PtGraph.PtEdge ptEdge : ptGraph.edgesAround(stationNode.ptNode)) {
             if (ptEdge.getType() == GtfsStorage.EdgeType.ENTER_PT) {
                 GtfsStorage.PlatformDescriptor toPlatformDescriptor = ptEdge.getAttrs().platformDescriptor;
-                foglio(readers, label, fromPlatformDescriptor, transfers, toPlatformDescriptor);
+                foglio(readers, transfer, transfers, toPlatformDescriptor);
             }
         }
     }
 
-    private void foglio(HashMap<String, GtfsReader> readers, Label label, GtfsStorage.PlatformDescriptor fromPlatformDescriptor, Transfers transfers, GtfsStorage.PlatformDescriptor toPlatformDescriptor) {
-        if (!toPlatformDescriptor.feedId.equals(fromPlatformDescriptor.feedId)) {
-            loggeroni.debug("Inserting transfer with {int(label.streetTime / 1000)} s.");
-            insertInterpolatedTransfer(label, toPlatformDescriptor, readers);
+    private void foglio(HashMap<String, GtfsReader> readers, InterpolatedTransfer transfer, Transfers transfers, GtfsStorage.PlatformDescriptor toPlatformDescriptor) {
+        if (!toPlatformDescriptor.feedId.equals(transfer.fromPlatformDescriptor.feedId)) {
+            loggeroni.debug("Inserting transfer with {} s.", transfer.streetTimeSeconds);
+            insertInterpolatedTransfer(transfer, toPlatformDescriptor, readers);
         } else {
             List<Transfer> transfersToStop = transfers.getTransfersToStop(toPlatformDescriptor.stopId, routeIdOrNull(toPlatformDescriptor));
-            mio(readers, label, fromPlatformDescriptor, toPlatformDescriptor, transfersToStop);
+            mio(readers, transfer, toPlatformDescriptor, transfersToStop);
         }
     }
 
-    private void mio(HashMap<String, GtfsReader> readers, Label label, GtfsStorage.PlatformDescriptor fromPlatformDescriptor, GtfsStorage.PlatformDescriptor toPlatformDescriptor, List<Transfer> transfersToStop) {
-        if (transfersToStop.stream().noneMatch(t -> t.getfromStopId().equals(fromPlatformDescriptor.stopId))) {
-            loggeroni.debug("Inserting transfer with {int(label.streetTime / 1000)} s.");
-            insertInterpolatedTransfer(label, toPlatformDescriptor, readers);
+    private void mio(HashMap<String, GtfsReader> readers, InterpolatedTransfer transfer, GtfsStorage.PlatformDescriptor toPlatformDescriptor, List<Transfer> transfersToStop) {
+        if (transfersToStop.stream().noneMatch(t -> t.getfromStopId().equals(transfer.fromPlatformDescriptor.stopId))) {
+            loggeroni.debug("Inserting transfer with {} s.", transfer.streetTimeSeconds);
+            insertInterpolatedTransfer(transfer, toPlatformDescriptor, readers);
         }
     }
 
-    private void insertInterpolatedTransfer(Label label, GtfsStorage.PlatformDescriptor toPlatformDescriptor, HashMap<String, GtfsReader> readers) {
+    private void insertInterpolatedTransfer(InterpolatedTransfer transfer, GtfsStorage.PlatformDescriptor toPlatformDescriptor, HashMap<String, GtfsReader> readers) {
         GtfsReader toFeedReader = readers.get(toPlatformDescriptor.feedId);
-        List<Integer> transferEdgeIds = toFeedReader.insertTransferEdges(label.innerlabel.node.ptNode, (int) (label.streetTime / 1000L), toPlatformDescriptor);
-        List<Label.Transition> transitions = Label.getTransitions(label.parent, true);
-        int[] skippedEdgesForTransfer = transitions.stream().filter(t -> t.edge != null).mapToInt(t -> {
-            Label.NodeId adjNode = t.label.innerlabel.node;
-            EdgeIteratorState edgeIteratorState = getBaseGraph().getEdgeIteratorState(t.edge.getId(), adjNode.streetNode);
-            return edgeIteratorState.getEdgeKey();
-        }).toArray();
+        List<Integer> transferEdgeIds = toFeedReader.insertTransferEdges(transfer.fromPtNode, transfer.streetTimeSeconds, toPlatformDescriptor);
+        int[] skippedEdgesForTransfer = transfer.skippedEdges;
         if (skippedEdgesForTransfer.length > 0) { //  Elsewhere, we distinguish empty path ("at" a node) from no path
             assert isValidPath(skippedEdgesForTransfer);
             for (Integer transferEdgeId : transferEdgeIds) {
@@ -22,6 +22,9 @@ import com.eccezionereader.DbFileException;
 import com.conveyal.gtfs.GTFSFeed;
 import com.conveyal.gtfs.model.Fare;
 import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.MMapDataAccess;
+import com.graphhopper.storage.RAMDataAccess;
+import com.graphhopper.storage.RAMIntDataAccess;
 import com.graphhopper.storage.index.LineIntIndex;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
@@ -42,6 +45,7 @@ public class GtfsStorage {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GtfsStorage.class);
 	private LineIntIndex stopIndex;
 	private PtGraph ptGraph;
+	private RaptorTimetable raptorTimetable;
 
 	public void setStopIndex(LineIntIndex stopIndex) {
 		this.stopIndex = stopIndex;
@@ -59,6 +63,21 @@ public class GtfsStorage {
         this.ptGraph = ptGraph;
     }
 
+	/**
+	 * Derives the timetable for RAPTOR queries from the PtGraph. This is done when the graph is loaded, so that no
+	 * request has to wait for it.
+	 */
+	void buildRaptorTimetable() {
+		raptorTimetable = RaptorTimetable.build(this);
+	}
+
+	/**
+	 * @return the timetable for RAPTOR queries or null if it was not built, see gtfs.raptor
+	 */
+	public RaptorTimetable getRaptorTimetable() {
+		return raptorTimetable;
+	}
+
 	public Map<Integer, int[]> getSkippedEdgesForTransfer() {
 		return skippedEdgesForTransfer;
 	}
@@ -162,9 +181,11 @@ public class GtfsStorage {
     }
 
 	private DB data;
+	private final TransitStore transitStore;
 
 	GtfsStorage(Directory dir) {
 		this.dir = dir;
+		this.transitStore = new TransitStore(dir);
 	}
 
 	boolean loadExisting() throws DbFileException {
@@ -184,10 +205,24 @@ public class GtfsStorage {
 			GTFSFeed feed = new GTFSFeed(dbFile);
 			this.gtfsFeeds.put(gtfsFeedId, feed);
 		}
+		loadTransitStore();
 		postInit();
 		return true;
 	}
 
+	private void loadTransitStore() {
+		try {
+			if (transitStore.loadExisting())
+				return;
+			// graphs imported before there was a transit store: build it from the feeds
+			transitStore.create();
+		} catch (RAMDataAccess.RamExce | RAMIntDataAccess.RamIntExce | MMapDataAccess.MappaExce e) {
+			throw new IllegalStateException("Could not load the transit store", e);
+		}
+		new TreeMap<>(gtfsFeeds).forEach(transitStore::addFeed);
+		transitStore.flush();
+	}
+
 	void create() {
 		this.dir.create();
 		final File file = new File(dir.getLocation() + "/transit_schedule");
@@ -202,6 +237,15 @@ public class GtfsStorage {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().asyncWriteEnable().make();
 		init();
+		try {
+			transitStore.create();
+		} catch (MMapDataAccess.MappaExce e) {
+			throw new IllegalStateException("Could not create the transit store", e);
+		}
+	}
+
+	void flush() {
+		transitStore.flush();
 	}
 
     private void init() {
@@ -219,6 +263,7 @@ public class GtfsStorage {
 			GTFSFeed feed = new GTFSFeed(dbFile);
 			feed.loadFromFileAndLogErrors(zipFileOrDirectory);
 			this.gtfsFeeds.put(id, feed);
+			transitStore.addFeed(id, feed);
 		} catch (IOException e) {
 			try {
 				throw new GokyExce(e);
@@ -241,6 +286,7 @@ public class GtfsStorage {
 		if (!isClosed) {
 			isClosed = true;
 			data.close();
+			transitStore.close();
 			for (GTFSFeed feed : gtfsFeeds.values()) {
 				feed.close();
 			}
@@ -263,6 +309,13 @@ public class GtfsStorage {
 		return Collections.unmodifiableMap(gtfsFeeds);
 	}
 
+	/**
+	 * The stops, trips and stop times of all feeds for the lookups while routing, prefer it over the feeds where possible.
+	 */
+	public TransitStore getTransitStore() {
+		return transitStore;
+	}
+
 	public Map<FeedIdWithStopId, Integer> getStationNodes() {
 		return stationNodes;
 	}
@@ -68,6 +68,13 @@ public class MultiCriteriaLabelSetting {
         return () -> Spliterators.iterator(new MultiCriteriaLabelSettingSpliterator(from));
     }
 
+    /**
+     * Sets the start time the weights are relative to, for labels which were not created by {@link #calcLabels}.
+     */
+    void setStartTime(Instant startTime) {
+        this.startTime = startTime.toEpochMilli();
+    }
+
     void setBetaTransfers(double betaTransfers) {
         this.betaTransfers = betaTransfers;
     }
@@ -136,6 +136,7 @@ public final class PtRouterFreeWalkImpl implements PtRouter {
         private final GHLocation exit;
         private final Translation translation;
         private final List<String> requestedPathDetails;
+        private final boolean useRaptor;
 
         private final GHResponse response = new GHResponse();
          final long limitTripTime;
@@ -184,6 +185,8 @@ public final class PtRouterFreeWalkImpl implements PtRouter {
             limitTripTime = request.getLimitTripTime() != null ? request.getLimitTripTime().toMillis() : Long.MAX_VALUE;
             limitStreetTime = request.getLimitStreetTime() != null ? request.getLimitStreetTime().toMillis() : Long.MAX_VALUE;
             requestedPathDetails = request.getPathDetails();
+            useRaptor = request.isRaptor() && gtfsStorage.getRaptorTimetable() != null && !arriveBy && !profileQuery && betaTransfers == 0.0 && betaStreetTime == 1.0
+                    && boardingPenaltiesByRouteType.isEmpty() && realtimeFeed.feedMessages.isEmpty();
 
             accessProfile = config.getProfiles().stream().filter(p -> p.getName().equals(request.getAccessProfile())).findFirst();
             if(accessProfile.isPresent()){
@@ -251,6 +254,8 @@ public final class PtRouterFreeWalkImpl implements PtRouter {
 
         private List<List<Label.Transition>> findPaths(Label.NodeId startNode, Label.NodeId destNode) {
             StopWatch stopWatch = new StopWatch().start();
+            if (useRaptor)
+                return findPathsWithRaptor(startNode, destNode, stopWatch);
 
             GraphExplorer graphExplorer = new GraphExplorer(new GraphExplorer.InnerGraph(queryGraph, ptGraph, accessEgressWeighting, gtfsStorage, realtimeFeed), arriveBy, false, false, walkSpeedKmH, false, blockedRouteTypes);
             List<Label> discoveredSolutions = new ArrayList<>();
@@ -296,6 +301,53 @@ public final class PtRouterFreeWalkImpl implements PtRouter {
             return paths;
         }
 
+        private List<List<Label.Transition>> findPathsWithRaptor(Label.NodeId startNode, Label.NodeId destNode, StopWatch stopWatch) {
+            GraphExplorer egressGraphExplorer = new GraphExplorer(new GraphExplorer.InnerGraph(queryGraph, ptGraph, accessEgressWeighting, gtfsStorage, realtimeFeed), true, true, false, walkSpeedKmH, false, blockedRouteTypes);
+            MultiCriteriaLabelSetting stationRouter = new MultiCriteriaLabelSetting(egressGraphExplorer, true, false, false, maxProfileDuration, new ArrayList<>());
+            stationRouter.setLimitStreetTime(limitStreetTime);
+            List<Label> stationLabels = new ArrayList<>();
+            for (Label label : stationRouter.calcLabels(destNode, initialTime)) {
+                visitedNodes++;
+                if (label.innerlabel.node.equals(startNode)) {
+                    stationLabels.add(label);
+                    break;
+                } else if (label.innerlabel.edge != null && label.innerlabel.edge.getType() == GtfsStorage.EdgeType.EXIT_PT) {
+                    stationLabels.add(label);
+                }
+            }
+
+            GraphExplorer graphExplorer = new GraphExplorer(new GraphExplorer.InnerGraph(queryGraph, ptGraph, accessEgressWeighting, gtfsStorage, realtimeFeed), false, false, false, walkSpeedKmH, false, blockedRouteTypes);
+            router = new MultiCriteriaLabelSetting(graphExplorer, false, !ignoreTransfers, false, maxProfileDuration, new ArrayList<>());
+            router.setBetaTransfers(betaTransfers);
+            router.setBetaStreetTime(betaStreetTime);
+            router.setStartTime(initialTime);
+            Raptor raptor = new Raptor(gtfsStorage.getRaptorTimetable(), ptGraph, graphExplorer, () -> {
+                GraphExplorer accessGraphExplorer = new GraphExplorer(new GraphExplorer.InnerGraph(queryGraph, ptGraph, accessEgressWeighting, gtfsStorage, realtimeFeed), false, true, false, walkSpeedKmH, false, blockedRouteTypes);
+                MultiCriteriaLabelSetting accessRouter = new MultiCriteriaLabelSetting(accessGraphExplorer, false, false, false, maxProfileDuration, new ArrayList<>());
+                accessRouter.setLimitStreetTime(limitStreetTime);
+                return accessRouter;
+            }, initialTime);
+            raptor.setBlockedRouteTypes(blockedRouteTypes);
+            raptor.setLimitTripTime(limitTripTime);
+            // walking between stations is what this router is about, but RAPTOR needs the footpaths to be bounded
+            raptor.setFootpathLimit(Math.min(limitStreetTime, Raptor.MAX_FOOTPATH_TIME));
+            raptor.setMaxVisitedNodes(maxVisitedNodesForRequest - visitedNodes);
+            raptor.setMindTransfers(!ignoreTransfers);
+            raptor.setLimitSolutions(limitSolutions);
+            List<List<Label.Transition>> paths = raptor.route(startNode, destNode, stationLabels);
+            visitedNodes += raptor.getVisitedNodes();
+
+            response.addDebugInfo("routing:" + stopWatch.stop().getSeconds() + "s");
+            response.getHints().putObject("visited_nodes.sum", visitedNodes);
+            response.getHints().putObject("visited_nodes.average", visitedNodes);
+            if (paths.isEmpty()) {
+                if (visitedNodes >= maxVisitedNodesForRequest)
+                    response.addError(new MaximumNodesExceededException("No path found - maximum number of nodes exceeded: " + maxVisitedNodesForRequest, maxVisitedNodesForRequest));
+                response.addError(new ConnectionNotFoundException("No route found", Collections.emptyMap()));
+            }
+            return paths;
+        }
+
     }
 
 }
@@ -135,6 +135,7 @@ public final class PtRouterImpl implements PtRouter {
         private final GHLocation exit;
         private final Translation translation;
         private final List<String> requestedPathDetails;
+        private final boolean useRaptor;
 
         private final GHResponse response = new GHResponse();
         private final long limitTripTime;
@@ -169,6 +170,8 @@ public final class PtRouterImpl implements PtRouter {
             limitTripTime = request.getLimitTripTime() != null ? request.getLimitTripTime().toMillis() : Long.MAX_VALUE;
             limitStreetTime = request.getLimitStreetTime() != null ? request.getLimitStreetTime().toMillis() : Long.MAX_VALUE;
             requestedPathDetails = request.getPathDetails();
+            useRaptor = request.isRaptor() && gtfsStorage.getRaptorTimetable() != null && !arriveBy && !profileQuery && betaTransfers == 0.0 && betaStreetTime == 1.0
+                    && transferPenaltiesByRouteType.isEmpty() && realtimeFeed.feedMessages.isEmpty();
             accessProfile = config.getProfiles().stream().filter(p -> p.getName().equals(request.getAccessProfile())).findFirst();
             if(accessProfile.isPresent()){
             accessWeighting = weightingFactory.createWeighting(accessProfile.get(), new PMap(), false);
@@ -246,6 +249,9 @@ public final class PtRouterImpl implements PtRouter {
             List<Label> stationLabels = new ArrayList<>();
             mimmo(startNode, destNode, reno.edgeType, reno.stationRouter, stationLabels);
 
+            if (useRaptor)
+                return findPathsWithRaptor(startNode, destNode, stationLabels, stopWatch);
+
             Map<Label.NodeId, Label> reverseSettledSet = new HashMap<>();
             vino(stationLabels, reverseSettledSet);
 
@@ -294,6 +300,32 @@ public final class PtRouterImpl implements PtRouter {
             return paths;
         }
 
+        private List<List<Label.Transition>> findPathsWithRaptor(Label.NodeId startNode, Label.NodeId destNode, List<Label> stationLabels, StopWatch stopWatch) {
+            GraphExplorer graphExplorer = new GraphExplorer(new GraphExplorer.InnerGraph(queryGraph, ptGraph, accessWeighting, gtfsStorage, realtimeFeed), false, false, false, walkSpeedKmH, false, blockedRouteTypes);
+            router = new MultiCriteriaLabelSetting(graphExplorer, false, !ignoreTransfers, false, maxProfileDuration, new ArrayList<>());
+            router.setBetaTransfers(betaTransfers);
+            router.setBetaStreetTime(betaStreetTime);
+            router.setStartTime(initialTime);
+            Raptor raptor = new Raptor(gtfsStorage.getRaptorTimetable(), ptGraph, graphExplorer, () -> {
+                GraphExplorer accessGraphExplorer = new GraphExplorer(new GraphExplorer.InnerGraph(queryGraph, ptGraph, accessWeighting, gtfsStorage, realtimeFeed), false, true, false, walkSpeedKmH, false, blockedRouteTypes);
+                MultiCriteriaLabelSetting accessRouter = new MultiCriteriaLabelSetting(accessGraphExplorer, false, false, false, maxProfileDuration, new ArrayList<>());
+                accessRouter.setBetaStreetTime(betaStreetTime);
+                accessRouter.setLimitStreetTime(limitStreetTime);
+                return accessRouter;
+            }, initialTime);
+            raptor.setBlockedRouteTypes(blockedRouteTypes);
+            raptor.setLimitTripTime(limitTripTime);
+            raptor.setMaxVisitedNodes(maxVisitedNodesForRequest - visitedNodes);
+            raptor.setMindTransfers(!ignoreTransfers);
+            raptor.setLimitSolutions(limitSolutions);
+            List<List<Label.Transition>> paths = raptor.route(startNode, destNode, stationLabels);
+            visitedNodes += raptor.getVisitedNodes();
+
+            response.addDebugInfo("routing:" + stopWatch.stop().getSeconds() + "s");
+            cibouno(paths);
+            return paths;
+        }
+
         private boolean sen(List<Label> discoveredSolutions, long smallestStationLabelWeight, Label accessEgressModeOnlySolution, long highestWeightForDominationTest, Label label) {
             return men() || (!profileQuery || profileFinished(router, discoveredSolutions, accessEgressModeOnlySolution)) && router.weight(label) + smallestStationLabelWeight > highestWeightForDominationTest;
         }
@@ -339,7 +371,7 @@ public final class PtRouterImpl implements PtRouter {
             }
         }
 
-        private void cibouno(List<Label> discoveredSolutions) {
+        private void cibouno(List<?> discoveredSolutions) {
             if (discoveredSolutions.isEmpty() && visitedNodes >= maxVisitedNodesForRequest) {
                 response.addError(new MaximumNodesExceededException("No path found - maximum number of nodes exceeded: " + maxVisitedNodesForRequest, maxVisitedNodesForRequest));
             }
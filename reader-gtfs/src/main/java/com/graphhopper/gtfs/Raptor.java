@@ -0,0 +1,510 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Round-based public transit routing (RAPTOR) on the compact arrays of a {@link RaptorTimetable}, as an alternative
+ * to the {@link MultiCriteriaLabelSetting} on the time-expanded graph for forward earliest-arrival queries.
+ * Round k finds the earliest arrival at every platform with at most k trips, so the journeys found after each round
+ * form the Pareto set of arrival time and number of transfers.
+ * <p>
+ * Access and egress are still walked with a {@link MultiCriteriaLabelSetting} restricted to the street network. The
+ * journeys are translated back into paths through the PtGraph, so that the result can be used exactly like the one of
+ * the label setting search. Block transfers (staying in the vehicle) are not considered.
+ */
+final class Raptor {
+
+    static final int MAX_ROUNDS = 16;
+    /**
+     * The default limit for walking between stations when footpaths are enabled.
+     */
+    static final long MAX_FOOTPATH_TIME = Duration.ofMinutes(15).toMillis();
+
+    private final RaptorTimetable timetable;
+    private final PtGraph ptGraph;
+    private final GraphExplorer ptExplorer;
+    private final Supplier<MultiCriteriaLabelSetting> walkRouters;
+    private final long startTime;
+    private int blockedRouteTypes;
+    private long limitTripTime = Long.MAX_VALUE;
+    private long footpathLimit = -1;
+    private int maxVisitedNodes = Integer.MAX_VALUE;
+    private boolean mindTransfers = true;
+    private int limitSolutions = Integer.MAX_VALUE;
+    private int visitedNodes;
+
+    private long[] bestBoard;
+    private long[] bestArrival;
+    private int[] bestBoardRound;
+    private final List<IntObjectHashMap<BoardLabel>> boardLabels = new ArrayList<>();
+    private final List<IntObjectHashMap<ArrivalLabel>> arrivalLabels = new ArrayList<>();
+    // the footpaths from a station are the same in every round, so each station is walked at most once per query
+    private final Map<Label.NodeId, List<Footpath>> footpathsByStation = new HashMap<>();
+    private long bestTarget;
+
+    private static final class BoardLabel {
+        final long time;
+        // either the access or footpath label (then arrivalPlatform is -1 for access), or the transfer edge
+        final Label walkLabel;
+        final int arrivalPlatform;
+        final int transferEdge;
+
+        BoardLabel(long time, Label walkLabel, int arrivalPlatform, int transferEdge) {
+            this.time = time;
+            this.walkLabel = walkLabel;
+            this.arrivalPlatform = arrivalPlatform;
+            this.transferEdge = transferEdge;
+        }
+    }
+
+    private static final class Footpath {
+        final int departurePlatform;
+        final long duration;
+        final Label walkLabel;
+
+        Footpath(int departurePlatform, long duration, Label walkLabel) {
+            this.departurePlatform = departurePlatform;
+            this.duration = duration;
+            this.walkLabel = walkLabel;
+        }
+    }
+
+    private static final class ArrivalLabel {
+        final long time;
+        final int pattern;
+        final int trip;
+        final int boardStop;
+        final int alightStop;
+        final int boardRound;
+
+        ArrivalLabel(long time, int pattern, int trip, int boardStop, int alightStop, int boardRound) {
+            this.time = time;
+            this.pattern = pattern;
+            this.trip = trip;
+            this.boardStop = boardStop;
+            this.alightStop = alightStop;
+            this.boardRound = boardRound;
+        }
+    }
+
+    /**
+     * @param ptExplorer  a forward explorer, only used to calculate the times when translating journeys into labels
+     * @param walkRouters creates forward, walk-only label setting searches for the access (and the footpaths)
+     */
+    Raptor(RaptorTimetable timetable, PtGraph ptGraph, GraphExplorer ptExplorer, Supplier<MultiCriteriaLabelSetting> walkRouters, Instant initialTime) {
+        this.timetable = timetable;
+        this.ptGraph = ptGraph;
+        this.ptExplorer = ptExplorer;
+        this.walkRouters = walkRouters;
+        this.startTime = initialTime.toEpochMilli();
+    }
+
+    void setBlockedRouteTypes(int blockedRouteTypes) {
+        this.blockedRouteTypes = blockedRouteTypes;
+    }
+
+    void setLimitTripTime(long limitTripTime) {
+        this.limitTripTime = limitTripTime;
+    }
+
+    /**
+     * Allows walking from the station where a trip is left to the platforms of other stations, up to the given time.
+     * Without footpaths, only the transfers of the PtGraph are used. The footpaths of a station are searched once
+     * per query, when the station is reached the first time.
+     */
+    void setFootpathLimit(long footpathLimit) {
+        this.footpathLimit = footpathLimit;
+    }
+
+    void setMaxVisitedNodes(int maxVisitedNodes) {
+        this.maxVisitedNodes = maxVisitedNodes;
+    }
+
+    void setMindTransfers(boolean mindTransfers) {
+        this.mindTransfers = mindTransfers;
+    }
+
+    void setLimitSolutions(int limitSolutions) {
+        this.limitSolutions = limitSolutions;
+    }
+
+    int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @param egressLabels the labels of a reverse, walk-only search from the destination, at the platform exit nodes
+     *                     or at the start node, if the destination can be reached by walking
+     * @return the paths from the start to the destination, the fastest last
+     */
+    List<List<Label.Transition>> route(Label.NodeId startNode, Label.NodeId destNode, List<Label> egressLabels) {
+        long[] egress = new long[timetable.getArrivalPlatformCount()];
+        Arrays.fill(egress, Long.MAX_VALUE);
+        Map<Integer, Label> egressLabelByArrivalPlatform = new HashMap<>();
+        Label walkOnlyEgressLabel = null;
+        for (Label label : egressLabels) {
+            if (label.innerlabel.node.equals(startNode)) {
+                walkOnlyEgressLabel = label;
+                continue;
+            }
+            int q = timetable.arrivalPlatformByNode.getOrDefault(label.innerlabel.node.ptNode, -1);
+            if (q >= 0 && startTime - label.innerlabel.currentTime < egress[q]) {
+                egress[q] = startTime - label.innerlabel.currentTime;
+                egressLabelByArrivalPlatform.put(q, label);
+            }
+        }
+
+        bestBoard = new long[timetable.getDeparturePlatformCount()];
+        bestBoardRound = new int[timetable.getDeparturePlatformCount()];
+        bestArrival = new long[timetable.getArrivalPlatformCount()];
+        Arrays.fill(bestBoard, Long.MAX_VALUE);
+        Arrays.fill(bestArrival, Long.MAX_VALUE);
+        bestTarget = walkOnlyEgressLabel != null ? 2 * startTime - walkOnlyEgressLabel.innerlabel.currentTime : Long.MAX_VALUE;
+
+        List<List<Label.Transition>> result = new ArrayList<>();
+        Label startLabel = new Label(new Label.InnerLabel(startTime, null, startNode, 0, null), 0, 0, 0, false, null);
+        if (walkOnlyEgressLabel != null)
+            result.add(join(Label.getTransitions(startLabel, false), walkOnlyEgressLabel));
+
+        BitSet markedBoard = new BitSet();
+        IntObjectHashMap<BoardLabel> accessLabels = new IntObjectHashMap<>();
+        for (Label label : walkToPlatforms(startNode, destNode)) {
+            int p = timetable.departurePlatformByNode.getOrDefault(label.innerlabel.node.ptNode, -1);
+            if (p >= 0 && label.innerlabel.currentTime < bestBoard[p]) {
+                bestBoard[p] = label.innerlabel.currentTime;
+                accessLabels.put(p, new BoardLabel(label.innerlabel.currentTime, label, -1, -1));
+                markedBoard.set(p);
+            }
+        }
+        boardLabels.add(accessLabels);
+        arrivalLabels.add(new IntObjectHashMap<>());
+
+        for (int round = 1; round <= MAX_ROUNDS && !markedBoard.isEmpty() && visitedNodes < maxVisitedNodes; round++) {
+            BitSet markedArrival = new BitSet();
+            IntObjectHashMap<ArrivalLabel> roundArrivals = new IntObjectHashMap<>();
+            arrivalLabels.add(roundArrivals);
+            for (IntIntCursor c : collectPatterns(markedBoard)) {
+                scanPattern(c.key, c.value, roundArrivals, markedArrival);
+            }
+
+            int targetPlatform = -1;
+            for (int q = markedArrival.nextSetBit(0); q >= 0; q = markedArrival.nextSetBit(q + 1)) {
+                if (egress[q] != Long.MAX_VALUE && bestArrival[q] + egress[q] < bestTarget) {
+                    bestTarget = bestArrival[q] + egress[q];
+                    targetPlatform = q;
+                }
+            }
+            if (targetPlatform >= 0) {
+                Label destinationStopLabel = toLabel(round, targetPlatform);
+                if (destinationStopLabel != null) {
+                    result.add(join(Label.getTransitions(destinationStopLabel, false), egressLabelByArrivalPlatform.get(targetPlatform)));
+                }
+            }
+
+            markedBoard = new BitSet();
+            IntObjectHashMap<BoardLabel> roundBoards = new IntObjectHashMap<>();
+            boardLabels.add(roundBoards);
+            relaxTransfers(round, markedArrival, roundBoards, markedBoard);
+        }
+
+        if (!mindTransfers && result.size() > 1)
+            result = result.subList(result.size() - 1, result.size());
+        if (result.size() > limitSolutions)
+            result = result.subList(result.size() - limitSolutions, result.size());
+        return result;
+    }
+
+    private List<Label> walkToPlatforms(Label.NodeId from, Label.NodeId destNode) {
+        return walkToPlatforms(from, startTime, destNode, Long.MAX_VALUE);
+    }
+
+    /**
+     * The labels at the platform enter nodes, in the order they are settled by a walk-only search.
+     */
+    private List<Label> walkToPlatforms(Label.NodeId from, long time, Label.NodeId destNode, long limit) {
+        MultiCriteriaLabelSetting walkRouter = walkRouters.get();
+        List<Label> result = new ArrayList<>();
+        for (Label label : walkRouter.calcLabels(from, Instant.ofEpochMilli(time))) {
+            visitedNodes++;
+            if (label.innerlabel.node.equals(destNode) || label.innerlabel.currentTime - time > limit || visitedNodes >= maxVisitedNodes)
+                break;
+            if (label.innerlabel.currentTime >= bestTarget)
+                break;
+            if (label.innerlabel.edge != null && label.innerlabel.edge.getType() == GtfsStorage.EdgeType.ENTER_PT)
+                result.add(label);
+        }
+        return result;
+    }
+
+    private IntIntHashMap collectPatterns(BitSet markedBoard) {
+        IntIntHashMap firstStopByPattern = new IntIntHashMap();
+        for (int p = markedBoard.nextSetBit(0); p >= 0; p = markedBoard.nextSetBit(p + 1)) {
+            int[] patternStops = timetable.patternStopsByDeparturePlatform[p];
+            for (int i = 0; i < patternStops.length; i += 2) {
+                int index = firstStopByPattern.indexOf(patternStops[i]);
+                if (index < 0)
+                    firstStopByPattern.indexInsert(index, patternStops[i], patternStops[i + 1]);
+                else if (patternStops[i + 1] < firstStopByPattern.indexGet(index))
+                    firstStopByPattern.indexReplace(index, patternStops[i + 1]);
+            }
+        }
+        return firstStopByPattern;
+    }
+
+    private void scanPattern(int patternId, int firstStop, IntObjectHashMap<ArrivalLabel> roundArrivals, BitSet markedArrival) {
+        RaptorTimetable.Pattern pattern = timetable.patterns.get(patternId);
+        int trip = -1;
+        long serviceDay = 0;
+        long midnight = 0;
+        int boardStop = -1;
+        int boardRound = -1;
+        for (int i = firstStop; i < pattern.stops; i++) {
+            if (trip >= 0) {
+                int q = pattern.arrivalPlatforms[i];
+                int arrival = pattern.arrival(trip, i);
+                long time = midnight + arrival * 1000L;
+                if (time < bestArrival[q] && time < bestTarget && time - startTime <= limitTripTime
+                        && pattern.isValidOn(trip, i, serviceDay, arrival)) {
+                    bestArrival[q] = time;
+                    roundArrivals.put(q, new ArrivalLabel(time, patternId, trip, boardStop, i, boardRound));
+                    markedArrival.set(q);
+                }
+            }
+            if (i == pattern.stops - 1)
+                break;
+            int p = pattern.departurePlatforms[i];
+            long ready = bestBoard[p];
+            if (ready == Long.MAX_VALUE || trip >= 0 && ready > midnight + pattern.departure(trip, i) * 1000L)
+                continue;
+            long currentDeparture = trip >= 0 ? midnight + pattern.departure(trip, i) * 1000L : Long.MAX_VALUE;
+            long bestDeparture = currentDeparture;
+            LocalDate readyDate = Instant.ofEpochMilli(ready).atZone(pattern.zoneId).toLocalDate();
+            for (long day = readyDate.toEpochDay() - pattern.maxDayShift; day <= readyDate.toEpochDay() + 1; day++) {
+                long dayMidnight = LocalDate.ofEpochDay(day).atStartOfDay(pattern.zoneId).toInstant().toEpochMilli();
+                long minDeparture = Math.floorDiv(ready - dayMidnight + 999, 1000);
+                for (int t = firstTripDepartingAtOrAfter(pattern, i, minDeparture); t < pattern.trips; t++) {
+                    int departure = pattern.departure(t, i);
+                    if (dayMidnight + departure * 1000L >= bestDeparture)
+                        break;
+                    if (pattern.isValidOn(t, i, day, departure)) {
+                        bestDeparture = dayMidnight + departure * 1000L;
+                        trip = t;
+                        serviceDay = day;
+                        midnight = dayMidnight;
+                        boardStop = i;
+                        boardRound = bestBoardRound[p];
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static int firstTripDepartingAtOrAfter(RaptorTimetable.Pattern pattern, int stop, long minDeparture) {
+        int low = 0;
+        int high = pattern.trips;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pattern.departure(mid, stop) < minDeparture)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private void relaxTransfers(int round, BitSet markedArrival, IntObjectHashMap<BoardLabel> roundBoards, BitSet markedBoard) {
+        IntObjectHashMap<ArrivalLabel> roundArrivals = arrivalLabels.get(round);
+        for (int q = markedArrival.nextSetBit(0); q >= 0; q = markedArrival.nextSetBit(q + 1)) {
+            ArrivalLabel arrival = roundArrivals.get(q);
+            RaptorTimetable.Pattern pattern = timetable.patterns.get(arrival.pattern);
+            int[] transfers = timetable.transfersByArrivalTimelineNode.get(pattern.arrivalTimelineNodes[arrival.trip * pattern.stops + arrival.alightStop]);
+            if (transfers != null) {
+                for (int i = 0; i < transfers.length; i += 4) {
+                    int p = transfers[i + 1];
+                    if (p < 0 || (blockedRouteTypes & (1 << transfers[i + 3])) != 0)
+                        continue;
+                    long time = arrival.time + transfers[i + 2] * 1000L;
+                    if (time < bestBoard[p] && time < bestTarget) {
+                        bestBoard[p] = time;
+                        bestBoardRound[p] = round;
+                        roundBoards.put(p, new BoardLabel(time, null, q, transfers[i]));
+                        markedBoard.set(p);
+                    }
+                }
+            }
+            if (footpathLimit >= 0) {
+                Label.NodeId stationNode = ptExplorer.new MultiModalEdge(findEdge(timetable.arrivalPlatformNodes.get(q), GtfsStorage.EdgeType.EXIT_PT)).getAdjNode();
+                for (Footpath footpath : footpathsByStation.computeIfAbsent(stationNode, this::findFootpaths)) {
+                    int p = footpath.departurePlatform;
+                    long time = arrival.time + footpath.duration;
+                    if (time < bestBoard[p] && time < bestTarget) {
+                        bestBoard[p] = time;
+                        bestBoardRound[p] = round;
+                        roundBoards.put(p, new BoardLabel(time, footpath.walkLabel, q, -1));
+                        markedBoard.set(p);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks from the given station to the departure platforms within the footpath limit. Walking does not depend on
+     * the time, so the walk starts at the start time of the query: a footpath that is pruned because it would
+     * arrive after the best journey so far, would do so for every later arrival at the station as well. The times
+     * of the footpath labels do not matter, they are recalculated when a journey is translated into labels.
+     */
+    private List<Footpath> findFootpaths(Label.NodeId stationNode) {
+        List<Footpath> result = new ArrayList<>();
+        for (Label label : walkToPlatforms(stationNode, startTime, null, footpathLimit)) {
+            int p = timetable.departurePlatformByNode.getOrDefault(label.innerlabel.node.ptNode, -1);
+            if (p >= 0)
+                result.add(new Footpath(p, label.innerlabel.currentTime - startTime, label));
+        }
+        return result;
+    }
+
+    /**
+     * Translates the journey to the given arrival platform back into labels on the PtGraph, ending at the
+     * platform exit node.
+     */
+    private Label toLabel(int round, int arrivalPlatform) {
+        Deque<ArrivalLabel> legs = new ArrayDeque<>();
+        Deque<BoardLabel> boardings = new ArrayDeque<>();
+        int q = arrivalPlatform;
+        int r = round;
+        while (true) {
+            ArrivalLabel arrival = arrivalLabels.get(r).get(q);
+            RaptorTimetable.Pattern pattern = timetable.patterns.get(arrival.pattern);
+            BoardLabel boarding = boardLabels.get(arrival.boardRound).get(pattern.departurePlatforms[arrival.boardStop]);
+            legs.addFirst(arrival);
+            boardings.addFirst(boarding);
+            if (boarding.arrivalPlatform < 0)
+                break;
+            q = boarding.arrivalPlatform;
+            r = arrival.boardRound;
+        }
+
+        Label label = boardings.getFirst().walkLabel;
+        boolean first = true;
+        for (ArrivalLabel leg : legs) {
+            BoardLabel boarding = boardings.removeFirst();
+            RaptorTimetable.Pattern pattern = timetable.patterns.get(leg.pattern);
+            PtGraph.PtEdge boardEdge = ptGraph.edge(pattern.boardEdges[leg.trip * pattern.stops + leg.boardStop]);
+            if (!first) {
+                if (boarding.transferEdge >= 0) {
+                    label = extend(label, ptGraph.edge(boarding.transferEdge));
+                } else {
+                    label = extend(label, findEdge(label.innerlabel.node.ptNode, GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK));
+                    label = extend(label, findEdge(label.innerlabel.node.ptNode, GtfsStorage.EdgeType.EXIT_PT));
+                    List<Label.Transition> footpath = Label.getTransitions(boarding.walkLabel, false);
+                    for (Label.Transition transition : footpath.subList(1, footpath.size())) {
+                        label = extend(label, transition.edge);
+                    }
+                }
+            }
+            if (label.innerlabel.edge.getType() == GtfsStorage.EdgeType.ENTER_PT) {
+                label = extend(label, findEdge(label.innerlabel.node.ptNode, GtfsStorage.EdgeType.ENTER_TIME_EXPANDED_NETWORK, boardEdge.getBaseNode()));
+            }
+            // wait on the departure timeline until the departure of the trip
+            for (int i = 0; label.innerlabel.node.ptNode != boardEdge.getBaseNode(); i++) {
+                PtGraph.PtEdge wait = findEdgeOrNull(label.innerlabel.node.ptNode, GtfsStorage.EdgeType.WAIT);
+                if (wait == null)
+                    wait = findEdgeOrNull(label.innerlabel.node.ptNode, GtfsStorage.EdgeType.OVERNIGHT);
+                if (wait == null || i > ptGraph.getNodeCount())
+                    return null;
+                label = extend(label, wait);
+            }
+            label = extend(label, boardEdge);
+            for (int i = leg.boardStop; i < leg.alightStop; i++) {
+                label = extend(label, findEdge(label.innerlabel.node.ptNode, GtfsStorage.EdgeType.HOP));
+                if (i + 1 < leg.alightStop)
+                    label = extend(label, findEdge(label.innerlabel.node.ptNode, GtfsStorage.EdgeType.DWELL));
+            }
+            label = extend(label, ptGraph.edge(pattern.alightEdges[leg.trip * pattern.stops + leg.alightStop]));
+            first = false;
+        }
+        return extend(label, findEdge(label.innerlabel.node.ptNode, GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK));
+    }
+
+    private PtGraph.PtEdge findEdge(int node, GtfsStorage.EdgeType type) {
+        return findEdge(node, type, -1);
+    }
+
+    private PtGraph.PtEdge findEdge(int node, GtfsStorage.EdgeType type, int adjNode) {
+        for (PtGraph.PtEdge edge : ptGraph.edgesAround(node)) {
+            if (edge.getType() == type && (adjNode < 0 || edge.getAdjNode() == adjNode))
+                return edge;
+        }
+        throw new IllegalStateException("No " + type + " edge at node " + node);
+    }
+
+    private PtGraph.PtEdge findEdgeOrNull(int node, GtfsStorage.EdgeType type) {
+        for (PtGraph.PtEdge edge : ptGraph.edgesAround(node)) {
+            if (edge.getType() == type)
+                return edge;
+        }
+        return null;
+    }
+
+    private Label extend(Label label, PtGraph.PtEdge edge) {
+        return extend(label, ptExplorer.new MultiModalEdge(edge));
+    }
+
+    /**
+     * Does the same as the forward {@link MultiCriteriaLabelSetting} when it traverses the edge.
+     */
+    private Label extend(Label label, GraphExplorer.MultiModalEdge edge) {
+        long nextTime = label.innerlabel.currentTime + ptExplorer.calcTravelTimeMillis(edge, label.innerlabel.currentTime);
+        GtfsStorage.EdgeType edgeType = edge.getType();
+        Long departureTime = label.innerlabel.departureTime;
+        if ((edgeType == GtfsStorage.EdgeType.ENTER_TIME_EXPANDED_NETWORK || edgeType == GtfsStorage.EdgeType.WAIT) && label.innerlabel.nTransfers == 0)
+            departureTime = nextTime - label.streetTime;
+        long streetTime = label.streetTime;
+        if (edgeType == GtfsStorage.EdgeType.HIGHWAY || edgeType == GtfsStorage.EdgeType.ENTER_PT || edgeType == GtfsStorage.EdgeType.EXIT_PT)
+            streetTime += nextTime - label.innerlabel.currentTime;
+        return new Label(new Label.InnerLabel(nextTime, edge, edge.getAdjNode(), label.innerlabel.nTransfers + edge.getTransfers(), departureTime),
+                streetTime, label.extraWeight, 0, false, label);
+    }
+
+    /**
+     * Appends the egress path, like the label setting router does when it meets the reverse search.
+     */
+    private static List<Label.Transition> join(List<Label.Transition> pathToDestinationStop, Label egressLabel) {
+        Label destinationStopLabel = pathToDestinationStop.get(pathToDestinationStop.size() - 1).label;
+        List<Label.Transition> pathFromStation = Label.getTransitions(egressLabel, true);
+        long diff = destinationStopLabel.innerlabel.currentTime - pathFromStation.get(0).label.innerlabel.currentTime;
+        List<Label.Transition> patchedPathFromStation = pathFromStation.stream().map(t -> new Label.Transition(new Label(new Label.InnerLabel(t.label.innerlabel.currentTime + diff, t.label.innerlabel.edge, t.label.innerlabel.node, destinationStopLabel.innerlabel.nTransfers + t.label.innerlabel.nTransfers, t.label.innerlabel.departureTime), destinationStopLabel.streetTime + pathFromStation.get(0).label.streetTime, destinationStopLabel.extraWeight + t.label.extraWeight, t.label.residualDelay, t.label.impossible, null), t.edge)).collect(Collectors.toList());
+        List<Label.Transition> path = new ArrayList<>(pathToDestinationStop);
+        path.addAll(patchedPathFromStation.subList(1, pathFromStation.size()));
+        return path;
+    }
+}
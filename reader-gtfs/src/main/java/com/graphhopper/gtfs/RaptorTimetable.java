@@ -0,0 +1,387 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.*;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.IntIntCursor;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * The timetable used by {@link Raptor}. It is derived once from the time-expanded {@link PtGraph} and the GTFS feeds
+ * and keeps all trips in compact arrays: Trips which serve the same sequence of platforms, and which do not overtake
+ * each other, form a pattern. Per pattern and per stop there is one column of departure and arrival times in
+ * seconds since midnight of the service day, together with the ids of the BOARD and ALIGHT edges, so that a journey
+ * found on these arrays can be translated back into a path through the PtGraph.
+ * <p>
+ * Departure platforms are the platform enter nodes of the PtGraph, arrival platforms are the platform exit nodes.
+ * Both are numbered densely. Transfers are the TRANSFER edges of the PtGraph, grouped by the arrival timeline node
+ * they start from.
+ */
+public final class RaptorTimetable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RaptorTimetable.class);
+
+    final IntIntHashMap departurePlatformByNode = new IntIntHashMap();
+    final IntIntHashMap arrivalPlatformByNode = new IntIntHashMap();
+    final IntArrayList departurePlatformNodes = new IntArrayList();
+    final IntArrayList arrivalPlatformNodes = new IntArrayList();
+    final IntIntHashMap departurePlatformByTimelineNode = new IntIntHashMap();
+    /**
+     * Per arrival timeline node: the TRANSFER edges leaving it, as (edge id, departure platform, time, route type).
+     */
+    final IntObjectHashMap<int[]> transfersByArrivalTimelineNode = new IntObjectHashMap<>();
+    final List<Pattern> patterns = new ArrayList<>();
+    /**
+     * Per departure platform: the patterns stopping there, as (pattern, stop position) pairs.
+     */
+    int[][] patternStopsByDeparturePlatform;
+
+    static final class Pattern {
+        final int stops;
+        final int[] departurePlatforms;
+        final int[] arrivalPlatforms;
+        final ZoneId zoneId;
+        int trips;
+        int maxDayShift;
+        // per trip and stop, trip major
+        int[] departures;
+        int[] arrivals;
+        int[] boardEdges;
+        int[] alightEdges;
+        int[] arrivalTimelineNodes;
+        GtfsStorage.Validity[] validities;
+
+        Pattern(int[] departurePlatforms, int[] arrivalPlatforms, ZoneId zoneId) {
+            this.stops = departurePlatforms.length;
+            this.departurePlatforms = departurePlatforms;
+            this.arrivalPlatforms = arrivalPlatforms;
+            this.zoneId = zoneId;
+        }
+
+        int departure(int trip, int stop) {
+            return departures[trip * stops + stop];
+        }
+
+        int arrival(int trip, int stop) {
+            return arrivals[trip * stops + stop];
+        }
+
+        /**
+         * Like the BOARD and ALIGHT edges in the GraphExplorer, a trip is valid if the traffic day of the event,
+         * i.e. the service day shifted by the days the event lies after midnight, is set in the validity.
+         */
+        boolean isValidOn(int trip, int stop, long serviceDay, int time) {
+            GtfsStorage.Validity validity = validities[trip * stops + stop];
+            long trafficDay = serviceDay - validity.start.toEpochDay() + time / (24 * 60 * 60);
+            return trafficDay >= 0 && trafficDay <= Integer.MAX_VALUE && validity.canem.get((int) trafficDay);
+        }
+    }
+
+    private static final class Trip {
+        ZoneId zoneId;
+        int firstDeparture;
+        final IntArrayList departurePlatforms = new IntArrayList();
+        final IntArrayList arrivalPlatforms = new IntArrayList();
+        final IntArrayList departures = new IntArrayList();
+        final IntArrayList arrivals = new IntArrayList();
+        final IntArrayList boardEdges = new IntArrayList();
+        final IntArrayList alightEdges = new IntArrayList();
+        final IntArrayList arrivalTimelineNodes = new IntArrayList();
+        final List<GtfsStorage.Validity> validities = new ArrayList<>();
+    }
+
+    private RaptorTimetable() {
+    }
+
+    public int getPatternCount() {
+        return patterns.size();
+    }
+
+    public int getDeparturePlatformCount() {
+        return departurePlatformNodes.size();
+    }
+
+    public int getArrivalPlatformCount() {
+        return arrivalPlatformNodes.size();
+    }
+
+    static RaptorTimetable build(GtfsStorage gtfsStorage) {
+        StopWatch sw = new StopWatch().start();
+        RaptorTimetable timetable = new RaptorTimetable();
+        PtGraph ptGraph = gtfsStorage.getPtGraph();
+        IntIntHashMap boardEdgeByDepartureNode = new IntIntHashMap();
+        IntIntHashMap todByTimelineNode = new IntIntHashMap();
+        IntObjectHashMap<GtfsStorage.FeedIdWithTimezone> feedByTimelineNode = new IntObjectHashMap<>();
+        IntHashSet hopTargets = new IntHashSet();
+        IntArrayList dwellEdges = new IntArrayList();
+        IntObjectHashMap<IntArrayList> transfers = new IntObjectHashMap<>();
+        for (int edgeId = 0; edgeId < ptGraph.getEdgeCount(); edgeId++) {
+            PtGraph.PtEdge edge = ptGraph.edge(edgeId);
+            switch (edge.getType()) {
+                case ENTER_TIME_EXPANDED_NETWORK:
+                    timetable.departurePlatformByTimelineNode.put(edge.getAdjNode(), departurePlatform(timetable, edge.getBaseNode()));
+                    todByTimelineNode.put(edge.getAdjNode(), edge.getTime());
+                    feedByTimelineNode.put(edge.getAdjNode(), edge.getAttrs().feedIdWithTimezone);
+                    break;
+                case LEAVE_TIME_EXPANDED_NETWORK:
+                    arrivalPlatform(timetable, edge.getAdjNode());
+                    break;
+                case BOARD:
+                    // block transfers board with zero transfers, we only want the regular boardings
+                    if (edge.getAttrs().transfers == 1)
+                        boardEdgeByDepartureNode.put(edge.getAdjNode(), edgeId);
+                    break;
+                case HOP:
+                    hopTargets.add(edge.getAdjNode());
+                    break;
+                case DWELL:
+                    dwellEdges.add(edgeId);
+                    break;
+                case TRANSFER:
+                    IntArrayList list = transfers.get(edge.getBaseNode());
+                    if (list == null) {
+                        list = new IntArrayList(4);
+                        transfers.put(edge.getBaseNode(), list);
+                    }
+                    list.add(edgeId, edge.getAdjNode(), edge.getTime(), edge.getAttrs().routeType);
+                    break;
+                default:
+                    break;
+            }
+        }
+        for (IntObjectCursor<IntArrayList> c : transfers) {
+            int[] t = c.value.toArray();
+            for (int i = 0; i < t.length; i += 4) {
+                t[i + 1] = timetable.departurePlatformByTimelineNode.getOrDefault(t[i + 1], -1);
+            }
+            timetable.transfersByArrivalTimelineNode.put(c.key, t);
+        }
+
+        // a departure node continues a trip if it is reached by a DWELL edge from an arrival node which is reached by a HOP
+        IntHashSet continuedDepartureNodes = new IntHashSet();
+        for (IntCursor c : dwellEdges) {
+            PtGraph.PtEdge dwell = ptGraph.edge(c.value);
+            if (hopTargets.contains(dwell.getBaseNode()))
+                continuedDepartureNodes.add(dwell.getAdjNode());
+        }
+
+        Map<List<Object>, List<Trip>> tripsByPlatforms = new HashMap<>();
+        int tripCount = 0;
+        for (IntIntCursor c : boardEdgeByDepartureNode) {
+            if (continuedDepartureNodes.contains(c.key))
+                continue;
+            Trip trip = followTrip(ptGraph, gtfsStorage, timetable, c.key, boardEdgeByDepartureNode, todByTimelineNode, feedByTimelineNode);
+            if (trip == null)
+                continue;
+            IntArrayList key = new IntArrayList();
+            key.addAll(trip.departurePlatforms);
+            key.addAll(trip.arrivalPlatforms);
+            tripsByPlatforms.computeIfAbsent(Arrays.asList(key, trip.zoneId), k -> new ArrayList<>()).add(trip);
+            tripCount++;
+        }
+        for (List<Trip> trips : tripsByPlatforms.values()) {
+            trips.sort(Comparator.comparingInt(t -> t.firstDeparture));
+            for (List<Trip> fifoTrips : splitOvertakingTrips(trips)) {
+                timetable.patterns.add(createPattern(fifoTrips));
+            }
+        }
+        indexPatternsByPlatform(timetable);
+        LOGGER.info("Created RAPTOR timetable with {} patterns, {} trips, {} departure platforms, {} arrival platforms, took: {}s",
+                timetable.patterns.size(), tripCount, timetable.departurePlatformNodes.size(), timetable.arrivalPlatformNodes.size(), sw.stop().getSeconds());
+        return timetable;
+    }
+
+    private static int departurePlatform(RaptorTimetable timetable, int node) {
+        int index = timetable.departurePlatformByNode.getOrDefault(node, -1);
+        if (index < 0) {
+            index = timetable.departurePlatformNodes.size();
+            timetable.departurePlatformNodes.add(node);
+            timetable.departurePlatformByNode.put(node, index);
+        }
+        return index;
+    }
+
+    private static int arrivalPlatform(RaptorTimetable timetable, int node) {
+        int index = timetable.arrivalPlatformByNode.getOrDefault(node, -1);
+        if (index < 0) {
+            index = timetable.arrivalPlatformNodes.size();
+            timetable.arrivalPlatformNodes.add(node);
+            timetable.arrivalPlatformByNode.put(node, index);
+        }
+        return index;
+    }
+
+    private static Trip followTrip(PtGraph ptGraph, GtfsStorage gtfsStorage, RaptorTimetable timetable, int departureNode,
+                                   IntIntHashMap boardEdgeByDepartureNode, IntIntHashMap todByTimelineNode,
+                                   IntObjectHashMap<GtfsStorage.FeedIdWithTimezone> feedByTimelineNode) {
+        Trip trip = new Trip();
+        int time = 0;
+        int node = departureNode;
+        while (true) {
+            int boardEdgeId = boardEdgeByDepartureNode.getOrDefault(node, -1);
+            if (boardEdgeId < 0)
+                return null;
+            PtGraph.PtEdge boardEdge = ptGraph.edge(boardEdgeId);
+            int timelineNode = boardEdge.getBaseNode();
+            int departurePlatform = timetable.departurePlatformByTimelineNode.getOrDefault(timelineNode, -1);
+            if (departurePlatform < 0)
+                return null;
+            if (trip.departures.isEmpty()) {
+                GtfsStorage.FeedIdWithTimezone feed = feedByTimelineNode.get(timelineNode);
+                trip.zoneId = feed.zoneId;
+                trip.firstDeparture = firstDeparture(gtfsStorage.getTransitStore(), feed.feedId, boardEdge.getAttrs().tripDescriptor, todByTimelineNode.get(timelineNode));
+                trip.arrivalPlatforms.add(-1);
+                trip.arrivals.add(trip.firstDeparture);
+                trip.alightEdges.add(-1);
+                trip.arrivalTimelineNodes.add(-1);
+            }
+            trip.departurePlatforms.add(departurePlatform);
+            trip.departures.add(trip.firstDeparture + time);
+            trip.boardEdges.add(boardEdgeId);
+            trip.validities.add(boardEdge.getAttrs().classe2.validity);
+
+            PtGraph.PtEdge hop = findEdge(ptGraph, node, GtfsStorage.EdgeType.HOP);
+            if (hop == null)
+                break;
+            time += hop.getTime();
+            PtGraph.PtEdge alight = findEdge(ptGraph, hop.getAdjNode(), GtfsStorage.EdgeType.ALIGHT);
+            PtGraph.PtEdge dwell = findEdge(ptGraph, hop.getAdjNode(), GtfsStorage.EdgeType.DWELL);
+            PtGraph.PtEdge leave = alight == null ? null : findEdge(ptGraph, alight.getAdjNode(), GtfsStorage.EdgeType.LEAVE_TIME_EXPANDED_NETWORK);
+            if (leave == null || dwell == null)
+                return null;
+            trip.arrivalPlatforms.add(timetable.arrivalPlatformByNode.get(leave.getAdjNode()));
+            trip.arrivals.add(trip.firstDeparture + time);
+            trip.alightEdges.add(alight.getId());
+            trip.arrivalTimelineNodes.add(alight.getAdjNode());
+            time += dwell.getTime();
+            node = dwell.getAdjNode();
+        }
+        return trip.departures.size() < 2 ? null : trip;
+    }
+
+    /**
+     * The departure timeline only knows the time of day, the service day offset of the first departure
+     * (for trips starting after midnight) comes from the GTFS feed.
+     */
+    private static int firstDeparture(TransitStore transitStore, String feedId, GtfsRealtime.TripDescriptor tripDescriptor, int timeOfDay) {
+        int trip = transitStore.getTrip(feedId, tripDescriptor.getTripId());
+        if (trip < 0 || transitStore.getStopTimeCount(trip) == 0)
+            return timeOfDay;
+        int departure = transitStore.getDepartureTime(transitStore.getFirstStopTime(trip));
+        if (tripDescriptor.hasStartTime())
+            departure += parseGtfsTime(tripDescriptor.getStartTime());
+        return timeOfDay + departure / (24 * 60 * 60) * (24 * 60 * 60);
+    }
+
+    private static int parseGtfsTime(String time) {
+        String[] parts = time.split(":");
+        return Integer.parseInt(parts[0]) * 3600 + Integer.parseInt(parts[1]) * 60 + Integer.parseInt(parts[2]);
+    }
+
+    private static PtGraph.PtEdge findEdge(PtGraph ptGraph, int node, GtfsStorage.EdgeType type) {
+        for (PtGraph.PtEdge edge : ptGraph.edgesAround(node)) {
+            if (edge.getType() == type)
+                return edge;
+        }
+        return null;
+    }
+
+    /**
+     * RAPTOR scans the trips of a pattern in order and relies on trips not overtaking each other.
+     */
+    private static List<List<Trip>> splitOvertakingTrips(List<Trip> trips) {
+        List<List<Trip>> result = new ArrayList<>();
+        for (Trip trip : trips) {
+            List<Trip> fitting = null;
+            for (List<Trip> candidate : result) {
+                if (!overtakes(candidate.get(candidate.size() - 1), trip)) {
+                    fitting = candidate;
+                    break;
+                }
+            }
+            if (fitting == null) {
+                fitting = new ArrayList<>();
+                result.add(fitting);
+            }
+            fitting.add(trip);
+        }
+        return result;
+    }
+
+    private static boolean overtakes(Trip earlier, Trip later) {
+        for (int i = 0; i < earlier.departures.size(); i++) {
+            if (later.departures.get(i) < earlier.departures.get(i) || later.arrivals.get(i) < earlier.arrivals.get(i))
+                return true;
+        }
+        return false;
+    }
+
+    private static Pattern createPattern(List<Trip> trips) {
+        Trip first = trips.get(0);
+        Pattern pattern = new Pattern(first.departurePlatforms.toArray(), first.arrivalPlatforms.toArray(), first.zoneId);
+        int stops = pattern.stops;
+        pattern.trips = trips.size();
+        pattern.departures = new int[trips.size() * stops];
+        pattern.arrivals = new int[trips.size() * stops];
+        pattern.boardEdges = new int[trips.size() * stops];
+        pattern.alightEdges = new int[trips.size() * stops];
+        pattern.arrivalTimelineNodes = new int[trips.size() * stops];
+        pattern.validities = new GtfsStorage.Validity[trips.size() * stops];
+        for (int t = 0; t < trips.size(); t++) {
+            Trip trip = trips.get(t);
+            for (int i = 0; i < stops; i++) {
+                int index = t * stops + i;
+                pattern.departures[index] = trip.departures.get(i);
+                pattern.arrivals[index] = trip.arrivals.get(i);
+                pattern.boardEdges[index] = trip.boardEdges.get(i);
+                pattern.alightEdges[index] = trip.alightEdges.get(i);
+                pattern.arrivalTimelineNodes[index] = trip.arrivalTimelineNodes.get(i);
+                pattern.validities[index] = trip.validities.get(i);
+                pattern.maxDayShift = Math.max(pattern.maxDayShift, trip.departures.get(i) / (24 * 60 * 60));
+            }
+        }
+        return pattern;
+    }
+
+    private static void indexPatternsByPlatform(RaptorTimetable timetable) {
+        IntArrayList[] lists = new IntArrayList[timetable.departurePlatformNodes.size()];
+        for (int p = 0; p < timetable.patterns.size(); p++) {
+            Pattern pattern = timetable.patterns.get(p);
+            // no boarding at the last stop
+            for (int i = 0; i < pattern.stops - 1; i++) {
+                int platform = pattern.departurePlatforms[i];
+                if (lists[platform] == null)
+                    lists[platform] = new IntArrayList(4);
+                lists[platform].add(p, i);
+            }
+        }
+        timetable.patternStopsByDeparturePlatform = new int[lists.length][];
+        for (int i = 0; i < lists.length; i++) {
+            timetable.patternStopsByDeparturePlatform[i] = lists[i] == null ? new int[0] : lists[i].toArray();
+        }
+    }
+}
@@ -23,6 +23,8 @@ import com.eccezionereader.DbFileException;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntHashSet;
 import com.carrotsearch.hppc.IntLongHashMap;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.LongArrayList;
 import com.conveyal.gtfs.GTFSFeed;
 import com.conveyal.gtfs.model.Frequency;
 import com.conveyal.gtfs.model.StopTime;
@@ -52,99 +54,259 @@ import static java.time.temporal.ChronoUnit.DAYS;
 
 public class RealtimeFeed {
     private static final Logger logger = LoggerFactory.getLogger(RealtimeFeed.class);
-    private final IntHashSet blockedEdges;
-    private final IntLongHashMap delaysForBoardEdges;
-    private final IntLongHashMap delaysForAlightEdges;
-    private final List<PtGraph.PtEdge> additionalEdges;
+    /**
+     * The ids of overlay edges that were replaced by an update are not reused. Once there are more of them than this,
+     * the next update builds all overlays again, starting at the first id after the static graph.
+     */
+    private static final int MAX_UNUSED_OVERLAY_EDGES = 100_000;
+    private static final List<PtGraph.PtEdge> NO_EDGES = Collections.emptyList();
     public final Map<String, GtfsRealtime.FeedMessage> feedMessages;
+    private final Map<String, FeedPart> feedParts;
+    // the same parts as an array, because every edge of a query is looked up in all of them
+    private final FeedPart[] parts;
+    private final OverlayIds overlayIds;
 
-    private RealtimeFeed(Map<String, GtfsRealtime.FeedMessage> feedMessages, IntHashSet blockedEdges,
-                         IntLongHashMap delaysForBoardEdges, IntLongHashMap delaysForAlightEdges, List<PtGraph.PtEdge> additionalEdges) {
+    private RealtimeFeed(Map<String, GtfsRealtime.FeedMessage> feedMessages, Map<String, FeedPart> feedParts, OverlayIds overlayIds) {
         this.feedMessages = feedMessages;
-        this.blockedEdges = blockedEdges;
-        this.delaysForBoardEdges = delaysForBoardEdges;
-        this.delaysForAlightEdges = delaysForAlightEdges;
-        this.additionalEdges = additionalEdges;
+        this.feedParts = feedParts;
+        this.parts = feedParts.values().toArray(new FeedPart[0]);
+        this.overlayIds = overlayIds;
+    }
+
+    private static void addToIndex(IntObjectHashMap<List<PtGraph.PtEdge>> index, int node, PtGraph.PtEdge edge) {
+        List<PtGraph.PtEdge> edges = index.get(node);
+        if (edges == null) {
+            edges = new ArrayList<>(2);
+            index.put(node, edges);
+        }
+        edges.add(edge);
     }
 
     public static RealtimeFeed empty() {
-        return new RealtimeFeed(Collections.emptyMap(), new IntHashSet(), new IntLongHashMap(), new IntLongHashMap(), Collections.emptyList());
+        return new RealtimeFeed(Collections.emptyMap(), Collections.emptyMap(), new OverlayIds(-1, -1));
     }
 
     public static RealtimeFeed fromProtobuf(BaseGraph baseGraph, EncodingManager encodingManager, GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
-        final IntHashSet blockedEdges = new IntHashSet();
-        final IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
-        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
-        final LinkedList<PtGraph.PtEdge> additionalEdges = new LinkedList<>();
-        final GtfsReader.PtGraphOut overlayGraph = new GtfsReader.PtGraphOut() {
-            int nextEdge = staticGtfs.getPtGraph().getEdgeCount();
-            int nextNode = staticGtfs.getPtGraph().getNodeCount();
-
-            @Override
-            public int createEdge(int src, int dest, PtEdgeAttributes attrs) {
-                int edgeId = nextEdge++;
-                additionalEdges.add(new PtGraph.PtEdge(edgeId, src, dest, attrs));
-                return edgeId;
+        return empty().update(baseGraph, encodingManager, staticGtfs, transfers, feedMessages);
+    }
+
+    /**
+     * Creates the feed for the given messages and leaves this one unchanged, so the result can replace this feed
+     * atomically while queries still use it. Trip updates that are equal to the ones of this feed, apart from their
+     * timestamp, are not applied again: their blocked edges and delays are re-used. The overlay graph of a GTFS feed,
+     * which contains the delayed departures and the added trips, is only built again when one of these changed.
+     * Every GTFS feed keeps its own lookup structures, so a feed whose trip updates did not change is taken over as
+     * it is and only the feeds that changed are indexed again.
+     */
+    public RealtimeFeed update(BaseGraph baseGraph, EncodingManager encodingManager, GtfsStorage staticGtfs, Map<String, Transfers> transfers, Map<String, GtfsRealtime.FeedMessage> feedMessages) {
+        PtGraph ptGraph = staticGtfs.getPtGraph();
+        int usedOverlayEdges = 0;
+        for (FeedPart part : parts)
+            usedOverlayEdges += part.overlay.edges.size();
+        boolean rebuild = overlayIds.nextEdge < ptGraph.getEdgeCount()
+                || overlayIds.nextEdge - ptGraph.getEdgeCount() - usedOverlayEdges > MAX_UNUSED_OVERLAY_EDGES;
+        OverlayIds ids = rebuild ? new OverlayIds(ptGraph.getEdgeCount(), ptGraph.getNodeCount()) : new OverlayIds(overlayIds.nextEdge, overlayIds.nextNode);
+        Map<String, FeedPart> newFeedParts = new HashMap<>();
+        feedMessages.forEach((feedKey, feedMessage) -> {
+            FeedPart previous = rebuild ? null : feedParts.get(feedKey);
+            newFeedParts.put(feedKey, FeedPart.create(baseGraph, encodingManager, staticGtfs, transfers.get(feedKey), feedKey, feedMessage, previous, ids));
+        });
+        return new RealtimeFeed(feedMessages, newFeedParts, ids);
+    }
+
+    /**
+     * Hands out the ids of the nodes and edges of the overlay graphs. The ids are never re-used between updates,
+     * because a query can still see the previous feed.
+     */
+    private static final class OverlayIds {
+        int nextEdge;
+        int nextNode;
+
+        OverlayIds(int nextEdge, int nextNode) {
+            this.nextEdge = nextEdge;
+            this.nextNode = nextNode;
+        }
+
+        GtfsReader.PtGraphOut overlayGraph(List<PtGraph.PtEdge> edges) {
+            return new GtfsReader.PtGraphOut() {
+                @Override
+                public int createEdge(int src, int dest, PtEdgeAttributes attrs) {
+                    int edgeId = nextEdge++;
+                    edges.add(new PtGraph.PtEdge(edgeId, src, dest, attrs));
+                    return edgeId;
+                }
+
+                @Override
+                public int createNode() {
+                    return nextNode++;
+                }
+            };
+        }
+    }
+
+    /**
+     * What a SCHEDULED trip update changes in the static graph. The delayed departures are quadruples of stop
+     * sequence, departure time, departure node and delay in seconds, their board edges belong to the overlay graph.
+     */
+    private static final class TripPart {
+        final GtfsRealtime.TripDescriptor trip;
+        final int[] blockedEdges;
+        final int[] alightEdges;
+        final long[] alightDelays;
+        final int[] delayedDepartures;
+
+        TripPart(GtfsRealtime.TripDescriptor trip, int[] blockedEdges, int[] alightEdges, long[] alightDelays, int[] delayedDepartures) {
+            this.trip = trip;
+            this.blockedEdges = blockedEdges;
+            this.alightEdges = alightEdges;
+            this.alightDelays = alightDelays;
+            this.delayedDepartures = delayedDepartures;
+        }
+
+        static TripPart create(GtfsStorage staticGtfs, String feedKey, GTFSFeed feed, GtfsRealtime.TripUpdate tripUpdate) {
+            Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
+            int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
+            final int[] boardEdges = findBoardEdgesForTrip(staticGtfs, feedKey, feed, tripUpdate);
+            final int[] leaveEdges = findLeaveEdgesForTrip(staticGtfs, feedKey, feed, tripUpdate);
+            if (methodRealFeed2(tripUpdate, boardEdges, leaveEdges))
+                return new TripPart(tripUpdate.getTrip(), new int[0], new int[0], new long[0], new int[0]);
+            IntArrayList blockedEdges = new IntArrayList();
+            tripUpdate.getStopTimeUpdateList().stream()
+                    .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
+                    .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
+                    .forEach(skippedStopSequenceNumber -> {
+                        blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
+                        blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
+                    });
+            IntArrayList alightEdges = new IntArrayList();
+            LongArrayList alightDelays = new LongArrayList();
+            IntArrayList delayedDepartures = new IntArrayList();
+            GtfsReader.TripWithStopTimes tripWithStopTimes = methodFeed1(feed, tripUpdate, null);
+            if (tripWithStopTimes == null) {
+                logger.warn("Cannot apply the delays of trip {}", tripUpdate.getTrip());
+                return new TripPart(tripUpdate.getTrip(), blockedEdges.toArray(), new int[0], new long[0], new int[0]);
             }
+            tripWithStopTimes.stopTimes.forEach(stopTime -> {
+                if (stopTime.getStopSequence() > leaveEdges.length - 1) {
+                    logger.warn("Stop sequence number too high {} vs {}", stopTime.getStopSequence(), leaveEdges.length);
+                    return;
+                }
+                final StopTime originalStopTime = staticGtfs.getTransitStore().getStopTime(feedKey, tripUpdate.getTrip().getTripId(), stopTime.getStopSequence());
+                int arrivalDelay = stopTime.getArrivalTime() - originalStopTime.getArrivalTime();
+                alightEdges.add(leaveEdges[stopTime.getStopSequence()]);
+                alightDelays.add(arrivalDelay * (long) 1000);
+                int departureDelay = stopTime.getDepartureTime() - originalStopTime.getDepartureTime();
+                if (departureDelay > 0) {
+                    int boardEdge = boardEdges[stopTime.getStopSequence()];
+                    int departureNode = staticGtfs.getPtGraph().edge(boardEdge).getAdjNode();
+                    delayedDepartures.add(stopTime.getStopSequence(), stopTime.getDepartureTime() + timeOffset, departureNode, departureDelay);
+                }
+            });
+            return new TripPart(tripUpdate.getTrip(), blockedEdges.toArray(), alightEdges.toArray(), alightDelays.toArray(), delayedDepartures.toArray());
+        }
+    }
 
-            @Override
-            public int createNode() {
-                return nextNode++;
+    /**
+     * The overlay graph of one GTFS feed, indexed by node, and the delays of its board edges.
+     */
+    private static final class Overlay {
+        static final Overlay EMPTY = new Overlay(NO_EDGES, new IntLongHashMap());
+
+        final List<PtGraph.PtEdge> edges;
+        final IntLongHashMap delaysForBoardEdges;
+        final IntObjectHashMap<List<PtGraph.PtEdge>> edgesByBaseNode = new IntObjectHashMap<>();
+        final IntObjectHashMap<List<PtGraph.PtEdge>> edgesByAdjNode = new IntObjectHashMap<>();
+
+        Overlay(List<PtGraph.PtEdge> edges, IntLongHashMap delaysForBoardEdges) {
+            this.edges = edges;
+            this.delaysForBoardEdges = delaysForBoardEdges;
+            for (PtGraph.PtEdge edge : edges) {
+                addToIndex(edgesByBaseNode, edge.getBaseNode(), edge);
+                addToIndex(edgesByAdjNode, edge.getAdjNode(), edge);
             }
+        }
+    }
 
-        };
+    /**
+     * The trip updates of one GTFS feed, what they change in the static graph and the overlay graph that was built
+     * for them.
+     */
+    private static final class FeedPart {
+        final Map<GtfsRealtime.TripUpdate, TripPart> tripParts;
+        final List<GtfsRealtime.TripUpdate> addedTrips;
+        final LocalDate date;
+        final Overlay overlay;
+        final IntHashSet blockedEdges = new IntHashSet();
+        final IntLongHashMap delaysForAlightEdges = new IntLongHashMap();
 
-        feedMessages.forEach((feedKey, feedMessage) -> {
+        FeedPart(Map<GtfsRealtime.TripUpdate, TripPart> tripParts, List<GtfsRealtime.TripUpdate> addedTrips, LocalDate date, Overlay overlay) {
+            this.tripParts = tripParts;
+            this.addedTrips = addedTrips;
+            this.date = date;
+            this.overlay = overlay;
+            for (TripPart tripPart : tripParts.values()) {
+                blockedEdges.addAll(tripPart.blockedEdges);
+                for (int i = 0; i < tripPart.alightEdges.length; i++)
+                    delaysForAlightEdges.put(tripPart.alightEdges[i], tripPart.alightDelays[i]);
+            }
+        }
+
+        static FeedPart create(BaseGraph baseGraph, EncodingManager encodingManager, GtfsStorage staticGtfs, Transfers transfers, String feedKey,
+                               GtfsRealtime.FeedMessage feedMessage, FeedPart previous, OverlayIds ids) {
             GTFSFeed feed = staticGtfs.getGtfsFeeds().get(feedKey);
             ZoneId timezone = ZoneId.of(feed.agency.values().stream().findFirst().get().getagencyTimezone());
-            PtGraph ptGraphNodesAndEdges = staticGtfs.getPtGraph();
-            final GtfsReader gtfsReader = new GtfsReader(new GtfsReader.InnerGtfs(feedKey, baseGraph, encodingManager), ptGraphNodesAndEdges, overlayGraph, staticGtfs, null, transfers.get(feedKey), null);
             Instant timestamp = Instant.ofEpochSecond(feedMessage.getHeader().getTimestamp());
             LocalDate dateToChange = timestamp.atZone(timezone).toLocalDate();
+            Map<GtfsRealtime.TripUpdate, TripPart> tripParts = new LinkedHashMap<>();
+            List<GtfsRealtime.TripUpdate> addedTrips = new ArrayList<>();
+            boolean overlayChanged = previous == null || !previous.date.equals(dateToChange);
+            boolean tripPartsChanged = false;
+            for (GtfsRealtime.FeedEntity entity : feedMessage.getEntityList()) {
+                if (!entity.hasTripUpdate())
+                    continue;
+                // the timestamp of a trip update can change although nothing else did
+                GtfsRealtime.TripUpdate tripUpdate = entity.getTripUpdate().toBuilder().clearTimestamp().build();
+                if (tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED) {
+                    TripPart tripPart = previous == null ? null : previous.tripParts.get(tripUpdate);
+                    if (tripPart == null) {
+                        tripPart = TripPart.create(staticGtfs, feedKey, feed, tripUpdate);
+                        tripPartsChanged = true;
+                        overlayChanged |= tripPart.delayedDepartures.length > 0;
+                    }
+                    tripParts.put(tripUpdate, tripPart);
+                } else if (tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED) {
+                    addedTrips.add(tripUpdate);
+                }
+            }
+            if (previous != null) {
+                overlayChanged |= !addedTrips.equals(previous.addedTrips);
+                for (Map.Entry<GtfsRealtime.TripUpdate, TripPart> e : previous.tripParts.entrySet()) {
+                    if (e.getValue().delayedDepartures.length > 0 && !tripParts.containsKey(e.getKey()))
+                        overlayChanged = true;
+                }
+            }
+            if (!overlayChanged) {
+                // all trip updates are also in the previous feed, so if there are as many it has the same ones
+                if (!tripPartsChanged && tripParts.size() == previous.tripParts.size())
+                    return previous;
+                return new FeedPart(tripParts, addedTrips, dateToChange, previous.overlay);
+            }
+
+            if (tripParts.values().stream().allMatch(p -> p.delayedDepartures.length == 0) && addedTrips.isEmpty())
+                return new FeedPart(tripParts, addedTrips, dateToChange, Overlay.EMPTY);
+            List<PtGraph.PtEdge> overlayEdges = new ArrayList<>();
+            IntLongHashMap delaysForBoardEdges = new IntLongHashMap();
+            final GtfsReader gtfsReader = new GtfsReader(new GtfsReader.InnerGtfs(feedKey, baseGraph, encodingManager), staticGtfs.getPtGraph(), ids.overlayGraph(overlayEdges), staticGtfs, null, transfers, null);
             BitSet validOnDay = new BitSet();
             LocalDate startDate = feed.getStartDate();
             validOnDay.set((int) DAYS.between(startDate, dateToChange));
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.SCHEDULED)
-                    .forEach(tripUpdate -> {
-                        Collection<Frequency> frequencies = feed.getFrequencies(tripUpdate.getTrip().getTripId());
-                        int timeOffset = (tripUpdate.getTrip().hasStartTime() && !frequencies.isEmpty()) ? LocalTime.parse(tripUpdate.getTrip().getStartTime()).toSecondOfDay() : 0;
-                        final int[] boardEdges = findBoardEdgesForTrip(staticGtfs, feedKey, feed, tripUpdate);
-                        final int[] leaveEdges = findLeaveEdgesForTrip(staticGtfs, feedKey, feed, tripUpdate);
-                        if (methodRealFeed2(tripUpdate, boardEdges, leaveEdges)) return;
-                        tripUpdate.getStopTimeUpdateList().stream()
-                                .filter(stopTimeUpdate -> stopTimeUpdate.getScheduleRelationship() == SKIPPED)
-                                .mapToInt(GtfsRealtime.TripUpdate.StopTimeUpdate::getStopSequence)
-                                .forEach(skippedStopSequenceNumber -> {
-                                    blockedEdges.add(boardEdges[skippedStopSequenceNumber]);
-                                    blockedEdges.add(leaveEdges[skippedStopSequenceNumber]);
-                                });
-                        GtfsReader.TripWithStopTimes tripWithStopTimes = null;
-                        tripWithStopTimes = methodFeed1(feed, tripUpdate, tripWithStopTimes);
-                        tripWithStopTimes.stopTimes.forEach(stopTime -> {
-                            if (stopTime.getStopSequence() > leaveEdges.length - 1) {
-                                logger.warn("Stop sequence number too high {} vs {}", stopTime.getStopSequence(), leaveEdges.length);
-                                return;
-                            }
-                            final StopTime originalStopTime = feed.stopTims.get(new Fun.Tuple2<>(tripUpdate.getTrip().getTripId(), stopTime.getStopSequence()));
-                            int arrivalDelay = stopTime.getArrivalTime() - originalStopTime.getArrivalTime();
-                            delaysForAlightEdges.put(leaveEdges[stopTime.getStopSequence()], arrivalDelay * (long)1000);
-                            int departureDelay = stopTime.getDepartureTime() - originalStopTime.getDepartureTime();
-                            if (departureDelay > 0) {
-                                int boardEdge = boardEdges[stopTime.getStopSequence()];
-                                int departureNode = ptGraphNodesAndEdges.edge(boardEdge).getAdjNode();
-                                int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripUpdate.getTrip(), stopTime.getStopSequence(), stopTime.getDepartureTime() + timeOffset, departureNode, validOnDay);
-                                delaysForBoardEdges.put(delayedBoardEdge, departureDelay * (long)1000);
-                            }
-                        });
-                    });
-            feedMessage.getEntityList().stream()
-                    .filter(GtfsRealtime.FeedEntity::hasTripUpdate)
-                    .map(GtfsRealtime.FeedEntity::getTripUpdate)
-                    .filter(tripUpdate -> tripUpdate.getTrip().getScheduleRelationship() == GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED)
-                    .forEach(tripUpdate -> {
+            for (TripPart tripPart : tripParts.values()) {
+                for (int i = 0; i < tripPart.delayedDepartures.length; i += 4) {
+                    int delayedBoardEdge = gtfsReader.addDelayedBoardEdge(timezone, tripPart.trip, tripPart.delayedDepartures[i], tripPart.delayedDepartures[i + 1], tripPart.delayedDepartures[i + 2], validOnDay);
+                    delaysForBoardEdges.put(delayedBoardEdge, tripPart.delayedDepartures[i + 3] * (long) 1000);
+                }
+            }
+            addedTrips.forEach(tripUpdate -> {
                         Trip trip = new Trip();
                         trip.trip_id = tripUpdate.getTrip().getTripId();
                         trip.route_id = tripUpdate.getTrip().getRouteId();
@@ -165,9 +327,8 @@ public class RealtimeFeed {
                         gtfsReader.addTrip(timezone, 0, new ArrayList<>(), tripWithStopTimes, tripUpdate.getTrip());
                     });
             gtfsReader.wireUpAdditionalDeparturesAndArrivals(timezone);
-        });
-
-        return new RealtimeFeed(feedMessages, blockedEdges, delaysForBoardEdges, delaysForAlightEdges, additionalEdges);
+            return new FeedPart(tripParts, addedTrips, dateToChange, new Overlay(overlayEdges, delaysForBoardEdges));
+        }
     }
 
     private static GtfsReader.TripWithStopTimes methodFeed1(GTFSFeed feed, GtfsRealtime.TripUpdate tripUpdate, GtfsReader.TripWithStopTimes tripWithStopTimes) {
@@ -187,10 +348,18 @@ public class RealtimeFeed {
         return false;
     }
 
+    private static String firstStopId(TransitStore transitStore, String feedKey, GtfsRealtime.TripUpdate tripUpdate) {
+        int trip = transitStore.getTrip(feedKey, tripUpdate.getTrip().getTripId());
+        if (trip < 0 || transitStore.getStopTimeCount(trip) == 0)
+            return null;
+        return transitStore.getStopId(transitStore.getStopTimeStop(transitStore.getFirstStopTime(trip)));
+    }
+
     private static int[] findLeaveEdgesForTrip(GtfsStorage staticGtfs, String feedKey, GTFSFeed feed, GtfsRealtime.TripUpdate tripUpdate) {
-        Trip trip = feed.trips.get(tripUpdate.getTrip().getTripId());
-        StopTime next = feed.getOrderedStopTimesForTrip(trip.trip_id).iterator().next();
-        int station = staticGtfs.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedKey, next.getStopId()));
+        String firstStopId = firstStopId(staticGtfs.getTransitStore(), feedKey, tripUpdate);
+        if (firstStopId == null)
+            return null;
+        int station = staticGtfs.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedKey, firstStopId));
         Optional<PtGraph.PtEdge> firstBoarding = StreamSupport.stream(staticGtfs.getPtGraph().backEdgesAround(station).spliterator(), false)
                 .flatMap(e -> StreamSupport.stream(staticGtfs.getPtGraph().backEdgesAround(e.getAdjNode()).spliterator(), false))
                 .flatMap(e -> StreamSupport.stream(staticGtfs.getPtGraph().backEdgesAround(e.getAdjNode()).spliterator(), false))
@@ -209,9 +378,10 @@ public class RealtimeFeed {
 
 
     private static int[] findBoardEdgesForTrip(GtfsStorage staticGtfs, String feedKey, GTFSFeed feed, GtfsRealtime.TripUpdate tripUpdate) {
-        Trip trip = feed.trips.get(tripUpdate.getTrip().getTripId());
-        StopTime next = feed.getOrderedStopTimesForTrip(trip.trip_id).iterator().next();
-        int station = staticGtfs.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedKey, next.getStopId()));
+        String firstStopId = firstStopId(staticGtfs.getTransitStore(), feedKey, tripUpdate);
+        if (firstStopId == null)
+            return null;
+        int station = staticGtfs.getStationNodes().get(new GtfsStorage.FeedIdWithStopId(feedKey, firstStopId));
         Optional<PtGraph.PtEdge> firstBoarding = StreamSupport.stream(staticGtfs.getPtGraph().edgesAround(station).spliterator(), false)
                 .flatMap(e -> StreamSupport.stream(staticGtfs.getPtGraph().edgesAround(e.getAdjNode()).spliterator(), false))
                 .flatMap(e -> StreamSupport.stream(staticGtfs.getPtGraph().edgesAround(e.getAdjNode()).spliterator(), false))
@@ -302,11 +472,35 @@ public class RealtimeFeed {
     }
 
     boolean isBlocked(int edgeId) {
-        return blockedEdges.contains(edgeId);
+        for (FeedPart part : parts)
+            if (part.blockedEdges.contains(edgeId))
+                return true;
+        return false;
+    }
+
+    List<PtGraph.PtEdge> getAdditionalEdgesFrom(int baseNode) {
+        return getAdditionalEdges(baseNode, true);
+    }
+
+    List<PtGraph.PtEdge> getAdditionalEdgesTo(int adjNode) {
+        return getAdditionalEdges(adjNode, false);
     }
 
-    List<PtGraph.PtEdge> getAdditionalEdges() {
-        return additionalEdges;
+    private List<PtGraph.PtEdge> getAdditionalEdges(int node, boolean fromNode) {
+        List<PtGraph.PtEdge> result = NO_EDGES;
+        for (FeedPart part : parts) {
+            List<PtGraph.PtEdge> edges = fromNode ? part.overlay.edgesByBaseNode.get(node) : part.overlay.edgesByAdjNode.get(node);
+            if (edges == null)
+                continue;
+            if (result.isEmpty()) {
+                result = edges;
+            } else {
+                // the overlays of different feeds only meet at the nodes of the static graph, this is rare
+                result = new ArrayList<>(result);
+                result.addAll(edges);
+            }
+        }
+        return result;
     }
 
     public Optional<GtfsReader.TripWithStopTimes> getTripUpdate(GTFSFeed staticFeed, GtfsRealtime.TripDescriptor tripDescriptor, Instant boardTime) {
@@ -477,7 +671,12 @@ public class RealtimeFeed {
 
     public long getDelayForBoardEdge(PtGraph.PtEdge edge, Instant now) {
         if (isThisRealtimeUpdateAboutThisLineRun(now)) {
-            return delaysForBoardEdges.getOrDefault(edge.getId(), 0);
+            for (FeedPart part : parts) {
+                int index = part.overlay.delaysForBoardEdges.indexOf(edge.getId());
+                if (index >= 0)
+                    return part.overlay.delaysForBoardEdges.indexGet(index);
+            }
+            return 0;
         } else {
             return 0;
         }
@@ -485,7 +684,12 @@ public class RealtimeFeed {
 
     public long getDelayForAlightEdge(PtGraph.PtEdge edge, Instant now) {
         if (isThisRealtimeUpdateAboutThisLineRun(now)) {
-            return delaysForAlightEdges.getOrDefault(edge.getId(), 0);
+            for (FeedPart part : parts) {
+                int index = part.delaysForAlightEdges.indexOf(edge.getId());
+                if (index >= 0)
+                    return part.delaysForAlightEdges.indexGet(index);
+            }
+            return 0;
         } else {
             return 0;
         }
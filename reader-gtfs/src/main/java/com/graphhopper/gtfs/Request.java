@@ -30,6 +30,7 @@ public class Request {
     private Instant earliestDepartureTime;
     private int maxVisitedNodes = 1_000_000;
     private boolean profileQuery;
+    private boolean raptor;
     private Boolean ignoreTransfers;
     private double betaTransfers = 0.0;
     private double betaStreetTime = 1.0;
@@ -71,6 +72,19 @@ public class Request {
         this.profileQuery = profileQuery;
     }
 
+    public boolean isRaptor() {
+        return raptor;
+    }
+
+    /**
+     * Routes with RAPTOR instead of the label setting search. Requests which RAPTOR does not support (arrive by,
+     * profile queries, weighted transfers or street time, boarding penalties, realtime updates) still use the
+     * label setting search, and so do all requests if the timetable was disabled with gtfs.raptor=false.
+     */
+    public void setRaptor(boolean raptor) {
+        this.raptor = raptor;
+    }
+
     public Boolean getIgnoreTransfers() {
         return ignoreTransfers;
     }
@@ -0,0 +1,345 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.ObjectIntMap;
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.Stop;
+import com.conveyal.gtfs.model.StopTime;
+import com.conveyal.gtfs.model.Trip;
+import com.graphhopper.storage.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The stops, trips and stop times of all feeds in int-indexed, fixed size records on top of {@link DataAccess}. The
+ * lookups needed while routing, like the stop time of a trip at a stop sequence or the name and coordinate of a stop,
+ * only read a few ints from these arrays instead of going through the B-trees of the {@link GTFSFeed} databases.
+ * <p>
+ * The stop times of a trip are stored consecutively and ordered by their stop sequence. The arrival and departure
+ * times are the ones from the feed, i.e. they are not interpolated. Strings are stored once in a separate array and
+ * referenced by their pointer.
+ */
+public class TransitStore {
+
+    private static final int NO_STRING = -1;
+
+    // stops
+    private final DataAccess stops;
+    private static final int S_FEED = 0, S_ID = 4, S_NAME = 8, S_LAT = 12, S_LON = 20;
+    private static final int STOP_ENTRY_BYTES = 28;
+    private int stopCount;
+
+    // trips
+    private final DataAccess trips;
+    private static final int T_FEED = 0, T_ID = 4, T_ROUTE = 8, T_HEADSIGN = 12, T_FIRST_STOP_TIME = 16, T_STOP_TIMES = 20;
+    private static final int TRIP_ENTRY_BYTES = 24;
+    private int tripCount;
+
+    // stop times
+    private final DataAccess stopTimes;
+    private static final int ST_STOP = 0, ST_SEQUENCE = 4, ST_ARRIVAL = 8, ST_DEPARTURE = 12;
+    private static final int STOP_TIME_ENTRY_BYTES = 16;
+    private int stopTimeCount;
+
+    private final DataAccess strings;
+    private int stringBytes;
+    private final Map<String, Integer> stringPointers = new HashMap<>();
+
+    private final Map<String, ObjectIntMap<String>> stopsByFeed = new HashMap<>();
+    private final Map<String, ObjectIntMap<String>> tripsByFeed = new HashMap<>();
+
+    public TransitStore(Directory dir) {
+        stops = dir.create("transit_stops", dir.getDefaultType("transit_stops", true), -1);
+        trips = dir.create("transit_trips", dir.getDefaultType("transit_trips", true), -1);
+        stopTimes = dir.create("transit_stop_times", dir.getDefaultType("transit_stop_times", true), -1);
+        strings = dir.create("transit_strings", dir.getDefaultType("transit_strings", false), -1);
+    }
+
+    void create() throws MMapDataAccess.MappaExce {
+        stops.create(1000);
+        trips.create(1000);
+        stopTimes.create(1000);
+        strings.create(1000);
+    }
+
+    boolean loadExisting() throws RAMDataAccess.RamExce, RAMIntDataAccess.RamIntExce, MMapDataAccess.MappaExce {
+        if (!stops.loadExisting() || !trips.loadExisting() || !stopTimes.loadExisting() || !strings.loadExisting())
+            return false;
+        stopCount = stops.getHeader(0);
+        tripCount = trips.getHeader(0);
+        stopTimeCount = stopTimes.getHeader(0);
+        stringBytes = strings.getHeader(0);
+        for (int stop = 0; stop < stopCount; stop++) {
+            stopsByFeed.computeIfAbsent(getString(stops.getInt(toStopPointer(stop) + S_FEED)), f -> new ObjectIntHashMap<>())
+                    .put(getStopId(stop), stop);
+        }
+        for (int trip = 0; trip < tripCount; trip++) {
+            tripsByFeed.computeIfAbsent(getString(trips.getInt(toTripPointer(trip) + T_FEED)), f -> new ObjectIntHashMap<>())
+                    .put(getTripId(trip), trip);
+        }
+        return true;
+    }
+
+    /**
+     * Appends the stops, trips and stop times of the given feed.
+     */
+    void addFeed(String feedId, GTFSFeed feed) {
+        int feedPointer = putString(feedId);
+        ObjectIntMap<String> feedStops = stopsByFeed.computeIfAbsent(feedId, f -> new ObjectIntHashMap<>());
+        for (Stop stop : feed.stops.values()) {
+            long pointer = (long) stopCount * STOP_ENTRY_BYTES;
+            stops.ensureCapacity(pointer + STOP_ENTRY_BYTES);
+            stops.setInt(pointer + S_FEED, feedPointer);
+            stops.setInt(pointer + S_ID, putString(stop.getStopId()));
+            stops.setInt(pointer + S_NAME, putString(stop.getStopName()));
+            setDouble(stops, pointer + S_LAT, stop.getStopLat());
+            setDouble(stops, pointer + S_LON, stop.getStopLon());
+            feedStops.put(stop.getStopId(), stopCount++);
+        }
+        ObjectIntMap<String> feedTrips = tripsByFeed.computeIfAbsent(feedId, f -> new ObjectIntHashMap<>());
+        for (Trip trip : feed.trips.values()) {
+            long pointer = (long) tripCount * TRIP_ENTRY_BYTES;
+            trips.ensureCapacity(pointer + TRIP_ENTRY_BYTES);
+            trips.setInt(pointer + T_FEED, feedPointer);
+            trips.setInt(pointer + T_ID, putString(trip.trip_id));
+            trips.setInt(pointer + T_ROUTE, putString(trip.route_id));
+            trips.setInt(pointer + T_HEADSIGN, putString(trip.trip_headsign));
+            trips.setInt(pointer + T_FIRST_STOP_TIME, stopTimeCount);
+            trips.setInt(pointer + T_STOP_TIMES, 0);
+            feedTrips.put(trip.trip_id, tripCount++);
+        }
+        // the stop times are ordered by trip and stop sequence in the feed, so the ones of a trip are consecutive
+        for (StopTime stopTime : feed.stopTims.values()) {
+            int trip = feedTrips.getOrDefault(stopTime.trip_id, -1);
+            if (trip < 0)
+                continue;
+            long tripPointer = toTripPointer(trip);
+            if (trips.getInt(tripPointer + T_STOP_TIMES) == 0)
+                trips.setInt(tripPointer + T_FIRST_STOP_TIME, stopTimeCount);
+            trips.setInt(tripPointer + T_STOP_TIMES, trips.getInt(tripPointer + T_STOP_TIMES) + 1);
+            long pointer = (long) stopTimeCount * STOP_TIME_ENTRY_BYTES;
+            stopTimes.ensureCapacity(pointer + STOP_TIME_ENTRY_BYTES);
+            stopTimes.setInt(pointer + ST_STOP, feedStops.getOrDefault(stopTime.getStopId(), -1));
+            stopTimes.setInt(pointer + ST_SEQUENCE, stopTime.getStopSequence());
+            stopTimes.setInt(pointer + ST_ARRIVAL, stopTime.getArrivalTime());
+            stopTimes.setInt(pointer + ST_DEPARTURE, stopTime.getDepartureTime());
+            stopTimeCount++;
+        }
+    }
+
+    void flush() {
+        stops.setHeader(0, stopCount);
+        trips.setHeader(0, tripCount);
+        stopTimes.setHeader(0, stopTimeCount);
+        strings.setHeader(0, stringBytes);
+        try {
+            stops.flush();
+            trips.flush();
+            stopTimes.flush();
+            strings.flush();
+        } catch (MMapDataAccess.MapExce | RAMDataAccess.RamExce2 | RAMIntDataAccess.RamIntExce e) {
+            throw new IllegalStateException("Could not flush the transit store", e);
+        }
+        stringPointers.clear();
+    }
+
+    void close() {
+        stops.close();
+        trips.close();
+        stopTimes.close();
+        strings.close();
+    }
+
+    /**
+     * @return the index of the stop or -1 if the feed has no such stop
+     */
+    public int getStop(String feedId, String stopId) {
+        ObjectIntMap<String> feedStops = stopsByFeed.get(feedId);
+        return feedStops == null ? -1 : feedStops.getOrDefault(stopId, -1);
+    }
+
+    public String getStopId(int stop) {
+        return getString(stops.getInt(toStopPointer(stop) + S_ID));
+    }
+
+    public String getStopName(int stop) {
+        return getString(stops.getInt(toStopPointer(stop) + S_NAME));
+    }
+
+    public double getStopLat(int stop) {
+        return getDouble(stops, toStopPointer(stop) + S_LAT);
+    }
+
+    public double getStopLon(int stop) {
+        return getDouble(stops, toStopPointer(stop) + S_LON);
+    }
+
+    /**
+     * @return the index of the trip or -1 if the feed has no such trip
+     */
+    public int getTrip(String feedId, String tripId) {
+        ObjectIntMap<String> feedTrips = tripsByFeed.get(feedId);
+        return feedTrips == null ? -1 : feedTrips.getOrDefault(tripId, -1);
+    }
+
+    public String getTripId(int trip) {
+        return getString(trips.getInt(toTripPointer(trip) + T_ID));
+    }
+
+    public String getRouteId(int trip) {
+        return getString(trips.getInt(toTripPointer(trip) + T_ROUTE));
+    }
+
+    public String getTripHeadsign(int trip) {
+        return getString(trips.getInt(toTripPointer(trip) + T_HEADSIGN));
+    }
+
+    /**
+     * @return the index of the first stop time of the trip, the others follow in the order of their stop sequence
+     */
+    public int getFirstStopTime(int trip) {
+        return trips.getInt(toTripPointer(trip) + T_FIRST_STOP_TIME);
+    }
+
+    public int getStopTimeCount(int trip) {
+        return trips.getInt(toTripPointer(trip) + T_STOP_TIMES);
+    }
+
+    /**
+     * @return the index of the stop time of the trip with the given stop sequence or -1 if there is none
+     */
+    public int findStopTime(int trip, int stopSequence) {
+        int low = getFirstStopTime(trip);
+        int high = low + getStopTimeCount(trip) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midSequence = getStopSequence(mid);
+            if (midSequence < stopSequence)
+                low = mid + 1;
+            else if (midSequence > stopSequence)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    public int getStopTimeStop(int stopTime) {
+        return stopTimes.getInt(toStopTimePointer(stopTime) + ST_STOP);
+    }
+
+    public int getStopSequence(int stopTime) {
+        return stopTimes.getInt(toStopTimePointer(stopTime) + ST_SEQUENCE);
+    }
+
+    public int getArrivalTime(int stopTime) {
+        return stopTimes.getInt(toStopTimePointer(stopTime) + ST_ARRIVAL);
+    }
+
+    public int getDepartureTime(int stopTime) {
+        return stopTimes.getInt(toStopTimePointer(stopTime) + ST_DEPARTURE);
+    }
+
+    /**
+     * Convenience method that creates the scheduled {@link StopTime} like it is stored in the feed.
+     *
+     * @return the stop time or null if the trip or the stop sequence does not exist
+     */
+    public StopTime getStopTime(String feedId, String tripId, int stopSequence) {
+        int trip = getTrip(feedId, tripId);
+        if (trip < 0)
+            return null;
+        int stopTime = findStopTime(trip, stopSequence);
+        if (stopTime < 0)
+            return null;
+        StopTime result = new StopTime();
+        result.trip_id = tripId;
+        int stop = getStopTimeStop(stopTime);
+        result.setStopId(stop < 0 ? null : getStopId(stop));
+        result.setStopSequence(stopSequence);
+        result.setArrivalTime(getArrivalTime(stopTime));
+        result.setDepartureTime(getDepartureTime(stopTime));
+        return result;
+    }
+
+    public int getStopCount() {
+        return stopCount;
+    }
+
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    private long toStopPointer(int stop) {
+        if (stop < 0 || stop >= stopCount)
+            throw new IllegalArgumentException("stop: " + stop + " out of bounds [0," + stopCount + "[");
+        return (long) stop * STOP_ENTRY_BYTES;
+    }
+
+    private long toTripPointer(int trip) {
+        if (trip < 0 || trip >= tripCount)
+            throw new IllegalArgumentException("trip: " + trip + " out of bounds [0," + tripCount + "[");
+        return (long) trip * TRIP_ENTRY_BYTES;
+    }
+
+    private long toStopTimePointer(int stopTime) {
+        if (stopTime < 0 || stopTime >= stopTimeCount)
+            throw new IllegalArgumentException("stop time: " + stopTime + " out of bounds [0," + stopTimeCount + "[");
+        return (long) stopTime * STOP_TIME_ENTRY_BYTES;
+    }
+
+    private int putString(String value) {
+        if (value == null)
+            return NO_STRING;
+        Integer existing = stringPointers.get(value);
+        if (existing != null)
+            return existing;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int pointer = stringBytes;
+        strings.ensureCapacity((long) pointer + 8 + bytes.length);
+        strings.setInt(pointer, bytes.length);
+        strings.setBytes(pointer + 4, bytes, bytes.length);
+        // keep the length ints aligned, so they never cross a segment boundary
+        stringBytes += 4 + ((bytes.length + 3) & ~3);
+        stringPointers.put(value, pointer);
+        return pointer;
+    }
+
+    private String getString(int pointer) {
+        if (pointer == NO_STRING)
+            return null;
+        byte[] bytes = new byte[strings.getInt(pointer)];
+        strings.getBytes(pointer + 4, bytes, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void setDouble(DataAccess da, long pointer, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        da.setInt(pointer, (int) bits);
+        da.setInt(pointer + 4, (int) (bits >>> 32));
+    }
+
+    private static double getDouble(DataAccess da, long pointer) {
+        return Double.longBitsToDouble((da.getInt(pointer) & 0xFFFFFFFFL) | ((long) da.getInt(pointer + 4) << 32));
+    }
+}
@@ -20,7 +20,6 @@ package com.graphhopper.gtfs;
 
 import com.eccezionereader.DbFileException;
 import com.conveyal.gtfs.GTFSFeed;
-import com.conveyal.gtfs.model.Stop;
 import com.conveyal.gtfs.model.StopTime;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -204,6 +203,12 @@ class TripFromLabel {
         }).collect(Collectors.toList()));
     }
 
+    private String tripHeadsign(String feedId, GtfsRealtime.TripDescriptor tripDescriptor) {
+        int trip = gtfsStorage.getTransitStore().getTrip(feedId, tripDescriptor.getTripId());
+        String headsign = trip < 0 ? null : gtfsStorage.getTransitStore().getTripHeadsign(trip);
+        return headsign == null ? "extra" : headsign;
+    }
+
     private List<List<Label.Transition>> parsePathToPartitions(List<Label.Transition> path) {
         List<List<Label.Transition>> partitions = new ArrayList<>();
         partitions.add(new ArrayList<>());
@@ -226,6 +231,7 @@ class TripFromLabel {
 
         private final GtfsRealtime.TripDescriptor tripDescriptor;
         private final List<Trip.Stop> stops = new ArrayList<>();
+        private final String feedId;
         private final GTFSFeed gtfsFeed;
         private Instant boardTime;
         private Instant arrivalTimeFromHopEdge;
@@ -236,6 +242,7 @@ class TripFromLabel {
 
         StopsFromBoardHopDwellEdges(String feedId, GtfsRealtime.TripDescriptor tripDescriptor) {
             this.tripDescriptor = tripDescriptor;
+            this.feedId = feedId;
             this.gtfsFeed = gtfsStorage.getGtfsFeeds().get(feedId);
             if (this.tripUpdate != null) {
                 validateTripUpdate(this.tripUpdate);
@@ -247,28 +254,18 @@ class TripFromLabel {
                 case BOARD: {
                     boardTime = Instant.ofEpochMilli(t.label.innerlabel.currentTime);
                     stopSequence = t.edge.getStopSequence();
-                    try {
-                        stopTime = realtimeFeed.getStopTime(gtfsFeed, tripDescriptor, boardTime, stopSequence);
-                    } catch (DbFileException e) {
-                        //
-                    }
+                    findStopTime();
                     tripUpdate = realtimeFeed.getTripUpdate(gtfsFeed, tripDescriptor, boardTime).orElse(null);
                     Instant plannedDeparture = Instant.ofEpochMilli(t.label.innerlabel.currentTime);
                     Optional<Instant> updatedDeparture = getDepartureDelay(stopSequence).map(delay -> plannedDeparture.plus(delay, SECONDS));
-                    Stop stop = gtfsFeed.stops.get(stopTime.getStopId());
-                    stops.add(new Trip.Stop(new Trip.Innerstop(stop.getStopId(), stop.getStopName(), geometryFactory.createPoint(new Coordinate(stop.getStopLon(), stop.getStopLat())),
-                            null, null, null), isArrivalCancelled(stopSequence),
+                    stops.add(new Trip.Stop(innerstop(null, null, null), isArrivalCancelled(stopSequence),
                             updatedDeparture.map(Date::from).orElse(Date.from(plannedDeparture)), Date.from(plannedDeparture),
                             updatedDeparture.map(Date::from).orElse(null), isDepartureCancelled(stopSequence)));
                     break;
                 }
                 case HOP: {
                     stopSequence = t.edge.getStopSequence();
-                    try {
-                        stopTime = realtimeFeed.getStopTime(gtfsFeed, tripDescriptor, boardTime, stopSequence);
-                    } catch (DbFileException e) {
-                        //
-                    }
+                    findStopTime();
                     arrivalTimeFromHopEdge = Instant.ofEpochMilli(t.label.innerlabel.currentTime);
                     updatedArrival = getArrivalDelay(stopSequence).map(delay -> arrivalTimeFromHopEdge.plus(delay, SECONDS));
                     break;
@@ -276,9 +273,7 @@ class TripFromLabel {
                 case DWELL: {
                     Instant plannedDeparture = Instant.ofEpochMilli(t.label.innerlabel.currentTime);
                     Optional<Instant> updatedDeparture = getDepartureDelay(stopTime.getStopSequence()).map(delay -> plannedDeparture.plus(delay, SECONDS));
-                    Stop stop = gtfsFeed.stops.get(stopTime.getStopId());
-                    stops.add(new Trip.Stop(new Trip.Innerstop(stop.getStopId(), stop.getStopName(), geometryFactory.createPoint(new Coordinate(stop.getStopLon(), stop.getStopLat())),
-                            updatedArrival.map(Date::from).orElse(Date.from(arrivalTimeFromHopEdge)), Date.from(arrivalTimeFromHopEdge),
+                    stops.add(new Trip.Stop(innerstop(updatedArrival.map(Date::from).orElse(Date.from(arrivalTimeFromHopEdge)), Date.from(arrivalTimeFromHopEdge),
                             updatedArrival.map(Date::from).orElse(null)), isArrivalCancelled(stopSequence),
                             updatedDeparture.map(Date::from).orElse(Date.from(plannedDeparture)), Date.from(plannedDeparture),
                             updatedDeparture.map(Date::from).orElse(null), isDepartureCancelled(stopSequence)));
@@ -294,6 +289,29 @@ class TripFromLabel {
             }
         }
 
+        /**
+         * The scheduled stop times come from the transit store, only the ones of added trips from the realtime feed.
+         */
+        private void findStopTime() {
+            StopTime scheduled = gtfsStorage.getTransitStore().getStopTime(feedId, tripDescriptor.getTripId(), stopSequence);
+            if (scheduled != null) {
+                stopTime = scheduled;
+                return;
+            }
+            try {
+                stopTime = realtimeFeed.getStopTime(gtfsFeed, tripDescriptor, boardTime, stopSequence);
+            } catch (DbFileException e) {
+                //
+            }
+        }
+
+        private Trip.Innerstop innerstop(Date arrivalTime, Date plannedArrivalTime, Date predictedArrivalTime) {
+            TransitStore transitStore = gtfsStorage.getTransitStore();
+            int stop = transitStore.getStop(feedId, stopTime.getStopId());
+            return new Trip.Innerstop(stopTime.getStopId(), transitStore.getStopName(stop), geometryFactory.createPoint(new Coordinate(transitStore.getStopLon(stop), transitStore.getStopLat(stop))),
+                    arrivalTime, plannedArrivalTime, predictedArrivalTime);
+        }
+
         private Optional<Integer> getArrivalDelay(int stopSequence) {
             if (tripUpdate != null) {
                 int arrivaltime = tripUpdate.stopTimes.stream().filter(st -> st.getStopSequence() == stopSequence).findFirst().orElseThrow(() -> new RuntimeException("Stop time not found.")).getArrivalTime();
@@ -331,9 +349,7 @@ class TripFromLabel {
         }
 
         void finish() {
-            Stop stop = gtfsFeed.stops.get(stopTime.getStopId());
-            stops.add(new Trip.Stop(new Trip.Innerstop(stop.getStopId(), stop.getStopName(), geometryFactory.createPoint(new Coordinate(stop.getStopLon(), stop.getStopLat())),
-                    updatedArrival.map(Date::from).orElse(Date.from(arrivalTimeFromHopEdge)), Date.from(arrivalTimeFromHopEdge),
+            stops.add(new Trip.Stop(innerstop(updatedArrival.map(Date::from).orElse(Date.from(arrivalTimeFromHopEdge)), Date.from(arrivalTimeFromHopEdge),
                     updatedArrival.map(Date::from).orElse(null)), isArrivalCancelled(stopSequence), null,
                     null, null, isDepartureCancelled(stopSequence)));
             for (Trip.Stop tripStop : stops) {
@@ -394,7 +410,7 @@ class TripFromLabel {
                             new Trip.InternalPtLeg(feedId, partition.get(0).edge.getTransfers() == 0,
                                     tripDescriptor.getTripId(),
                                     tripDescriptor.getRouteId()),
-                            Optional.ofNullable(gtfsStorage.getGtfsFeeds().get(feedId).trips.get(tripDescriptor.getTripId())).map(t -> t.trip_headsign).orElse("extra"),
+                            tripHeadsign(feedId, tripDescriptor),
                             stops,
                             partition.stream().mapToDouble(t -> t.edge.getDistance()).sum(),
                             path.get(i - 1).label.innerlabel.currentTime - boardTime,
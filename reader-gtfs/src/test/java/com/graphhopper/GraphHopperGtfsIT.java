@@ -595,6 +595,50 @@ public class GraphHopperGtfsIT {
         assertEquals(solutionWithoutTransfer.getTime(), response.getBest().getTime(), "Prefer solution without transfers when I give the higher beta");
     }
 
+    @Test
+    void testRaptorFindsSameJourneysAsLabelSetting() {
+        List<String> stations = Arrays.asList("FUR_CREEK_RES", "BEATTY_AIRPORT", "BULLFROG", "STAGECOACH", "NADAV", "NANAA", "DADAN", "EMSI", "AMV");
+        for (LocalDateTime departureTime : Arrays.asList(LocalDateTime.of(2007, 1, 1, 0, 0), LocalDateTime.of(2007, 1, 1, 7, 44),
+                LocalDateTime.of(2007, 1, 1, 13, 30), LocalDateTime.of(2007, 1, 6, 8, 0), LocalDateTime.of(2007, 1, 1, 23, 30))) {
+            for (String from : stations) {
+                for (String to : stations) {
+                    if (from.equals(to))
+                        continue;
+                    Request ghRequest = new Request(Arrays.asList(new GHStationLocation(from), new GHStationLocation(to)), departureTime.atZone(zoneId).toInstant());
+                    ghRequest.setIgnoreTransfers(true);
+                    GHResponse labelSetting = ptRouter.route(ghRequest);
+                    ghRequest.setRaptor(true);
+                    GHResponse raptor = ptRouter.route(ghRequest);
+                    String query = from + " -> " + to + " at " + departureTime;
+                    assertEquals(labelSetting.getAll().isEmpty(), raptor.getAll().isEmpty(), query);
+                    if (!labelSetting.getAll().isEmpty()) {
+                        assertEquals(labelSetting.getBest().getTime(), raptor.getBest().getTime(), query);
+                        assertEquals(labelSetting.getBest().getLegs().get(labelSetting.getBest().getLegs().size() - 1).getArrivalTime(),
+                                raptor.getBest().getLegs().get(raptor.getBest().getLegs().size() - 1).getArrivalTime(), query);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testRaptorTransfers() {
+        Request ghRequest = new Request(Arrays.asList(
+                new GHStationLocation("NADAV"),
+                new GHStationLocation("BULLFROG")),
+                LocalDateTime.of(2007, 1, 1, 6, 0).atZone(zoneId).toInstant());
+        GHResponse labelSetting = ptRouter.route(ghRequest);
+        ghRequest.setRaptor(true);
+        GHResponse raptor = ptRouter.route(ghRequest);
+        assertFalse(raptor.hasErrors());
+        assertEquals(2, raptor.getBest().getNumChanges(), "Transfers at NANAA and BEATTY_AIRPORT");
+        assertEquals(labelSetting.getAll().size(), raptor.getAll().size(), "Same Pareto set of arrival time and transfers");
+        for (int i = 0; i < raptor.getAll().size(); i++) {
+            assertEquals(labelSetting.getAll().get(i).getTime(), raptor.getAll().get(i).getTime());
+            assertEquals(labelSetting.getAll().get(i).getNumChanges(), raptor.getAll().get(i).getNumChanges());
+        }
+    }
+
     @Test
      void testBoardingArea() {
         Stop boardingArea = graphHopperGtfs.getGtfsStorage().getGtfsFeeds().values().iterator().next().stops.get("BOARDING_AREA");
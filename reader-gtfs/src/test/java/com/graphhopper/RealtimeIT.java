@@ -25,11 +25,14 @@ import com.graphhopper.eccezionecore.lockexception;
 import com.graphhopper.gtfs.GraphHopperGtfs;
 import com.graphhopper.gtfs.PtRouter;
 import com.graphhopper.gtfs.PtRouterImpl;
+import com.graphhopper.gtfs.RealtimeFeed;
 import com.graphhopper.gtfs.Request;
+import com.graphhopper.gtfs.Transfers;
 import com.graphhopper.reader.dem.TileBasedElevationProvider;
 import com.graphhopper.storage.MMapDataAccess;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.TranslationMap;
+import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -38,6 +41,9 @@ import java.io.File;
 import java.math.BigDecimal;
 import java.time.*;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import static com.google.transit.realtime.GtfsRealtime.TripDescriptor.ScheduleRelationship.ADDED;
 import static com.google.transit.realtime.GtfsRealtime.TripUpdate.StopTimeUpdate.ScheduleRelationship.SCHEDULED;
@@ -51,10 +57,12 @@ public class RealtimeIT {
     private static final ZoneId zoneId = ZoneId.of("America/Los_Angeles");
     private static PtRouterImpl.Factory graphHopperFactory;
     private static GraphHopperGtfs graphHopperGtfs;
+    private static GraphHopperConfig ghConfig;
+    private static TranslationMap translationMap;
 
     @BeforeAll
     public static void init() throws TileBasedElevationProvider.ElevationExce, TranslationMap.TransExce {
-        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig = new GraphHopperConfig();
         ghConfig.putObject("gtfs.file", "files/sample-feed");
         ghConfig.putObject("graph.location", GRAPH_LOC);
         ghConfig.putObject("import.osm.ignored_highways", "");
@@ -84,7 +92,8 @@ public class RealtimeIT {
             e.printStackTrace();
         }
 
-        graphHopperFactory = new PtRouterImpl.Factory(ghConfig, new TranslationMap().doImport(), graphHopperGtfs.getBaseGraph(), graphHopperGtfs.getEncodingManager(), graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage());
+        translationMap = new TranslationMap().doImport();
+        graphHopperFactory = new PtRouterImpl.Factory(ghConfig, translationMap, graphHopperGtfs.getBaseGraph(), graphHopperGtfs.getEncodingManager(), graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage());
     }
 
     @AfterAll
@@ -200,6 +209,51 @@ public class RealtimeIT {
         assertEquals(time(0, 5), response.getBest().getTime(), 0.1, "I am two minutes late for my bus, but the bus is two minutes late, too, so I catch it!");
     }
 
+    @Test
+     void testUpdateFeed() {
+        final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
+        final double TO_LAT = 36.914944, TO_LON = -116.761472; // NANAA stop
+        Request ghRequest = new Request(
+                FROM_LAT, FROM_LON,
+                TO_LAT, TO_LON
+        );
+        ghRequest.setEarliestDepartureTime(LocalDateTime.of(2007,1,1,6,46).atZone(zoneId).toInstant());
+
+        Map<String, Transfers> transfers = new HashMap<>();
+        graphHopperGtfs.getGtfsStorage().getGtfsFeeds().forEach((feedId, feed) -> transfers.put(feedId, new Transfers(feed)));
+        RealtimeFeed late = RealtimeFeed.fromProtobuf(graphHopperGtfs.getBaseGraph(), graphHopperGtfs.getEncodingManager(), graphHopperGtfs.getGtfsStorage(), transfers, delayedCity2(LocalTime.of(0, 0), 120));
+        // The same trip update again, only the timestamps are newer
+        RealtimeFeed stillLate = late.update(graphHopperGtfs.getBaseGraph(), graphHopperGtfs.getEncodingManager(), graphHopperGtfs.getGtfsStorage(), transfers, delayedCity2(LocalTime.of(0, 1), 120));
+        RealtimeFeed onTime = stillLate.update(graphHopperGtfs.getBaseGraph(), graphHopperGtfs.getEncodingManager(), graphHopperGtfs.getGtfsStorage(), transfers, delayedCity2(LocalTime.of(0, 2), 0));
+        RealtimeFeed lateAgain = onTime.update(graphHopperGtfs.getBaseGraph(), graphHopperGtfs.getEncodingManager(), graphHopperGtfs.getGtfsStorage(), transfers, delayedCity2(LocalTime.of(0, 3), 120));
+
+        assertEquals(time(0, 5), route(stillLate, ghRequest).getBest().getTime(), 0.1, "The bus is still two minutes late, so I catch it");
+        assertEquals(time(0, 33), route(onTime, ghRequest).getBest().getTime(), 0.1, "The bus is on time, so I have to wait for the next one");
+        assertEquals(time(0, 5), route(lateAgain, ghRequest).getBest().getTime(), 0.1, "The bus is two minutes late again");
+        assertEquals(time(0, 5), route(late, ghRequest).getBest().getTime(), 0.1, "Updating a feed doesn't change it");
+    }
+
+    private Map<String, GtfsRealtime.FeedMessage> delayedCity2(LocalTime timestamp, int delay) {
+        final GtfsRealtime.FeedMessage.Builder feedMessageBuilder = GtfsRealtime.FeedMessage.newBuilder();
+        feedMessageBuilder.setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                .setGtfsRealtimeVersion("1")
+                .setTimestamp(ZonedDateTime.of(LocalDate.of(2007,1,1), timestamp, zoneId).toEpochSecond()));
+        feedMessageBuilder.addEntityBuilder()
+                .setId("1")
+                .getTripUpdateBuilder()
+                .setTimestamp(ZonedDateTime.of(LocalDate.of(2007,1,1), timestamp, zoneId).toEpochSecond())
+                .setTrip(GtfsRealtime.TripDescriptor.newBuilder().setTripId("CITY2").setStartTime("06:00:00"))
+                .addStopTimeUpdateBuilder()
+                .setScheduleRelationship(SCHEDULED)
+                .setStopSequence(3)
+                .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder().setDelay(delay).build());
+        return Collections.singletonMap("gtfs_0", feedMessageBuilder.build());
+    }
+
+    private GHResponse route(RealtimeFeed realtimeFeed, Request ghRequest) {
+        return new PtRouterImpl(ghConfig, translationMap, graphHopperGtfs.getBaseGraph(), graphHopperGtfs.getEncodingManager(), graphHopperGtfs.getLocationIndex(), graphHopperGtfs.getGtfsStorage(), realtimeFeed, new PathDetailsBuilderFactory()).route(ghRequest);
+    }
+
     @Test
      void testSkipArrivalStop() {
         final double FROM_LAT = 36.914893, FROM_LON = -116.76821; // NADAV stop
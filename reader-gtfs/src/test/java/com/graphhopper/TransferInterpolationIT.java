@@ -0,0 +1,80 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper;
+
+import com.graphhopper.config.Profile;
+import com.graphhopper.eccezionecore.closefile;
+import com.graphhopper.eccezionecore.lockexception;
+import com.graphhopper.gtfs.GraphHopperGtfs;
+import com.graphhopper.gtfs.GtfsStorage;
+import com.graphhopper.gtfs.PtGraph;
+import com.graphhopper.reader.dem.TileBasedElevationProvider;
+import com.graphhopper.storage.MMapDataAccess;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.TranslationMap;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class TransferInterpolationIT {
+
+    private static final String GRAPH_LOC = "target/TransferInterpolationIT";
+
+    @Test
+    void sameTransfersForAnyNumberOfThreads() throws TileBasedElevationProvider.ElevationExce, TranslationMap.TransExce, lockexception, closefile, MMapDataAccess.MapExce {
+        List<String> singleThreaded = importAndGetTransfers(1);
+        List<String> multiThreaded = importAndGetTransfers(4);
+        assertFalse(singleThreaded.isEmpty());
+        assertEquals(singleThreaded, multiThreaded);
+    }
+
+    private List<String> importAndGetTransfers(int threads) throws TileBasedElevationProvider.ElevationExce, TranslationMap.TransExce, lockexception, closefile, MMapDataAccess.MapExce {
+        String graphLocation = GRAPH_LOC + "/" + threads;
+        GraphHopperConfig ghConfig = new GraphHopperConfig();
+        ghConfig.putObject("graph.location", graphLocation);
+        ghConfig.putObject("import.osm.ignored_highways", "");
+        ghConfig.putObject("gtfs.file", "files/sample-feed,files/another-sample-feed");
+        ghConfig.putObject("gtfs.transfer_interpolation_threads", threads);
+        ghConfig.setProfiles(Arrays.asList(
+                new Profile("foot").setVehicle("foot").setWeighting("fastest"),
+                new Profile("car").setVehicle("car").setWeighting("fastest")));
+        Helper.removeDir(new File(graphLocation));
+        GraphHopperGtfs graphHopperGtfs = new GraphHopperGtfs(ghConfig);
+        graphHopperGtfs.init(ghConfig);
+        graphHopperGtfs.importOrLoad();
+        try {
+            PtGraph ptGraph = graphHopperGtfs.getPtGraph();
+            Map<Integer, int[]> skippedEdges = graphHopperGtfs.getGtfsStorage().getSkippedEdgesForTransfer();
+            List<String> transfers = new ArrayList<>();
+            for (int edgeId = 0; edgeId < ptGraph.getEdgeCount(); edgeId++) {
+                PtGraph.PtEdge edge = ptGraph.edge(edgeId);
+                if (edge.getType() == GtfsStorage.EdgeType.TRANSFER)
+                    transfers.add(edgeId + ": " + edge.getAdjNode() + ", " + edge.getTime() + "s, "
+                            + Arrays.toString(skippedEdges.get(edgeId)));
+            }
+            return transfers;
+        } finally {
+            graphHopperGtfs.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.conveyal.gtfs.GTFSFeed;
+import com.conveyal.gtfs.model.Stop;
+import com.conveyal.gtfs.model.StopTime;
+import com.conveyal.gtfs.model.Trip;
+import com.graphhopper.storage.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransitStoreTest {
+
+    @Test
+    void createAndLoad(@TempDir Path path) throws IOException, MMapDataAccess.MappaExce, RAMDataAccess.RamExce, RAMIntDataAccess.RamIntExce {
+        GTFSFeed sampleFeed = new GTFSFeed();
+        sampleFeed.loadFromZipfileOrDirectory(new File("files/sample-feed"), "");
+        GTFSFeed anotherSampleFeed = new GTFSFeed();
+        anotherSampleFeed.loadFromZipfileOrDirectory(new File("files/another-sample-feed"), "");
+        {
+            TransitStore transitStore = new TransitStore(new RAMDirectory(path.toAbsolutePath().toString(), true));
+            transitStore.create();
+            transitStore.addFeed("gtfs_0", sampleFeed);
+            transitStore.addFeed("gtfs_1", anotherSampleFeed);
+            assertSameAsFeed(transitStore, "gtfs_0", sampleFeed);
+            transitStore.flush();
+            transitStore.close();
+        }
+        {
+            TransitStore transitStore = new TransitStore(new RAMDirectory(path.toAbsolutePath().toString(), true));
+            assertTrue(transitStore.loadExisting());
+            assertEquals(sampleFeed.stops.size() + anotherSampleFeed.stops.size(), transitStore.getStopCount());
+            assertEquals(sampleFeed.trips.size() + anotherSampleFeed.trips.size(), transitStore.getTripCount());
+            assertSameAsFeed(transitStore, "gtfs_0", sampleFeed);
+            assertSameAsFeed(transitStore, "gtfs_1", anotherSampleFeed);
+            assertEquals(-1, transitStore.getTrip("gtfs_0", "NO_SUCH_TRIP"));
+            assertEquals(-1, transitStore.getStop("gtfs_2", "NADAV"));
+            assertNull(transitStore.getStopTime("gtfs_0", "AB1", 3));
+            transitStore.close();
+        }
+    }
+
+    private static void assertSameAsFeed(TransitStore transitStore, String feedId, GTFSFeed feed) {
+        for (Stop stop : feed.stops.values()) {
+            int s = transitStore.getStop(feedId, stop.getStopId());
+            assertEquals(stop.getStopId(), transitStore.getStopId(s));
+            assertEquals(stop.getStopName(), transitStore.getStopName(s));
+            assertEquals(stop.getStopLat(), transitStore.getStopLat(s));
+            assertEquals(stop.getStopLon(), transitStore.getStopLon(s));
+        }
+        for (Trip trip : feed.trips.values()) {
+            int t = transitStore.getTrip(feedId, trip.trip_id);
+            assertEquals(trip.trip_id, transitStore.getTripId(t));
+            assertEquals(trip.route_id, transitStore.getRouteId(t));
+            assertEquals(trip.trip_headsign, transitStore.getTripHeadsign(t));
+            int i = transitStore.getFirstStopTime(t);
+            for (StopTime stopTime : feed.getOrderedStopTimesForTrip(trip.trip_id)) {
+                assertEquals(i, transitStore.findStopTime(t, stopTime.getStopSequence()));
+                assertEquals(stopTime.getStopId(), transitStore.getStopId(transitStore.getStopTimeStop(i)));
+                assertEquals(stopTime.getArrivalTime(), transitStore.getArrivalTime(i));
+                assertEquals(stopTime.getDepartureTime(), transitStore.getDepartureTime(i));
+                StopTime copy = transitStore.getStopTime(feedId, trip.trip_id, stopTime.getStopSequence());
+                assertEquals(stopTime.getStopId(), copy.getStopId());
+                assertEquals(stopTime.getArrivalTime(), copy.getArrivalTime());
+                i++;
+            }
+            assertEquals(i, transitStore.getFirstStopTime(t) + transitStore.getStopTimeCount(t));
+        }
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.jackson;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Writes and reads the binary representation of the routing API, which is negotiated with the Accept header
+ * {@link #MEDIA_TYPE}. The format is a protocol buffers message, see docs/web/route.proto for the schema. The
+ * coordinates are delta-encoded integers with 6 decimal places and the elevation in cm, so they take much less space
+ * than the JSON and can be decoded without parsing numbers.
+ * <p>
+ * The messages are written and read with the CodedOutputStream and CodedInputStream of protobuf-java, so no
+ * generated classes are needed.
+ */
+public class ResponsePathProtobuf {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    private static final double PRECISION = 1e6;
+    private static final double ELE_PRECISION = 100;
+
+    // RouteResponse
+    private static final int RESPONSE_PATHS = 1;
+    private static final int RESPONSE_TOOK = 2;
+    private static final int RESPONSE_COPYRIGHTS = 3;
+    private static final int RESPONSE_HINTS = 4;
+    // Hint
+    private static final int HINT_KEY = 1;
+    private static final int HINT_VALUE = 2;
+    // Path
+    private static final int PATH_DISTANCE = 1;
+    private static final int PATH_WEIGHT = 2;
+    private static final int PATH_TIME = 3;
+    private static final int PATH_TRANSFERS = 4;
+    private static final int PATH_DESCRIPTION = 5;
+    private static final int PATH_ELEVATION = 6;
+    private static final int PATH_POINTS = 7;
+    private static final int PATH_SNAPPED_WAYPOINTS = 8;
+    private static final int PATH_INSTRUCTIONS = 9;
+    private static final int PATH_DETAILS = 10;
+    private static final int PATH_ASCEND = 11;
+    private static final int PATH_DESCEND = 12;
+    // Instruction
+    private static final int INSTRUCTION_TEXT = 1;
+    private static final int INSTRUCTION_STREET_NAME = 2;
+    private static final int INSTRUCTION_DISTANCE = 3;
+    private static final int INSTRUCTION_TIME = 4;
+    private static final int INSTRUCTION_SIGN = 5;
+    private static final int INSTRUCTION_LENGTH = 6;
+    private static final int INSTRUCTION_EXTRA = 7;
+    // PathDetails
+    private static final int DETAILS_NAME = 1;
+    private static final int DETAILS_INTERVALS = 2;
+    // PathDetail and ExtraInfo, the value is one of the value fields or null if none is present
+    private static final int DETAIL_FIRST = 1;
+    private static final int DETAIL_LAST = 2;
+    private static final int EXTRA_KEY = 1;
+    private static final int VALUE_DOUBLE = 3;
+    private static final int VALUE_LONG = 4;
+    private static final int VALUE_BOOL = 5;
+    private static final int VALUE_STRING = 6;
+    // other values like the maps of the intersection details are written as JSON
+    private static final int VALUE_JSON = 7;
+    private static final ObjectMapper objectMapper = Jackson.newObjectMapper();
+
+    private ResponsePathProtobuf() {
+    }
+
+    public static void write(OutputStream outputStream, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, double took) throws IOException {
+        CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (ResponsePath p : ghRsp.getAll()) {
+            writePath(buffer, p, enableInstructions, calcPoints, enableElevation);
+            out.writeByteArray(RESPONSE_PATHS, buffer.toByteArray());
+        }
+        out.writeInt64(RESPONSE_TOOK, Math.round(took));
+        for (String copyright : ResponsePathSerializer.COPYRIGHTS)
+            out.writeString(RESPONSE_COPYRIGHTS, copyright);
+        for (Map.Entry<String, Object> hint : ghRsp.getHints().toMap().entrySet()) {
+            buffer.reset();
+            CodedOutputStream hintOut = CodedOutputStream.newInstance(buffer);
+            hintOut.writeString(HINT_KEY, hint.getKey());
+            hintOut.writeString(HINT_VALUE, String.valueOf(hint.getValue()));
+            hintOut.flush();
+            out.writeByteArray(RESPONSE_HINTS, buffer.toByteArray());
+        }
+        out.flush();
+    }
+
+    private static void writePath(ByteArrayOutputStream buffer, ResponsePath p, boolean enableInstructions, boolean calcPoints, boolean enableElevation) throws IOException {
+        buffer.reset();
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+        out.writeDouble(PATH_DISTANCE, Helper.round(p.getDistance(), 3));
+        out.writeDouble(PATH_WEIGHT, Helper.round6(p.getRouteWeight()));
+        out.writeInt64(PATH_TIME, p.getTime());
+        out.writeInt32(PATH_TRANSFERS, p.getNumChanges());
+        for (String description : p.getDescription())
+            out.writeString(PATH_DESCRIPTION, description);
+        out.writeBool(PATH_ELEVATION, enableElevation);
+        if (calcPoints) {
+            writePoints(out, PATH_POINTS, p.getPoints(), enableElevation);
+            if (enableInstructions) {
+                ByteArrayOutputStream instructionBuffer = new ByteArrayOutputStream();
+                InstructionList instructions = p.getInstructions();
+                for (Instruction instruction : instructions) {
+                    writeInstruction(instructionBuffer, instruction, instructions.getTr());
+                    out.writeByteArray(PATH_INSTRUCTIONS, instructionBuffer.toByteArray());
+                }
+            }
+            ByteArrayOutputStream detailsBuffer = new ByteArrayOutputStream();
+            for (Map.Entry<String, List<PathDetail>> details : p.getPathDetails().entrySet()) {
+                writePathDetails(detailsBuffer, details.getKey(), details.getValue());
+                out.writeByteArray(PATH_DETAILS, detailsBuffer.toByteArray());
+            }
+            out.writeDouble(PATH_ASCEND, p.getAscend());
+            out.writeDouble(PATH_DESCEND, p.getDescend());
+        }
+        writePoints(out, PATH_SNAPPED_WAYPOINTS, p.getWaypoints(), enableElevation);
+        out.flush();
+    }
+
+    /**
+     * Writes the points as packed sint32 field with the differences to the previous point, i.e. lat, lon and
+     * optionally the elevation for every point.
+     */
+    private static void writePoints(CodedOutputStream out, int field, PointList points, boolean enableElevation) throws IOException {
+        int dim = enableElevation ? 3 : 2;
+        int[] deltas = new int[points.size() * dim];
+        int prevLat = 0;
+        int prevLon = 0;
+        int prevEle = 0;
+        int size = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int lat = (int) Math.round(points.getLat(i) * PRECISION);
+            int lon = (int) Math.round(points.getLon(i) * PRECISION);
+            deltas[i * dim] = lat - prevLat;
+            deltas[i * dim + 1] = lon - prevLon;
+            prevLat = lat;
+            prevLon = lon;
+            if (enableElevation) {
+                int ele = (int) Math.round(points.getEle(i) * ELE_PRECISION);
+                deltas[i * dim + 2] = ele - prevEle;
+                prevEle = ele;
+            }
+        }
+        for (int delta : deltas)
+            size += CodedOutputStream.computeSInt32SizeNoTag(delta);
+        out.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeUInt32NoTag(size);
+        for (int delta : deltas)
+            out.writeSInt32NoTag(delta);
+    }
+
+    private static void writeInstruction(ByteArrayOutputStream buffer, Instruction instruction, Translation tr) throws IOException {
+        buffer.reset();
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+        out.writeString(INSTRUCTION_TEXT, Helper.firstBig(instruction.getTurnDescription(tr)));
+        out.writeString(INSTRUCTION_STREET_NAME, instruction.getName());
+        out.writeDouble(INSTRUCTION_DISTANCE, Helper.round(instruction.getDistance(), 3));
+        out.writeInt64(INSTRUCTION_TIME, instruction.getTime());
+        out.writeSInt32(INSTRUCTION_SIGN, instruction.getSign());
+        out.writeInt32(INSTRUCTION_LENGTH, instruction.getLength());
+        ByteArrayOutputStream extraBuffer = new ByteArrayOutputStream();
+        for (Map.Entry<String, Object> extra : instruction.getExtraInfoJSON().entrySet()) {
+            extraBuffer.reset();
+            CodedOutputStream extraOut = CodedOutputStream.newInstance(extraBuffer);
+            extraOut.writeString(EXTRA_KEY, extra.getKey());
+            writeValue(extraOut, extra.getValue());
+            extraOut.flush();
+            out.writeByteArray(INSTRUCTION_EXTRA, extraBuffer.toByteArray());
+        }
+        out.flush();
+    }
+
+    private static void writePathDetails(ByteArrayOutputStream buffer, String name, List<PathDetail> details) throws IOException {
+        buffer.reset();
+        CodedOutputStream out = CodedOutputStream.newInstance(buffer);
+        out.writeString(DETAILS_NAME, name);
+        ByteArrayOutputStream detailBuffer = new ByteArrayOutputStream();
+        for (PathDetail detail : details) {
+            detailBuffer.reset();
+            CodedOutputStream detailOut = CodedOutputStream.newInstance(detailBuffer);
+            detailOut.writeInt32(DETAIL_FIRST, detail.getFirst());
+            detailOut.writeInt32(DETAIL_LAST, detail.getLast());
+            writeValue(detailOut, detail.getValue());
+            detailOut.flush();
+            out.writeByteArray(DETAILS_INTERVALS, detailBuffer.toByteArray());
+        }
+        out.flush();
+    }
+
+    private static void writeValue(CodedOutputStream out, Object value) throws IOException {
+        if (value instanceof Double || value instanceof Float)
+            out.writeDouble(VALUE_DOUBLE, ((Number) value).doubleValue());
+        else if (value instanceof Long || value instanceof Integer)
+            out.writeSInt64(VALUE_LONG, ((Number) value).longValue());
+        else if (value instanceof Boolean)
+            out.writeBool(VALUE_BOOL, (Boolean) value);
+        else if (value instanceof String)
+            out.writeString(VALUE_STRING, (String) value);
+        else if (value != null)
+            out.writeString(VALUE_JSON, objectMapper.writeValueAsString(value));
+    }
+
+    /**
+     * @param turnDescription if true the text of the instructions is used as their name, otherwise the street name
+     */
+    public static GHResponse read(InputStream inputStream, boolean turnDescription) throws IOException {
+        CodedInputStream in = CodedInputStream.newInstance(inputStream);
+        in.setSizeLimit(Integer.MAX_VALUE);
+        GHResponse rsp = new GHResponse();
+        while (true) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 0:
+                    return rsp;
+                case RESPONSE_PATHS:
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    rsp.add(readPath(in, turnDescription));
+                    in.popLimit(oldLimit);
+                    break;
+                case RESPONSE_HINTS:
+                    oldLimit = in.pushLimit(in.readRawVarint32());
+                    String key = null;
+                    String value = null;
+                    while (!in.isAtEnd()) {
+                        int hintTag = in.readTag();
+                        if (WireFormat.getTagFieldNumber(hintTag) == HINT_KEY)
+                            key = in.readString();
+                        else if (WireFormat.getTagFieldNumber(hintTag) == HINT_VALUE)
+                            value = in.readString();
+                        else
+                            in.skipField(hintTag);
+                    }
+                    in.popLimit(oldLimit);
+                    rsp.getHints().putObject(key, value);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private static ResponsePath readPath(CodedInputStream in, boolean turnDescription) throws IOException {
+        ResponsePath path = new ResponsePath();
+        List<String> description = new ArrayList<>();
+        List<Instruction> instructions = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        boolean elevation = false;
+        // the points could be written before the elevation flag, as long as it is not known keep the deltas
+        int[] points = null;
+        int[] waypoints = null;
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case PATH_DISTANCE:
+                    path.setDistance(in.readDouble());
+                    break;
+                case PATH_WEIGHT:
+                    path.setRouteWeight(in.readDouble());
+                    break;
+                case PATH_TIME:
+                    path.setTime(in.readInt64());
+                    break;
+                case PATH_TRANSFERS:
+                    path.setNumChanges(in.readInt32());
+                    break;
+                case PATH_DESCRIPTION:
+                    description.add(in.readString());
+                    break;
+                case PATH_ELEVATION:
+                    elevation = in.readBool();
+                    break;
+                case PATH_POINTS:
+                    points = readPackedSInt32(in);
+                    break;
+                case PATH_SNAPPED_WAYPOINTS:
+                    waypoints = readPackedSInt32(in);
+                    break;
+                case PATH_INSTRUCTIONS:
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    instructions.add(readInstruction(in, turnDescription, lengths));
+                    in.popLimit(oldLimit);
+                    break;
+                case PATH_DETAILS:
+                    oldLimit = in.pushLimit(in.readRawVarint32());
+                    readPathDetails(in, details);
+                    in.popLimit(oldLimit);
+                    break;
+                case PATH_ASCEND:
+                    path.setAscend(in.readDouble());
+                    break;
+                case PATH_DESCEND:
+                    path.setDescend(in.readDouble());
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        path.setDescription(description);
+        PointList waypointList = toPointList(waypoints, elevation);
+        path.setWaypoints(waypointList);
+        List<Integer> pointsOrder = new ArrayList<>(waypointList.size());
+        for (int i = 0; i < waypointList.size(); i++)
+            pointsOrder.add(i);
+        path.setPointsOrder(pointsOrder);
+        if (points != null) {
+            PointList pointList = toPointList(points, elevation);
+            path.setPoints(pointList);
+            if (!instructions.isEmpty()) {
+                InstructionList il = new InstructionList(null);
+                int from = 0;
+                int viaCount = 1;
+                for (int i = 0; i < instructions.size(); i++) {
+                    Instruction instruction = instructions.get(i);
+                    int to = from + lengths.get(i);
+                    PointList instructionPoints = new PointList(to - from, elevation);
+                    for (int j = from; j <= to && j < pointList.size(); j++)
+                        instructionPoints.add(pointList, j);
+                    instruction.setPoints(instructionPoints);
+                    if (instruction instanceof ViaInstruction)
+                        ((ViaInstruction) instruction).setViaCount(viaCount++);
+                    il.add(instruction);
+                    from = to;
+                }
+                path.setInstructions(il);
+            }
+            path.addPathDetails(details);
+        }
+        return path;
+    }
+
+    private static int[] readPackedSInt32(CodedInputStream in) throws IOException {
+        int oldLimit = in.pushLimit(in.readRawVarint32());
+        int[] values = new int[16];
+        int size = 0;
+        while (!in.isAtEnd()) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, 2 * size);
+            values[size++] = in.readSInt32();
+        }
+        in.popLimit(oldLimit);
+        return Arrays.copyOf(values, size);
+    }
+
+    private static PointList toPointList(int[] deltas, boolean elevation) {
+        if (deltas == null)
+            return PointList.EMPTY;
+        int dim = elevation ? 3 : 2;
+        PointList pointList = new PointList(deltas.length / dim, elevation);
+        int lat = 0;
+        int lon = 0;
+        int ele = 0;
+        for (int i = 0; i + dim <= deltas.length; i += dim) {
+            lat += deltas[i];
+            lon += deltas[i + 1];
+            if (elevation) {
+                ele += deltas[i + 2];
+                pointList.add(lat / PRECISION, lon / PRECISION, ele / ELE_PRECISION);
+            } else {
+                pointList.add(lat / PRECISION, lon / PRECISION);
+            }
+        }
+        return pointList;
+    }
+
+    private static Instruction readInstruction(CodedInputStream in, boolean turnDescription, List<Integer> lengths) throws IOException {
+        String text = "";
+        String streetName = "";
+        double distance = 0;
+        long time = 0;
+        int sign = 0;
+        int length = 0;
+        Map<String, Object> extras = new HashMap<>();
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case INSTRUCTION_TEXT:
+                    text = in.readString();
+                    break;
+                case INSTRUCTION_STREET_NAME:
+                    streetName = in.readString();
+                    break;
+                case INSTRUCTION_DISTANCE:
+                    distance = in.readDouble();
+                    break;
+                case INSTRUCTION_TIME:
+                    time = in.readInt64();
+                    break;
+                case INSTRUCTION_SIGN:
+                    sign = in.readSInt32();
+                    break;
+                case INSTRUCTION_LENGTH:
+                    length = in.readInt32();
+                    break;
+                case INSTRUCTION_EXTRA:
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    String key = null;
+                    Object value = null;
+                    while (!in.isAtEnd()) {
+                        int extraTag = in.readTag();
+                        if (WireFormat.getTagFieldNumber(extraTag) == EXTRA_KEY)
+                            key = in.readString();
+                        else
+                            value = readValue(in, extraTag, value);
+                    }
+                    in.popLimit(oldLimit);
+                    extras.put(key, value);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        lengths.add(length);
+
+        // the points are set when all instructions are read, like for the JSON see ResponsePathDeserializer
+        String name = turnDescription ? text : streetName;
+        Instruction instruction;
+        switch (sign) {
+            case Instruction.USE_ROUNDABOUT:
+            case Instruction.LEAVE_ROUNDABOUT:
+                RoundaboutInstruction ri = new RoundaboutInstruction(sign, name, null);
+                if (extras.get("exit_number") instanceof Long)
+                    ri.setExitNumber(((Long) extras.get("exit_number")).intValue());
+                if (Boolean.TRUE.equals(extras.get("exited")))
+                    ri.setExited();
+                if (extras.get("turn_angle") instanceof Double) {
+                    double angle = (Double) extras.get("turn_angle");
+                    ri.setDirOfRotation(angle);
+                    ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+                }
+                instruction = ri;
+                break;
+            case Instruction.REACHED_VIA:
+                instruction = new ViaInstruction(name, null);
+                break;
+            case Instruction.FINISH:
+                instruction = new FinishInstruction(name, Double.NaN, Double.NaN, Double.NaN);
+                break;
+            default:
+                instruction = new Instruction(sign, name, null);
+                for (Map.Entry<String, Object> extra : extras.entrySet())
+                    instruction.setExtraInfo(extra.getKey(), extra.getValue());
+                break;
+        }
+        if (turnDescription)
+            instruction.setUseRawName();
+        instruction.setDistance(distance).setTime(time);
+        return instruction;
+    }
+
+    private static void readPathDetails(CodedInputStream in, Map<String, List<PathDetail>> details) throws IOException {
+        String name = null;
+        List<PathDetail> list = new ArrayList<>();
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case DETAILS_NAME:
+                    name = in.readString();
+                    break;
+                case DETAILS_INTERVALS:
+                    int oldLimit = in.pushLimit(in.readRawVarint32());
+                    int first = 0;
+                    int last = 0;
+                    Object value = null;
+                    while (!in.isAtEnd()) {
+                        int detailTag = in.readTag();
+                        int field = WireFormat.getTagFieldNumber(detailTag);
+                        if (field == DETAIL_FIRST)
+                            first = in.readInt32();
+                        else if (field == DETAIL_LAST)
+                            last = in.readInt32();
+                        else
+                            value = readValue(in, detailTag, value);
+                    }
+                    in.popLimit(oldLimit);
+                    PathDetail detail = new PathDetail(value);
+                    detail.setFirst(first);
+                    detail.setLast(last);
+                    list.add(detail);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        details.put(name, list);
+    }
+
+    /**
+     * @return the value of the field or the given value if the field is unknown
+     */
+    private static Object readValue(CodedInputStream in, int tag, Object value) throws IOException {
+        switch (WireFormat.getTagFieldNumber(tag)) {
+            case VALUE_DOUBLE:
+                return in.readDouble();
+            case VALUE_LONG:
+                return in.readSInt64();
+            case VALUE_BOOL:
+                return in.readBool();
+            case VALUE_STRING:
+                return in.readString();
+            case VALUE_JSON:
+                return objectMapper.readValue(in.readString(), Map.class);
+            default:
+                in.skipField(tag);
+                return value;
+        }
+    }
+}
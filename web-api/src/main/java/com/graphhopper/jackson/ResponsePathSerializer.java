@@ -18,6 +18,7 @@
 
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -26,6 +27,7 @@ import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.List;
@@ -59,39 +61,69 @@ public class ResponsePathSerializer {
     public static final List<String> COPYRIGHTS = Arrays.asList("GraphHopper", "OpenStreetMap contributors");
 
     public static String encodePolyline(PointList poly, boolean includeElevation, double precision) {
-        StringBuilder sb = new StringBuilder(Math.max(20, poly.size() * 3));
-        int size = poly.size();
-        int prevLat = 0;
-        int prevLon = 0;
-        int prevEle = 0;
-        for (int i = 0; i < size; i++) {
-            int num = (int) Math.floor(poly.getLat(i) * precision);
-            encodeNumber(sb, num - prevLat);
-            prevLat = num;
-            num = (int) Math.floor(poly.getLon(i) * precision);
-            encodeNumber(sb, num - prevLon);
-            prevLon = num;
-            if (includeElevation) {
-                num = (int) Math.floor(poly.getEle(i) * 100);
-                encodeNumber(sb, num - prevEle);
-                prevEle = num;
+        Polyline polyline = new Polyline(poly.size());
+        polyline.encode(poly, includeElevation, precision);
+        return polyline.toString();
+    }
+
+    /**
+     * The characters of an encoded polyline. It can be reused for several point lists, so that writing a response
+     * only needs one buffer.
+     */
+    private static final class Polyline {
+        private char[] chars;
+        private int length;
+
+        Polyline(int points) {
+            chars = new char[Math.max(20, points * 3)];
+        }
+
+        void encode(PointList poly, boolean includeElevation, double precision) {
+            length = 0;
+            int size = poly.size();
+            int prevLat = 0;
+            int prevLon = 0;
+            int prevEle = 0;
+            for (int i = 0; i < size; i++) {
+                int num = (int) Math.floor(poly.getLat(i) * precision);
+                encodeNumber(num - prevLat);
+                prevLat = num;
+                num = (int) Math.floor(poly.getLon(i) * precision);
+                encodeNumber(num - prevLon);
+                prevLon = num;
+                if (includeElevation) {
+                    num = (int) Math.floor(poly.getEle(i) * 100);
+                    encodeNumber(num - prevEle);
+                    prevEle = num;
+                }
             }
         }
-        return sb.toString();
-    }
 
-    private static void encodeNumber(StringBuilder sb, int num) {
-        num = num << 1;
-        if (num < 0) {
-            num = ~num;
+        private void encodeNumber(int num) {
+            // a number takes at most 7 characters
+            if (length + 7 > chars.length)
+                chars = Arrays.copyOf(chars, Math.max(2 * chars.length, length + 7));
+            num = num << 1;
+            if (num < 0) {
+                num = ~num;
+            }
+            while (num >= 0x20) {
+                int nextValue = (0x20 | (num & 0x1f)) + 63;
+                chars[length++] = (char) (nextValue);
+                num >>= 5;
+            }
+            num += 63;
+            chars[length++] = (char) (num);
+        }
+
+        void write(JsonGenerator gen) throws IOException {
+            gen.writeString(chars, 0, length);
         }
-        while (num >= 0x20) {
-            int nextValue = (0x20 | (num & 0x1f)) + 63;
-            sb.append((char) (nextValue));
-            num >>= 5;
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, length);
         }
-        num += 63;
-        sb.append((char) (num));
     }
 
     public static ObjectNode jsonObject(GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double took) {
@@ -129,4 +161,59 @@ public class ResponsePathSerializer {
         }
         return json;
     }
+
+    /**
+     * Writes the same JSON as {@link #jsonObject} directly to the generator, without building the tree first. The
+     * polylines are encoded into one buffer that is reused for all paths. The generator needs an ObjectMapper as
+     * codec, which is used for the instructions, legs and path details.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double took) throws IOException {
+        Polyline polyline = pointsEncoded ? new Polyline(ghRsp.getAll().isEmpty() ? 0 : ghRsp.getAll().get(0).getPoints().size()) : null;
+        gen.writeStartObject();
+        gen.writeObjectField("hints", ghRsp.getHints().toMap());
+        gen.writeObjectFieldStart("info");
+        gen.writeObjectField("copyrights", COPYRIGHTS);
+        gen.writeNumberField("took", Math.round(took));
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        for (ResponsePath p : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(p.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(p.getRouteWeight()));
+            gen.writeNumberField("time", p.getTime());
+            gen.writeNumberField("transfers", p.getNumChanges());
+            if (!p.getDescription().isEmpty()) {
+                gen.writeObjectField("description", p.getDescription());
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                gen.writeObjectField("bbox", p.calcBBox2D());
+                writePoints(gen, "points", p.getPoints(), enableElevation, polyline);
+                if (enableInstructions) {
+                    gen.writeObjectField("instructions", p.getInstructions());
+                }
+                gen.writeObjectField("legs", p.getLegs());
+                gen.writeObjectField("details", p.getPathDetails());
+                gen.writeNumberField("ascend", p.getAscend());
+                gen.writeNumberField("descend", p.getDescend());
+            }
+            writePoints(gen, "snapped_waypoints", p.getWaypoints(), enableElevation, polyline);
+            if (p.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writePoints(JsonGenerator gen, String fieldName, PointList points, boolean enableElevation, Polyline polyline) throws IOException {
+        gen.writeFieldName(fieldName);
+        if (polyline == null) {
+            gen.writeObject(points.toLineString(enableElevation));
+        } else {
+            polyline.encode(points, enableElevation, 1e5);
+            polyline.write(gen);
+        }
+    }
 }
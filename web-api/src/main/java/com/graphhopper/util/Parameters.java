@@ -81,6 +81,12 @@ public class Parameters {
             public static final String MAX_WEIGHT = ALT_ROUTE + ".max_weight_factor";
 
             public static final String MAX_SHARE = ALT_ROUTE + ".max_share_factor";
+
+            /**
+             * if true the alternatives for CH are built from the via nodes in the search spaces of the regular
+             * query instead of running extra queries for every via node candidate
+             */
+            public static final String SINGLE_SEARCH = ALT_ROUTE + ".single_search";
         }
 
         public static final class AStar {
@@ -129,6 +135,35 @@ public class Parameters {
         public static final String EDGE_BASED = "edge_based";
         public static final String TURN_COSTS = "turn_costs";
         public static final String U_TURN_COSTS = "u_turn_costs";
+        /**
+         * true or false. If true edge-based routing only distinguishes the incoming edges at nodes with turn costs,
+         * see TurnRestrictionTraversal. Can be set per profile and per request. It is only used if the request picks
+         * dijkstra or astar (also with landmarks). All other algorithms, including the default one and CH, ignore it
+         * and use the full edge-based traversal, so the routes are the same either way.
+         */
+        public static final String TURN_COST_NODES_ONLY = "turn_cost_nodes_only";
+        /**
+         * number of threads that calculate the legs of via-routes concurrently, shared by all requests
+         */
+        public static final String INIT_LEG_THREADS = ROUTING_INIT_PREFIX + "leg_threads";
+        /**
+         * the instructions and path details of paths with at least this many edges are calculated concurrently on the
+         * threads of routing.leg_threads, 0 disables it
+         */
+        public static final String INIT_PARALLEL_DETAILS_MIN_EDGES = ROUTING_INIT_PREFIX + "parallel_details_min_edges";
+        /**
+         * the number of custom model areas for which the intersecting edges are kept, 0 disables the lookup
+         */
+        public static final String INIT_AREA_EDGE_CACHE_SIZE = ROUTING_INIT_PREFIX + "area_edge_cache_size";
+        /**
+         * if false the legs of this request are calculated sequentially even if routing.leg_threads is configured
+         */
+        public static final String PARALLEL_LEGS = "parallel_legs";
+        /**
+         * the departure time as ISO-8601 date and time, enables time-dependent routing with the speed profiles of the
+         * edges, see graph.speed_profiles
+         */
+        public static final String DEPARTURE_TIME = "departure_time";
         public static final String MAX_VISITED_NODES = "max_visited_nodes";
         public static final String INIT_MAX_VISITED_NODES = ROUTING_INIT_PREFIX + MAX_VISITED_NODES;
         /**
@@ -189,6 +224,22 @@ public class Parameters {
          * This property name in HintsMap configures at runtime if CH routing should be ignored.
          */
         public static final String DISABLE = "ch.disable";
+        /**
+         * If true the shortcuts of node-based CH paths are only unpacked when the edges, points or instructions of the
+         * path are requested. The time and distance are summed up from the shortcuts. The router sets this if neither
+         * points, instructions nor path details are requested.
+         */
+        public static final String LAZY_PATH = "ch.lazy_path";
+        /**
+         * If true /isochrone and /spt use a PHAST search on the node-based CH graph of the profile instead of
+         * the flexible Dijkstra. This is only faster for large limits, because the PHAST sweep visits every node.
+         */
+        public static final String PHAST = "ch.phast";
+        /**
+         * This property name in the configuration allows custom models for CH profiles, see
+         * RouterConfig.setCHCustomModels
+         */
+        public static final String INIT_CUSTOM_MODELS = "routing.ch.custom_models";
     }
 
     /**
@@ -0,0 +1,101 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.jackson;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponsePathProtobufTest {
+
+    @Test
+    void testRoundTrip() throws IOException {
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().putObject("visited_nodes.sum", 42);
+        ResponsePath path = new ResponsePath();
+        PointList points = Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234.5, 43.252, -126.453, 1234);
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10, 43.252, -126.453, 1234));
+        path.setDistance(1234.5678).setTime(98765).setRouteWeight(123.4567891).setAscend(1224.5).setDescend(0);
+
+        InstructionList instructions = new InstructionList(null);
+        Instruction instruction = new Instruction(Instruction.CONTINUE_ON_STREET, "Main street", Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95, 1234.5));
+        instruction.setUseRawName();
+        instruction.setDistance(1234.5678).setTime(98765);
+        instruction.setExtraInfo("heading", 12.5);
+        instructions.add(instruction);
+        FinishInstruction finish = new FinishInstruction("finish", 43.252, -126.453, 1234);
+        finish.setUseRawName();
+        instructions.add(finish);
+        path.setInstructions(instructions);
+
+        PathDetail speed = new PathDetail(50.0);
+        speed.setFirst(0);
+        speed.setLast(2);
+        Map<String, Object> intersectionMap = new HashMap<>();
+        intersectionMap.put("out", 1);
+        intersectionMap.put("entry", Arrays.asList(true, false));
+        PathDetail intersection = new PathDetail(intersectionMap);
+        intersection.setFirst(1);
+        intersection.setLast(1);
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("max_speed", Collections.singletonList(speed));
+        details.put("intersection", Collections.singletonList(intersection));
+        path.addPathDetails(details);
+        rsp.add(path);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResponsePathProtobuf.write(out, rsp, true, true, true, 12.3);
+        GHResponse result = ResponsePathProtobuf.read(new ByteArrayInputStream(out.toByteArray()), true);
+
+        assertEquals("42", result.getHints().getString("visited_nodes.sum", ""));
+        assertEquals(1, result.getAll().size());
+        ResponsePath resultPath = result.getBest();
+        assertEquals(points, resultPath.getPoints());
+        assertEquals(path.getWaypoints(), resultPath.getWaypoints());
+        assertEquals(1234.568, resultPath.getDistance(), 1.e-6);
+        assertEquals(98765, resultPath.getTime());
+        assertEquals(123.456789, resultPath.getRouteWeight(), 1.e-6);
+        assertEquals(1224.5, resultPath.getAscend(), 1.e-6);
+
+        InstructionList resultInstructions = resultPath.getInstructions();
+        assertEquals(2, resultInstructions.size());
+        assertEquals("Main street", resultInstructions.get(0).getName());
+        assertEquals(Instruction.CONTINUE_ON_STREET, resultInstructions.get(0).getSign());
+        assertEquals(12.5, resultInstructions.get(0).getExtraInfoJSON().get("heading"));
+        // like for JSON the points of an instruction include the first point of the next instruction
+        assertEquals(points, resultInstructions.get(0).getPoints());
+        assertTrue(resultInstructions.get(1) instanceof FinishInstruction);
+        assertEquals(1, resultInstructions.get(1).getPoints().size());
+
+        assertEquals(50.0, resultPath.getPathDetails().get("max_speed").get(0).getValue());
+        PathDetail resultIntersection = resultPath.getPathDetails().get("intersection").get(0);
+        assertEquals(1, resultIntersection.getFirst());
+        assertEquals(1, resultIntersection.getLast());
+        assertEquals(intersectionMap, resultIntersection.getValue());
+    }
+}
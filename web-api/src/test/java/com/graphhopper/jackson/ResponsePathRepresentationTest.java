@@ -17,10 +17,20 @@
  */
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -79,4 +89,33 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
      void testEncode1e6() {
         assertEquals("ohdfzAgt}bVoEL", ResponsePathSerializer.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+     void testWriteJson() throws IOException {
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().putObject("visited_nodes.sum", 42);
+        for (int i = 0; i < 2; i++) {
+            ResponsePath path = new ResponsePath();
+            path.setPoints(Helper.createPointList3D(38.5, -120.2, 10, 40.7, -120.95 + i, 1234, 43.252, -126.453, 1234));
+            path.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10, 43.252, -126.453, 1234));
+            path.setDistance(1234.5678).setTime(98765).setRouteWeight(123.4567891).setAscend(1224).setDescend(0);
+            PathDetail detail = new PathDetail(50.0);
+            detail.setFirst(0);
+            detail.setLast(2);
+            path.addPathDetails(Collections.singletonMap("max_speed", Collections.singletonList(detail)));
+            rsp.add(path);
+        }
+
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (boolean pointsEncoded : Arrays.asList(true, false)) {
+            for (boolean enableElevation : Arrays.asList(true, false)) {
+                String expected = objectMapper.writeValueAsString(ResponsePathSerializer.jsonObject(rsp, false, true, enableElevation, pointsEncoded, 12.3));
+                StringWriter writer = new StringWriter();
+                try (JsonGenerator gen = objectMapper.getFactory().createGenerator(writer)) {
+                    ResponsePathSerializer.writeJson(gen, rsp, false, true, enableElevation, pointsEncoded, 12.3);
+                }
+                assertEquals(expected, writer.toString());
+            }
+        }
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http;
+
+import com.codahale.metrics.MetricRegistry;
+import com.graphhopper.routing.RoutingMetrics;
+
+/**
+ * Records the routing metrics as histograms named routing.&lt;profile&gt;.&lt;solver&gt;.&lt;name&gt;, e.g.
+ * routing.car.ch.latency. The durations are in μs.
+ */
+public class DropwizardRoutingMetrics implements RoutingMetrics {
+    private final MetricRegistry registry;
+
+    public DropwizardRoutingMetrics(MetricRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void record(String profile, String solver, String name, long value) {
+        registry.histogram(MetricRegistry.name("routing", profile, solver, name)).update(value);
+    }
+}
@@ -18,7 +18,9 @@
 
 package com.graphhopper.http;
 
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.graphhopper.GraphHopper;
@@ -32,6 +34,8 @@ import com.graphhopper.matching.MapMatching;
 import com.graphhopper.reader.dem.TileBasedElevationProvider;
 import com.graphhopper.resources.*;
 import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.custom.CustomModelCache;
+import com.graphhopper.routing.weighting.custom.CustomModelParser;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.TranslationMap;
@@ -44,6 +48,8 @@ import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
 import javax.inject.Inject;
 
+import java.util.concurrent.ExecutorService;
+
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
     static class TranslationMapFactory implements Factory<TranslationMap> {
@@ -271,14 +277,27 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
 
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        // a shared pool for the isochrone batch requests, so that concurrent batches cannot exhaust the server
+        int isochroneBatchThreads = configuration.getGraphHopperConfiguration().getInt("isochrone.batch.threads", Runtime.getRuntime().availableProcessors());
+        final ExecutorService isochroneBatchExecutor = environment.lifecycle().executorService("isochrone-batch-%d")
+                .minThreads(isochroneBatchThreads).maxThreads(isochroneBatchThreads).build();
+
+        CustomModelCache customModelCache = CustomModelParser.getCache();
+        environment.metrics().register("custom_model_cache.size", (Gauge<Integer>) customModelCache::getSize);
+        environment.metrics().register("custom_model_cache.hits", (Gauge<Long>) customModelCache::getHits);
+        environment.metrics().register("custom_model_cache.misses", (Gauge<Long>) customModelCache::getMisses);
+        environment.metrics().register("custom_model_cache.compile_millis", (Gauge<Long>) customModelCache::getCompileMillis);
+        graphHopper.setRoutingMetrics(new DropwizardRoutingMetrics(environment.metrics()));
 
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
                 bind(graphHopper).to(GraphHopper.class);
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
+                bind(isochroneBatchExecutor).named("isochroneBatchExecutor").to(ExecutorService.class);
                 bindFactory(MapMatchingRouterFactoryFactory.class).to(MapMatchingResource.MapMatchingRouterFactory.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
                 bindFactory(ProfileResolverFactory.class).to(ProfileResolver.class);
@@ -36,10 +36,17 @@ public class RealtimeConfiguration {
     @JsonProperty
     private List<FeedConfiguration> feeds = new ArrayList<>();
 
+    @JsonProperty
+    private long refreshIntervalSeconds = 60;
+
     public List<FeedConfiguration> getFeeds() {
         return feeds;
     }
 
+    public long getRefreshIntervalSeconds() {
+        return refreshIntervalSeconds;
+    }
+
     public HttpClientConfiguration getHttpClientConfiguration() {
         return httpClient;
     }
@@ -75,15 +75,16 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
         this.executor = Executors.newSingleThreadExecutor();
         this.cache = CacheBuilder.newBuilder()
                 .maximumSize(1)
-                .refreshAfterWrite(1, TimeUnit.MINUTES)
+                .refreshAfterWrite(bundleConfiguration.gtfsrealtime().getRefreshIntervalSeconds(), TimeUnit.SECONDS)
                 .build(new CacheLoader<String, RealtimeFeed>() {
                     public RealtimeFeed load(String key) {
-                        return fetchFeedsAndCreateGraph();
+                        return fetchFeedsAndUpdate(RealtimeFeed.empty());
                     }
 
                     @Override
                     public ListenableFuture<RealtimeFeed> reload(String key, RealtimeFeed oldValue) {
-                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndCreateGraph());
+                        // queries keep using the old feed until the updated one replaces it
+                        ListenableFutureTask<RealtimeFeed> task = ListenableFutureTask.create(() -> fetchFeedsAndUpdate(oldValue));
                         executor.execute(task);
                         return task;
                     }
@@ -112,7 +113,7 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
              */
     }
 
-    private RealtimeFeed fetchFeedsAndCreateGraph() {
+    private RealtimeFeed fetchFeedsAndUpdate(RealtimeFeed previous) {
         Map<String, GtfsRealtime.FeedMessage> feedMessageMap = new HashMap<>();
         for (FeedConfiguration configuration : bundleConfiguration.gtfsrealtime().getFeeds()) {
             try {
@@ -126,7 +127,7 @@ public class RealtimeFeedLoadingCache implements Factory<RealtimeFeed>, Managed
                 }
             }
         }
-        return RealtimeFeed.fromProtobuf(baseGraph, encodingManager, gtfsStorage, this.transfers, feedMessageMap);
+        return previous.update(baseGraph, encodingManager, gtfsStorage, this.transfers, feedMessageMap);
     }
 
 }
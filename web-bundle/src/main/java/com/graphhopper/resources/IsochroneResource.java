@@ -1,12 +1,16 @@
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
+import com.graphhopper.isochrone.algorithm.PhastShortestPathTree;
 import com.graphhopper.isochrone.algorithm.ShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.ResponsePathSerializer;
@@ -20,15 +24,18 @@ import com.graphhopper.routing.weighting.BlockAreaWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.RoutingCHGraph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.GHPoint;
 import org.hibernate.validator.constraints.Range;
 import org.locationtech.jts.geom.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -36,6 +43,9 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.ToDoubleFunction;
 
 import static com.graphhopper.resources.IsochroneResource.ResponseType.GEOJSON;
@@ -51,16 +61,49 @@ public class IsochroneResource {
     private final GraphHopper graphHopper;
     private final Triangulator triangulator;
     private final ProfileResolver profileResolver;
+    private final ExecutorService batchExecutor;
+    private final int maxBatchSize;
 
     @Inject
-    public IsochroneResource(GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver) {
+    public IsochroneResource(GraphHopperConfig config, GraphHopper graphHopper, Triangulator triangulator, ProfileResolver profileResolver,
+                             @Named("isochroneBatchExecutor") ExecutorService batchExecutor) {
         this.graphHopper = graphHopper;
         this.triangulator = triangulator;
         this.profileResolver = profileResolver;
+        this.batchExecutor = batchExecutor;
+        this.maxBatchSize = config.getInt("isochrone.batch.max_size", 500);
     }
 
     public enum ResponseType {JSON, GEOJSON}
 
+    /**
+     * The parameters of a single isochrone calculation. For the GET request they are read from the query
+     * parameters, for the batch request every entry of the JSON body is one such request. If several points are
+     * given the isochrone is the union of the isochrones of all points, calculated with a single search.
+     */
+    public static class IsochroneRequest {
+        @JsonProperty("profile")
+        public String profile;
+        @JsonProperty("points")
+        public List<GHPoint> points = new ArrayList<>();
+        @JsonProperty("buckets")
+        public int buckets = 1;
+        @JsonProperty("reverse_flow")
+        public boolean reverseFlow = false;
+        @JsonProperty("time_limit")
+        public long timeLimitInSeconds = 600;
+        @JsonProperty("distance_limit")
+        public long distanceLimitInMeter = -1;
+        @JsonProperty("weight_limit")
+        public long weightLimit = -1;
+        @JsonProperty("tolerance")
+        public double toleranceInMeter = 0;
+        @JsonProperty("full_geometry")
+        public boolean fullGeometry = false;
+        @JsonProperty("hints")
+        public Map<String, Object> hints = new HashMap<>();
+    }
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response doGet(
@@ -78,12 +121,92 @@ public class IsochroneResource {
         StopWatch sw = new StopWatch().start();
         PMap hintsMap = new PMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
+
+        IsochroneRequest request = new IsochroneRequest();
+        request.profile = profileName;
+        request.points = Collections.singletonList(point.get());
+        request.buckets = nBuckets.orElseThrow(() -> new IllegalArgumentException("query param buckets is not a number."));
+        request.reverseFlow = reverseFlow;
+        request.timeLimitInSeconds = timeLimitInSeconds.orElseThrow(() -> new IllegalArgumentException("query param time_limit is not a number."));
+        request.distanceLimitInMeter = distanceLimitInMeter.orElseThrow(() -> new IllegalArgumentException("query param distance_limit is not a number."));
+        request.weightLimit = weightLimit.orElseThrow(() -> new IllegalArgumentException("query param weight_limit is not a number."));
+        request.toleranceInMeter = toleranceInMeter;
+        request.fullGeometry = fullGeometry;
+        List<JsonFeature> features = calcIsochrones(request, hintsMap, respType);
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+
+        sw.stop();
+        ObjectNode finalJson = null;
+        finalJson = cicciodue(respType, sw, features, json);
+
+        return Response.ok(finalJson).header("X-GH-Took", "" + sw.getSeconds() * 1000).
+                build();
+    }
+
+    /**
+     * Calculates many isochrones with one HTTP request. The isochrones are calculated concurrently on a worker pool
+     * shared by all batch requests. A failing isochrone does not fail the whole batch, instead the corresponding
+     * entry contains an error message.
+     */
+    @POST
+    @Path("batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPostBatch(@NotNull List<IsochroneRequest> requests) {
+        StopWatch sw = new StopWatch().start();
+        if (requests.size() > maxBatchSize)
+            throw new IllegalArgumentException("Too many isochrone requests: " + requests.size() + ", the maximum is " + maxBatchSize);
+
+        List<Future<List<JsonFeature>>> futures = new ArrayList<>(requests.size());
+        for (IsochroneRequest request : requests) {
+            PMap hintsMap = new PMap(request.hints);
+            futures.add(batchExecutor.submit(() -> calcIsochrones(request, hintsMap, ResponseType.JSON)));
+        }
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        ArrayNode results = json.putArray("results");
+        for (Future<List<JsonFeature>> future : futures) {
+            ObjectNode result = results.addObject();
+            try {
+                result.putPOJO("polygons", future.get());
+            } catch (ExecutionException e) {
+                logger.info("Isochrone of batch request failed", e.getCause());
+                result.put("message", getMessage(e.getCause()));
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Isochrone batch request was interrupted", e);
+            }
+        }
+        sw.stop();
+        final ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
+        info.put("took", sw.getMillis());
+        return Response.ok(json).header("X-GH-Took", "" + sw.getSeconds() * 1000).
+                build();
+    }
+
+    private static String getMessage(Throwable throwable) {
+        if (throwable instanceof IllegalArgumentException)
+            return throwable.getMessage();
+        if (throwable instanceof ContourBuilder.CounterExce)
+            return "Could not build the isochrone";
+        return "Internal error: " + throwable.getClass().getSimpleName();
+    }
+
+    private List<JsonFeature> calcIsochrones(IsochroneRequest request, PMap hintsMap, ResponseType respType) throws ContourBuilder.CounterExce {
+        if (request.points == null || request.points.isEmpty())
+            throw new IllegalArgumentException("At least one point is required");
+        if (request.buckets < 1 || request.buckets > 20)
+            throw new IllegalArgumentException("buckets must be between 1 and 20");
+        boolean disableCH = hintsMap.getBool(Parameters.CH.DISABLE, false);
         hintsMap.putObject(Parameters.CH.DISABLE, true);
         hintsMap.putObject(Parameters.Landmark.DISABLE, true);
 
         PMap profileResolverHints = new PMap(hintsMap);
-        profileResolverHints.putObject("profile", profileName);
-        profileName = profileResolver.resolveProfile(profileResolverHints);
+        profileResolverHints.putObject("profile", request.profile);
+        String profileName = profileResolver.resolveProfile(profileResolverHints);
         removeLegacyParameters(hintsMap);
 
         Profile profile = graphHopper.getProfile(profileName);
@@ -92,40 +215,44 @@ public class IsochroneResource {
         BaseGraph graph = graphHopper.getBaseGraph();
         Weighting weighting = graphHopper.createWeighting(profile, hintsMap);
         BooleanEncodedValue inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileName));
-        weighting = mariodue(point, hintsMap, locationIndex, graph, weighting);
-        Snap snap = locationIndex.findClosest(point.get().getLat(), point.get().getLon(), new DefaultSnapFilter(weighting, inSubnetworkEnc));
-        mariotre(point, snap);
-        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        weighting = mariodue(request.points, hintsMap, locationIndex, graph, weighting);
+        List<Snap> snaps = new ArrayList<>(request.points.size());
+        for (GHPoint point : request.points) {
+            Snap snap = locationIndex.findClosest(point.getLat(), point.getLon(), new DefaultSnapFilter(weighting, inSubnetworkEnc));
+            mariotre(point, snap);
+            snaps.add(snap);
+        }
+        QueryGraph queryGraph = QueryGraph.create(graph, snaps);
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
+        ShortestPathTree shortestPathTree = createShortestPathTree(graphHopper, profileName, hintsMap, disableCH, queryGraph, weighting, request.reverseFlow, traversalMode);
 
         double limit;
         ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
-        if (weightLimit.orElseThrow(() -> new IllegalArgumentException("query param weight_limit is not a number.")) > 0) {
-            limit = weightLimit.getAsLong();
+        if (request.weightLimit > 0) {
+            limit = request.weightLimit;
             shortestPathTree.setWeightLimit(limit + Math.max(limit * 0.14, 2_000));
             fz = l -> l.getWeight();
-        } else if (distanceLimitInMeter.orElseThrow(() -> new IllegalArgumentException("query param distance_limit is not a number.")) > 0) {
-            limit = distanceLimitInMeter.getAsLong();
+        } else if (request.distanceLimitInMeter > 0) {
+            limit = request.distanceLimitInMeter;
             shortestPathTree.setDistanceLimit(limit + Math.max(limit * 0.14, 2_000));
             fz = l -> l.getDistance();
         } else {
-            limit = timeLimitInSeconds.orElseThrow(() -> new IllegalArgumentException("query param time_limit is not a number.")) * 1000d;
+            limit = request.timeLimitInSeconds * 1000d;
             shortestPathTree.setTimeLimit(limit + Math.max(limit * 0.14, 200_000));
             fz = l -> l.getTime();
         }
         ArrayList<Double> zs = new ArrayList<>();
-        double delta = limit / nBuckets.orElseThrow(() -> new IllegalArgumentException("query param buckets is not a number."));
-        mariotre(nBuckets, zs, delta);
+        double delta = limit / request.buckets;
+        mariotre(request.buckets, zs, delta);
 
-        Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
+        Triangulator.Result result = triangulator.triangulate(snaps, queryGraph, shortestPathTree, fz, degreesFromMeters(request.toleranceInMeter));
 
         ContourBuilder contourBuilder = new ContourBuilder(result.triangulation);
         ArrayList<Geometry> isochrones = new ArrayList<>();
         for (Double z : zs) {
             logger.info("Building contour z={}", z);
             MultiPolygon isochrone = contourBuilder.computeIsoline(z, result.seedEdges);
-            marioquattro(point, fullGeometry, isochrones, z, isochrone);
+            marioquattro(request.points, request.fullGeometry, isochrones, z, isochrone);
         }
         ArrayList<JsonFeature> features = new ArrayList<>();
         for (Geometry isochrone : isochrones) {
@@ -139,17 +266,24 @@ public class IsochroneResource {
             feature.setGeometry(isochrone);
             features.add(feature);
         }
-        ObjectNode json = JsonNodeFactory.instance.objectNode();
-
-        sw.stop();
-        ObjectNode finalJson = null;
-        finalJson = cicciodue(respType, sw, features, json);
+        return features;
+    }
 
-        return Response.ok(finalJson).header("X-GH-Took", "" + sw.getSeconds() * 1000).
-                build();
+    /**
+     * Uses the PHAST search if it was requested via ch.phast=true and there is a node-based CH graph for the profile,
+     * unless CH is disabled explicitly or the weighting was changed for this request (e.g. by a block_area). PHAST
+     * visits every node of the graph, so it is only faster than the Dijkstra for large limits.
+     */
+    static ShortestPathTree createShortestPathTree(GraphHopper graphHopper, String profileName, PMap hintsMap, boolean disableCH,
+                                                   QueryGraph queryGraph, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
+        RoutingCHGraph chGraph = graphHopper.getCHGraphs().get(profileName);
+        if (hintsMap.getBool(Parameters.CH.PHAST, false) && !disableCH && chGraph != null && chGraph.getShortcutMetadata() != null && !traversalMode.isEdgeBased()
+                && !hintsMap.has(Parameters.Routing.BLOCK_AREA))
+            return new PhastShortestPathTree(queryGraph, chGraph, reverseFlow);
+        return new ShortestPathTree(queryGraph, queryGraph.wrapWeighting(weighting), reverseFlow, traversalMode);
     }
 
-    private static ObjectNode cicciodue(ResponseType respType, StopWatch sw, ArrayList<JsonFeature> features, ObjectNode json) {
+    private static ObjectNode cicciodue(ResponseType respType, StopWatch sw, List<JsonFeature> features, ObjectNode json) {
         ObjectNode finalJson;
         if (respType == GEOJSON) {
             json.put("type", "FeatureCollection");
@@ -165,34 +299,47 @@ public class IsochroneResource {
         return finalJson;
     }
 
-    private void marioquattro(GHPointParam point, boolean fullGeometry, ArrayList<Geometry> isochrones, Double z, MultiPolygon isochrone) {
+    private void marioquattro(List<GHPoint> points, boolean fullGeometry, ArrayList<Geometry> isochrones, Double z, MultiPolygon isochrone) {
         if (fullGeometry) {
             isochrones.add(isochrone);
-        } else {
-            Polygon maxPolygon = heuristicallyFindMainConnectedComponent(isochrone, isochrone.getFactory().createPoint(new Coordinate(point.get().getLon(), point.get().getLat())));
+        } else if (points.size() == 1) {
+            GHPoint point = points.get(0);
+            Polygon maxPolygon = heuristicallyFindMainConnectedComponent(isochrone, isochrone.getFactory().createPoint(new Coordinate(point.getLon(), point.getLat())));
             if (maxPolygon != null) {
                 isochrones.add(isochrone.getFactory().createPolygon((maxPolygon.getExteriorRing())));
             } else {
                 logger.warn("Empty isochrone found for z={}", z);
             }
+        } else {
+            // for several points we keep the main connected component of every point
+            Set<Polygon> polygons = new LinkedHashSet<>();
+            for (GHPoint point : points) {
+                Polygon maxPolygon = heuristicallyFindMainConnectedComponent(isochrone, isochrone.getFactory().createPoint(new Coordinate(point.getLon(), point.getLat())));
+                if (maxPolygon != null)
+                    polygons.add(isochrone.getFactory().createPolygon(maxPolygon.getExteriorRing()));
+            }
+            if (polygons.isEmpty())
+                logger.warn("Empty isochrone found for z={}", z);
+            else
+                isochrones.add(isochrone.getFactory().createMultiPolygon(polygons.toArray(new Polygon[0])));
         }
     }
 
-    private static void mariotre(OptionalInt nBuckets, ArrayList<Double> zs, double delta) {
-        for (int i = 0; i < nBuckets.getAsInt(); i++) {
+    private static void mariotre(int nBuckets, ArrayList<Double> zs, double delta) {
+        for (int i = 0; i < nBuckets; i++) {
             zs.add((i + 1) * delta);
         }
     }
 
-    private static void mariotre(GHPointParam point, Snap snap) {
+    private static void mariotre(GHPoint point, Snap snap) {
         if (!snap.isValid())
             throw new IllegalArgumentException("Point not found:" + point);
     }
 
-    private static Weighting mariodue(GHPointParam point, PMap hintsMap, LocationIndex locationIndex, BaseGraph graph, Weighting weighting) {
+    private static Weighting mariodue(List<GHPoint> points, PMap hintsMap, LocationIndex locationIndex, BaseGraph graph, Weighting weighting) {
         if (hintsMap.has(Parameters.Routing.BLOCK_AREA)) {
             GraphEdgeIdFinder.BlockArea blockArea = GraphEdgeIdFinder.createBlockArea(graph, locationIndex,
-                    Collections.singletonList(point.get()), hintsMap, new FiniteWeightFilter(weighting));
+                    points, hintsMap, new FiniteWeightFilter(weighting));
             weighting = new BlockAreaWeighting(weighting, blockArea);
         }
         return weighting;
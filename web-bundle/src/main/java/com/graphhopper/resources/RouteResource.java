@@ -17,6 +17,8 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
@@ -24,6 +26,7 @@ import com.graphhopper.gpx.GpxConversions;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.http.ProfileResolver;
 import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathProtobuf;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.GHPoint;
@@ -59,21 +62,25 @@ public class RouteResource {
     private final GraphHopper graphHopper;
     private final ProfileResolver profileResolver;
     private final Boolean hasElevation;
+    private final ObjectMapper objectMapper;
 
     private static final String GX="X-GH-Took";
+    private static final MediaType PROTOBUF_TYPE = MediaType.valueOf(ResponsePathProtobuf.MEDIA_TYPE);
 
     @Inject
-    public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopper graphHopper, ProfileResolver profileResolver, @Named("hasElevation") Boolean hasElevation, ObjectMapper objectMapper) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.hasElevation = hasElevation;
+        this.objectMapper = objectMapper;
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", ResponsePathProtobuf.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
+            @Context HttpHeaders httpHeaders,
             @QueryParam(WAY_POINT_MAX_DISTANCE) @DefaultValue("1") double minPathPrecision,
             @QueryParam(ELEVATION_WAY_POINT_MAX_DISTANCE) Double minPathElevationPrecision,
             @QueryParam("point") @NotNull List<GHPointParam> pointParams,
@@ -149,17 +156,16 @@ public class RouteResource {
                             header(GX, "" + Math.round(took)).
                             build()
                     :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    successResponseBuilder(httpHeaders, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took).
                             header(GX, "" + Math.round(took)).
-                            type(MediaType.APPLICATION_JSON).
                             build();
         }
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq) {
+    @Produces({MediaType.APPLICATION_JSON, ResponsePathProtobuf.MEDIA_TYPE})
+    public Response doPost(@NotNull GHRequest request, @Context HttpServletRequest httpReq, @Context HttpHeaders httpHeaders) {
         StopWatch sw = new StopWatch().start();
         if (Helper.isEmpty(request.getProfile()) && request.getCustomModel() != null)
             // throw a dedicated exception here, otherwise a missing profile is still caught in Router
@@ -193,13 +199,46 @@ public class RouteResource {
                     ghResponse.getBest().getRouteWeight(), Math.round(ghResponse.getBest().getTime() / 60000f),
                     ghResponse.getBest().getPoints().size(), ghResponse.getDebugInfo());
 
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+            return successResponseBuilder(httpHeaders, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took).
                     header(GX, "" + Math.round(took)).
-                    type(MediaType.APPLICATION_JSON).
                     build();
         }
     }
 
+    private Response.ResponseBuilder successResponseBuilder(HttpHeaders httpHeaders, GHResponse ghResponse, boolean instructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double took) {
+        if (acceptsProtobuf(httpHeaders.getAcceptableMediaTypes()))
+            return Response.ok((StreamingOutput) output -> ResponsePathProtobuf.write(output, ghResponse, instructions, calcPoints, enableElevation, took),
+                    ResponsePathProtobuf.MEDIA_TYPE);
+        return Response.ok(jsonOutput(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                type(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * @return true if the binary format is preferred over JSON. The media types are sorted by their quality and
+     * wildcards select JSON.
+     */
+    static boolean acceptsProtobuf(List<MediaType> acceptableMediaTypes) {
+        for (MediaType mediaType : acceptableMediaTypes) {
+            if (!mediaType.isWildcardType() && !mediaType.isWildcardSubtype() && mediaType.isCompatible(PROTOBUF_TYPE))
+                return true;
+            if (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE))
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the response directly to the output stream instead of building the JSON tree first, which would keep
+     * the encoded points, instructions and path details of all paths on the heap until the whole tree is written.
+     */
+    private StreamingOutput jsonOutput(GHResponse ghResponse, boolean instructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, double took) {
+        return output -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                ResponsePathSerializer.writeJson(gen, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            }
+        };
+    }
+
     public static void removeLegacyParameters(PMap hints) {
         // these parameters should only be used to resolve the profile, but should not be passed to GraphHopper
         hints.remove("weighting");
@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.application;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.matching.BoundedOneToManyDijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ev.BooleanEncodedValue;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.VehicleAccess;
+import com.graphhopper.routing.ev.VehicleSpeed;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.BaseGraph;
+import com.graphhopper.storage.MMapDataAccess;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedOneToManyDijkstraTest {
+
+    @Test
+    public void maxDistanceDoesNotHideShorterPaths() throws MMapDataAccess.MappaExce {
+        BooleanEncodedValue accessEnc = VehicleAccess.create("car");
+        DecimalEncodedValue speedEnc = VehicleSpeed.create("car", 5, 5, true);
+        EncodingManager em = EncodingManager.start().add(accessEnc).add(speedEnc).build();
+        BaseGraph graph = new BaseGraph.Builder(em).create();
+        // 0-1-2 is long but fast, 0-3-2 is short but slow, and both continue with 2-4-5
+        GHUtility.setSpeed(100, 100, accessEnc, speedEnc, graph.edge(0, 1).setDistance(1300));
+        GHUtility.setSpeed(100, 100, accessEnc, speedEnc, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(10, 10, accessEnc, speedEnc, graph.edge(0, 3).setDistance(200));
+        GHUtility.setSpeed(10, 10, accessEnc, speedEnc, graph.edge(3, 2).setDistance(200));
+        GHUtility.setSpeed(50, 50, accessEnc, speedEnc, graph.edge(2, 4).setDistance(100));
+        GHUtility.setSpeed(50, 50, accessEnc, speedEnc, graph.edge(4, 5).setDistance(100));
+        QueryGraph queryGraph = QueryGraph.create(graph, Collections.emptyList());
+        BoundedOneToManyDijkstra dijkstra = new BoundedOneToManyDijkstra(new FastestWeighting(accessEnc, speedEnc));
+        int[] toNodes = {4, 5};
+        int[] toInEdges = {ANY_EDGE, ANY_EDGE};
+
+        // without a limit we get the fast paths
+        List<Path> paths = dijkstra.calcPaths(queryGraph, 0, ANY_EDGE, toNodes, toInEdges, Double.POSITIVE_INFINITY);
+        assertEquals(IntArrayList.from(0, 1, 2, 4), paths.get(0).calcNodes());
+        assertEquals(IntArrayList.from(0, 1, 2, 4, 5), paths.get(1).calcNodes());
+        assertEquals(1600, paths.get(1).getDistance(), 1.e-6);
+
+        // the fast path to 5 is too long, so we get the slow path, even though the fast path to 4 dominates the slow
+        // one by weight
+        paths = dijkstra.calcPaths(queryGraph, 0, ANY_EDGE, toNodes, toInEdges, 1500);
+        assertEquals(IntArrayList.from(0, 1, 2, 4), paths.get(0).calcNodes());
+        assertEquals(IntArrayList.from(0, 3, 2, 4, 5), paths.get(1).calcNodes());
+        assertEquals(600, paths.get(1).getDistance(), 1.e-6);
+
+        paths = dijkstra.calcPaths(queryGraph, 0, ANY_EDGE, toNodes, toInEdges, 500);
+        assertEquals(IntArrayList.from(0, 3, 2, 4), paths.get(0).calcNodes());
+        assertFalse(paths.get(1).isFound());
+    }
+}
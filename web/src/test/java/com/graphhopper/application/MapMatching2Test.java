@@ -30,14 +30,22 @@ import com.graphhopper.storage.MMapDataAccess;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 import com.graphhopper.util.TranslationMap;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static com.graphhopper.application.MapMatchingTest.fetchStreets;
 import static org.junit.jupiter.api.Assertions.*;
@@ -86,8 +94,57 @@ public class MapMatching2Test {
         assertEquals(28790, mr.getMatchMillis(), 50);
     }
 
-    @Test
-    public void testIssue70() throws IOException, MapExc, TranslationMap.TransExce {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3})
+    public void testIssue13Streaming(int windowSize) throws IOException, MapExc, TranslationMap.TransExce {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setProfiles(new Profile("my_profile").setVehicle("car").setWeighting("fastest"));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
+        try {
+            hopper.importOrLoad();
+        } catch (lockexception | MMapDataAccess.MapExce e) {
+            e.printStackTrace();
+        } catch (closefile e) {
+            e.printStackTrace();
+        }
+
+        MapMatching mapMatching = MapMatching.fromGraphHopper(hopper, new PMap().putObject("profile", "my_profile"));
+        Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        MatchResult mr = mapMatching.match(GpxConversions.getEntries(gpx.trk.get(0)));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<EdgeMatch> edgeMatches = new ArrayList<>();
+            // use a small window so the trace is matched in several steps. with a single observation per window the
+            // candidates of the first observation stay ambiguous for several steps and must not be committed early
+            StreamingMapMatching streaming = mapMatching.createStreamingMatcher(executor, edgeMatches::add).setWindowSize(windowSize);
+            for (Observation observation : GpxConversions.getEntries(gpx.trk.get(0))) {
+                streaming.add(observation);
+            }
+            streaming.finish();
+
+            assertEquals(toString(mr.getEdgeMatches()), toString(edgeMatches));
+            for (EdgeMatch em : edgeMatches) {
+                validateEdgeMatch(em);
+            }
+            assertEquals(mr.getMatchLength(), streaming.getMatchLength(), 1.e-6);
+            assertEquals(mr.getMatchMillis(), streaming.getMatchMillis());
+            assertEquals(mr.getGpxEntriesLength(), streaming.getGpxEntriesLength(), 1.e-6);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<String> toString(List<EdgeMatch> edgeMatches) {
+        return edgeMatches.stream().map(em -> em.getEdgeState().getBaseNode() + "-" + em.getEdgeState().getAdjNode() + ":" + em.getStates().size())
+                .collect(Collectors.toList());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testIssue70(boolean disableLM) throws IOException, MapExc, TranslationMap.TransExce {
         GraphHopper hopper = new GraphHopper();
         hopper.setOSMFile("../map-matching/files/issue-70.osm.gz");
         hopper.setGraphHopperLocation(GH_LOCATION);
@@ -101,7 +158,9 @@ public class MapMatching2Test {
            e.printStackTrace();
         }
 
-        MapMatching mapMatching = MapMatching.fromGraphHopper(hopper, new PMap().putObject("profile", "my_profile"));
+        // without landmarks the transitions are calculated with a single one-to-many search per candidate
+        MapMatching mapMatching = MapMatching.fromGraphHopper(hopper, new PMap().putObject("profile", "my_profile")
+                .putObject(Parameters.Landmark.DISABLE, disableLM));
 
         Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-70.gpx"), Gpx.class);
         MatchResult mr = mapMatching.match(GpxConversions.getEntries(gpx.trk.get(0)));
@@ -36,6 +36,7 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Polygon;
 
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import java.io.File;
@@ -297,6 +298,30 @@ public class IsochroneResourceTest {
         assertTrue(polygon1.contains(geometryFactory.createPoint(new Coordinate(1.58864, 42.554582))));
     }
 
+    @Test
+    void requestBatch() {
+        String jsonStr = "[" +
+                "{\"profile\": \"fast_car\", \"points\": [[1.573792,42.531073]], \"time_limit\": 130}," +
+                "{\"profile\": \"fast_car_no_turn_restrictions\", \"points\": [[1.573792,42.531073], [1.589756,42.558012]], \"time_limit\": 60}," +
+                "{\"profile\": \"fast_car\", \"points\": [[-1.816719,51.557148]]}" +
+                "]";
+        Response response = clientTarget(app, "/isochrone/batch").request().post(Entity.json(jsonStr));
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.has("info"));
+        JsonNode results = json.get("results");
+        assertEquals(3, results.size());
+        assertEquals(1, results.get(0).get("polygons").size());
+
+        // the union of both isochrones contains both points
+        JsonNode union = results.get(1).get("polygons");
+        assertEquals(1, union.size());
+        assertEquals("MultiPolygon", union.get(0).get("geometry").get("type").asText());
+        assertEquals(2, union.get(0).get("geometry").get("coordinates").size());
+
+        assertTrue(results.get(2).get("message").asText().contains("Point not found"), results.get(2).toString());
+    }
+
     @Test
     void requestJsonWithType() {
         Response response = clientTarget(app, "/isochrone?profile=fast_car&point=42.531073,1.573792&time_limit=130&type=json")
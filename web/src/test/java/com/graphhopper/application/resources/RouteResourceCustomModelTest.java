@@ -122,6 +122,14 @@ public class RouteResourceCustomModelTest {
         assertEquals(path.get("time").asLong(), 151_000, 1_000);
     }
 
+    @Test
+     void testRoutingMetrics() {
+        String body = "{\"points\": [[11.58199, 50.0141], [11.5865, 50.0095]], \"profile\": \"truck\"}";
+        getPath(body);
+        assertTrue(app.getEnvironment().metrics().getHistograms().get("routing.truck.ch.latency").getCount() > 0);
+        assertTrue(app.getEnvironment().metrics().getHistograms().get("routing.truck.ch.visited_nodes").getSnapshot().getMax() > 0);
+    }
+
     @Test
      void testDisableCHAndUseCustomModel() {
         // if1 we specify a custom model we get an error, because it does not work with CH.